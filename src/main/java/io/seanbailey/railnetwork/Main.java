@@ -1,12 +1,35 @@
 package io.seanbailey.railnetwork;
 
+import io.seanbailey.railnetwork.analytics.BetweennessCentrality;
+import io.seanbailey.railnetwork.analytics.Centrality;
+import io.seanbailey.railnetwork.analytics.CentralityCsvWriter;
+import io.seanbailey.railnetwork.capture.QueryLog;
+import io.seanbailey.railnetwork.capture.QueryRecord;
+import io.seanbailey.railnetwork.capture.QueryReplayer;
+import io.seanbailey.railnetwork.capture.ReplayReport;
 import io.seanbailey.railnetwork.exception.ParseException;
 import io.seanbailey.railnetwork.exception.ValidationException;
-import io.seanbailey.railnetwork.parser.StationParser;
-import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.graph.GraphStorage;
+import io.seanbailey.railnetwork.labeling.HubLabeler;
+import io.seanbailey.railnetwork.labeling.HubLabels;
+import io.seanbailey.railnetwork.loadtest.LoadTest;
+import io.seanbailey.railnetwork.loadtest.LoadTestReport;
+import io.seanbailey.railnetwork.loadtest.ReportComparison;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.route.RouteSerializer;
+import io.seanbailey.railnetwork.route.TextRouteSerializer;
+import io.seanbailey.railnetwork.service.NetworkHost;
+import io.seanbailey.railnetwork.service.ServiceConsole;
+import io.seanbailey.railnetwork.service.WarmUp;
 import io.seanbailey.railnetwork.util.Logger;
-import io.seanbailey.railnetwork.util.MinHeap;
-import java.io.File;
+import io.seanbailey.railnetwork.util.OutputBuffer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Main entry point to the application. For an entry point that conforms to the 
@@ -31,12 +54,80 @@ import java.io.File;
 public class Main {
 
   private static final Logger logger = new Logger();
+  private static final RouteSerializer serializer = new TextRouteSerializer();
+
+  // System property which selects where the graph is stored
+  private static final String STORAGE_PROPERTY = "railnetwork.storage";
+
+  // System properties which configure the service warm-up
+  private static final String WARMUP_THREADS_PROPERTY = "railnetwork.warmup.threads";
+  private static final String WARMUP_BUDGET_PROPERTY = "railnetwork.warmup.budget";
+  private static final String WARMUP_QUERIES_PROPERTY = "railnetwork.warmup.queries";
+
+  // System property which labels the build in load test reports
+  private static final String LOAD_TEST_LABEL_PROPERTY = "railnetwork.loadtest.label";
+
+  // System property which names a log to capture served queries to
+  private static final String CAPTURE_PROPERTY = "railnetwork.capture";
+
+  // System property which selects the captured network to replay
+  private static final String REPLAY_NETWORK_PROPERTY = "railnetwork.replay.network";
+
+  // Flag which starts the long running service
+  private static final String SERVE_FLAG = "--serve";
+
+  // Flag which writes centrality reports instead of finding a route
+  private static final String ANALYZE_FLAG = "--analyze";
+
+  // Flags which run a load test, and compare two load test reports
+  private static final String LOAD_TEST_FLAG = "--load-test";
+  private static final String COMPARE_FLAG = "--compare";
+
+  // Flag which replays a query log
+  private static final String REPLAY_FLAG = "--replay";
+
+  // Flag which builds hub labels, and looks up travel times with them
+  private static final String LABELS_FLAG = "--labels";
 
   /**
    * Main entry point.
    * @param args An array of command line args from STDIN.
    */
   public static void main(String[] args) {
+    // Run as a long running service
+    if (args.length > 0 && args[0].equals(SERVE_FLAG)) {
+      serve(args);
+      return;
+    }
+
+    // Run network analytics
+    if (args.length > 0 && args[0].equals(ANALYZE_FLAG)) {
+      analyze(args);
+      return;
+    }
+
+    // Run a load test, or compare two of them
+    if (args.length > 0 && args[0].equals(LOAD_TEST_FLAG)) {
+      loadTest(args);
+      return;
+    }
+    if (args.length > 0 && args[0].equals(COMPARE_FLAG)) {
+      compare(args);
+      return;
+    }
+
+    // Replay captured queries
+    if (args.length > 0 && args[0].equals(REPLAY_FLAG)) {
+      replay(args);
+      return;
+    }
+
+    // Build or query hub labels
+    if (args.length > 0 && args[0].equals(LABELS_FLAG)) {
+      labels(args);
+      return;
+    }
+
     // Ensure we have enough args
     if (args.length < 3) {
       logger.error("Not enough arguments.");
@@ -45,61 +136,402 @@ public class Main {
     }
 
     // Input
-    File file;
-    MinHeap<Station> stations;
     String origin = args[1];
     String destination = args[2];
     logger.debug("%s → %s", origin, destination);
 
     try {
-      // Retrieve and validate file
-      file = validateFile(args[0]);
-
-      // Parse file and retrieve stations
-      StationParser parser = new StationParser();
-      stations = parser.parse(file);
+      // Load network
+      RailNetwork network = new NetworkLoader()
+          .setStorage(getStorage())
+          .load(args[0]);
 
       // Find shortest path
-      RailNetwork network = new RailNetwork(stations);
-      network.findShortestPath(origin, destination);
+      Route route = network.findShortestPath(origin, destination);
+
+      // Print route
+      OutputBuffer buffer = new OutputBuffer();
+      serializer.write(route, buffer);
+      buffer.writeTo(System.out);
+      System.out.flush();
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+      return;
+    } catch (IOException exception) {
+      logger.error("Could not print route. %s", exception.getMessage());
+      return;
+    }
+  }
+
+  /**
+   * Loads one or more networks, then answers commands from STDIN until it
+   * closes. Each network is named <code>name=dataFile</code>, or after its
+   * file if no name is given. Network files are reloaded whenever they
+   * change.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.service.ServiceConsole
+   */
+  private static void serve(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 2) {
+      logger.error("Not enough arguments.");
+      printUsage();
+      return;
+    }
+
+    NetworkLoader loader;
+    WarmUp warmUp;
+    try {
+      loader = new NetworkLoader().setStorage(getStorage());
+      warmUp = getWarmUp();
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+      return;
+    } catch (IOException exception) {
+      logger.error("Could not read warm-up queries. %s", exception.getMessage());
+      return;
+    }
+
+    try (NetworkHost host = new NetworkHost(loader)) {
+      for (int i = 1; i < args.length; i++) {
+        int split = args[i].indexOf('=');
+        String path = args[i].substring(split + 1);
+        String name = split > 0
+            ? args[i].substring(0, split)
+            : Paths.get(path).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+        host.add(name, path);
+      }
+
+      // Only accept commands once every network is warm
+      host.warmUp(warmUp);
+      host.watch();
+
+      String capture = System.getProperty(CAPTURE_PROPERTY);
+      if (capture != null) {
+        host.capture(Paths.get(capture));
+      }
+
+      new ServiceConsole(host, serializer).run(System.in, System.out);
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Service stopped. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Loads a network and writes the betweenness centrality of its stations and
+   * the load on its edges as two CSV files.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.analytics.BetweennessCentrality
+   */
+  private static void analyze(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 4) {
+      logger.error("Not enough arguments.");
+      printUsage();
+      return;
+    }
+
+    try {
+      int samples = args.length > 4 ? parseSamples(args[4]) : 0;
+      RailNetwork network = new NetworkLoader()
+          .setStorage(getStorage())
+          .load(args[1]);
+
+      long start = System.nanoTime();
+      Centrality centrality = new BetweennessCentrality()
+          .setSampleSize(samples)
+          .compute(network.getGraph());
+      logger.info("Searched from %d stations in %d ms.",
+          centrality.getSourceCount(), (System.nanoTime() - start) / 1000000);
+
+      // Write reports
+      CentralityCsvWriter writer = new CentralityCsvWriter();
+      OutputBuffer buffer = new OutputBuffer();
+      writer.writeStations(centrality, buffer);
+      write(buffer, args[2]);
+
+      buffer.clear();
+      writer.writeEdges(centrality, buffer);
+      write(buffer, args[3]);
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Could not write report. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Loads a network, drives it with simulated clients, then writes a report
+   * of its throughput and latency. A rate of 0 runs the clients closed loop.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.loadtest.LoadTest
+   */
+  private static void loadTest(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 3) {
+      logger.error("Not enough arguments.");
+      printUsage();
+      return;
+    }
+
+    try {
+      LoadTest test = new LoadTest()
+          .setLabel(System.getProperty(LOAD_TEST_LABEL_PROPERTY, "unlabelled"));
+      if (args.length > 3) {
+        test.setClients((int) parseNumber(args[3], "clients"));
+      }
+      if (args.length > 4) {
+        test.setRate(parseNumber(args[4], "rate"));
+      }
+      if (args.length > 5) {
+        test.setDuration((long) (parseNumber(args[5], "seconds") * 1000));
+      }
+
+      RailNetwork network = new NetworkLoader()
+          .setStorage(getStorage())
+          .load(args[1]);
+      LoadTestReport report = test.run(network);
+      logger.info("%s", report);
+
+      OutputBuffer buffer = new OutputBuffer();
+      report.write(buffer);
+      write(buffer, args[2]);
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+    } catch (IllegalArgumentException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Could not write report. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Replays a query log against a network, and prints how its latency
+   * compares with the captured latency. The replayed latencies can also be
+   * written as a load test report, to compare replays of two builds.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.capture.QueryReplayer
+   */
+  private static void replay(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 3) {
+      logger.error("Not enough arguments.");
+      printUsage();
+      return;
+    }
+
+    try {
+      double speed = args.length > 3 ? parseNumber(args[3], "speed") : 1;
+      List<QueryRecord> records = QueryLog.read(Paths.get(args[2]));
+      RailNetwork network = new NetworkLoader()
+          .setStorage(getStorage())
+          .load(args[1]);
+
+      ReplayReport report = new QueryReplayer(network)
+          .setSpeed(speed)
+          .setNetworkName(System.getProperty(REPLAY_NETWORK_PROPERTY))
+          .replay(records);
+
+      OutputBuffer buffer = new OutputBuffer();
+      report.write(buffer);
+      buffer.writeTo(System.out);
+      System.out.flush();
+
+      if (args.length > 4) {
+        buffer.clear();
+        report.toLoadTestReport(
+            System.getProperty(LOAD_TEST_LABEL_PROPERTY, "unlabelled")
+        ).write(buffer);
+        write(buffer, args[4]);
+      }
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Could not replay queries. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Loads a network along with its hub labels, building and writing them
+   * first if the label file does not exist yet. If an origin and destination
+   * are given, prints the travel time between them.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.labeling.HubLabeler
+   */
+  private static void labels(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 3 || args.length == 4) {
+      logger.error("Not enough arguments.");
+      printUsage();
+      return;
+    }
+
+    try {
+      RailNetwork network = new NetworkLoader()
+          .setStorage(getStorage())
+          .load(args[1]);
+
+      Path path = Paths.get(args[2]);
+      if (Files.exists(path)) {
+        network.setHubLabels(HubLabels.read(path));
+      } else {
+        long start = System.nanoTime();
+        HubLabels labels = new HubLabeler().build(network.getGraph());
+        logger.info("Built hub labels in %d ms, %.1f hubs per label.",
+            (System.nanoTime() - start) / 1000000, labels.getAverageLabelSize());
+
+        labels.write(path);
+        network.setHubLabels(labels);
+      }
+
+      if (args.length > 4) {
+        int minutes = network.findDistance(args[3], args[4]);
+        System.out.println(minutes < 0 ? "unreachable" : Integer.toString(minutes));
+      }
     } catch (ValidationException | ParseException exception) {
       logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Could not access hub labels. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Compares two load test reports, and prints the differences.
+   * @param args An array of command line args from STDIN.
+   * @see io.seanbailey.railnetwork.loadtest.ReportComparison
+   */
+  private static void compare(String[] args) {
+    // Ensure we have enough args
+    if (args.length < 3) {
+      logger.error("Not enough arguments.");
+      printUsage();
       return;
     }
+
+    try {
+      LoadTestReport base = LoadTestReport.read(Files.readAllLines(Paths.get(args[1])));
+      LoadTestReport candidate = LoadTestReport.read(Files.readAllLines(Paths.get(args[2])));
+
+      OutputBuffer buffer = new OutputBuffer();
+      new ReportComparison().write(base, candidate, buffer);
+      buffer.writeTo(System.out);
+      System.out.flush();
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException exception) {
+      logger.error("Could not read report. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * @param value Entered number.
+   * @param name Name of the value, for error messages.
+   * @return The number.
+   * @throws ValidationException if the value is not a non-negative number.
+   */
+  private static double parseNumber(String value, String name)
+      throws ValidationException {
+    try {
+      double number = Double.parseDouble(value);
+      if (number >= 0) {
+        return number;
+      }
+    } catch (NumberFormatException exception) {
+      // Fall through
+    }
+
+    throw new ValidationException("Invalid number of %s '%s'.", name, value);
   }
 
   /**
-   * Validates the given file path. 
-   *
-   * <p>
-   * Note that this does not perform any validation on the contents of the file,
-   * it only ensures that the file exists and is readable.
-   * </p>
-   *
-   * @param path Path to file.
-   * @return A valid file.
-   * @throws ValidationException if the path is not valid.
+   * @param value Entered number of sampled sources.
+   * @return The number of sources.
+   * @throws ValidationException if the value is not a non-negative integer.
    */
-  private static File validateFile(String path) throws ValidationException {
-    // init
-    File file = new File(path);
+  private static int parseSamples(String value) throws ValidationException {
+    try {
+      int samples = Integer.parseInt(value);
+      if (samples >= 0) {
+        return samples;
+      }
+    } catch (NumberFormatException exception) {
+      // Fall through
+    }
 
-    // Ensure file exists
-    if (!file.exists()) {
-      throw new ValidationException("File '%s' not found.", path);
+    throw new ValidationException("Invalid number of samples '%s'.", value);
+  }
+
+  /**
+   * Writes the contents of a buffer to a file, replacing it.
+   * @param buffer Buffer to write.
+   * @param path File path.
+   * @throws IOException if the file could not be written.
+   */
+  private static void write(OutputBuffer buffer, String path)
+      throws IOException {
+    try (OutputStream stream = Files.newOutputStream(Paths.get(path))) {
+      buffer.writeTo(stream);
     }
+  }
 
-    // Ensure file is not a directory
-    if (file.isDirectory()) {
-      throw new ValidationException("'%s' is a directory. Must be a file.", path);
+  /**
+   * Reads the graph storage backend from the system properties. For example,
+   * <code>-Drailnetwork.storage=off_heap</code>.
+   * @return Graph storage backend.
+   * @throws ValidationException if the property is not a valid backend.
+   */
+  private static GraphStorage getStorage() throws ValidationException {
+    String value = System.getProperty(STORAGE_PROPERTY, GraphStorage.HEAP.name());
+
+    try {
+      return GraphStorage.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException exception) {
+      throw new ValidationException("Unknown graph storage '%s'.", value);
+    }
+  }
+
+  /**
+   * Reads the service warm-up from the system properties. For example,
+   * <code>-Drailnetwork.warmup.threads=4 -Drailnetwork.warmup.budget=5000</code>.
+   * Recorded queries are read from the file named by
+   * <code>railnetwork.warmup.queries</code>, one
+   * <code>origin|destination</code> pair per line.
+   * @return Service warm-up.
+   * @throws ValidationException if a property is not a valid number.
+   * @throws IOException if the recorded queries cannot be read.
+   */
+  private static WarmUp getWarmUp() throws ValidationException, IOException {
+    WarmUp warmUp = new WarmUp();
+
+    String threads = System.getProperty(WARMUP_THREADS_PROPERTY);
+    String budget = System.getProperty(WARMUP_BUDGET_PROPERTY);
+    try {
+      if (threads != null) {
+        warmUp.setThreads(Integer.parseInt(threads));
+      }
+      if (budget != null) {
+        warmUp.setBudget(Long.parseLong(budget));
+      }
+    } catch (IllegalArgumentException exception) {
+      throw new ValidationException("Invalid warm-up setting. %s",
+          exception.getMessage());
     }
 
-    // Ensure file is readable
-    if (!file.canRead()) {
-      throw new ValidationException("Cannot read file '%s'.", path);
+    String file = System.getProperty(WARMUP_QUERIES_PROPERTY);
+    if (file != null) {
+      List<String[]> queries = new ArrayList<>();
+      for (String line : Files.readAllLines(Paths.get(file))) {
+        String[] parts = line.split("\\|");
+        if (parts.length == 2) {
+          queries.add(new String[] { parts[0].trim(), parts[1].trim() });
+        }
+      }
+      warmUp.setQueries(queries);
     }
 
-    return file;
+    return warmUp;
   }
 
   /**
@@ -108,5 +540,16 @@ public class Main {
   private static void printUsage() {
     logger.info("Usage: java assign1 <dataFile> <origin> <destination> " +
         "[criterion]");
+    logger.info("       java assign1 %s [name=]<dataFile> ...", SERVE_FLAG);
+    logger.info("       java assign1 %s <dataFile> <stations.csv> " +
+        "<edges.csv> [samples]", ANALYZE_FLAG);
+    logger.info("       java assign1 %s <dataFile> <report> [clients] " +
+        "[rate] [seconds]", LOAD_TEST_FLAG);
+    logger.info("       java assign1 %s <baseReport> <candidateReport>",
+        COMPARE_FLAG);
+    logger.info("       java assign1 %s <dataFile> <queryLog> [speed] " +
+        "[report]", REPLAY_FLAG);
+    logger.info("       java assign1 %s <dataFile> <labelFile> " +
+        "[origin destination]", LABELS_FLAG);
   }
 }
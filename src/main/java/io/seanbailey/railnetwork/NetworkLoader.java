@@ -0,0 +1,167 @@
+package io.seanbailey.railnetwork;
+
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.GraphBuilder;
+import io.seanbailey.railnetwork.graph.GraphOrdering;
+import io.seanbailey.railnetwork.graph.GraphStorage;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.graph.CompactGraph;
+import io.seanbailey.railnetwork.parser.PipelinedParser;
+import io.seanbailey.railnetwork.parser.StationParser;
+import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.station.StationTable;
+import io.seanbailey.railnetwork.util.Logger;
+import io.seanbailey.railnetwork.util.MinHeap;
+import io.seanbailey.railnetwork.util.StageTimings;
+import io.seanbailey.railnetwork.util.StringPool;
+import java.io.File;
+
+/**
+ * Loads a @link{io.seanbailey.railnetwork.RailNetwork} from a rail network
+ * XML file.
+ *
+ * <p>
+ * By default, files are parsed by a
+ * @link{io.seanbailey.railnetwork.parser.PipelinedParser}, whose stages run
+ * at the same time. The time taken by each stage of a load is logged at debug
+ * level.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NetworkLoader {
+
+  private static final Logger logger = new Logger();
+  private GraphStorage storage = GraphStorage.HEAP;
+  private GraphOrdering ordering = GraphOrdering.LOCALITY;
+  private StringPool strings;
+  private boolean pipelined = true;
+
+  /**
+   * Sets where the graphs of loaded networks should be kept.
+   * @param storage Storage backend.
+   * @return This loader.
+   */
+  public NetworkLoader setStorage(GraphStorage storage) {
+    this.storage = storage;
+    return this;
+  }
+
+  /**
+   * Sets how the stations of loaded networks are numbered.
+   * @param ordering Station ordering.
+   * @return This loader.
+   */
+  public NetworkLoader setOrdering(GraphOrdering ordering) {
+    this.ordering = ordering;
+    return this;
+  }
+
+  /**
+   * Sets a pool of names to share with other loaded networks.
+   * @param strings Shared string pool.
+   * @return This loader.
+   */
+  public NetworkLoader setStringPool(StringPool strings) {
+    this.strings = strings;
+    return this;
+  }
+
+  /**
+   * Sets whether files are parsed by the pipelined parser, or by the original
+   * DOM based @link{io.seanbailey.railnetwork.parser.StationParser}.
+   * @param pipelined Whether to parse in a pipeline.
+   * @return This loader.
+   */
+  public NetworkLoader setPipelined(boolean pipelined) {
+    this.pipelined = pipelined;
+    return this;
+  }
+
+  /**
+   * Validates, parses and indexes the given file.
+   * @param path Path to file.
+   * @return A rail network, ready to be queried.
+   * @throws ValidationException if the file or its contents are invalid.
+   * @throws ParseException if the file cannot be parsed.
+   */
+  public RailNetwork load(String path) throws ValidationException,
+         ParseException {
+    // Retrieve and validate file
+    File file = validateFile(path);
+    StageTimings timings = new StageTimings();
+    GraphBuilder builder = new GraphBuilder()
+        .setStorage(storage)
+        .setOrdering(ordering);
+
+    // Parse file into a graph
+    StationGraph graph;
+    long start;
+    if (pipelined) {
+      PipelinedParser parser = new PipelinedParser(strings, timings);
+      StationTable table = parser.parse(file);
+
+      start = System.nanoTime();
+      graph = builder.build(table, parser.getNames(), parser.getLines());
+    } else {
+      start = System.nanoTime();
+      StationParser parser = new StationParser(strings);
+      MinHeap<Station> stations = parser.parse(file);
+      start = timings.record("parse", start);
+
+      graph = builder.build(stations, parser.getNames(), parser.getLines());
+    }
+    start = timings.record("graph", start);
+
+    // Collapse through-stations for routing
+    CompactGraph compact = builder.compact(graph);
+    start = timings.record("compact", start);
+
+    RailNetwork network = new RailNetwork(graph, compact);
+    timings.record("indexes", start);
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Loaded '%s' in %.1f ms:", path, timings.getElapsedNanos() / 1e6);
+      for (String line : timings.format()) {
+        logger.debug("  %s", line);
+      }
+    }
+
+    return network;
+  }
+
+  /**
+   * Validates the given file path. 
+   *
+   * <p>
+   * Note that this does not perform any validation on the contents of the file,
+   * it only ensures that the file exists and is readable.
+   * </p>
+   *
+   * @param path Path to file.
+   * @return A valid file.
+   * @throws ValidationException if the path is not valid.
+   */
+  public static File validateFile(String path) throws ValidationException {
+    // init
+    File file = new File(path);
+
+    // Ensure file exists
+    if (!file.exists()) {
+      throw new ValidationException("File '%s' not found.", path);
+    }
+
+    // Ensure file is not a directory
+    if (file.isDirectory()) {
+      throw new ValidationException("'%s' is a directory. Must be a file.", path);
+    }
+
+    // Ensure file is readable
+    if (!file.canRead()) {
+      throw new ValidationException("Cannot read file '%s'.", path);
+    }
+
+    return file;
+  }
+}
@@ -1,21 +1,38 @@
 package io.seanbailey.railnetwork;
 
+import io.seanbailey.railnetwork.autocomplete.NameIndex;
+import io.seanbailey.railnetwork.autocomplete.NameMatcher;
 import io.seanbailey.railnetwork.exception.ValidationException;
-import io.seanbailey.railnetwork.station.Station;
-import io.seanbailey.railnetwork.station.StationEdge;
+import io.seanbailey.railnetwork.graph.CompactGraph;
+import io.seanbailey.railnetwork.graph.ComponentIndex;
+import io.seanbailey.railnetwork.graph.DeltaStepping;
+import io.seanbailey.railnetwork.graph.GraphBuilder;
+import io.seanbailey.railnetwork.graph.ShortestPathSearch;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.graph.TargetMode;
+import io.seanbailey.railnetwork.labeling.HubLabels;
+import io.seanbailey.railnetwork.route.Isochrone;
+import io.seanbailey.railnetwork.route.Leg;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.table.DistanceTable;
+import io.seanbailey.railnetwork.table.MinPlus;
+import io.seanbailey.railnetwork.util.IntList;
 import io.seanbailey.railnetwork.util.Logger;
-import io.seanbailey.railnetwork.util.MinHeap;
-import io.seanbailey.railnetwork.util.SearchUtil;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
 
 /**
  * Represents a rail network. 
  *
  * <p>
- * Each node is a @link{io.seanbailey.railnetwork.station.Station}, and each
- * weighted edge a connection between two stations.
+ * Each node is a station on a particular line, and each weighted edge a
+ * connection between two stations. The network itself is read-only, so it can
+ * be queried from several threads at once.
  * </p>
  *
  * @author Sean Bailey c3279343
@@ -23,204 +40,715 @@ import java.util.List;
 public class RailNetwork {
 
   private static final Logger logger = new Logger();
-  private MinHeap<Station> heap;
+  private final StationGraph graph;
+  private final CompactGraph compact;
+  private final ComponentIndex components;
+  private final DeltaStepping deltaStepping;
+  private final NameIndex nameIndex;
+  private volatile HubLabels labels;
+
+  // Idle searches, reused across queries. Pooled per network rather than per
+  // thread, so that nothing outlives the network once it is discarded.
+  private final Queue<ShortestPathSearch> searches = new ConcurrentLinkedQueue<>();
+  private final Queue<ShortestPathSearch> routeSearches = new ConcurrentLinkedQueue<>();
+  private final Queue<NameMatcher> matchers = new ConcurrentLinkedQueue<>();
 
   /**
-   * Constructs a new rail network.
-   * @param stations A min heap containing stations.
+   * Constructs a new rail network, compacting the graph on the heap.
+   * @param graph Graph of stations.
    */
-  public RailNetwork(MinHeap<Station> stations) {
-    this.heap = stations;
+  public RailNetwork(StationGraph graph) {
+    this(graph, new GraphBuilder().setStorage(graph.getStorage()).compact(graph));
   }
 
   /**
-   * Finds and prints the shortest path between two points in the network.
+   * Constructs a new rail network, indexing its connected components.
+   * @param graph Graph of stations.
+   * @param compact The same graph with its through-stations collapsed, which
+   *                is used for routing.
+   */
+  public RailNetwork(StationGraph graph, CompactGraph compact) {
+    this.graph = graph;
+    this.compact = compact;
+    this.components = new ComponentIndex(graph);
+    this.deltaStepping = new DeltaStepping(graph);
+    this.nameIndex = new NameIndex(graph);
+  }
+
+  /**
+   * Suggests station names for a partially typed query.
+   *
+   * <p>
+   * Names starting with the query come first, by popularity. Longer queries
+   * also match names with small typos: one edit from 3 characters, and two
+   * from 6.
+   * </p>
+   *
+   * @param query Partial station name.
+   * @param limit Largest number of names to suggest.
+   * @return Suggested names, best first.
+   */
+  public List<String> suggestNames(String query, int limit) {
+    int maxEdits = query.length() < 3 ? 0 : query.length() < 6 ? 1 : 2;
+    int[] ids = new int[limit];
+
+    NameMatcher matcher = matchers.poll();
+    if (matcher == null) {
+      matcher = new NameMatcher(nameIndex);
+    }
+
+    int count;
+    try {
+      count = matcher.suggest(query, maxEdits, ids);
+    } finally {
+      matchers.offer(matcher);
+    }
+
+    List<String> names = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      names.add(graph.getNames().get(ids[i]));
+    }
+
+    return names;
+  }
+
+  /**
+   * Finds the shortest path between two points in the network.
    *
    * <p>
-   * This is a modified version of Dijkstra's algorithm, that makes use of an 
-   * adjacency list (in the form of a
-   * @link{io.seanbailey.railnetwork.station.StationList}) and an indirect max
-   * heap.
+   * This is Dijkstra's algorithm over a compact
+   * @link{io.seanbailey.railnetwork.graph.StationGraph}, started from every
+   * line of the origin station at once. The search stops as soon as any line
+   * of the destination station is reached. Stations which are not connected
+   * are rejected by the @link{io.seanbailey.railnetwork.graph.ComponentIndex}
+   * before searching.
    * </p>
    *
    * @param origin Station name to start from.
    * @param destination Station name to finish at.
+   * @return The shortest route, or Route.UNREACHABLE if there is none.
    * @throws ValidationException if the origin or destination are invalid.
    */
-  public void findShortestPath(String origin, String destination)
+  public Route findShortestPath(String origin, String destination)
       throws ValidationException {
     // Step 0: Validate
     if (origin.equals(destination))
       throw new ValidationException("Origin and destination cannot be the same.");
     
-    validate("Origin", origin);
-    validate("Destination", destination);
+    int originId = validate("Origin", origin);
+    int destinationId = validate("Destination", destination);
+
+    if (!mayReach(originId, destinationId)) {
+      logger.debug("No route from '%s' to '%s'", origin, destination);
+      return Route.UNREACHABLE;
+    }
+
+    Endpoints origins = new Endpoints(originId, true);
+    Endpoints destinations = new Endpoints(destinationId, false);
     
-    // Step 1: Set distance of origin to zero
-    resetMatchingStations(origin);
+    ShortestPathSearch search = acquireSearch(routeSearches, compact.getCore());
+    try {
+      // Step 1: Set distance of origin to zero
+      for (int i = 0; i < origins.count; i++) {
+        search.addSource(origins.cores[i], origins.offsets[i]);
+      }
 
-    // Step 2: Calculate shortest distances to every point
-    calculateDistancesFromOrigin();
+      // Step 2: Calculate shortest distances until we reach the destination
+      int best = search.searchToTargets(destinations.cores, destinations.offsets,
+          destinations.count);
 
-    // Step 3: Get best destination
-    Station bestDestination = findDestination(destination);
+      // Step 3: Backtrack to find shortest path, expanding collapsed chains.
+      // The destination may also be further along the origin's own chain.
+      Path path = findInChain(origins, destinations);
+      if (best >= 0 && (path == null || path.getDistance() > search.getDistance(
+          destinations.cores[best]) + destinations.offsets[best])) {
+        path = expandPath(search, origins, destinations, best);
+      }
 
-    // Step 4: Backtrack to find shortest path
-    List<Station> path = findShortestPath(bestDestination);
+      if (path == null) {
+        return Route.UNREACHABLE;
+      }
 
-    // Step 5: Print path
-    output(path);
+      // Step 4: Split path into legs
+      return buildRoute(path);
+    } finally {
+      releaseSearch(routeSearches, search);
+    }
   }
 
   /**
-   * Ensure that the given value corresponds to a station with the same name.
-   * @param name Human friendly name for the value.
-   * @param value Actual entered value.
-   * @throws ValidationException if the value is invalid.
+   * Finds the shortest route from any of several origins to the nearest of
+   * several destinations, for example the closest of a handful of depots.
+   *
+   * <p>
+   * Each origin has a starting offset, such as the minutes already spent
+   * getting to it, which counts towards choosing the nearest pair. The search
+   * is seeded with every line of every origin and stops as soon as the
+   * nearest destination is settled. Ties go to the destination listed first.
+   * </p>
+   *
+   * @param origins Station names to start from.
+   * @param offsets Starting offset of each origin, in minutes.
+   * @param destinations Station names to finish at.
+   * @return The shortest route from the chosen origin to the chosen
+   *         destination, excluding the origin's offset, or Route.UNREACHABLE
+   *         if no destination can be reached.
+   * @throws ValidationException if a station or offset is invalid.
    */
-  private void validate(String name, String value) throws ValidationException {
-    if (!SearchUtil.containsName(heap.getNodes(), value)) {
-      throw new ValidationException("%s '%s' not found.", name, value);
+  public Route findNearest(String[] origins, int[] offsets, String[] destinations)
+      throws ValidationException {
+    Endpoints from = new Endpoints(validate("Origin", origins), validate(offsets,
+        origins.length), true);
+    Endpoints to = new Endpoints(validate("Destination", destinations), null, false);
+
+    ShortestPathSearch search = acquireSearch(routeSearches, compact.getCore());
+    try {
+      for (int i = 0; i < from.count; i++) {
+        search.addSource(from.cores[i], from.offsets[i]);
+      }
+
+      int best = search.searchToTargets(to.cores, to.offsets, to.count,
+          TargetMode.FIRST);
+
+      Path path = findInChain(from, to);
+      if (best >= 0 && (path == null || path.getCost() > search.getDistance(
+          to.cores[best]) + to.offsets[best])) {
+        path = expandPath(search, from, to, best);
+      }
+
+      return path == null ? Route.UNREACHABLE : buildRoute(path);
+    } finally {
+      releaseSearch(routeSearches, search);
     }
   }
 
   /**
-   * Searches for stations which match the given name, and sets their distance
-   * to zero.
-   * @param stationName Name of station to reset.
+   * Finds the shortest travel time from any of several origins to each of
+   * several destinations. The search stops once every destination has been
+   * settled, rather than exploring the whole network.
+   * @param origins Station names to start from.
+   * @param offsets Starting offset of each origin, in minutes.
+   * @param destinations Station names to finish at.
+   * @return The travel time to each destination, including the offset of
+   *         the closest origin, or -1 for destinations which cannot be reached.
+   * @throws ValidationException if a station or offset is invalid.
+   * @see #findNearest(String[], int[], String[])
    */
-  private void resetMatchingStations(String stationName) {
-    for (int i = 0; i < heap.getSize(); i++) {
-      Station station = heap.get(i);
+  public int[] findDistances(String[] origins, int[] offsets, String[] destinations)
+      throws ValidationException {
+    return findDistances(validate("Origin", origins), validate(offsets,
+        origins.length), validate("Destination", destinations));
+  }
 
-      // Set distance to zero if we're dealing with an origin point.
-      if (station.getName().equals(stationName)) {
-        station.setDistance(0);
-        logger.debug("Found origin point %s (%s)", station.getName(), station.getLine());
+  /**
+   * Finds the shortest travel time between every origin and every
+   * destination, for example to fill an origin-destination matrix.
+   *
+   * <p>
+   * With @link{io.seanbailey.railnetwork.labeling.HubLabels} attached, the
+   * table is a min-plus product of the origins' and destinations' labels.
+   * Otherwise each origin runs its own search, stopping once every destination
+   * is settled, and origins are searched in parallel.
+   * </p>
+   *
+   * @param origins Station names to start from, one per row.
+   * @param destinations Station names to finish at, one per column.
+   * @return Travel times between every pair.
+   * @throws ValidationException if a station is invalid.
+   * @see io.seanbailey.railnetwork.table.MinPlus
+   */
+  public DistanceTable findDistanceTable(String[] origins, String[] destinations)
+      throws ValidationException {
+    int[] originIds = validate("Origin", origins);
+    int[] destinationIds = validate("Destination", destinations);
+    int[] minutes;
+
+    HubLabels labels = this.labels;
+    if (labels != null) {
+      minutes = labels.getDistanceTable(originIds, destinationIds);
+      for (int i = 0; i < minutes.length; i++) {
+        if (minutes[i] >= MinPlus.INFINITY) {
+          minutes[i] = -1;
+        }
       }
+    } else {
+      minutes = new int[origins.length * destinations.length];
+      IntStream.range(0, origins.length).parallel().forEach(i ->
+          System.arraycopy(findDistances(new int[] { originIds[i] }, new int[1],
+              destinationIds), 0, minutes, i * destinations.length,
+              destinations.length)
+      );
     }
 
-    // Heapify, since distances have changed
-    heap.heapify();
+    return new DistanceTable(origins, destinations, minutes);
   }
 
   /**
-   * Calculates the distance to each point in the network from the origin, using
-   * Dijkstra's algorithm.
+   * Runs a single search from several origins, until every destination is
+   * settled.
+   * @param originIds Dictionary ids of the origin names.
+   * @param offsets Starting offset of each origin.
+   * @param destinationIds Dictionary ids of the destination names.
+   * @return The travel time to each destination, or -1.
    */
-  private void calculateDistancesFromOrigin() {
-    // Continue until we run out of nodes
-    while (!heap.isEmpty()) {
-      // Get next station
-      Station station = heap.pop();
-      logger.debug("Working with: %s", station);
+  private int[] findDistances(int[] originIds, int[] offsets, int[] destinationIds) {
+    Endpoints from = new Endpoints(originIds, offsets, true);
+    Endpoints to = new Endpoints(destinationIds, null, false);
 
-      // Calculate distances to all edges
-      for (StationEdge edge : station.getAdjacentStations()) {
-        Station edgeStation = edge.getStation();
+    int[] distances = new int[destinationIds.length];
+    Arrays.fill(distances, Integer.MAX_VALUE);
 
-        // Update distance
-        int distance = station.getDistance() + edge.getDistance();
-        if (distance < edgeStation.getDistance()) {
-          edgeStation.setDistance(distance);
-          edgeStation.setPrevious(station);
+    ShortestPathSearch search = acquireSearch(routeSearches, compact.getCore());
+    try {
+      for (int i = 0; i < from.count; i++) {
+        search.addSource(from.cores[i], from.offsets[i]);
+      }
+
+      search.searchToTargets(to.cores, to.offsets, to.count, TargetMode.ALL);
+
+      for (int j = 0; j < to.count; j++) {
+        int distance = search.getDistance(to.cores[j]);
+        if (distance != Integer.MAX_VALUE) {
+          distances[to.inputs[j]] = Math.min(distances[to.inputs[j]],
+              distance + to.offsets[j]);
         }
 
-        logger.debug("Working with edge: %s", edge);
+        // The destination may also be further along an origin's own chain
+        for (int i = 0; i < from.count; i++) {
+          int inChain = getChainDistance(from, i, to, j);
+          if (inChain >= 0) {
+            distances[to.inputs[j]] = Math.min(distances[to.inputs[j]], inChain);
+          }
+        }
       }
+    } finally {
+      releaseSearch(routeSearches, search);
+    }
 
-      heap.heapify();
+    for (int i = 0; i < distances.length; i++) {
+      if (distances[i] == Integer.MAX_VALUE) {
+        distances[i] = -1;
+      }
     }
+
+    return distances;
   }
 
   /**
-   * Locates stations which could be potential destinations. Then returns
-   * whichever of these is closest to the origin.
-   * @param destinationName Name of destination station.
-   * @return A station.
+   * Finds the shortest travel time between two stations, without the route.
+   *
+   * <p>
+   * With @link{io.seanbailey.railnetwork.labeling.HubLabels} attached, this is
+   * a merge of two short labels rather than a search.
+   * </p>
+   *
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return The travel time in minutes, or -1 if there is no route.
+   * @throws ValidationException if the origin or destination are invalid.
+   * @see #setHubLabels(HubLabels)
+   */
+  public int findDistance(String origin, String destination)
+      throws ValidationException {
+    int originId = validate("Origin", origin);
+    int destinationId = validate("Destination", destination);
+
+    HubLabels labels = this.labels;
+    if (labels != null) {
+      return labels.getDistance(originId, destinationId);
+    }
+
+    return findDistances(new String[] { origin }, new int[1],
+        new String[] { destination })[0];
+  }
+
+  /**
+   * Finds every station which can be reached from the origin within the given
+   * number of minutes.
+   *
+   * <p>
+   * The search stops as soon as the next closest station is further away than
+   * the budget, rather than exploring the whole network.
+   * </p>
+   *
+   * @param origin Station name to start from.
+   * @param minutes Travel time budget, inclusive.
+   * @return Reachable stations and their travel times.
+   * @throws ValidationException if the origin or budget are invalid.
+   */
+  public Isochrone findReachable(String origin, int minutes)
+      throws ValidationException {
+    return findReachable(new String[] { origin }, minutes)[0];
+  }
+
+  /**
+   * Finds the reachable stations of several origins at once, for example to
+   * generate a heat map. Origins are searched in parallel.
+   * @param origins Station names to start from.
+   * @param minutes Travel time budget, inclusive.
+   * @return One isochrone per origin, in the same order.
+   * @throws ValidationException if an origin or the budget are invalid.
+   * @see #findReachable(String, int)
    */
-  private Station findDestination(String destinationName) {
-    // Find all possible destinations
-    Station[] stations = heap.getNodes();
-    Station destination = null;
+  public Isochrone[] findReachable(String[] origins, int minutes)
+      throws ValidationException {
+    if (minutes < 0) {
+      throw new ValidationException("Travel time budget cannot be negative.");
+    }
+
+    // Validate every origin before starting
+    int[] originIds = new int[origins.length];
+    for (int i = 0; i < origins.length; i++) {
+      originIds[i] = validate("Origin", origins[i]);
+    }
 
-    for (int i = 0; i < stations.length; i++) {
-      // Get next station
-      Station station = stations[i];
-      if (!station.getName().equals(destinationName)) {
-        continue;
+    Isochrone[] isochrones = new Isochrone[origins.length];
+    IntStream.range(0, origins.length).parallel().forEach(i ->
+        isochrones[i] = findReachable(originIds[i], minutes)
+    );
+
+    return isochrones;
+  }
+
+  /**
+   * Finds the shortest distance from the origin to every station in the
+   * network, for example to fill a row of a distance matrix.
+   *
+   * <p>
+   * This uses parallel delta-stepping, which spreads a single search across
+   * every core of the common fork/join pool.
+   * </p>
+   *
+   * @param origin Station name to start from.
+   * @return The distance to each station id of the graph, or
+   *         Integer.MAX_VALUE for stations which cannot be reached.
+   * @throws ValidationException if the origin is invalid.
+   * @see io.seanbailey.railnetwork.graph.DeltaStepping
+   */
+  public int[] findAllDistances(String origin) throws ValidationException {
+    int nameId = validate("Origin", origin);
+    int start = graph.getNameOffset(nameId);
+    int[] sources = new int[graph.getNameOffset(nameId + 1) - start];
+    for (int i = 0; i < sources.length; i++) {
+      sources[i] = graph.getNameStation(start + i);
+    }
+
+    return deltaStepping.search(sources, new int[sources.length]);
+  }
+
+  /**
+   * Runs a single bounded search.
+   * @param nameId Dictionary id of the origin name.
+   * @param minutes Travel time budget, inclusive.
+   * @return Reachable stations and their travel times.
+   */
+  private Isochrone findReachable(int nameId, int minutes) {
+    ShortestPathSearch search = acquireSearch(searches, graph);
+    try {
+      addMatchingStations(search, nameId);
+      search.searchWithin(minutes);
+
+      // Keep the first (closest) line of each station
+      int count = 0;
+      int[] nameIds = new int[search.getSettledCount()];
+      int[] distances = new int[search.getSettledCount()];
+      BitSet seen = new BitSet(graph.getNames().size());
+      for (int i = 0; i < search.getSettledCount(); i++) {
+        int station = search.getSettled(i);
+        int id = graph.getNameId(station);
+        if (!seen.get(id)) {
+          seen.set(id);
+          nameIds[count] = id;
+          distances[count] = search.getDistance(station);
+          count++;
+        }
       }
 
-      // Compare to previous best
-      if (destination == null || destination.getDistance() > station.getDistance()) {
-        destination = station;
+      return new Isochrone(
+          graph.getNames(),
+          Arrays.copyOf(nameIds, count),
+          Arrays.copyOf(distances, count)
+      );
+    } finally {
+      releaseSearch(searches, search);
+    }
+  }
+
+  /**
+   * Determines whether any line of the origin might be able to reach any line
+   * of the destination, without searching.
+   * @param originId Dictionary id of the origin name.
+   * @param destinationId Dictionary id of the destination name.
+   * @return False if there is definitely no route, true otherwise.
+   */
+  private boolean mayReach(int originId, int destinationId) {
+    int originEnd = graph.getNameOffset(originId + 1);
+    int destinationStart = graph.getNameOffset(destinationId);
+    int destinationEnd = graph.getNameOffset(destinationId + 1);
+
+    for (int i = graph.getNameOffset(originId); i < originEnd; i++) {
+      int from = graph.getNameStation(i);
+      for (int j = destinationStart; j < destinationEnd; j++) {
+        if (components.mayReach(from, graph.getNameStation(j))) {
+          return true;
+        }
       }
     }
 
-    return destination;
+    return false;
   }
 
   /**
-   * Back tracks from the destination, recording the shortest path from the
-   * origin.
-   * @param destination The final station.
-   * @return A list of stations in traversal order.
+   * Takes an idle search from a pool, or creates a new one.
+   * @param pool Pool to take from.
+   * @param graph Graph searched by the pool's searches.
+   * @return A search, ready to use.
    */
-  private List<Station> findShortestPath(Station destination) {
-    // Init
-    List<Station> path = new ArrayList<>();
-    Station station = destination;
+  private static ShortestPathSearch acquireSearch(Queue<ShortestPathSearch> pool,
+      StationGraph graph) {
+    ShortestPathSearch search = pool.poll();
+    return search != null ? search : new ShortestPathSearch(graph);
+  }
 
-    do {
-      path.add(station);
-      station = station.getPrevious();
-    } while (station != null);
+  /**
+   * Resets a search and returns it to a pool.
+   * @param pool Pool to return to.
+   * @param search Search to release.
+   */
+  private static void releaseSearch(Queue<ShortestPathSearch> pool,
+      ShortestPathSearch search) {
+    search.reset();
+    pool.offer(search);
+  }
 
-    // Reverse array, since we started from dest
-    Collections.reverse(path);
+  /**
+   * Ensure that the given value corresponds to a station with the same name.
+   * @param name Human friendly name for the value.
+   * @param value Actual entered value.
+   * @return The dictionary id of the station name.
+   * @throws ValidationException if the value is invalid.
+   */
+  private int validate(String name, String value) throws ValidationException {
+    int id = graph.getNames().getId(value);
+    if (id < 0) {
+      throw new ValidationException("%s '%s' not found.", name, value);
+    }
+
+    return id;
+  }
+
+  /**
+   * Ensure that every value corresponds to a station.
+   * @param name Human friendly name for the values.
+   * @param values Actual entered values.
+   * @return The dictionary id of each station name.
+   * @throws ValidationException if there are no values, or any is invalid.
+   */
+  private int[] validate(String name, String[] values) throws ValidationException {
+    if (values.length == 0) {
+      throw new ValidationException("At least one %s is required.",
+          name.toLowerCase());
+    }
+
+    int[] ids = new int[values.length];
+    for (int i = 0; i < values.length; i++) {
+      ids[i] = validate(name, values[i]);
+    }
+
+    return ids;
+  }
+
+  /**
+   * Ensure that there is one non-negative offset per origin.
+   * @param offsets Entered offsets.
+   * @param count Number of origins.
+   * @return The offsets.
+   * @throws ValidationException if the offsets are invalid.
+   */
+  private int[] validate(int[] offsets, int count) throws ValidationException {
+    if (offsets.length != count) {
+      throw new ValidationException("Expected %d origin offsets, not %d.", count,
+          offsets.length);
+    }
+
+    for (int offset : offsets) {
+      if (offset < 0) {
+        throw new ValidationException("Origin offset cannot be negative.");
+      }
+    }
+
+    return offsets;
+  }
+
+  /**
+   * Adds every station which matches the given name as a source of a search.
+   * @param search Search to add sources to.
+   * @param nameId Dictionary id of the station name.
+   */
+  private void addMatchingStations(ShortestPathSearch search, int nameId) {
+    int end = graph.getNameOffset(nameId + 1);
+
+    for (int i = graph.getNameOffset(nameId); i < end; i++) {
+      int station = graph.getNameStation(i);
+      search.addSource(station, 0);
+      logger.debug("Found origin point %s (%s)", name(station), line(station));
+    }
+  }
+
+  /**
+   * Finds a path which stays inside a single collapsed chain, from an origin
+   * station to a destination station further along it.
+   * @param origins Origin endpoints.
+   * @param destinations Destination endpoints.
+   * @return The shortest such path, or null if there is none.
+   */
+  private Path findInChain(Endpoints origins, Endpoints destinations) {
+    int bestOrigin = -1;
+    int bestDestination = -1;
+    int bestDistance = Integer.MAX_VALUE;
+    int bestOffset = 0;
+
+    for (int j = 0; j < destinations.count; j++) {
+      for (int i = 0; i < origins.count; i++) {
+        int distance = getChainDistance(origins, i, destinations, j);
+        if (distance >= 0 && distance < bestDistance) {
+          bestOrigin = origins.chains[i];
+          bestDestination = destinations.chains[j];
+          bestDistance = distance;
+          bestOffset = origins.extras[i];
+        }
+      }
+    }
+
+    if (bestOrigin < 0) {
+      return null;
+    }
+
+    Path path = new Path(bestOffset);
+    int start = compact.getChainDistance(bestOrigin);
+    for (int chain = bestOrigin; chain <= bestDestination; chain++) {
+      path.add(compact.getChainStation(chain), compact.getChainDistance(chain) - start);
+    }
 
     return path;
   }
 
   /**
-   * Traverses the shortest path, and prints it in a human readable form.
-   * @param path A list of stations in the order they are tarversed.
+   * Measures a path which stays inside a single collapsed chain.
+   * @param origins Origin endpoints.
+   * @param i Index of an origin endpoint.
+   * @param destinations Destination endpoints.
+   * @param j Index of a destination endpoint.
+   * @return The distance between the two endpoints, including the origin's
+   *         starting offset, or -1 if they are not in the same chain in that
+   *         order.
    */
-  private void output(List<Station> path) {
-    Station previous = null;
-    boolean first = true;
+  private int getChainDistance(Endpoints origins, int i, Endpoints destinations,
+      int j) {
+    int from = origins.chains[i];
+    int to = destinations.chains[j];
+    if (from < 0 || to < from || origins.edges[i] != destinations.edges[j]) {
+      return -1;
+    }
 
-    // Traverse path
-    for (int i = 0; i < path.size(); i++) {
-      Station current = path.get(i);
-      logger.debug("Step %d: %s", i + 1, current);
+    return origins.extras[i] + compact.getChainDistance(to)
+        - compact.getChainDistance(from);
+  }
 
-      // Keep track of the last relevant station
-      if (previous == null) {
-        previous = current;
+  /**
+   * Back tracks through a search of the compact graph, then expands every
+   * collapsed chain back into its stations.
+   * @param search Search which found the route.
+   * @param origins Origin endpoints which seeded the search.
+   * @param destinations Destination endpoints which were searched for.
+   * @param best Index of the closest destination endpoint.
+   * @return The full path.
+   */
+  private Path expandPath(ShortestPathSearch search, Endpoints origins,
+      Endpoints destinations, int best) {
+    int[] corePath = search.getPath(destinations.cores[best]);
+
+    // Start from inside a chain, if the origin was collapsed. Distances along
+    // the path leave out the origin's starting offset.
+    int first = corePath[0];
+    int seed = origins.find(first, search.getDistance(first));
+    int base = origins.extras[seed];
+    Path path = new Path(base);
+    int start = origins.chains[seed];
+    if (start >= 0) {
+      int end = compact.getChainOffset(origins.edges[seed] + 1);
+      for (int chain = start; chain < end; chain++) {
+        path.add(compact.getChainStation(chain),
+            compact.getChainDistance(chain) - compact.getChainDistance(start));
       }
+    }
+
+    path.add(compact.getStation(first), search.getDistance(first) - base);
+
+    // Expand each core edge
+    for (int i = 1; i < corePath.length; i++) {
+      int from = corePath[i - 1];
+      int to = corePath[i];
+      int offset = search.getDistance(from);
+      int edge = compact.findEdge(from, to, search.getDistance(to) - offset);
+
+      int end = compact.getChainOffset(edge + 1);
+      for (int chain = compact.getChainOffset(edge); chain < end; chain++) {
+        path.add(compact.getChainStation(chain),
+            offset - base + compact.getChainDistance(chain));
+      }
+
+      path.add(compact.getStation(to), search.getDistance(to) - base);
+    }
+
+    // Finish inside a chain, if the destination was collapsed
+    int end = destinations.chains[best];
+    if (end >= 0) {
+      int offset = search.getDistance(corePath[corePath.length - 1]) - base;
+      for (int chain = compact.getChainOffset(destinations.edges[best]); chain <= end; chain++) {
+        path.add(compact.getChainStation(chain), offset + compact.getChainDistance(chain));
+      }
+    }
+
+    return path;
+  }
+
+  /**
+   * Traverses the shortest path, splitting it into one leg per line.
+   * @param path Stations in the order they are traversed.
+   * @return A route.
+   */
+  private Route buildRoute(Path path) {
+    List<Leg> legs = new ArrayList<>();
+    int length = path.stations.size();
+    int previous = path.stations.get(0);
+    int minutes = 0;
+
+    // Traverse path
+    for (int i = 0; i < length; i++) {
+      int current = path.stations.get(i);
+      logger.debug("Step %d: %s (%s)", i + 1, name(current), line(current));
 
       // Deal with final station
-      if (i == path.size() - 1) {
-        printSection(previous, current, first);
-        logger.info("The total trip will take approximately %d minutes.", current.getDistance());
+      if (i == length - 1) {
+        legs.add(createLeg(previous, current, path.distances.get(i) - minutes));
         break;
       }
 
       // Check for line change
-      if (!current.getLine().equals(previous.getLine())) {
-        Station station = path.get(i - 1);
-        printSection(previous, station, first);
-        first = false;
+      if (graph.getLineId(current) != graph.getLineId(previous)) {
+        int station = path.stations.get(i - 1);
+        legs.add(createLeg(previous, station, path.distances.get(i - 1) - minutes));
+        minutes = path.distances.get(i - 1);
         previous = current;
-        continue;
       }
     }
+
+    return new Route(legs.toArray(new Leg[legs.size()]), path.getDistance());
   }
 
   /**
-   * Prints a humanm readable message, which tells the reader how to get from
-   * the origin to the destination.
+   * Creates a leg of a route.
    *
    * <p>
    * Note that the origin and destination should be on the same line.
@@ -228,25 +756,201 @@ public class RailNetwork {
    *
    * @param origin Station to start from.
    * @param destination Station to end at.
-   * @param first A flag which determines whether this is the first leg of the
-   *              journey.
-   */
-  private static void printSection(Station origin, Station destination, 
-      boolean first) { 
-    if (first) {
-      logger.info(
-          "From %s, take line %s to station %s", 
-          origin.getName(), 
-          origin.getLine(),
-          destination.getName()
-      );
-      return;
+   * @param minutes Minutes since the previous leg ended.
+   * @return A leg.
+   */
+  private Leg createLeg(int origin, int destination, int minutes) {
+    return new Leg(name(origin), name(destination), line(origin), minutes);
+  }
+
+  /**
+   * @param station Station id.
+   * @return The name of the station.
+   */
+  private String name(int station) {
+    return graph.getNames().get(graph.getNameId(station));
+  }
+
+  /**
+   * @param station Station id.
+   * @return The line of the station.
+   */
+  private String line(int station) {
+    return graph.getLines().get(graph.getLineId(station));
+  }
+
+  /**
+   * Attaches hub labels, which answer @link{#findDistance} from then on.
+   * @param labels Labels built from this network, or null to search instead.
+   * @throws ValidationException if the labels were built from a different
+   *                             network.
+   */
+  public void setHubLabels(HubLabels labels) throws ValidationException {
+    if (labels != null && labels.getFingerprint() != HubLabels.fingerprint(graph)) {
+      throw new ValidationException("Hub labels were built from a different network.");
+    }
+
+    this.labels = labels;
+  }
+
+  public StationGraph getGraph() {
+    return graph;
+  }
+
+  public CompactGraph getCompactGraph() {
+    return compact;
+  }
+
+  public ComponentIndex getComponents() {
+    return components;
+  }
+
+  /**
+   * A path through the full graph, with the distance of each station from the
+   * origin.
+   */
+  private static class Path {
+
+    private final IntList stations = new IntList();
+    private final IntList distances = new IntList();
+    private final int offset; // Starting offset of the origin
+
+    Path(int offset) {
+      this.offset = offset;
+    }
+
+    void add(int station, int distance) {
+      stations.add(station);
+      distances.add(distance);
+    }
+
+    /**
+     * @return The distance of the last station.
+     */
+    int getDistance() {
+      return distances.get(distances.size() - 1);
+    }
+
+    /**
+     * @return The distance of the last station, including the starting
+     *         offset.
+     */
+    int getCost() {
+      return offset + getDistance();
+    }
+  }
+
+  /**
+   * The places a route can start or finish on the compact graph, for every
+   * station with a given name.
+   *
+   * <p>
+   * A core station is used as is. A collapsed station is replaced by the core
+   * stations at either end of its chain, offset by the distance along the
+   * chain. Endpoints are listed in the order of the names they were found
+   * for, then in the order of the name index.
+   * </p>
+   */
+  private class Endpoints {
+
+    private int count = 0;
+    private final int[] cores;   // Core station
+    private final int[] offsets; // Distance between the station and the core
+    private final int[] chains;  // Chain index of a collapsed station, or -1
+    private final int[] edges;   // Core edge of a collapsed station, or -1
+    private final int[] inputs;  // Index of the name the endpoint was found for
+    private final int[] extras;  // Starting offset of that name
+
+    /**
+     * Finds the endpoints of a station name.
+     * @param nameId Dictionary id of the station name.
+     * @param origin Whether routes start, rather than finish, here.
+     */
+    Endpoints(int nameId, boolean origin) {
+      this(new int[] { nameId }, null, origin);
+    }
+
+    /**
+     * Finds the endpoints of several station names.
+     * @param nameIds Dictionary ids of the station names.
+     * @param starts Starting offset of each name, which is added to the
+     *               offsets of its endpoints, or null for none.
+     * @param origin Whether routes start, rather than finish, here.
+     */
+    Endpoints(int[] nameIds, int[] starts, boolean origin) {
+      int size = 0;
+      for (int nameId : nameIds) {
+        size += 2 * (graph.getNameOffset(nameId + 1) - graph.getNameOffset(nameId));
+      }
+
+      cores = new int[size];
+      offsets = new int[size];
+      chains = new int[size];
+      edges = new int[size];
+      inputs = new int[size];
+      extras = new int[size];
+
+      for (int k = 0; k < nameIds.length; k++) {
+        addName(nameIds[k], k, starts == null ? 0 : starts[k], origin);
+      }
+    }
+
+    private void addName(int nameId, int input, int extra, boolean origin) {
+      int end = graph.getNameOffset(nameId + 1);
+
+      for (int i = graph.getNameOffset(nameId); i < end; i++) {
+        int station = graph.getNameStation(i);
+        if (origin) {
+          logger.debug("Found origin point %s (%s)", name(station), line(station));
+        }
+
+        int core = compact.getCoreId(station);
+        if (core >= 0) {
+          add(core, extra, -1, -1, input, extra);
+          continue;
+        }
+
+        // Leave the chain in either direction
+        for (int direction = 0; direction < 2; direction++) {
+          int edge = compact.getMemberEdge(station, direction);
+          int chain = compact.getMemberIndex(station, direction);
+          int distance = compact.getChainDistance(chain);
+
+          if (origin) {
+            add(compact.getEdgeTarget(edge), extra + compact.getEdgeDuration(edge)
+                - distance, chain, edge, input, extra);
+          } else {
+            add(compact.getEdgeSource(edge), extra + distance, chain, edge, input,
+                extra);
+          }
+        }
+      }
+    }
+
+    private void add(int core, int offset, int chain, int edge, int input,
+        int extra) {
+      cores[count] = core;
+      offsets[count] = offset;
+      chains[count] = chain;
+      edges[count] = edge;
+      inputs[count] = input;
+      extras[count] = extra;
+      count++;
+    }
+
+    /**
+     * @param core Core station.
+     * @param offset Distance of the core station from the origin.
+     * @return The first endpoint with the given core and offset, or -1.
+     */
+    int find(int core, int offset) {
+      for (int i = 0; i < count; i++) {
+        if (cores[i] == core && offsets[i] == offset) {
+          return i;
+        }
+      }
+
+      return -1;
     }
-    
-    logger.info(
-        "then change line to %s, and continue to %s",
-        destination.getLine(),
-        destination.getName()
-    );
   }
 }
@@ -0,0 +1,304 @@
+package io.seanbailey.railnetwork.analytics;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.IntMinHeap;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the betweenness centrality of every station and the load on every
+ * edge of a @link{io.seanbailey.railnetwork.graph.StationGraph}, using
+ * Brandes' algorithm.
+ *
+ * <p>
+ * Each source runs one Dijkstra search which counts shortest paths, then
+ * walks the settled stations backwards to accumulate dependencies. Sources are
+ * split across a fork/join pool. Each thread accumulates into its own
+ * @link{Worker}, and the workers are only summed once every source is done,
+ * so threads never contend on shared totals.
+ * </p>
+ *
+ * <p>
+ * Durations are positive, so a predecessor on a shortest path is always
+ * settled before its successor. This means dependencies can be pushed back
+ * along outgoing edges, without storing predecessor lists.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class BetweennessCentrality {
+
+  // Sources searched by one task before it stops splitting
+  private static final int SOURCES_PER_TASK = 16;
+
+  private ForkJoinPool pool = ForkJoinPool.commonPool();
+  private int sampleSize = 0;
+  private long seed = 0;
+
+  /**
+   * Sets the pool which searches run on.
+   * @param pool Fork/join pool.
+   * @return This calculator.
+   */
+  public BetweennessCentrality setPool(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * Searches from a random sample of sources, rather than every station. The
+   * results are scaled up to estimate the exact values.
+   * @param sampleSize Number of sources, or 0 to use every station.
+   * @return This calculator.
+   */
+  public BetweennessCentrality setSampleSize(int sampleSize) {
+    if (sampleSize < 0) {
+      throw new IllegalArgumentException("Sample size cannot be negative.");
+    }
+
+    this.sampleSize = sampleSize;
+    return this;
+  }
+
+  /**
+   * Sets the seed used to pick sampled sources, so that runs are repeatable.
+   * @param seed Random seed.
+   * @return This calculator.
+   */
+  public BetweennessCentrality setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Computes centrality over a graph.
+   * @param graph Graph to analyse.
+   * @return Station scores and edge loads.
+   */
+  public Centrality compute(StationGraph graph) {
+    int size = graph.getStationCount();
+    int[] offsets = new int[size + 1];
+    for (int station = 0; station < size; station++) {
+      offsets[station + 1] = offsets[station] + graph.getDegree(station);
+    }
+
+    int[] sources = chooseSources(size);
+    Queue<Worker> workers = new ConcurrentLinkedQueue<>();
+    pool.invoke(new SourceTask(graph, offsets, sources, 0, sources.length, workers));
+
+    // Merge per thread totals
+    double[] stations = new double[size];
+    double[] edges = new double[offsets[size]];
+    for (Worker worker : workers) {
+      add(stations, worker.stationScores);
+      add(edges, worker.edgeLoads);
+    }
+
+    // Scale sampled results up to the whole network
+    if (sources.length > 0 && sources.length < size) {
+      double scale = (double) size / sources.length;
+      multiply(stations, scale);
+      multiply(edges, scale);
+    }
+
+    return new Centrality(graph, offsets, stations, edges, sources.length);
+  }
+
+  /**
+   * Picks the stations to search from.
+   * @param size Number of stations.
+   * @return Source station ids, in ascending order.
+   */
+  private int[] chooseSources(int size) {
+    int count = sampleSize == 0 ? size : Math.min(sampleSize, size);
+    int[] stations = new int[size];
+    for (int i = 0; i < size; i++) {
+      stations[i] = i;
+    }
+
+    if (count == size) {
+      return stations;
+    }
+
+    // Partial Fisher-Yates shuffle
+    Random random = new Random(seed);
+    for (int i = 0; i < count; i++) {
+      int j = i + random.nextInt(size - i);
+      int temp = stations[i];
+      stations[i] = stations[j];
+      stations[j] = temp;
+    }
+
+    int[] sources = new int[count];
+    System.arraycopy(stations, 0, sources, 0, count);
+    Arrays.sort(sources);
+    return sources;
+  }
+
+  private static void add(double[] totals, double[] values) {
+    for (int i = 0; i < totals.length; i++) {
+      totals[i] += values[i];
+    }
+  }
+
+  private static void multiply(double[] values, double scale) {
+    for (int i = 0; i < values.length; i++) {
+      values[i] *= scale;
+    }
+  }
+
+  /**
+   * Searches a range of sources, splitting it in half until it is small.
+   */
+  private static class SourceTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final StationGraph graph;
+    private final int[] offsets;
+    private final int[] sources;
+    private final int start;
+    private final int end;
+    private final Queue<Worker> workers;
+
+    SourceTask(StationGraph graph, int[] offsets, int[] sources, int start,
+        int end, Queue<Worker> workers) {
+      this.graph = graph;
+      this.offsets = offsets;
+      this.sources = sources;
+      this.start = start;
+      this.end = end;
+      this.workers = workers;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > SOURCES_PER_TASK) {
+        int middle = (start + end) >>> 1;
+        invokeAll(
+            new SourceTask(graph, offsets, sources, start, middle, workers),
+            new SourceTask(graph, offsets, sources, middle, end, workers)
+        );
+        return;
+      }
+
+      // Borrow an idle worker, so that there is roughly one per thread
+      Worker worker = workers.poll();
+      if (worker == null) {
+        worker = new Worker(graph, offsets);
+      }
+
+      try {
+        for (int i = start; i < end; i++) {
+          worker.accumulate(sources[i]);
+        }
+      } finally {
+        workers.offer(worker);
+      }
+    }
+  }
+
+  /**
+   * Search state and running totals for one thread.
+   */
+  private static class Worker {
+
+    private final StationGraph graph;
+    private final int[] offsets;
+    private final int[] distances;
+    private final double[] paths;       // Number of shortest paths
+    private final double[] dependencies;
+    private final int[] settled;
+    private final IntMinHeap heap;
+    private final int[] edgeTargets;
+    private final int[] edgeDurations;
+    private final double[] stationScores;
+    private final double[] edgeLoads;
+
+    Worker(StationGraph graph, int[] offsets) {
+      int size = graph.getStationCount();
+      this.graph = graph;
+      this.offsets = offsets;
+      distances = new int[size];
+      paths = new double[size];
+      dependencies = new double[size];
+      settled = new int[size];
+      heap = new IntMinHeap(size);
+      edgeTargets = new int[graph.getMaxDegree()];
+      edgeDurations = new int[graph.getMaxDegree()];
+      stationScores = new double[size];
+      edgeLoads = new double[offsets[size]];
+      Arrays.fill(distances, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds the dependencies of every station on one source to the totals.
+     * @param source Station id to search from.
+     */
+    void accumulate(int source) {
+      // Step 1: Count shortest paths
+      int count = 0;
+      distances[source] = 0;
+      paths[source] = 1;
+      heap.push(source, priority(0, source));
+
+      while (!heap.isEmpty()) {
+        int station = heap.pop();
+        settled[count++] = station;
+        int distance = distances[station];
+
+        int degree = graph.getEdges(station, edgeTargets, edgeDurations);
+        for (int i = 0; i < degree; i++) {
+          int target = edgeTargets[i];
+          int candidate = distance + edgeDurations[i];
+
+          if (candidate < distances[target]) {
+            distances[target] = candidate;
+            paths[target] = paths[station];
+            heap.push(target, priority(candidate, target));
+          } else if (candidate == distances[target]) {
+            paths[target] += paths[station];
+          }
+        }
+      }
+
+      // Step 2: Accumulate dependencies, furthest stations first
+      for (int i = count - 1; i >= 0; i--) {
+        int station = settled[i];
+        int distance = distances[station];
+        double dependency = 0;
+
+        int degree = graph.getEdges(station, edgeTargets, edgeDurations);
+        for (int j = 0; j < degree; j++) {
+          int target = edgeTargets[j];
+          if (distances[target] == distance + edgeDurations[j]) {
+            double share = paths[station] / paths[target] * (1 + dependencies[target]);
+            edgeLoads[offsets[station] + j] += share;
+            dependency += share;
+          }
+        }
+
+        dependencies[station] = dependency;
+        if (station != source) {
+          stationScores[station] += dependency;
+        }
+      }
+
+      // Step 3: Reset the stations we touched
+      for (int i = 0; i < count; i++) {
+        int station = settled[i];
+        distances[station] = Integer.MAX_VALUE;
+        paths[station] = 0;
+        dependencies[station] = 0;
+      }
+    }
+
+    private static long priority(int distance, int station) {
+      return ((long) distance << 32) | station;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package io.seanbailey.railnetwork.analytics;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+
+/**
+ * The result of a betweenness centrality calculation.
+ *
+ * <p>
+ * The score of a station is the number of shortest paths between other
+ * stations which pass through it, where a pair with several equally short
+ * paths shares one path between them. The load of an edge is defined the same
+ * way. Paths are directed, so each pair of stations is counted once in each
+ * direction.
+ * </p>
+ *
+ * <p>
+ * Edges are numbered in the order they are returned by
+ * @link{io.seanbailey.railnetwork.graph.StationGraph#getEdges}, so the edges
+ * of station s are [getEdgeOffset(s), getEdgeOffset(s + 1)).
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class Centrality {
+
+  private final StationGraph graph;
+  private final int[] edgeOffsets;
+  private final double[] stationScores;
+  private final double[] edgeLoads;
+  private final int sourceCount;
+
+  /**
+   * Constructs a new result.
+   * @param graph Graph which was analysed.
+   * @param edgeOffsets Index of the first edge of each station, plus a final
+   *                    end.
+   * @param stationScores Score of each station.
+   * @param edgeLoads Load of each edge.
+   * @param sourceCount Number of stations which were searched from.
+   */
+  Centrality(StationGraph graph, int[] edgeOffsets, double[] stationScores,
+      double[] edgeLoads, int sourceCount) {
+    this.graph = graph;
+    this.edgeOffsets = edgeOffsets;
+    this.stationScores = stationScores;
+    this.edgeLoads = edgeLoads;
+    this.sourceCount = sourceCount;
+  }
+
+  /**
+   * @return Whether the results were estimated from a sample of sources.
+   */
+  public boolean isApproximate() {
+    return sourceCount < graph.getStationCount();
+  }
+
+  public StationGraph getGraph() {
+    return graph;
+  }
+
+  public double getStationScore(int station) {
+    return stationScores[station];
+  }
+
+  public int getEdgeOffset(int station) {
+    return edgeOffsets[station];
+  }
+
+  public double getEdgeLoad(int edge) {
+    return edgeLoads[edge];
+  }
+
+  public int getSourceCount() {
+    return sourceCount;
+  }
+}
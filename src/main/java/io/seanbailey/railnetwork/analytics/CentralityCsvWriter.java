@@ -0,0 +1,106 @@
+package io.seanbailey.railnetwork.analytics;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes centrality results as CSV, with one header row.
+ *
+ * <p>
+ * Stations are written as <code>name,line,betweenness</code> and edges as
+ * <code>origin,origin_line,destination,destination_line,load</code>. Fields
+ * containing commas, quotes or line breaks are quoted.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class CentralityCsvWriter {
+
+  private static final String NEWLINE = "\n";
+
+  /**
+   * Writes the score of every station.
+   * @param centrality Results to write.
+   * @param buffer Buffer to write to.
+   */
+  public void writeStations(Centrality centrality, OutputBuffer buffer) {
+    StationGraph graph = centrality.getGraph();
+    buffer.append("name,line,betweenness").append(NEWLINE);
+
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      writeStation(graph, station, buffer);
+      buffer.append(',')
+          .append(Double.toString(centrality.getStationScore(station)))
+          .append(NEWLINE);
+    }
+  }
+
+  /**
+   * Writes the load on every edge.
+   * @param centrality Results to write.
+   * @param buffer Buffer to write to.
+   */
+  public void writeEdges(Centrality centrality, OutputBuffer buffer) {
+    StationGraph graph = centrality.getGraph();
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    buffer.append("origin,origin_line,destination,destination_line,load")
+        .append(NEWLINE);
+
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      int edge = centrality.getEdgeOffset(station);
+      int degree = graph.getEdges(station, targets, durations);
+
+      for (int i = 0; i < degree; i++) {
+        writeStation(graph, station, buffer);
+        buffer.append(',');
+        writeStation(graph, targets[i], buffer);
+        buffer.append(',')
+            .append(Double.toString(centrality.getEdgeLoad(edge + i)))
+            .append(NEWLINE);
+      }
+    }
+  }
+
+  /**
+   * Writes the name and line of a station as two fields.
+   * @param graph Graph containing the station.
+   * @param station Station id.
+   * @param buffer Buffer to write to.
+   */
+  private static void writeStation(StationGraph graph, int station,
+      OutputBuffer buffer) {
+    writeField(graph.getNames().get(graph.getNameId(station)), buffer);
+    buffer.append(',');
+    writeField(graph.getLines().get(graph.getLineId(station)), buffer);
+  }
+
+  /**
+   * Writes a single field, quoting it if necessary.
+   * @param value Field value.
+   * @param buffer Buffer to write to.
+   */
+  private static void writeField(String value, OutputBuffer buffer) {
+    boolean quote = false;
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+
+    if (!quote) {
+      buffer.append(value);
+      return;
+    }
+
+    buffer.append('"');
+    for (int i = 0; i < value.length(); ) {
+      int c = value.codePointAt(i);
+      i += Character.charCount(c);
+      if (c == '"') {
+        buffer.append('"');
+      }
+      buffer.appendCodePoint(c);
+    }
+    buffer.append('"');
+  }
+}
@@ -0,0 +1,227 @@
+package io.seanbailey.railnetwork.autocomplete;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.IntList;
+import java.util.Arrays;
+
+/**
+ * A trie over the distinct station names of a graph, used to suggest names
+ * from partial or misspelt input.
+ *
+ * <p>
+ * Names are folded to lower case, sorted, and stored in a trie whose nodes are
+ * laid out breadth first in primitive arrays. The children of a node are
+ * adjacent and sorted by label, so they can be binary searched. Because names
+ * are sorted, the names below any node form a contiguous range of the sorted
+ * order, and each node simply records that range.
+ * </p>
+ *
+ * <p>
+ * Each name is scored by its popularity: the number of connections at every
+ * station with that name. The index is read-only, and is queried through
+ * @link{io.seanbailey.railnetwork.autocomplete.NameMatcher NameMatchers}.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NameIndex {
+
+  private final Dictionary names;
+  private final int[] order;       // Name ids, sorted by folded name
+  private final int[] scores;      // Popularity of each name id
+  private final char[] labels;     // Character leading into each node
+  private final int[] depths;      // Length of the prefix at each node
+  private final int[] rangeStarts; // Start of each node's names in order
+  private final int[] rangeEnds;   // End of each node's names in order
+  private final int[] firstChildren;
+  private final int[] childCounts;
+  private final int maxDepth;
+
+  /**
+   * Constructs a new index over the names of a graph.
+   * @param graph Graph to index.
+   */
+  public NameIndex(StationGraph graph) {
+    names = graph.getNames();
+
+    // Fold and sort names
+    int size = names.size();
+    String[] keys = new String[size];
+    Integer[] sorted = new Integer[size];
+    int longest = 0;
+    for (int i = 0; i < size; i++) {
+      keys[i] = fold(names.get(i));
+      sorted[i] = i;
+      longest = Math.max(longest, keys[i].length());
+    }
+
+    Arrays.sort(sorted, (a, b) -> {
+      int delta = keys[a].compareTo(keys[b]);
+      return delta != 0 ? delta : Integer.compare(a, b);
+    });
+
+    order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = sorted[i];
+    }
+    maxDepth = longest;
+
+    // Score names by popularity
+    scores = new int[size];
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      scores[graph.getNameId(station)] += graph.getDegree(station) + 1;
+    }
+
+    // Build the trie breadth first, so that siblings are adjacent
+    IntList nodeLabels = new IntList();
+    IntList nodeDepths = new IntList();
+    IntList nodeStarts = new IntList();
+    IntList nodeEnds = new IntList();
+    IntList nodeChildren = new IntList();
+    IntList nodeChildCounts = new IntList();
+    nodeLabels.add(0);
+    nodeDepths.add(0);
+    nodeStarts.add(0);
+    nodeEnds.add(size);
+
+    for (int node = 0; node < nodeLabels.size(); node++) {
+      int depth = nodeDepths.get(node);
+      int end = nodeEnds.get(node);
+      int i = nodeStarts.get(node);
+
+      // Names which end here sort first
+      while (i < end && keys[order[i]].length() == depth) {
+        i++;
+      }
+
+      nodeChildren.add(nodeLabels.size());
+      int children = 0;
+      while (i < end) {
+        char label = keys[order[i]].charAt(depth);
+        int start = i;
+        while (i < end && keys[order[i]].charAt(depth) == label) {
+          i++;
+        }
+
+        nodeLabels.add(label);
+        nodeDepths.add(depth + 1);
+        nodeStarts.add(start);
+        nodeEnds.add(i);
+        children++;
+      }
+      nodeChildCounts.add(children);
+    }
+
+    int[] allLabels = nodeLabels.toArray();
+    labels = new char[allLabels.length];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = (char) allLabels[i];
+    }
+    depths = nodeDepths.toArray();
+    rangeStarts = nodeStarts.toArray();
+    rangeEnds = nodeEnds.toArray();
+    firstChildren = nodeChildren.toArray();
+    childCounts = nodeChildCounts.toArray();
+  }
+
+  /**
+   * Finds the child of a node with the given label.
+   * @param node Parent node.
+   * @param label Folded character to look for.
+   * @return The child node, or -1 if there is none.
+   */
+  int findChild(int node, char label) {
+    int i = firstChildren[node];
+    int j = i + childCounts[node] - 1;
+
+    while (i <= j) {
+      int k = (i + j) >>> 1;
+      if (labels[k] == label) {
+        return k;
+      } else if (labels[k] < label) {
+        i = k + 1;
+      } else {
+        j = k - 1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Folds a character for matching.
+   * @param c Character to fold.
+   * @return The lower case character.
+   */
+  static char fold(char c) {
+    return Character.toLowerCase(c);
+  }
+
+  /**
+   * @param value Name to fold.
+   * @return The name with every character folded.
+   */
+  private static String fold(String value) {
+    char[] chars = value.toCharArray();
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = fold(chars[i]);
+    }
+
+    return new String(chars);
+  }
+
+  int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  int getChildCount(int node) {
+    return childCounts[node];
+  }
+
+  char getLabel(int node) {
+    return labels[node];
+  }
+
+  int getDepth(int node) {
+    return depths[node];
+  }
+
+  int getRangeStart(int node) {
+    return rangeStarts[node];
+  }
+
+  int getRangeEnd(int node) {
+    return rangeEnds[node];
+  }
+
+  int getNameId(int index) {
+    return order[index];
+  }
+
+  int getMaxDepth() {
+    return maxDepth;
+  }
+
+  /**
+   * @param nameId Dictionary id of a name.
+   * @return The popularity of the name.
+   */
+  public int getScore(int nameId) {
+    return scores[nameId];
+  }
+
+  /**
+   * @return The number of trie nodes.
+   */
+  public int getNodeCount() {
+    return labels.length;
+  }
+
+  /**
+   * @return Dictionary of the indexed names.
+   */
+  public Dictionary getNames() {
+    return names;
+  }
+}
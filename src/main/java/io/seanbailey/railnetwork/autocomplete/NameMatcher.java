@@ -0,0 +1,259 @@
+package io.seanbailey.railnetwork.autocomplete;
+
+import java.util.Arrays;
+
+/**
+ * Suggests station names from a @link{io.seanbailey.railnetwork.autocomplete.NameIndex}.
+ *
+ * <p>
+ * A name matches if one of its prefixes is within a number of edits of the
+ * query, counting insertions, deletions, substitutions and swaps of adjacent
+ * characters. Matching is not case sensitive. The trie is walked depth first,
+ * keeping one row of the edit distance table per depth, and any branch whose
+ * row is entirely over the limit is skipped.
+ * </p>
+ *
+ * <p>
+ * Suggestions are ranked by edit distance, then by popularity, then by name.
+ * A matcher keeps its working arrays between queries, so suggesting names
+ * does not allocate once they have grown to fit. Matchers are not thread
+ * safe, so each thread should use its own.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NameMatcher {
+
+  private final NameIndex index;
+
+  // Working arrays, grown as needed
+  private char[] query = new char[32];
+  private int[][] rows;
+  private int[] best;
+  private char[] path;
+  private int[] stack = new int[64];
+
+  // Current suggestions
+  private int[] results;
+  private int[] distances = new int[16];
+  private int count;
+  private int limit;
+
+  /**
+   * Constructs a new matcher.
+   * @param index Index to match against.
+   */
+  public NameMatcher(NameIndex index) {
+    this.index = index;
+    this.rows = new int[index.getMaxDepth() + 1][query.length + 1];
+    this.best = new int[index.getMaxDepth() + 1];
+    this.path = new char[index.getMaxDepth() + 1];
+  }
+
+  /**
+   * Suggests names for a query.
+   * @param value Partial name, as typed.
+   * @param maxEdits Largest edit distance to accept, or 0 for prefixes only.
+   * @param results Array to fill with name ids, best first. Its length is the
+   *                number of suggestions wanted.
+   * @return The number of suggestions.
+   */
+  public int suggest(CharSequence value, int maxEdits, int[] results) {
+    this.results = results;
+    this.limit = results.length;
+    this.count = 0;
+    if (distances.length < limit) {
+      distances = new int[limit];
+    }
+
+    int length = value.length();
+    if (query.length < length) {
+      query = new char[length];
+      rows = new int[index.getMaxDepth() + 1][length + 1];
+    }
+    for (int i = 0; i < length; i++) {
+      query[i] = NameIndex.fold(value.charAt(i));
+    }
+
+    if (limit > 0) {
+      if (maxEdits <= 0) {
+        matchPrefix(length);
+      } else {
+        matchFuzzy(length, maxEdits);
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * @param i Suggestion index.
+   * @return The edit distance of a suggestion from the query.
+   */
+  public int getDistance(int i) {
+    return distances[i];
+  }
+
+  /**
+   * Suggests the names which start with the query.
+   * @param length Query length.
+   */
+  private void matchPrefix(int length) {
+    int node = 0;
+    for (int i = 0; i < length && node >= 0; i++) {
+      node = index.findChild(node, query[i]);
+    }
+
+    if (node >= 0) {
+      offer(node, 0);
+    }
+  }
+
+  /**
+   * Suggests the names with a prefix within the given edit distance of the
+   * query.
+   * @param length Query length.
+   * @param maxEdits Largest edit distance to accept.
+   */
+  private void matchFuzzy(int length, int maxEdits) {
+    int[] root = rows[0];
+    for (int j = 0; j <= length; j++) {
+      root[j] = j;
+    }
+    best[0] = length;
+    if (length <= maxEdits) {
+      offer(0, length);
+    }
+
+    int size = push(0, 0);
+    while (size > 0) {
+      int node = stack[--size];
+      int depth = index.getDepth(node);
+      char label = index.getLabel(node);
+      path[depth] = label;
+
+      // Extend the parent's row by this node's label
+      int[] previous = rows[depth - 1];
+      int[] row = rows[depth];
+      row[0] = depth;
+      int min = depth;
+
+      for (int j = 1; j <= length; j++) {
+        int cost = query[j - 1] == label ? 0 : 1;
+        int distance = Math.min(
+            Math.min(row[j - 1] + 1, previous[j] + 1),
+            previous[j - 1] + cost
+        );
+
+        // Swapped adjacent characters count as a single edit
+        if (depth > 1 && j > 1 && query[j - 1] == path[depth - 1]
+            && query[j - 2] == label) {
+          distance = Math.min(distance, rows[depth - 2][j - 2] + 1);
+        }
+
+        row[j] = distance;
+        min = Math.min(min, distance);
+      }
+
+      // Names below here are at most this far from the query
+      int distance = row[length];
+      best[depth] = Math.min(best[depth - 1], distance);
+      if (distance <= maxEdits && distance < best[depth - 1]) {
+        offer(node, distance);
+      }
+
+      // Descend only while a closer match is still possible
+      if (min <= maxEdits && min < best[depth]) {
+        size = push(node, size);
+      }
+    }
+  }
+
+  /**
+   * Pushes the children of a node onto the stack.
+   * @param node Parent node.
+   * @param size Current stack size.
+   * @return The new stack size.
+   */
+  private int push(int node, int size) {
+    int children = index.getChildCount(node);
+    if (size + children > stack.length) {
+      stack = Arrays.copyOf(stack, Math.max(stack.length * 2, size + children));
+    }
+
+    // Push in reverse, so that children are visited in order
+    int first = index.getFirstChild(node);
+    for (int i = children - 1; i >= 0; i--) {
+      stack[size++] = first + i;
+    }
+
+    return size;
+  }
+
+  /**
+   * Offers every name below a node as a suggestion.
+   * @param node Trie node.
+   * @param distance Edit distance of the names from the query.
+   */
+  private void offer(int node, int distance) {
+    int end = index.getRangeEnd(node);
+    for (int i = index.getRangeStart(node); i < end; i++) {
+      offer(index.getNameId(i), distance, index.getScore(index.getNameId(i)));
+    }
+  }
+
+  /**
+   * Inserts a name into the suggestions, if it ranks highly enough. A name
+   * already suggested is moved if it is now closer to the query.
+   * @param nameId Dictionary id of the name.
+   * @param distance Edit distance from the query.
+   * @param score Popularity of the name.
+   */
+  private void offer(int nameId, int distance, int score) {
+    if (count == limit && !isBetter(nameId, distance, score, count - 1)) {
+      return;
+    }
+
+    // Remove any earlier suggestion of the same name
+    for (int i = 0; i < count; i++) {
+      if (results[i] == nameId) {
+        if (distances[i] <= distance) {
+          return;
+        }
+
+        System.arraycopy(results, i + 1, results, i, count - i - 1);
+        System.arraycopy(distances, i + 1, distances, i, count - i - 1);
+        count--;
+        break;
+      }
+    }
+
+    // Insertion sort, dropping the last suggestion if full
+    int i = Math.min(count, limit - 1);
+    while (i > 0 && isBetter(nameId, distance, score, i - 1)) {
+      results[i] = results[i - 1];
+      distances[i] = distances[i - 1];
+      i--;
+    }
+
+    results[i] = nameId;
+    distances[i] = distance;
+    count = Math.min(count + 1, limit);
+  }
+
+  /**
+   * @return Whether a name ranks above the suggestion at the given index.
+   */
+  private boolean isBetter(int nameId, int distance, int score, int i) {
+    if (distance != distances[i]) {
+      return distance < distances[i];
+    }
+
+    int other = index.getScore(results[i]);
+    if (score != other) {
+      return score > other;
+    }
+
+    return nameId < results[i];
+  }
+}
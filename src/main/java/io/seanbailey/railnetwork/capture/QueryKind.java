@@ -0,0 +1,18 @@
+package io.seanbailey.railnetwork.capture;
+
+/**
+ * The kinds of query which can be captured.
+ * @author Sean Bailey c3279343
+ */
+public enum QueryKind {
+
+  /**
+   * Shortest route between two stations.
+   */
+  ROUTE,
+
+  /**
+   * Every station reachable within a travel time budget.
+   */
+  REACHABLE
+}
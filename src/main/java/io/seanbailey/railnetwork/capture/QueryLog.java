@@ -0,0 +1,161 @@
+package io.seanbailey.railnetwork.capture;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads query logs written by a
+ * @link{io.seanbailey.railnetwork.capture.QueryRecorder}.
+ *
+ * <p>
+ * A log is a sequence of sessions, one for each time a recorder opened the
+ * file. Each session starts with the magic number <code>RNQL</code>, a version
+ * byte and the wall clock time in milliseconds (a long), and is followed by
+ * records:
+ * <ul>
+ *   <li>Kind (byte), the ordinal of a
+ *   @link{io.seanbailey.railnetwork.capture.QueryKind}.</li>
+ *   <li>Microseconds since the previous record's arrival (varint).</li>
+ *   <li>Latency in microseconds (varint).</li>
+ *   <li>Network and origin (strings).</li>
+ *   <li>Destination (string) for routes, or minutes (varint) for reachable
+ *   queries.</li>
+ * </ul>
+ * Varints hold 7 bits per byte, least significant first. Strings are
+ * interned per session: a varint of 0 introduces a new string, as a varint
+ * byte length and UTF-8 bytes, and any other value n refers back to the
+ * (n - 1)th string of the session.
+ * </p>
+ *
+ * <p>
+ * Logs are only ever appended to. A log cut short by a crash is read up to
+ * its last complete record.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class QueryLog {
+
+  static final int MAGIC = 0x524e514c; // "RNQL"
+  static final byte VERSION = 1;
+  static final byte SESSION = (byte) 0xff;
+
+  /**
+   * Reads every record of a log. Sessions are joined end to end, so arrival
+   * times keep increasing across them.
+   * @param path Path to the log.
+   * @return Records, in the order they were captured.
+   * @throws IOException if the log cannot be read.
+   * @throws ValidationException if the file is not a query log.
+   */
+  public static List<QueryRecord> read(Path path)
+      throws IOException, ValidationException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    List<QueryRecord> records = new ArrayList<>();
+    List<String> strings = new ArrayList<>();
+    QueryKind[] kinds = QueryKind.values();
+    long arrival = 0;
+
+    try {
+      while (buffer.hasRemaining()) {
+        int mark = buffer.position();
+        byte kind = buffer.get();
+
+        if (kind == SESSION) {
+          readHeader(buffer);
+          strings.clear();
+          continue;
+        }
+        if (mark == 0 || kind < 0 || kind >= kinds.length) {
+          throw new ValidationException("'%s' is not a query log.", path);
+        }
+
+        arrival += readVarint(buffer);
+        long latency = readVarint(buffer);
+        String network = readString(buffer, strings);
+        String origin = readString(buffer, strings);
+
+        if (kinds[kind] == QueryKind.ROUTE) {
+          String destination = readString(buffer, strings);
+          records.add(new QueryRecord(network, QueryKind.ROUTE, origin,
+              destination, -1, arrival, latency));
+        } else {
+          int minutes = (int) readVarint(buffer);
+          records.add(new QueryRecord(network, QueryKind.REACHABLE, origin,
+              null, minutes, arrival, latency));
+        }
+      }
+    } catch (BufferUnderflowException exception) {
+      // The last record was cut short
+    }
+
+    return records;
+  }
+
+  /**
+   * Reads and checks the rest of a session header.
+   * @param buffer Buffer positioned after the session byte.
+   * @throws ValidationException if the header is invalid.
+   */
+  private static void readHeader(ByteBuffer buffer) throws ValidationException {
+    if (buffer.getInt() != MAGIC) {
+      throw new ValidationException("Query log is corrupt.");
+    }
+
+    byte version = buffer.get();
+    if (version != VERSION) {
+      throw new ValidationException("Unsupported query log version %d.", version);
+    }
+
+    buffer.getLong(); // Wall clock time, for people reading the log
+  }
+
+  /**
+   * @param buffer Buffer to read from.
+   * @return The next varint.
+   */
+  static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+
+    do {
+      b = buffer.get();
+      value |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+
+    return value;
+  }
+
+  /**
+   * @param buffer Buffer to read from.
+   * @param strings Strings seen so far in this session.
+   * @return The next string.
+   */
+  private static String readString(ByteBuffer buffer, List<String> strings) {
+    int reference = (int) readVarint(buffer);
+    if (reference > 0) {
+      return strings.get(reference - 1);
+    }
+
+    byte[] bytes = new byte[(int) readVarint(buffer)];
+    buffer.get(bytes);
+    String value = new String(bytes, StandardCharsets.UTF_8);
+    strings.add(value);
+
+    return value;
+  }
+}
@@ -0,0 +1,76 @@
+package io.seanbailey.railnetwork.capture;
+
+/**
+ * A single captured query.
+ * @author Sean Bailey c3279343
+ */
+public class QueryRecord {
+
+  private final String network;
+  private final QueryKind kind;
+  private final String origin;
+  private final String destination;
+  private final int minutes;
+  private final long arrivalMicros;
+  private final long latencyMicros;
+
+  /**
+   * Constructs a new record.
+   * @param network Name of the network queried.
+   * @param kind Kind of query.
+   * @param origin Origin station name.
+   * @param destination Destination station name, for route queries.
+   * @param minutes Travel time budget, for reachable queries.
+   * @param arrivalMicros When the query arrived, in microseconds from the
+   *                      start of the log.
+   * @param latencyMicros How long the query took when it was captured.
+   */
+  public QueryRecord(String network, QueryKind kind, String origin,
+      String destination, int minutes, long arrivalMicros, long latencyMicros) {
+    this.network = network;
+    this.kind = kind;
+    this.origin = origin;
+    this.destination = destination;
+    this.minutes = minutes;
+    this.arrivalMicros = arrivalMicros;
+    this.latencyMicros = latencyMicros;
+  }
+
+  /**
+   * @return a representation of this record as a string.
+   */
+  @Override
+  public String toString() {
+    return kind == QueryKind.ROUTE
+        ? String.format("%s:route %s|%s", network, origin, destination)
+        : String.format("%s:reachable %s|%d", network, origin, minutes);
+  }
+
+  public String getNetwork() {
+    return network;
+  }
+
+  public QueryKind getKind() {
+    return kind;
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  public int getMinutes() {
+    return minutes;
+  }
+
+  public long getArrivalMicros() {
+    return arrivalMicros;
+  }
+
+  public long getLatencyMicros() {
+    return latencyMicros;
+  }
+}
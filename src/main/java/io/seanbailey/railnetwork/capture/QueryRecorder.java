@@ -0,0 +1,335 @@
+package io.seanbailey.railnetwork.capture;
+
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Logger;
+import io.seanbailey.railnetwork.util.RingBuffer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Captures queries to an append-only log, in the format read by
+ * @link{io.seanbailey.railnetwork.capture.QueryLog}.
+ *
+ * <p>
+ * Recording a query only offers it to a lock-free ring buffer, so the
+ * querying thread never waits on the disk. A background thread encodes
+ * queries into a direct buffer and writes it to the file channel whenever it
+ * fills up, or whenever there is nothing left to encode. If the disk falls far
+ * enough behind that the ring buffer fills up, queries are dropped and
+ * counted rather than slowing the service down.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class QueryRecorder implements Closeable {
+
+  private static final Logger logger = new Logger();
+
+  private static final int QUEUE_CAPACITY = 1 << 16;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  // Strings remembered per session, after which a new session is started
+  private static final int MAX_STRINGS = 1 << 16;
+
+  private final RingBuffer<Pending> queue = new RingBuffer<>(QUEUE_CAPACITY);
+  private final AtomicLong dropped = new AtomicLong();
+  private final FileChannel channel;
+  private final long start = System.nanoTime();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  // Only used by the writer thread
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final Map<String, Integer> strings = new HashMap<>();
+  private long lastArrival = 0;
+  private volatile long written = 0;
+
+  /**
+   * Opens a log for appending, creating it if necessary, and starts a new
+   * session.
+   * @param path Path to the log.
+   * @throws IOException if the log cannot be opened.
+   */
+  public QueryRecorder(Path path) throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+    startSession();
+
+    thread = new DaemonThreadFactory("query-recorder").newThread(this::run);
+    thread.start();
+  }
+
+  /**
+   * Records a route query.
+   * @param network Name of the network queried.
+   * @param origin Origin station name.
+   * @param destination Destination station name.
+   * @param arrival When the query arrived, from System.nanoTime().
+   * @param latency How long the query took, in nanoseconds.
+   * @throws NullPointerException if a name is null.
+   */
+  public void recordRoute(String network, String origin, String destination,
+      long arrival, long latency) {
+    Objects.requireNonNull(network, "network");
+    Objects.requireNonNull(origin, "origin");
+    Objects.requireNonNull(destination, "destination");
+    offer(new Pending(network, QueryKind.ROUTE, origin, destination, -1,
+        arrival, latency));
+  }
+
+  /**
+   * Records a reachable query.
+   * @param network Name of the network queried.
+   * @param origin Origin station name.
+   * @param minutes Travel time budget.
+   * @param arrival When the query arrived, from System.nanoTime().
+   * @param latency How long the query took, in nanoseconds.
+   * @throws NullPointerException if a name is null.
+   */
+  public void recordReachable(String network, String origin, int minutes,
+      long arrival, long latency) {
+    Objects.requireNonNull(network, "network");
+    Objects.requireNonNull(origin, "origin");
+    offer(new Pending(network, QueryKind.REACHABLE, origin, null, minutes,
+        arrival, latency));
+  }
+
+  /**
+   * Writes any queued queries, then closes the log.
+   * @throws IOException if the log cannot be written or closed.
+   */
+  @Override
+  public void close() throws IOException {
+    running = false;
+    LockSupport.unpark(thread);
+
+    try {
+      thread.join();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+
+    channel.close();
+  }
+
+  /**
+   * @return The number of queries dropped because the queue was full.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /**
+   * @return The number of queries written to the log.
+   */
+  public long getWritten() {
+    return written;
+  }
+
+  private void offer(Pending pending) {
+    if (!queue.offer(pending)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * Encodes queued queries until closed.
+   */
+  private void run() {
+    try {
+      while (running) {
+        if (!drain()) {
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+      }
+
+      // Write anything recorded before we stopped
+      drain();
+    } catch (IOException | RuntimeException exception) {
+      logger.error("Stopped capturing queries. %s", exception);
+    }
+  }
+
+  /**
+   * Encodes every queued query, then writes out the buffer.
+   * @return Whether there was anything to write.
+   * @throws IOException if the log cannot be written.
+   */
+  private boolean drain() throws IOException {
+    Pending pending;
+    while ((pending = queue.poll()) != null) {
+      int mark = buffer.position();
+      boolean encoded;
+
+      // A bad query must not stop the writer. Throw away whatever part of it
+      // was encoded, and start a new session so that string references stay
+      // in step with the reader.
+      try {
+        encoded = encode(pending);
+      } catch (RuntimeException exception) {
+        logger.error("Could not capture query. %s", exception);
+        if (buffer.position() >= mark) {
+          buffer.position(mark);
+        } else {
+          buffer.clear();
+        }
+        startSession();
+        encoded = false;
+      }
+
+      if (encoded) {
+        written++;
+      } else {
+        dropped.incrementAndGet();
+      }
+    }
+
+    if (buffer.position() == 0) {
+      return false;
+    }
+
+    flush();
+    return true;
+  }
+
+  /**
+   * Encodes a single query, writing out the buffer first if it may not fit.
+   * @param pending Query to encode.
+   * @return False if the query is too large to record.
+   * @throws IOException if the log cannot be written.
+   */
+  private boolean encode(Pending pending) throws IOException {
+    if (strings.size() >= MAX_STRINGS) {
+      if (buffer.remaining() < 16) {
+        flush();
+      }
+      startSession();
+    }
+
+    // A string repeated within the record is only written out the first
+    // time, since the reader numbers strings as it meets them
+    byte[] network = bytesIfNew(pending.network);
+    byte[] origin = pending.origin.equals(pending.network) ? null
+        : bytesIfNew(pending.origin);
+    byte[] destination = pending.destination == null
+        || pending.destination.equals(pending.network)
+        || pending.destination.equals(pending.origin) ? null
+        : bytesIfNew(pending.destination);
+    byte[][] values = { network, origin, destination };
+
+    int size = 3 * 10 + 1;
+    for (byte[] value : values) {
+      size += value == null ? 0 : value.length + 10;
+    }
+    if (size > buffer.capacity()) {
+      return false;
+    }
+    if (buffer.remaining() < size) {
+      flush();
+    }
+
+    // Arrivals are relative to the previous query, which may have been
+    // recorded slightly later
+    long arrival = Math.max(0, TimeUnit.NANOSECONDS.toMicros(pending.arrival - start));
+    buffer.put((byte) pending.kind.ordinal());
+    writeVarint(Math.max(0, arrival - lastArrival));
+    writeVarint(TimeUnit.NANOSECONDS.toMicros(pending.latency));
+    lastArrival = Math.max(lastArrival, arrival);
+
+    writeString(pending.network, values[0]);
+    writeString(pending.origin, values[1]);
+    if (pending.kind == QueryKind.ROUTE) {
+      writeString(pending.destination, values[2]);
+    } else {
+      writeVarint(pending.minutes);
+    }
+
+    return true;
+  }
+
+  /**
+   * Writes a session header, and forgets the strings of the last session.
+   */
+  private void startSession() {
+    buffer.put(QueryLog.SESSION)
+        .putInt(QueryLog.MAGIC)
+        .put(QueryLog.VERSION)
+        .putLong(System.currentTimeMillis());
+    strings.clear();
+  }
+
+  /**
+   * @param value String about to be written.
+   * @return Its UTF-8 bytes if it has not been written this session, or null.
+   */
+  private byte[] bytesIfNew(String value) {
+    return strings.containsKey(value) ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private void writeString(String value, byte[] bytes) {
+    if (bytes == null) {
+      writeVarint(strings.get(value) + 1);
+      return;
+    }
+
+    strings.put(value, strings.size());
+    writeVarint(0);
+    writeVarint(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private void writeVarint(long value) {
+    long remaining = value;
+    while ((remaining & ~0x7fL) != 0) {
+      buffer.put((byte) ((remaining & 0x7f) | 0x80));
+      remaining >>>= 7;
+    }
+    buffer.put((byte) remaining);
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * A query waiting to be encoded.
+   */
+  private static class Pending {
+
+    private final String network;
+    private final QueryKind kind;
+    private final String origin;
+    private final String destination;
+    private final int minutes;
+    private final long arrival;
+    private final long latency;
+
+    Pending(String network, QueryKind kind, String origin, String destination,
+        int minutes, long arrival, long latency) {
+      this.network = network;
+      this.kind = kind;
+      this.origin = origin;
+      this.destination = destination;
+      this.minutes = minutes;
+      this.arrival = arrival;
+      this.latency = latency;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package io.seanbailey.railnetwork.capture;
+
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.loadtest.LatencyHistogram;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays captured queries against a network, in the order they were
+ * captured, and compares their latency with the latency they were captured
+ * with.
+ *
+ * <p>
+ * Queries run on a single thread, so a replay is deterministic: the same log
+ * always sends the same queries in the same order. At a given speed, each
+ * query is scheduled at its original arrival time divided by the speed, and
+ * latency is measured from that scheduled time, so a replay which falls
+ * behind is charged for it. A speed of 0 sends queries back to back.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class QueryReplayer {
+
+  private final RailNetwork network;
+  private double speed = 1;
+  private String networkName;
+  private int regressions = 10;
+
+  /**
+   * Constructs a new replayer.
+   * @param network Network to replay queries against.
+   */
+  public QueryReplayer(RailNetwork network) {
+    this.network = network;
+  }
+
+  /**
+   * Sets how fast to replay queries.
+   * @param speed Multiple of the original speed, or 0 for as fast as
+   *              possible.
+   * @return This replayer.
+   */
+  public QueryReplayer setSpeed(double speed) {
+    if (speed < 0) {
+      throw new IllegalArgumentException("Speed cannot be negative.");
+    }
+
+    this.speed = speed;
+    return this;
+  }
+
+  /**
+   * Only replays queries captured from one network.
+   * @param networkName Name of the network, or null for every query.
+   * @return This replayer.
+   */
+  public QueryReplayer setNetworkName(String networkName) {
+    this.networkName = networkName;
+    return this;
+  }
+
+  /**
+   * Sets how many of the worst regressions to report.
+   * @param regressions Number of queries.
+   * @return This replayer.
+   */
+  public QueryReplayer setRegressionCount(int regressions) {
+    this.regressions = regressions;
+    return this;
+  }
+
+  /**
+   * Replays queries.
+   * @param records Captured queries, in order.
+   * @return A comparison of replayed and captured latency.
+   */
+  public ReplayReport replay(List<QueryRecord> records) {
+    LatencyHistogram captured = new LatencyHistogram();
+    LatencyHistogram serviceTimes = new LatencyHistogram();
+    LatencyHistogram latencies = new LatencyHistogram();
+    ReplayReport.Regressions worst = new ReplayReport.Regressions(regressions);
+    long errors = 0;
+
+    long start = System.nanoTime();
+    long first = -1;
+
+    for (QueryRecord record : records) {
+      if (networkName != null && !networkName.equals(record.getNetwork())) {
+        continue;
+      }
+      if (first < 0) {
+        first = record.getArrivalMicros();
+      }
+
+      // Wait until the query is due
+      long scheduled = System.nanoTime();
+      if (speed > 0) {
+        long offset = TimeUnit.MICROSECONDS.toNanos(record.getArrivalMicros() - first);
+        scheduled = start + (long) (offset / speed);
+
+        long now;
+        while ((now = System.nanoTime()) < scheduled) {
+          LockSupport.parkNanos(scheduled - now);
+        }
+      }
+
+      long sent = System.nanoTime();
+      try {
+        run(record);
+      } catch (ValidationException exception) {
+        // Captured queries can be invalid too
+        errors++;
+      }
+      long received = System.nanoTime();
+
+      long recorded = TimeUnit.MICROSECONDS.toNanos(record.getLatencyMicros());
+      captured.record(recorded);
+      serviceTimes.record(received - sent);
+      latencies.record(received - scheduled);
+      worst.offer(record, received - sent - recorded);
+    }
+
+    return new ReplayReport(
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        errors, captured, serviceTimes, latencies, worst
+    );
+  }
+
+  /**
+   * Runs a single query.
+   * @param record Query to run.
+   * @throws ValidationException if the query is invalid.
+   */
+  private void run(QueryRecord record) throws ValidationException {
+    switch (record.getKind()) {
+      case ROUTE:
+        network.findShortestPath(record.getOrigin(), record.getDestination());
+        break;
+      case REACHABLE:
+        network.findReachable(record.getOrigin(), record.getMinutes());
+        break;
+      default:
+        throw new IllegalStateException("Unknown query kind " + record.getKind());
+    }
+  }
+}
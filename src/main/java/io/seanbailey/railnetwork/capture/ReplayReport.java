@@ -0,0 +1,154 @@
+package io.seanbailey.railnetwork.capture;
+
+import io.seanbailey.railnetwork.loadtest.LatencyHistogram;
+import io.seanbailey.railnetwork.loadtest.LoadTestReport;
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Compares the latency of replayed queries with the latency they were
+ * captured with.
+ * @author Sean Bailey c3279343
+ */
+public class ReplayReport {
+
+  private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+  private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+  private static final String ROW = "%-14s %12s %12s %9s\n";
+
+  private final long elapsedMillis;
+  private final long errors;
+  private final LatencyHistogram captured;
+  private final LatencyHistogram serviceTimes;
+  private final LatencyHistogram latencies;
+  private final Regressions regressions;
+
+  /**
+   * Constructs a new report.
+   * @param elapsedMillis How long the replay took.
+   * @param errors Number of queries which failed.
+   * @param captured Latencies the queries were captured with.
+   * @param serviceTimes Replayed service times.
+   * @param latencies Replayed latencies, measured from when each query was
+   *                  scheduled.
+   * @param regressions Queries which slowed down the most.
+   */
+  ReplayReport(long elapsedMillis, long errors, LatencyHistogram captured,
+      LatencyHistogram serviceTimes, LatencyHistogram latencies,
+      Regressions regressions) {
+    this.elapsedMillis = elapsedMillis;
+    this.errors = errors;
+    this.captured = captured;
+    this.serviceTimes = serviceTimes;
+    this.latencies = latencies;
+    this.regressions = regressions;
+  }
+
+  /**
+   * Writes a table of captured against replayed latency, followed by the
+   * queries which slowed down the most.
+   * @param buffer Buffer to write to.
+   */
+  public void write(OutputBuffer buffer) {
+    buffer.append(String.format("Replayed %d queries in %d ms, %d failed.\n",
+        getQueries(), elapsedMillis, errors));
+    buffer.append(String.format(ROW, "latency (us)", "captured", "replayed", "change"));
+
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      writeRow(PERCENTILE_NAMES[i],
+          captured.getValueAtPercentile(PERCENTILES[i]),
+          serviceTimes.getValueAtPercentile(PERCENTILES[i]), buffer);
+    }
+    writeRow("max", captured.getMax(), serviceTimes.getMax(), buffer);
+
+    if (regressions.count > 0) {
+      buffer.append("Largest regressions:\n");
+    }
+    for (int i = 0; i < regressions.count; i++) {
+      buffer.append(String.format("  %+d us  %s\n",
+          regressions.deltas[i] / 1000, regressions.records[i]));
+    }
+  }
+
+  /**
+   * Converts the replayed latencies to a load test report, so that replays
+   * of the same log against two builds can be compared.
+   * @param label Label of the build.
+   * @return A load test report.
+   */
+  public LoadTestReport toLoadTestReport(String label) {
+    return new LoadTestReport(label, 1, 0, elapsedMillis, getQueries(), errors,
+        latencies, serviceTimes);
+  }
+
+  public long getQueries() {
+    return serviceTimes.getCount();
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public LatencyHistogram getCaptured() {
+    return captured;
+  }
+
+  public LatencyHistogram getServiceTimes() {
+    return serviceTimes;
+  }
+
+  public LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  private static void writeRow(String name, long captured, long replayed,
+      OutputBuffer buffer) {
+    String change = captured == 0
+        ? "-"
+        : String.format("%+.1f%%", (replayed - captured) * 100.0 / captured);
+
+    buffer.append(String.format(ROW, name,
+        String.format("%.1f", captured / 1000.0),
+        String.format("%.1f", replayed / 1000.0), change));
+  }
+
+  /**
+   * The queries whose latency grew the most, largest first.
+   */
+  static class Regressions {
+
+    private final QueryRecord[] records;
+    private final long[] deltas;
+    private int count = 0;
+
+    Regressions(int limit) {
+      records = new QueryRecord[limit];
+      deltas = new long[limit];
+    }
+
+    /**
+     * @param record Replayed query.
+     * @param delta Replayed latency less captured latency, in nanoseconds.
+     */
+    void offer(QueryRecord record, long delta) {
+      if (delta <= 0 || records.length == 0
+          || (count == records.length && delta <= deltas[count - 1])) {
+        return;
+      }
+
+      int i = Math.min(count, records.length - 1);
+      while (i > 0 && deltas[i - 1] < delta) {
+        records[i] = records[i - 1];
+        deltas[i] = deltas[i - 1];
+        i--;
+      }
+
+      records[i] = record;
+      deltas[i] = delta;
+      count = Math.min(count + 1, records.length);
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.Dictionary;
+
+/**
+ * A @link{io.seanbailey.railnetwork.graph.StationGraph} backed by primitive
+ * arrays on the heap.
+ *
+ * <p>
+ * Edges are stored in compressed sparse row form: the edges of station i are
+ * found at [edgeOffsets[i], edgeOffsets[i + 1]) in the target and duration
+ * arrays.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class ArrayStationGraph implements StationGraph {
+
+  private final int[] stationNames;
+  private final int[] stationLines;
+  private final int[] stationRanks;
+  private final int[] edgeOffsets;
+  private final int[] edgeTargets;
+  private final int[] edgeDurations;
+  private final int[] nameOffsets;
+  private final int[] nameStations;
+  private final int maxDegree;
+  private final Dictionary names;
+  private final Dictionary lines;
+
+  /**
+   * Constructs a new graph. Arrays are used as is, and must not be modified
+   * afterwards.
+   * @param layout Arrays which make up the graph.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   */
+  ArrayStationGraph(GraphLayout layout, Dictionary names, Dictionary lines) {
+    this.stationNames = layout.stationNames;
+    this.stationLines = layout.stationLines;
+    this.stationRanks = layout.stationRanks;
+    this.edgeOffsets = layout.edgeOffsets;
+    this.edgeTargets = layout.edgeTargets;
+    this.edgeDurations = layout.edgeDurations;
+    this.nameOffsets = layout.nameOffsets;
+    this.nameStations = layout.nameStations;
+    this.maxDegree = layout.getMaxDegree();
+    this.names = names;
+    this.lines = lines;
+  }
+
+  @Override
+  public GraphStorage getStorage() {
+    return GraphStorage.HEAP;
+  }
+
+  @Override
+  public int getStationCount() {
+    return stationNames.length;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeTargets.length;
+  }
+
+  @Override
+  public int getNameId(int station) {
+    return stationNames[station];
+  }
+
+  @Override
+  public int getLineId(int station) {
+    return stationLines[station];
+  }
+
+  @Override
+  public int getRank(int station) {
+    return stationRanks[station];
+  }
+
+  @Override
+  public int getDegree(int station) {
+    return edgeOffsets[station + 1] - edgeOffsets[station];
+  }
+
+  @Override
+  public int getMaxDegree() {
+    return maxDegree;
+  }
+
+  @Override
+  public int getEdges(int station, int[] targets, int[] durations) {
+    int start = edgeOffsets[station];
+    int degree = edgeOffsets[station + 1] - start;
+    System.arraycopy(edgeTargets, start, targets, 0, degree);
+    System.arraycopy(edgeDurations, start, durations, 0, degree);
+    return degree;
+  }
+
+  @Override
+  public int getNameOffset(int nameId) {
+    return nameOffsets[nameId];
+  }
+
+  @Override
+  public int getNameStation(int index) {
+    return nameStations[index];
+  }
+
+  @Override
+  public Dictionary getNames() {
+    return names;
+  }
+
+  @Override
+  public Dictionary getLines() {
+    return lines;
+  }
+}
@@ -0,0 +1,177 @@
+package io.seanbailey.railnetwork.graph;
+
+import java.nio.IntBuffer;
+
+/**
+ * A @link{io.seanbailey.railnetwork.graph.StationGraph} with its plain
+ * through-stations collapsed away, along with what is needed to expand routes
+ * on it back out to every station.
+ *
+ * <p>
+ * Stations are either <em>core</em> stations, which are kept, or
+ * <em>interior</em> stations, which sit in the middle of a chain on a single
+ * line. Each chain between two core stations becomes one edge of the core
+ * graph in each direction. The core edge remembers the interior stations it
+ * passes, in travel order, and the distance from its source to each of them.
+ * Every interior station therefore lies on exactly two core edges, one per
+ * direction.
+ * </p>
+ *
+ * <p>
+ * Core ids are assigned in the same order as the original station ids, and
+ * core edges are numbered in the order returned by
+ * @link{io.seanbailey.railnetwork.graph.StationGraph#getEdges}.
+ * </p>
+ *
+ * <p>
+ * Every array, including those sized by the original station count, is kept
+ * in the core graph's storage backend, so an off-heap network keeps no
+ * per-station arrays on the heap.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class CompactGraph {
+
+  private final StationGraph core;
+  private final IntBuffer stations;       // Original id of each core station
+  private final IntBuffer coreIds;        // Core id of each station, or -1
+  private final IntBuffer edgeOffsets;    // Start of each core station's edges
+  private final IntBuffer edgeSources;    // Core station at the start of each edge
+  private final IntBuffer edgeTargets;    // Core station at the end of each edge
+  private final IntBuffer edgeDurations;  // Duration of each edge
+  private final IntBuffer chainOffsets;   // Start of each edge's interior stations
+  private final IntBuffer chainStations;  // Interior stations, in travel order
+  private final IntBuffer chainDistances; // Distance from the edge source
+  private final IntBuffer memberEdges;    // The two edges of each interior station
+  private final IntBuffer memberIndices;  // Position of the station in each edge
+
+  /**
+   * Constructs a new compact graph. The arrays are kept in the same storage
+   * backend as the core graph, and must not be modified afterwards.
+   */
+  CompactGraph(StationGraph core, int[] stations, int[] coreIds,
+      int[] edgeOffsets, int[] edgeSources, int[] edgeTargets,
+      int[] edgeDurations, int[] chainOffsets, int[] chainStations,
+      int[] chainDistances, int[] memberEdges, int[] memberIndices) {
+    IntBuffer[] sections = IntSections.store(core.getStorage(), stations,
+        coreIds, edgeOffsets, edgeSources, edgeTargets, edgeDurations,
+        chainOffsets, chainStations, chainDistances, memberEdges, memberIndices);
+
+    this.core = core;
+    this.stations = sections[0];
+    this.coreIds = sections[1];
+    this.edgeOffsets = sections[2];
+    this.edgeSources = sections[3];
+    this.edgeTargets = sections[4];
+    this.edgeDurations = sections[5];
+    this.chainOffsets = sections[6];
+    this.chainStations = sections[7];
+    this.chainDistances = sections[8];
+    this.memberEdges = sections[9];
+    this.memberIndices = sections[10];
+  }
+
+  /**
+   * Finds the core edge which was used to reach one core station from
+   * another.
+   * @param from Core id of the first station.
+   * @param to Core id of the second station.
+   * @param duration Distance between the two stations on the route.
+   * @return Core edge index, or -1 if there is no such edge.
+   */
+  public int findEdge(int from, int to, int duration) {
+    for (int edge = edgeOffsets.get(from); edge < edgeOffsets.get(from + 1); edge++) {
+      if (edgeTargets.get(edge) == to && edgeDurations.get(edge) == duration) {
+        return edge;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * @return The graph of core stations.
+   */
+  public StationGraph getCore() {
+    return core;
+  }
+
+  /**
+   * @param station Original station id.
+   * @return The core id of the station, or -1 if it is an interior station.
+   */
+  public int getCoreId(int station) {
+    return coreIds.get(station);
+  }
+
+  /**
+   * @param coreId Core station id.
+   * @return The original id of the station.
+   */
+  public int getStation(int coreId) {
+    return stations.get(coreId);
+  }
+
+  public int getEdgeSource(int edge) {
+    return edgeSources.get(edge);
+  }
+
+  public int getEdgeTarget(int edge) {
+    return edgeTargets.get(edge);
+  }
+
+  public int getEdgeDuration(int edge) {
+    return edgeDurations.get(edge);
+  }
+
+  /**
+   * @param edge Core edge index.
+   * @return Index of the first interior station on the edge. The interior
+   *         stations of edge e are [getChainOffset(e), getChainOffset(e + 1)).
+   */
+  public int getChainOffset(int edge) {
+    return chainOffsets.get(edge);
+  }
+
+  /**
+   * @param index Chain index.
+   * @return Original id of the interior station.
+   */
+  public int getChainStation(int index) {
+    return chainStations.get(index);
+  }
+
+  /**
+   * @param index Chain index.
+   * @return Distance from the source of the edge to the interior station.
+   */
+  public int getChainDistance(int index) {
+    return chainDistances.get(index);
+  }
+
+  /**
+   * @param station Original id of an interior station.
+   * @param direction 0 or 1.
+   * @return One of the two core edges which pass through the station.
+   */
+  public int getMemberEdge(int station, int direction) {
+    return memberEdges.get(2 * station + direction);
+  }
+
+  /**
+   * @param station Original id of an interior station.
+   * @param direction 0 or 1.
+   * @return The chain index of the station on the matching member edge.
+   */
+  public int getMemberIndex(int station, int direction) {
+    return memberIndices.get(2 * station + direction);
+  }
+
+  /**
+   * @return The number of stations which were collapsed into chains.
+   */
+  public int getInteriorCount() {
+    return chainStations.limit() / 2;
+  }
+}
@@ -0,0 +1,222 @@
+package io.seanbailey.railnetwork.graph;
+
+import java.nio.IntBuffer;
+
+/**
+ * An index of the connected components of a
+ * @link{io.seanbailey.railnetwork.graph.StationGraph}, used to reject
+ * unreachable queries without searching.
+ *
+ * <p>
+ * Edges are directed, so the index holds both strongly and weakly connected
+ * components. Strong components are numbered by Tarjan's algorithm, which
+ * finishes a component only after every component it can reach. A component
+ * can therefore only reach components with lower or equal numbers. Two
+ * stations in different weak components can never reach each other.
+ * </p>
+ *
+ * <p>
+ * Stations in the same strong component can always reach each other. For
+ * stations in different strong components the index can only prove that no
+ * route exists, so other pairs still have to be searched.
+ * </p>
+ *
+ * <p>
+ * The index holds two ints per station, which are kept in the graph's
+ * storage backend. The arrays used while building it are temporary.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class ComponentIndex {
+
+  private final IntBuffer strong;
+  private final IntBuffer weak;
+  private final int strongCount;
+
+  /**
+   * Builds the index of a graph.
+   * @param graph Graph to index.
+   */
+  public ComponentIndex(StationGraph graph) {
+    int size = graph.getStationCount();
+
+    // Copy edge targets, so that they can be walked incrementally
+    int[] offsets = new int[size + 1];
+    int[] targets = new int[graph.getEdgeCount()];
+    int[] durations = new int[graph.getMaxDegree()];
+    int[] scratch = new int[graph.getMaxDegree()];
+    for (int station = 0; station < size; station++) {
+      int degree = graph.getEdges(station, scratch, durations);
+      System.arraycopy(scratch, 0, targets, offsets[station], degree);
+      offsets[station + 1] = offsets[station] + degree;
+    }
+
+    int[] strong = new int[size];
+    strongCount = findStrongComponents(offsets, targets, strong);
+    int[] weak = findWeakComponents(offsets, targets);
+
+    // Keep the index alongside the graph, so that it follows its storage
+    IntBuffer[] sections = IntSections.store(graph.getStorage(), strong, weak);
+    this.strong = sections[0];
+    this.weak = sections[1];
+  }
+
+  /**
+   * Finds strongly connected components with an iterative version of Tarjan's
+   * algorithm.
+   * @param offsets Start of each station's edges, plus a final end.
+   * @param targets Station at the end of each edge.
+   * @param components Receives the component of each station.
+   * @return The number of components.
+   */
+  private static int findStrongComponents(int[] offsets, int[] targets,
+      int[] components) {
+    // Init
+    int size = components.length;
+    int[] order = new int[size];  // Discovery order, 0 if undiscovered
+    int[] low = new int[size];
+    int[] next = new int[size];   // Next edge to visit from each station
+    int[] calls = new int[size];  // Stations on the call stack
+    int[] stack = new int[size];  // Stations awaiting a component
+    boolean[] onStack = new boolean[size];
+    int counter = 0;
+    int count = 0;
+
+    for (int root = 0; root < size; root++) {
+      if (order[root] != 0) {
+        continue;
+      }
+
+      int depth = 0;
+      int top = 0;
+      calls[depth++] = root;
+      order[root] = low[root] = ++counter;
+      next[root] = offsets[root];
+      stack[top++] = root;
+      onStack[root] = true;
+
+      while (depth > 0) {
+        int station = calls[depth - 1];
+
+        // Visit the next edge
+        if (next[station] < offsets[station + 1]) {
+          int target = targets[next[station]++];
+          if (order[target] == 0) {
+            order[target] = low[target] = ++counter;
+            next[target] = offsets[target];
+            stack[top++] = target;
+            onStack[target] = true;
+            calls[depth++] = target;
+          } else if (onStack[target]) {
+            low[station] = Math.min(low[station], order[target]);
+          }
+          continue;
+        }
+
+        // Every edge visited, so return to the caller
+        depth--;
+        if (depth > 0) {
+          int caller = calls[depth - 1];
+          low[caller] = Math.min(low[caller], low[station]);
+        }
+
+        // Pop a finished component
+        if (low[station] == order[station]) {
+          int member;
+          do {
+            member = stack[--top];
+            onStack[member] = false;
+            components[member] = count;
+          } while (member != station);
+          count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Finds weakly connected components with a union-find over every edge.
+   * @param offsets Start of each station's edges, plus a final end.
+   * @param targets Station at the end of each edge.
+   * @return The component of each station, named by a representative
+   *         station.
+   */
+  private static int[] findWeakComponents(int[] offsets, int[] targets) {
+    int size = offsets.length - 1;
+    int[] parents = new int[size];
+    for (int i = 0; i < size; i++) {
+      parents[i] = i;
+    }
+
+    for (int station = 0; station < size; station++) {
+      for (int edge = offsets[station]; edge < offsets[station + 1]; edge++) {
+        int a = find(parents, station);
+        int b = find(parents, targets[edge]);
+        if (a != b) {
+          parents[Math.max(a, b)] = Math.min(a, b);
+        }
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+      parents[i] = find(parents, i);
+    }
+
+    return parents;
+  }
+
+  /**
+   * Finds the representative of a station, halving the path as it goes.
+   * @param parents Parent of each station.
+   * @param station Station id.
+   * @return The representative station.
+   */
+  private static int find(int[] parents, int station) {
+    while (parents[station] != station) {
+      parents[station] = parents[parents[station]];
+      station = parents[station];
+    }
+
+    return station;
+  }
+
+  /**
+   * Determines, in constant time, whether one station might be able to reach
+   * another.
+   * @param from Station id to start from.
+   * @param to Station id to finish at.
+   * @return False if there is definitely no route, true otherwise.
+   */
+  public boolean mayReach(int from, int to) {
+    return weak.get(from) == weak.get(to) && strong.get(from) >= strong.get(to);
+  }
+
+  /**
+   * Determines, in constant time, whether one station can definitely reach
+   * another.
+   * @param from Station id to start from.
+   * @param to Station id to finish at.
+   * @return True if both stations are in the same strong component.
+   */
+  public boolean canReach(int from, int to) {
+    return strong.get(from) == strong.get(to);
+  }
+
+  /**
+   * @param station Station id.
+   * @return The strongly connected component of the station.
+   */
+  public int getStrongComponent(int station) {
+    return strong.get(station);
+  }
+
+  /**
+   * @return The number of strongly connected components.
+   */
+  public int getStrongComponentCount() {
+    return strongCount;
+  }
+}
@@ -0,0 +1,243 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.Arrays;
+
+/**
+ * A @link{io.seanbailey.railnetwork.graph.StationGraph} which stores its
+ * edges compressed, for graphs too large to hold as plain arrays.
+ *
+ * <p>
+ * Edge targets are delta encoded. The first target of each station is stored
+ * relative to the station itself, and each later target relative to the one
+ * before it. Deltas are zig-zag encoded, so that small negative deltas stay
+ * small, then written as varints of 7 bits per byte. Stations are numbered in
+ * locality order by default, so most deltas fit in a single byte.
+ * </p>
+ *
+ * <p>
+ * Durations are always positive, so each is stored less one, bit-packed at the
+ * width of the largest duration in the graph. Edges keep the order they were
+ * given in, so searches relax them in the same order as any other backend.
+ * </p>
+ *
+ * <p>
+ * Station, name and offset arrays are kept as they are.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class CompressedStationGraph implements StationGraph {
+
+  private final int[] stationNames;
+  private final int[] stationLines;
+  private final int[] stationRanks;
+  private final int[] edgeOffsets;  // Start of each station's edges
+  private final int[] targetOffsets; // Start of each station's target bytes
+  private final byte[] targets;
+  private final long[] durations;
+  private final int durationBits;
+  private final long durationMask;
+  private final int[] nameOffsets;
+  private final int[] nameStations;
+  private final int maxDegree;
+  private final Dictionary names;
+  private final Dictionary lines;
+
+  /**
+   * Constructs a new graph, compressing the edges of the given layout.
+   * @param layout Arrays which make up the graph.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   */
+  CompressedStationGraph(GraphLayout layout, Dictionary names, Dictionary lines) {
+    this.stationNames = layout.stationNames;
+    this.stationLines = layout.stationLines;
+    this.stationRanks = layout.stationRanks;
+    this.edgeOffsets = layout.edgeOffsets;
+    this.nameOffsets = layout.nameOffsets;
+    this.nameStations = layout.nameStations;
+    this.maxDegree = layout.getMaxDegree();
+    this.names = names;
+    this.lines = lines;
+
+    // Encode targets
+    int stationCount = layout.getStationCount();
+    targetOffsets = new int[stationCount + 1];
+    byte[] encoded = new byte[Math.max(16, layout.edgeTargets.length * 2)];
+    int position = 0;
+
+    for (int station = 0; station < stationCount; station++) {
+      targetOffsets[station] = position;
+      int previous = station;
+
+      for (int i = edgeOffsets[station]; i < edgeOffsets[station + 1]; i++) {
+        // Make sure the longest varint fits
+        if (position + 5 > encoded.length) {
+          encoded = Arrays.copyOf(encoded, encoded.length * 2);
+        }
+
+        int delta = layout.edgeTargets[i] - previous;
+        position = writeVarint((delta << 1) ^ (delta >> 31), encoded, position);
+        previous = layout.edgeTargets[i];
+      }
+    }
+    targetOffsets[stationCount] = position;
+    targets = Arrays.copyOf(encoded, position);
+
+    // Pack durations
+    int max = 0;
+    for (int duration : layout.edgeDurations) {
+      max = Math.max(max, duration - 1);
+    }
+
+    durationBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+    durationMask = (1L << durationBits) - 1;
+    durations = new long[(int) (((long) layout.edgeDurations.length * durationBits + 63) >>> 6)];
+
+    for (int i = 0; i < layout.edgeDurations.length; i++) {
+      long bit = (long) i * durationBits;
+      int word = (int) (bit >>> 6);
+      int shift = (int) (bit & 63);
+      long value = layout.edgeDurations[i] - 1;
+
+      durations[word] |= value << shift;
+      if (shift + durationBits > 64) {
+        durations[word + 1] |= value >>> (64 - shift);
+      }
+    }
+  }
+
+  @Override
+  public GraphStorage getStorage() {
+    return GraphStorage.COMPRESSED;
+  }
+
+  @Override
+  public int getStationCount() {
+    return stationNames.length;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeOffsets[edgeOffsets.length - 1];
+  }
+
+  @Override
+  public int getNameId(int station) {
+    return stationNames[station];
+  }
+
+  @Override
+  public int getLineId(int station) {
+    return stationLines[station];
+  }
+
+  @Override
+  public int getRank(int station) {
+    return stationRanks[station];
+  }
+
+  @Override
+  public int getDegree(int station) {
+    return edgeOffsets[station + 1] - edgeOffsets[station];
+  }
+
+  @Override
+  public int getMaxDegree() {
+    return maxDegree;
+  }
+
+  @Override
+  public int getEdges(int station, int[] targets, int[] durations) {
+    int start = edgeOffsets[station];
+    int degree = edgeOffsets[station + 1] - start;
+    byte[] bytes = this.targets;
+    int position = targetOffsets[station];
+    int previous = station;
+
+    for (int i = 0; i < degree; i++) {
+      // Read a varint, which is almost always a single byte
+      int value = bytes[position++];
+      if (value < 0) {
+        value &= 0x7f;
+        int shift = 7;
+        int b;
+        do {
+          b = bytes[position++];
+          value |= (b & 0x7f) << shift;
+          shift += 7;
+        } while (b < 0);
+      }
+
+      previous += (value >>> 1) ^ -(value & 1);
+      targets[i] = previous;
+      durations[i] = getDuration(start + i);
+    }
+
+    return degree;
+  }
+
+  @Override
+  public int getNameOffset(int nameId) {
+    return nameOffsets[nameId];
+  }
+
+  @Override
+  public int getNameStation(int index) {
+    return nameStations[index];
+  }
+
+  @Override
+  public Dictionary getNames() {
+    return names;
+  }
+
+  @Override
+  public Dictionary getLines() {
+    return lines;
+  }
+
+  /**
+   * @return The number of bytes used by edge targets and durations.
+   */
+  public long getEdgeBytes() {
+    return targets.length + (long) durations.length * Long.BYTES
+        + (long) targetOffsets.length * Integer.BYTES;
+  }
+
+  /**
+   * @param edge Edge index.
+   * @return The duration of the edge.
+   */
+  private int getDuration(int edge) {
+    long bit = (long) edge * durationBits;
+    int word = (int) (bit >>> 6);
+    int shift = (int) (bit & 63);
+
+    long value = durations[word] >>> shift;
+    if (shift + durationBits > 64) {
+      value |= durations[word + 1] << (64 - shift);
+    }
+
+    return (int) (value & durationMask) + 1;
+  }
+
+  /**
+   * Writes an unsigned varint.
+   * @param value Value to write.
+   * @param bytes Array to write to.
+   * @param position Position to start at.
+   * @return The position after the varint.
+   */
+  private static int writeVarint(int value, byte[] bytes, int position) {
+    int remaining = value;
+    while ((remaining & ~0x7f) != 0) {
+      bytes[position++] = (byte) ((remaining & 0x7f) | 0x80);
+      remaining >>>= 7;
+    }
+    bytes[position++] = (byte) remaining;
+
+    return position;
+  }
+}
@@ -0,0 +1,176 @@
+package io.seanbailey.railnetwork.graph;
+
+/**
+ * Computes a reverse Cuthill-McKee ordering of a graph layout.
+ *
+ * <p>
+ * Stations are visited breadth first, treating every edge as undirected, and
+ * each station's unvisited neighbours are queued in order of increasing
+ * degree. Each connected component starts from a station of lowest degree,
+ * which is usually the end of a line. Stations along a line therefore end up
+ * with consecutive ids, and the arrays indexed by station id are read almost
+ * sequentially during a search. The final order is reversed, which tends to
+ * narrow the bandwidth of the adjacency matrix further.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+class CuthillMcKee {
+
+  private CuthillMcKee() {
+  }
+
+  /**
+   * Orders the stations of a layout.
+   * @param layout Layout to order.
+   * @return The old id of each station, in new id order.
+   */
+  static int[] order(GraphLayout layout) {
+    int size = layout.getStationCount();
+    int[] offsets = new int[size + 1];
+    int[] neighbours = undirected(layout, offsets);
+
+    // Start components from low degree stations, in id order for determinism
+    int[] starts = sortByDegree(identity(size), 0, size, offsets);
+
+    int[] order = new int[size];
+    boolean[] visited = new boolean[size];
+    int head = 0;
+    int tail = 0;
+
+    for (int start : starts) {
+      if (visited[start]) {
+        continue;
+      }
+
+      visited[start] = true;
+      order[tail++] = start;
+
+      // Breadth first search, using the order array as the queue
+      while (head < tail) {
+        int station = order[head++];
+        int first = tail;
+
+        for (int i = offsets[station]; i < offsets[station + 1]; i++) {
+          int neighbour = neighbours[i];
+          if (!visited[neighbour]) {
+            visited[neighbour] = true;
+            order[tail++] = neighbour;
+          }
+        }
+
+        sortByDegree(order, first, tail, offsets);
+      }
+    }
+
+    // Reverse
+    for (int i = 0, j = size - 1; i < j; i++, j--) {
+      int temp = order[i];
+      order[i] = order[j];
+      order[j] = temp;
+    }
+
+    return order;
+  }
+
+  /**
+   * Builds the undirected adjacency of a layout. Neighbours may be listed
+   * more than once, which does not affect the order.
+   * @param layout Layout to read.
+   * @param offsets Receives the start of each station's neighbours, plus a
+   *                final end.
+   * @return Neighbours of every station.
+   */
+  private static int[] undirected(GraphLayout layout, int[] offsets) {
+    int size = layout.getStationCount();
+    int edges = layout.edgeTargets.length;
+
+    // Count both ends of every edge
+    for (int station = 0; station < size; station++) {
+      for (int edge = layout.edgeOffsets[station]; edge < layout.edgeOffsets[station + 1]; edge++) {
+        offsets[station + 1]++;
+        offsets[layout.edgeTargets[edge] + 1]++;
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    int[] next = new int[size];
+    System.arraycopy(offsets, 0, next, 0, size);
+    int[] neighbours = new int[2 * edges];
+    for (int station = 0; station < size; station++) {
+      for (int edge = layout.edgeOffsets[station]; edge < layout.edgeOffsets[station + 1]; edge++) {
+        int target = layout.edgeTargets[edge];
+        neighbours[next[station]++] = target;
+        neighbours[next[target]++] = station;
+      }
+    }
+
+    return neighbours;
+  }
+
+  /**
+   * Stably sorts part of an array of stations by degree.
+   * @param stations Stations to sort.
+   * @param start First index, inclusive.
+   * @param end Last index, exclusive.
+   * @param offsets Neighbour offsets, which give each station's degree.
+   * @return The given array.
+   */
+  private static int[] sortByDegree(int[] stations, int start, int end,
+      int[] offsets) {
+    if (end - start <= 32) {
+      // Insertion sort, since most stations have very few neighbours
+      for (int i = start + 1; i < end; i++) {
+        int station = stations[i];
+        int degree = offsets[station + 1] - offsets[station];
+        int j = i - 1;
+        while (j >= start && offsets[stations[j] + 1] - offsets[stations[j]] > degree) {
+          stations[j + 1] = stations[j];
+          j--;
+        }
+        stations[j + 1] = station;
+      }
+
+      return stations;
+    }
+
+    // Counting sort for the list of component starts
+    int maxDegree = 0;
+    for (int i = start; i < end; i++) {
+      maxDegree = Math.max(maxDegree, offsets[stations[i] + 1] - offsets[stations[i]]);
+    }
+
+    int[] counts = new int[maxDegree + 2];
+    for (int i = start; i < end; i++) {
+      counts[offsets[stations[i] + 1] - offsets[stations[i]] + 1]++;
+    }
+    for (int i = 0; i <= maxDegree; i++) {
+      counts[i + 1] += counts[i];
+    }
+
+    int[] sorted = new int[end - start];
+    for (int i = start; i < end; i++) {
+      int station = stations[i];
+      sorted[counts[offsets[station + 1] - offsets[station]]++] = station;
+    }
+
+    System.arraycopy(sorted, 0, stations, start, sorted.length);
+    return stations;
+  }
+
+  /**
+   * @param size Number of stations.
+   * @return Every station id, in order.
+   */
+  private static int[] identity(int size) {
+    int[] stations = new int[size];
+    for (int i = 0; i < size; i++) {
+      stations[i] = i;
+    }
+
+    return stations;
+  }
+}
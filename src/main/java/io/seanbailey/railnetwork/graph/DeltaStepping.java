@@ -0,0 +1,299 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.IntList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * A parallel single source shortest path engine, using Meyer and Sanders'
+ * delta-stepping algorithm.
+ *
+ * <p>
+ * Stations are kept in buckets of width delta according to their tentative
+ * distance. The lowest non-empty bucket is processed in phases: first its
+ * light edges (no longer than delta) are relaxed repeatedly until the bucket
+ * stops changing, then the heavy edges of every station settled in it are
+ * relaxed once. Within a phase all stations are relaxed concurrently, and
+ * distances are lowered with an atomic compare-and-set, so large frontiers
+ * spread across every core of the pool.
+ * </p>
+ *
+ * <p>
+ * Unlike @link{io.seanbailey.railnetwork.graph.ShortestPathSearch}, this
+ * always searches the whole graph, and it does not record paths. An instance
+ * can be shared, but runs one search at a time per call.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class DeltaStepping {
+
+  // Frontiers smaller than this are relaxed on the calling thread
+  private static final int PARALLEL_THRESHOLD = 512;
+
+  // Number of stations relaxed per parallel task
+  private static final int CHUNK_SIZE = 256;
+
+  private final StationGraph graph;
+  private final int delta;
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a new engine, using the average edge duration as delta and the
+   * common fork/join pool.
+   * @param graph Graph to search.
+   */
+  public DeltaStepping(StationGraph graph) {
+    this(graph, averageDuration(graph), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a new engine.
+   * @param graph Graph to search.
+   * @param delta Bucket width, in minutes. Edges no longer than this are
+   *              light.
+   * @param pool Pool to relax stations on.
+   */
+  public DeltaStepping(StationGraph graph, int delta, ForkJoinPool pool) {
+    if (delta < 1) {
+      throw new IllegalArgumentException("Delta must be positive.");
+    }
+
+    this.graph = graph;
+    this.delta = delta;
+    this.pool = pool;
+  }
+
+  /**
+   * Finds the shortest distance from a set of sources to every station.
+   * @param sources Source station ids.
+   * @param offsets Initial distance of each source.
+   * @return The distance to each station, or Integer.MAX_VALUE if it cannot
+   *         be reached.
+   */
+  public int[] search(int[] sources, int[] offsets) {
+    Run run = new Run();
+    for (int i = 0; i < sources.length; i++) {
+      if (run.lower(sources[i], offsets[i])) {
+        run.bucket(offsets[i] / delta).add(sources[i]);
+      }
+    }
+
+    // Process buckets in order
+    for (int bucket = 0; bucket < run.buckets.size(); bucket++) {
+      run.processBucket(bucket);
+    }
+
+    int[] distances = new int[graph.getStationCount()];
+    for (int i = 0; i < distances.length; i++) {
+      distances[i] = run.distances.get(i);
+    }
+
+    return distances;
+  }
+
+  /**
+   * @param graph A graph.
+   * @return The average edge duration, rounded up, or 1 for empty graphs.
+   */
+  private static int averageDuration(StationGraph graph) {
+    long total = 0;
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      int degree = graph.getEdges(station, targets, durations);
+      for (int j = 0; j < degree; j++) {
+        total += durations[j];
+      }
+    }
+
+    int edges = graph.getEdgeCount();
+    return edges == 0 ? 1 : (int) Math.max(1, (total + edges - 1) / edges);
+  }
+
+  /**
+   * The state of a single search.
+   */
+  private class Run {
+
+    private final int size = graph.getStationCount();
+    private final AtomicIntegerArray distances = new AtomicIntegerArray(size);
+    private final List<IntList> buckets = new ArrayList<>();
+
+    // Stamps used to collect each station at most once per phase
+    private final AtomicIntegerArray changedStamps = new AtomicIntegerArray(size);
+    private final int[] frontierStamps = new int[size];
+    private final int[] settledStamps = new int[size];
+    private int stamp = 0;
+
+    // Stations whose distance was lowered during the current phase
+    private final int[] changed = new int[size];
+    private final AtomicInteger changedCount = new AtomicInteger();
+
+    Run() {
+      for (int i = 0; i < size; i++) {
+        distances.set(i, Integer.MAX_VALUE);
+      }
+    }
+
+    /**
+     * Processes a bucket until it is empty, then relaxes the heavy edges of
+     * every station it settled.
+     * @param index Bucket index.
+     */
+    void processBucket(int index) {
+      IntList settled = new IntList();
+      int bucketStamp = ++stamp;
+      int[] frontier = takeBucket(index);
+
+      // Light phases
+      while (frontier.length > 0) {
+        for (int station : frontier) {
+          if (settledStamps[station] != bucketStamp) {
+            settledStamps[station] = bucketStamp;
+            settled.add(station);
+          }
+        }
+
+        relax(frontier, true);
+        distribute(index);
+        frontier = takeBucket(index);
+      }
+
+      // Heavy phase
+      relax(settled.toArray(), false);
+      distribute(index);
+    }
+
+    /**
+     * Removes the stations of a bucket, dropping stale entries and
+     * duplicates.
+     * @param index Bucket index.
+     * @return Stations whose distance still falls in the bucket.
+     */
+    int[] takeBucket(int index) {
+      IntList bucket = buckets.get(index);
+      IntList frontier = new IntList(bucket.size());
+      int frontierStamp = ++stamp;
+
+      for (int i = 0; i < bucket.size(); i++) {
+        int station = bucket.get(i);
+        if (distances.get(station) / delta == index && frontierStamps[station] != frontierStamp) {
+          frontierStamps[station] = frontierStamp;
+          frontier.add(station);
+        }
+      }
+
+      bucket.clear();
+      return frontier.toArray();
+    }
+
+    /**
+     * Relaxes either the light or heavy edges of a set of stations,
+     * collecting every station whose distance was lowered.
+     * @param stations Stations to relax.
+     * @param light Whether to relax light edges rather than heavy ones.
+     */
+    void relax(int[] stations, boolean light) {
+      int phase = ++stamp;
+      changedCount.set(0);
+
+      if (stations.length < PARALLEL_THRESHOLD) {
+        relaxRange(stations, 0, stations.length, light, phase);
+        return;
+      }
+
+      int chunks = (stations.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+      pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(chunk ->
+          relaxRange(
+              stations,
+              chunk * CHUNK_SIZE,
+              Math.min(stations.length, (chunk + 1) * CHUNK_SIZE),
+              light,
+              phase
+          )
+      )).join();
+    }
+
+    /**
+     * Relaxes the edges of a range of stations. Safe to call concurrently.
+     * @param stations Stations to relax.
+     * @param from Start of range (inclusive).
+     * @param to End of range (exclusive).
+     * @param light Whether to relax light edges rather than heavy ones.
+     * @param phase Stamp of the current phase.
+     */
+    void relaxRange(int[] stations, int from, int to, boolean light,
+        int phase) {
+      int[] targets = new int[graph.getMaxDegree()];
+      int[] durations = new int[graph.getMaxDegree()];
+
+      for (int i = from; i < to; i++) {
+        int station = stations[i];
+        int distance = distances.get(station);
+        int degree = graph.getEdges(station, targets, durations);
+
+        for (int j = 0; j < degree; j++) {
+          if ((durations[j] <= delta) != light) {
+            continue;
+          }
+
+          int target = targets[j];
+          if (lower(target, distance + durations[j])
+              && changedStamps.getAndSet(target, phase) != phase) {
+            changed[changedCount.getAndIncrement()] = target;
+          }
+        }
+      }
+    }
+
+    /**
+     * Atomically lowers the distance of a station.
+     * @param station Station id.
+     * @param distance Candidate distance.
+     * @return Whether the distance was lowered.
+     */
+    boolean lower(int station, int distance) {
+      int current = distances.get(station);
+      while (distance < current) {
+        if (distances.compareAndSet(station, current, distance)) {
+          return true;
+        }
+
+        current = distances.get(station);
+      }
+
+      return false;
+    }
+
+    /**
+     * Moves every station changed during the last phase into the bucket of
+     * its new distance.
+     * @param current Index of the bucket being processed.
+     */
+    void distribute(int current) {
+      int count = changedCount.get();
+      for (int i = 0; i < count; i++) {
+        int station = changed[i];
+        bucket(Math.max(current, distances.get(station) / delta)).add(station);
+      }
+    }
+
+    /**
+     * @param index Bucket index.
+     * @return The bucket, created if needed.
+     */
+    IntList bucket(int index) {
+      while (buckets.size() <= index) {
+        buckets.add(new IntList());
+      }
+
+      return buckets.get(index);
+    }
+  }
+}
@@ -0,0 +1,376 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.station.StationEdge;
+import io.seanbailey.railnetwork.station.StationTable;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.MinHeap;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Builds a @link{io.seanbailey.railnetwork.graph.StationGraph} from the
+ * stations produced by @link{io.seanbailey.railnetwork.parser.StationParser},
+ * or the flattened stations produced by
+ * @link{io.seanbailey.railnetwork.parser.PipelinedParser}.
+ *
+ * <p>
+ * Once the graph has been built, the station objects are no longer needed and
+ * can be garbage collected.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class GraphBuilder {
+
+  private GraphStorage storage = GraphStorage.HEAP;
+  private GraphOrdering ordering = GraphOrdering.LOCALITY;
+
+  /**
+   * Sets where the graph's arrays should be kept.
+   * @param storage Storage backend.
+   * @return This builder.
+   */
+  public GraphBuilder setStorage(GraphStorage storage) {
+    this.storage = storage;
+    return this;
+  }
+
+  /**
+   * Sets how the stations of built graphs are numbered.
+   * @param ordering Station ordering.
+   * @return This builder.
+   */
+  public GraphBuilder setOrdering(GraphOrdering ordering) {
+    this.ordering = ordering;
+    return this;
+  }
+
+  /**
+   * Builds a graph, numbering its stations in the configured order.
+   * @param stations Parsed stations, sorted by name and then line.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   * @return A station graph.
+   */
+  public StationGraph build(MinHeap<Station> stations, Dictionary names,
+      Dictionary lines) {
+    return order(createLayout(stations, names), names, lines);
+  }
+
+  /**
+   * Builds a graph from stations which have already been flattened, numbering
+   * them in the configured order.
+   * @param table Parsed stations.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   * @return A station graph.
+   */
+  public StationGraph build(StationTable table, Dictionary names,
+      Dictionary lines) {
+    int size = table.getStationCount();
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = table.getStationNames();
+    layout.stationLines = table.getStationLines();
+    layout.stationRanks = new int[size];
+    layout.edgeOffsets = table.getEdgeOffsets();
+    layout.edgeTargets = table.getEdgeTargets();
+    layout.edgeDurations = table.getEdgeDurations();
+
+    // Tables are already in rank order
+    for (int i = 0; i < size; i++) {
+      layout.stationRanks[i] = i;
+    }
+
+    indexNames(layout, names.size());
+    return order(layout, names, lines);
+  }
+
+  /**
+   * Renumbers a layout in the configured order, then stores it.
+   * @param layout Layout in rank order.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   * @return A station graph.
+   */
+  private StationGraph order(GraphLayout layout, Dictionary names,
+      Dictionary lines) {
+    if (ordering == GraphOrdering.LOCALITY) {
+      layout = renumber(layout, CuthillMcKee.order(layout), names.size());
+    }
+
+    return store(layout, names, lines);
+  }
+
+  /**
+   * Builds the subgraph induced by the given stations. Edges which leave the
+   * set are dropped.
+   * @param graph Graph to take stations from.
+   * @param stations Station ids to keep, in ascending order. Station i of the
+   *                 subgraph is stations[i] of the original graph.
+   * @return A subgraph.
+   */
+  public StationGraph subgraph(StationGraph graph, int[] stations) {
+    // Init
+    int size = stations.length;
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = new int[size];
+    layout.stationLines = new int[size];
+    layout.stationRanks = new int[size];
+    layout.edgeOffsets = new int[size + 1];
+
+    // Count edges which stay inside the subgraph
+    for (int i = 0; i < size; i++) {
+      layout.stationNames[i] = graph.getNameId(stations[i]);
+      layout.stationLines[i] = graph.getLineId(stations[i]);
+      layout.stationRanks[i] = graph.getRank(stations[i]);
+
+      int degree = graph.getEdges(stations[i], targets, durations);
+      int kept = 0;
+      for (int j = 0; j < degree; j++) {
+        if (Arrays.binarySearch(stations, targets[j]) >= 0) {
+          kept++;
+        }
+      }
+
+      layout.edgeOffsets[i + 1] = layout.edgeOffsets[i] + kept;
+    }
+
+    // Copy edges, translating targets into subgraph ids
+    layout.edgeTargets = new int[layout.edgeOffsets[size]];
+    layout.edgeDurations = new int[layout.edgeOffsets[size]];
+    for (int i = 0; i < size; i++) {
+      int edge = layout.edgeOffsets[i];
+      int degree = graph.getEdges(stations[i], targets, durations);
+      for (int j = 0; j < degree; j++) {
+        int target = Arrays.binarySearch(stations, targets[j]);
+        if (target >= 0) {
+          layout.edgeTargets[edge] = target;
+          layout.edgeDurations[edge] = durations[j];
+          edge++;
+        }
+      }
+    }
+
+    indexNames(layout, graph.getNames().size());
+    return store(layout, graph.getNames(), graph.getLines());
+  }
+
+  /**
+   * Builds the reverse of a graph, in which every edge points the other way.
+   * Station ids are unchanged.
+   * @param graph Graph to reverse.
+   * @return A reversed graph.
+   */
+  public StationGraph reverse(StationGraph graph) {
+    // Init
+    int size = graph.getStationCount();
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = new int[size];
+    layout.stationLines = new int[size];
+    layout.stationRanks = new int[size];
+    layout.edgeOffsets = new int[size + 1];
+    layout.edgeTargets = new int[graph.getEdgeCount()];
+    layout.edgeDurations = new int[graph.getEdgeCount()];
+
+    // Count incoming edges
+    for (int i = 0; i < size; i++) {
+      layout.stationNames[i] = graph.getNameId(i);
+      layout.stationLines[i] = graph.getLineId(i);
+      layout.stationRanks[i] = graph.getRank(i);
+
+      int degree = graph.getEdges(i, targets, durations);
+      for (int j = 0; j < degree; j++) {
+        layout.edgeOffsets[targets[j] + 1]++;
+      }
+    }
+
+    for (int i = 0; i < size; i++) {
+      layout.edgeOffsets[i + 1] += layout.edgeOffsets[i];
+    }
+
+    // Place edges
+    int[] next = Arrays.copyOf(layout.edgeOffsets, size);
+    for (int i = 0; i < size; i++) {
+      int degree = graph.getEdges(i, targets, durations);
+      for (int j = 0; j < degree; j++) {
+        int edge = next[targets[j]]++;
+        layout.edgeTargets[edge] = i;
+        layout.edgeDurations[edge] = durations[j];
+      }
+    }
+
+    indexNames(layout, graph.getNames().size());
+    return store(layout, graph.getNames(), graph.getLines());
+  }
+
+  /**
+   * Collapses chains of plain through-stations on the same line into single
+   * edges, and removes duplicate edges. Routes found on the compact graph can
+   * be expanded back out to every station.
+   * @param graph Graph to compact.
+   * @return A compact graph, whose core is stored in the configured backend.
+   * @see io.seanbailey.railnetwork.graph.CompactGraph
+   */
+  public CompactGraph compact(StationGraph graph) {
+    return new GraphCompactor(graph).compact(this);
+  }
+
+  /**
+   * Hands the given layout to the configured storage backend.
+   * @param layout Arrays which make up the graph.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   * @return A station graph.
+   */
+  StationGraph store(GraphLayout layout, Dictionary names,
+      Dictionary lines) {
+    switch (storage) {
+      case OFF_HEAP:
+        return new OffHeapStationGraph(layout, names, lines);
+      case COMPRESSED:
+        return new CompressedStationGraph(layout, names, lines);
+      default:
+        return new ArrayStationGraph(layout, names, lines);
+    }
+  }
+
+  /**
+   * Flattens station objects into arrays. Station ids are the stations'
+   * positions in the given heap's node array.
+   * @param stations Parsed stations.
+   * @param names Dictionary of station names.
+   * @return A graph layout.
+   */
+  private static GraphLayout createLayout(MinHeap<Station> stations,
+      Dictionary names) {
+    // Init
+    Station[] nodes = stations.getNodes();
+    int size = stations.getSize();
+    Map<Station, Integer> ids = new IdentityHashMap<>(size);
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = new int[size];
+    layout.stationLines = new int[size];
+    layout.stationRanks = new int[size];
+    layout.edgeOffsets = new int[size + 1];
+
+    // Number stations and count edges
+    for (int i = 0; i < size; i++) {
+      ids.put(nodes[i], i);
+      layout.stationNames[i] = nodes[i].getNameId();
+      layout.stationLines[i] = nodes[i].getLineId();
+      layout.stationRanks[i] = i;
+      layout.edgeOffsets[i + 1] = layout.edgeOffsets[i] +
+          nodes[i].getAdjacentStations().size();
+    }
+
+    // Copy edges
+    layout.edgeTargets = new int[layout.edgeOffsets[size]];
+    layout.edgeDurations = new int[layout.edgeOffsets[size]];
+    for (int i = 0; i < size; i++) {
+      int edge = layout.edgeOffsets[i];
+      for (StationEdge stationEdge : nodes[i].getAdjacentStations()) {
+        layout.edgeTargets[edge] = ids.get(stationEdge.getStation());
+        layout.edgeDurations[edge] = stationEdge.getDistance();
+        edge++;
+      }
+    }
+
+    indexNames(layout, names.size());
+    return layout;
+  }
+
+  /**
+   * Renumbers the stations of a layout. Each station keeps its edges, in the
+   * same order.
+   * @param layout Layout to renumber.
+   * @param order The old id of each station, in new id order.
+   * @param nameCount Number of distinct names.
+   * @return A new layout.
+   */
+  static GraphLayout renumber(GraphLayout layout, int[] order, int nameCount) {
+    // Init
+    int size = order.length;
+    int[] ids = new int[size];
+    for (int i = 0; i < size; i++) {
+      ids[order[i]] = i;
+    }
+
+    GraphLayout renumbered = new GraphLayout();
+    renumbered.stationNames = new int[size];
+    renumbered.stationLines = new int[size];
+    renumbered.stationRanks = new int[size];
+    renumbered.edgeOffsets = new int[size + 1];
+    renumbered.edgeTargets = new int[layout.edgeTargets.length];
+    renumbered.edgeDurations = new int[layout.edgeDurations.length];
+
+    // Copy stations and their edges in the new order
+    for (int i = 0; i < size; i++) {
+      int old = order[i];
+      renumbered.stationNames[i] = layout.stationNames[old];
+      renumbered.stationLines[i] = layout.stationLines[old];
+      renumbered.stationRanks[i] = layout.stationRanks[old];
+
+      int edge = renumbered.edgeOffsets[i];
+      for (int j = layout.edgeOffsets[old]; j < layout.edgeOffsets[old + 1]; j++, edge++) {
+        renumbered.edgeTargets[edge] = ids[layout.edgeTargets[j]];
+        renumbered.edgeDurations[edge] = layout.edgeDurations[j];
+      }
+      renumbered.edgeOffsets[i + 1] = edge;
+    }
+
+    // Names now map to the new ids
+    indexNames(renumbered, nameCount);
+    return renumbered;
+  }
+
+  /**
+   * Builds the name index of a layout, grouping station ids by name.
+   * @param layout Layout with station names filled in.
+   * @param nameCount Number of distinct names.
+   */
+  static void indexNames(GraphLayout layout, int nameCount) {
+    int size = layout.getStationCount();
+    int[] offsets = new int[nameCount + 1];
+    int[] stations = new int[size];
+
+    // Count stations per name
+    for (int i = 0; i < size; i++) {
+      offsets[layout.stationNames[i] + 1]++;
+    }
+
+    for (int i = 0; i < nameCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // Place stations
+    int[] next = new int[nameCount];
+    System.arraycopy(offsets, 0, next, 0, nameCount);
+    for (int i = 0; i < size; i++) {
+      stations[next[layout.stationNames[i]]++] = i;
+    }
+
+    // Order each name's stations by rank. Names have few stations, so an
+    // insertion sort is enough.
+    for (int name = 0; name < nameCount; name++) {
+      for (int i = offsets[name] + 1; i < offsets[name + 1]; i++) {
+        int station = stations[i];
+        int rank = layout.stationRanks[station];
+        int j = i - 1;
+        while (j >= offsets[name] && layout.stationRanks[stations[j]] > rank) {
+          stations[j + 1] = stations[j];
+          j--;
+        }
+        stations[j + 1] = station;
+      }
+    }
+
+    layout.nameOffsets = offsets;
+    layout.nameStations = stations;
+  }
+}
@@ -0,0 +1,282 @@
+package io.seanbailey.railnetwork.graph;
+
+import java.util.Arrays;
+
+/**
+ * Collapses chains of plain through-stations into single edges.
+ *
+ * <p>
+ * Duplicate edges are removed first, keeping the shortest. A station is then
+ * an interior station if it has exactly two neighbours, is connected to both
+ * in both directions, and all three stations are on the same line. Every
+ * other station is a core station. A ring made only of interior stations has
+ * its lowest station promoted to a core station, so that every chain has an
+ * end.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+class GraphCompactor {
+
+  private final StationGraph graph;
+  private final int size;
+
+  // Edges with duplicates removed
+  private int[] offsets;
+  private int[] targets;
+  private int[] durations;
+
+  private boolean[] interior;
+
+  /**
+   * Constructs a new compactor.
+   * @param graph Graph to compact.
+   */
+  GraphCompactor(StationGraph graph) {
+    this.graph = graph;
+    this.size = graph.getStationCount();
+  }
+
+  /**
+   * Compacts the graph.
+   * @param builder Builder used to store the core graph.
+   * @return A compact graph.
+   */
+  CompactGraph compact(GraphBuilder builder) {
+    // Step 1: Remove duplicate edges
+    removeDuplicates();
+
+    // Step 2: Find through-stations
+    findInteriorStations();
+    promoteRings();
+
+    // Step 3: Number core stations in their original order
+    int[] coreIds = new int[size];
+    int coreCount = 0;
+    for (int i = 0; i < size; i++) {
+      coreIds[i] = interior[i] ? -1 : coreCount++;
+    }
+
+    int[] stations = new int[coreCount];
+    for (int i = 0; i < size; i++) {
+      if (!interior[i]) {
+        stations[coreIds[i]] = i;
+      }
+    }
+
+    // Step 4: Walk every edge leaving a core station to the next core station
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = new int[coreCount];
+    layout.stationLines = new int[coreCount];
+    layout.stationRanks = new int[coreCount];
+    layout.edgeOffsets = new int[coreCount + 1];
+    for (int i = 0; i < coreCount; i++) {
+      int station = stations[i];
+      layout.stationNames[i] = graph.getNameId(station);
+      layout.stationLines[i] = graph.getLineId(station);
+      layout.stationRanks[i] = graph.getRank(station);
+      layout.edgeOffsets[i + 1] = layout.edgeOffsets[i] +
+          offsets[station + 1] - offsets[station];
+    }
+
+    int edgeCount = layout.edgeOffsets[coreCount];
+    int interiorCount = size - coreCount;
+    int[] edgeSources = new int[edgeCount];
+    layout.edgeTargets = new int[edgeCount];
+    layout.edgeDurations = new int[edgeCount];
+    int[] chainOffsets = new int[edgeCount + 1];
+    int[] chainStations = new int[2 * interiorCount];
+    int[] chainDistances = new int[2 * interiorCount];
+    int[] memberEdges = new int[2 * size];
+    int[] memberIndices = new int[2 * size];
+    int[] memberCounts = new int[size];
+
+    int chain = 0;
+    for (int i = 0; i < coreCount; i++) {
+      int station = stations[i];
+      int edge = layout.edgeOffsets[i];
+
+      for (int j = offsets[station]; j < offsets[station + 1]; j++, edge++) {
+        int previous = station;
+        int current = targets[j];
+        int distance = durations[j];
+
+        // Follow the chain until it reaches a core station
+        while (interior[current]) {
+          chainStations[chain] = current;
+          chainDistances[chain] = distance;
+          memberEdges[2 * current + memberCounts[current]] = edge;
+          memberIndices[2 * current + memberCounts[current]] = chain;
+          memberCounts[current]++;
+          chain++;
+
+          int next = otherNeighbour(current, previous);
+          distance += durationTo(current, next);
+          previous = current;
+          current = next;
+        }
+
+        edgeSources[edge] = i;
+        layout.edgeTargets[edge] = coreIds[current];
+        layout.edgeDurations[edge] = distance;
+        chainOffsets[edge + 1] = chain;
+      }
+    }
+
+    // List each interior station's edges by the rank of their source, so
+    // that ties are broken the same way however the stations are numbered
+    for (int station = 0; station < size; station++) {
+      if (interior[station] && layout.stationRanks[edgeSources[memberEdges[2 * station]]] >
+          layout.stationRanks[edgeSources[memberEdges[2 * station + 1]]]) {
+        swap(memberEdges, 2 * station, 2 * station + 1);
+        swap(memberIndices, 2 * station, 2 * station + 1);
+      }
+    }
+
+    GraphBuilder.indexNames(layout, graph.getNames().size());
+    StationGraph core = builder.store(layout, graph.getNames(), graph.getLines());
+
+    return new CompactGraph(core, stations, coreIds, layout.edgeOffsets,
+        edgeSources, layout.edgeTargets, layout.edgeDurations, chainOffsets,
+        chainStations, chainDistances, memberEdges, memberIndices);
+  }
+
+  /**
+   * Copies every edge, keeping only the shortest edge between each pair of
+   * stations.
+   */
+  private void removeDuplicates() {
+    int[] scratchTargets = new int[graph.getMaxDegree()];
+    int[] scratchDurations = new int[graph.getMaxDegree()];
+    offsets = new int[size + 1];
+    targets = new int[graph.getEdgeCount()];
+    durations = new int[graph.getEdgeCount()];
+
+    int count = 0;
+    for (int station = 0; station < size; station++) {
+      int degree = graph.getEdges(station, scratchTargets, scratchDurations);
+
+      for (int i = 0; i < degree; i++) {
+        int existing = -1;
+        for (int j = offsets[station]; j < count; j++) {
+          if (targets[j] == scratchTargets[i]) {
+            existing = j;
+            break;
+          }
+        }
+
+        if (existing < 0) {
+          targets[count] = scratchTargets[i];
+          durations[count] = scratchDurations[i];
+          count++;
+        } else {
+          durations[existing] = Math.min(durations[existing], scratchDurations[i]);
+        }
+      }
+
+      offsets[station + 1] = count;
+    }
+
+    targets = Arrays.copyOf(targets, count);
+    durations = Arrays.copyOf(durations, count);
+  }
+
+  /**
+   * Marks every station which can be collapsed into a chain.
+   */
+  private void findInteriorStations() {
+    interior = new boolean[size];
+
+    // Count distinct incoming edges
+    int[] incoming = new int[size];
+    for (int edge = 0; edge < targets.length; edge++) {
+      incoming[targets[edge]]++;
+    }
+
+    for (int station = 0; station < size; station++) {
+      int start = offsets[station];
+      if (offsets[station + 1] - start != 2 || incoming[station] != 2) {
+        continue;
+      }
+
+      int first = targets[start];
+      int second = targets[start + 1];
+      int line = graph.getLineId(station);
+      interior[station] = first != station && second != station &&
+          graph.getLineId(first) == line && graph.getLineId(second) == line &&
+          durationTo(first, station) >= 0 && durationTo(second, station) >= 0;
+    }
+  }
+
+  /**
+   * Promotes one station of every ring which has no core station, since the
+   * chain walk needs somewhere to start and stop.
+   */
+  private void promoteRings() {
+    boolean[] visited = new boolean[size];
+
+    // Visit every interior station reachable along a chain from a core
+    for (int station = 0; station < size; station++) {
+      if (!interior[station]) {
+        for (int j = offsets[station]; j < offsets[station + 1]; j++) {
+          visitChain(station, targets[j], visited);
+        }
+      }
+    }
+
+    for (int station = 0; station < size; station++) {
+      if (interior[station] && !visited[station]) {
+        interior[station] = false;
+        for (int j = offsets[station]; j < offsets[station + 1]; j++) {
+          visitChain(station, targets[j], visited);
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks the interior stations of a chain as visited.
+   * @param previous Core station the chain starts from.
+   * @param current First station of the chain.
+   * @param visited Visited flag of each station.
+   */
+  private void visitChain(int previous, int current, boolean[] visited) {
+    while (interior[current] && !visited[current]) {
+      visited[current] = true;
+      int next = otherNeighbour(current, previous);
+      previous = current;
+      current = next;
+    }
+  }
+
+  private static void swap(int[] array, int i, int j) {
+    int temp = array[i];
+    array[i] = array[j];
+    array[j] = temp;
+  }
+
+  /**
+   * @param station Interior station.
+   * @param neighbour One of its neighbours.
+   * @return Its other neighbour.
+   */
+  private int otherNeighbour(int station, int neighbour) {
+    int first = targets[offsets[station]];
+    return first == neighbour ? targets[offsets[station] + 1] : first;
+  }
+
+  /**
+   * @param from Station id.
+   * @param to Station id.
+   * @return Duration of the edge between the stations, or -1 if there is none.
+   */
+  private int durationTo(int from, int to) {
+    for (int j = offsets[from]; j < offsets[from + 1]; j++) {
+      if (targets[j] == to) {
+        return durations[j];
+      }
+    }
+
+    return -1;
+  }
+}
@@ -0,0 +1,38 @@
+package io.seanbailey.railnetwork.graph;
+
+/**
+ * The primitive arrays which make up a
+ * @link{io.seanbailey.railnetwork.graph.StationGraph}, before they are handed
+ * to a storage backend.
+ * @author Sean Bailey c3279343
+ */
+class GraphLayout {
+
+  int[] stationNames;  // Name id of each station
+  int[] stationLines;  // Line id of each station
+  int[] stationRanks;  // Position of each station in name order
+  int[] edgeOffsets;   // Start of each station's edges, plus a final end
+  int[] edgeTargets;   // Station at the end of each edge
+  int[] edgeDurations; // Duration of each edge
+  int[] nameOffsets;   // Start of each name's stations, plus a final end
+  int[] nameStations;  // Stations, grouped by name
+
+  /**
+   * @return The number of stations.
+   */
+  int getStationCount() {
+    return stationNames.length;
+  }
+
+  /**
+   * @return The largest number of outgoing edges from any one station.
+   */
+  int getMaxDegree() {
+    int max = 0;
+    for (int i = 0; i < stationNames.length; i++) {
+      max = Math.max(max, edgeOffsets[i + 1] - edgeOffsets[i]);
+    }
+
+    return max;
+  }
+}
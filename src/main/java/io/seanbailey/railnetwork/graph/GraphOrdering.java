@@ -0,0 +1,20 @@
+package io.seanbailey.railnetwork.graph;
+
+/**
+ * How the stations of a @link{io.seanbailey.railnetwork.graph.StationGraph}
+ * are numbered.
+ * @author Sean Bailey c3279343
+ */
+public enum GraphOrdering {
+
+  /**
+   * The order stations are parsed in, which is by name and then line.
+   */
+  NAME,
+
+  /**
+   * Reverse Cuthill-McKee order, which gives neighbouring stations nearby
+   * ids so that a search touches fewer cache lines.
+   */
+  LOCALITY
+}
@@ -0,0 +1,29 @@
+package io.seanbailey.railnetwork.graph;
+
+/**
+ * Where the arrays of a @link{io.seanbailey.railnetwork.graph.StationGraph}
+ * are kept.
+ * @author Sean Bailey c3279343
+ */
+public enum GraphStorage {
+
+  /**
+   * Primitive arrays on the Java heap.
+   */
+  HEAP,
+
+  /**
+   * Direct byte buffers outside of the Java heap, which the garbage collector
+   * never has to scan or copy. The compact graph and component index of an
+   * off-heap network are kept off heap too. What stays on the heap grows with
+   * the number of distinct names, apart from the scratch arrays of searches
+   * which are running.
+   */
+  OFF_HEAP,
+
+  /**
+   * Primitive arrays on the Java heap, with edge targets delta encoded as
+   * varints and durations bit-packed.
+   */
+  COMPRESSED
+}
@@ -0,0 +1,76 @@
+package io.seanbailey.railnetwork.graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Keeps int arrays in a @link{io.seanbailey.railnetwork.graph.GraphStorage}
+ * backend, as int buffers.
+ *
+ * <p>
+ * Off heap, every array is copied into a single direct buffer and read back
+ * through int views of that buffer. Any other backend simply wraps the
+ * arrays. Views must only be read with absolute gets, so that they can be
+ * shared between threads.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+final class IntSections {
+
+  private IntSections() {
+  }
+
+  /**
+   * Stores arrays in a backend.
+   * @param storage Storage backend.
+   * @param arrays Arrays to store. They must not be modified afterwards.
+   * @return A view of each array, in the same order.
+   */
+  static IntBuffer[] store(GraphStorage storage, int[]... arrays) {
+    IntBuffer[] views = new IntBuffer[arrays.length];
+    if (storage != GraphStorage.OFF_HEAP) {
+      for (int i = 0; i < arrays.length; i++) {
+        views[i] = IntBuffer.wrap(arrays[i]);
+      }
+      return views;
+    }
+
+    // Size the buffer
+    long bytes = 0;
+    for (int[] array : arrays) {
+      bytes += (long) array.length * Integer.BYTES;
+    }
+
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Graph is too large to store off heap.");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) bytes)
+        .order(ByteOrder.nativeOrder());
+    for (int i = 0; i < arrays.length; i++) {
+      views[i] = copy(buffer, arrays[i]);
+    }
+
+    return views;
+  }
+
+  /**
+   * Copies an array into the next section of a buffer.
+   * @param buffer Buffer to copy into. Its position is advanced past the
+   *               section.
+   * @param array Array to copy.
+   * @return An int view of the section.
+   */
+  private static IntBuffer copy(ByteBuffer buffer, int[] array) {
+    ByteBuffer section = buffer.slice().order(ByteOrder.nativeOrder());
+    section.limit(array.length * Integer.BYTES);
+
+    IntBuffer view = section.asIntBuffer();
+    view.put(array);
+    buffer.position(buffer.position() + array.length * Integer.BYTES);
+
+    return view;
+  }
+}
@@ -0,0 +1,142 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.nio.IntBuffer;
+
+/**
+ * A @link{io.seanbailey.railnetwork.graph.StationGraph} which keeps its
+ * arrays in direct memory, outside of the Java heap.
+ *
+ * <p>
+ * Every array is copied into a single direct buffer, and read back through
+ * int views of that buffer using absolute reads only, so the graph can be
+ * shared between threads. Only the dictionaries remain on the heap, and they
+ * grow with the number of distinct names rather than the number of stations
+ * or edges.
+ * </p>
+ *
+ * <p>
+ * A single buffer is limited to 2 GiB, which caps the graph at roughly 250
+ * million edges.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class OffHeapStationGraph implements StationGraph {
+
+  private final IntBuffer stationNames;
+  private final IntBuffer stationLines;
+  private final IntBuffer stationRanks;
+  private final IntBuffer edgeOffsets;
+  private final IntBuffer edgeTargets;
+  private final IntBuffer edgeDurations;
+  private final IntBuffer nameOffsets;
+  private final IntBuffer nameStations;
+  private final int stationCount;
+  private final int edgeCount;
+  private final int maxDegree;
+  private final Dictionary names;
+  private final Dictionary lines;
+
+  /**
+   * Constructs a new graph, copying the given arrays into direct memory.
+   * @param layout Arrays which make up the graph.
+   * @param names Dictionary of station names.
+   * @param lines Dictionary of line names.
+   */
+  OffHeapStationGraph(GraphLayout layout, Dictionary names, Dictionary lines) {
+    IntBuffer[] sections = IntSections.store(GraphStorage.OFF_HEAP,
+        layout.stationNames, layout.stationLines, layout.stationRanks,
+        layout.edgeOffsets,
+        layout.edgeTargets, layout.edgeDurations, layout.nameOffsets,
+        layout.nameStations
+    );
+
+    this.stationNames = sections[0];
+    this.stationLines = sections[1];
+    this.stationRanks = sections[2];
+    this.edgeOffsets = sections[3];
+    this.edgeTargets = sections[4];
+    this.edgeDurations = sections[5];
+    this.nameOffsets = sections[6];
+    this.nameStations = sections[7];
+    this.stationCount = layout.stationNames.length;
+    this.edgeCount = layout.edgeTargets.length;
+    this.maxDegree = layout.getMaxDegree();
+    this.names = names;
+    this.lines = lines;
+  }
+
+  @Override
+  public GraphStorage getStorage() {
+    return GraphStorage.OFF_HEAP;
+  }
+
+  @Override
+  public int getStationCount() {
+    return stationCount;
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  @Override
+  public int getNameId(int station) {
+    return stationNames.get(station);
+  }
+
+  @Override
+  public int getLineId(int station) {
+    return stationLines.get(station);
+  }
+
+  @Override
+  public int getRank(int station) {
+    return stationRanks.get(station);
+  }
+
+  @Override
+  public int getDegree(int station) {
+    return edgeOffsets.get(station + 1) - edgeOffsets.get(station);
+  }
+
+  @Override
+  public int getMaxDegree() {
+    return maxDegree;
+  }
+
+  @Override
+  public int getEdges(int station, int[] targets, int[] durations) {
+    int start = edgeOffsets.get(station);
+    int degree = edgeOffsets.get(station + 1) - start;
+
+    for (int i = 0; i < degree; i++) {
+      targets[i] = edgeTargets.get(start + i);
+      durations[i] = edgeDurations.get(start + i);
+    }
+
+    return degree;
+  }
+
+  @Override
+  public int getNameOffset(int nameId) {
+    return nameOffsets.get(nameId);
+  }
+
+  @Override
+  public int getNameStation(int index) {
+    return nameStations.get(index);
+  }
+
+  @Override
+  public Dictionary getNames() {
+    return names;
+  }
+
+  @Override
+  public Dictionary getLines() {
+    return lines;
+  }
+}
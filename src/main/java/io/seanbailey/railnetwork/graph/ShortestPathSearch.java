@@ -0,0 +1,305 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.IntMinHeap;
+
+/**
+ * Dijkstra's algorithm over a @link{io.seanbailey.railnetwork.graph.StationGraph}.
+ *
+ * <p>
+ * A search holds all of its working state in primitive arrays sized to the
+ * graph, so it is cheap to reuse but must not be shared between threads.
+ * Resetting only touches the stations reached by the previous search.
+ * </p>
+ *
+ * <p>
+ * Stations with equal distances are settled in order of rank, which makes
+ * results deterministic however the stations are numbered.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class ShortestPathSearch {
+
+  private final StationGraph graph;
+  private final int[] distances;
+  private final int[] previous;
+  private final int[] touched;
+  private int touchedCount = 0;
+  private final int[] settled;
+  private int settledCount = 0;
+  private final IntMinHeap heap;
+  private final int[] edgeTargets;
+  private final int[] edgeDurations;
+  private final boolean[] targetMarks;
+
+  /**
+   * Constructs a new search.
+   * @param graph Graph to search.
+   */
+  public ShortestPathSearch(StationGraph graph) {
+    int size = graph.getStationCount();
+    this.graph = graph;
+    distances = new int[size];
+    previous = new int[size];
+    touched = new int[size];
+    settled = new int[size];
+    heap = new IntMinHeap(size);
+    edgeTargets = new int[graph.getMaxDegree()];
+    edgeDurations = new int[graph.getMaxDegree()];
+    targetMarks = new boolean[size];
+
+    for (int i = 0; i < size; i++) {
+      distances[i] = Integer.MAX_VALUE;
+      previous[i] = -1;
+    }
+  }
+
+  /**
+   * Clears the results of the previous search.
+   */
+  public void reset() {
+    for (int i = 0; i < touchedCount; i++) {
+      distances[touched[i]] = Integer.MAX_VALUE;
+      previous[touched[i]] = -1;
+    }
+
+    touchedCount = 0;
+    settledCount = 0;
+    heap.clear();
+  }
+
+  /**
+   * Adds a station to start searching from.
+   * @param station Station id.
+   * @param offset Distance already travelled to reach the station.
+   */
+  public void addSource(int station, int offset) {
+    if (offset < distances[station]) {
+      update(station, offset, -1);
+    }
+  }
+
+  /**
+   * Runs the search until a station with the given name is settled.
+   * @param nameId Dictionary id of the name to search for.
+   * @return The first settled station with that name, which is the closest
+   *         one, or -1 if none can be reached.
+   */
+  public int searchToName(int nameId) {
+    while (!heap.isEmpty()) {
+      int station = settle();
+      if (graph.getNameId(station) == nameId) {
+        return station;
+      }
+
+      relax(station);
+    }
+
+    return -1;
+  }
+
+  /**
+   * Runs the search until the closest of several targets is known. Each
+   * target has an offset, which is added to its distance, for example the
+   * distance still to travel from the target to the real destination.
+   *
+   * <p>
+   * If several targets are equally close, the one listed first wins.
+   * </p>
+   *
+   * @param targets Target station ids.
+   * @param offsets Offset of each target.
+   * @param count Number of targets.
+   * @return Index of the closest target, or -1 if none can be reached.
+   */
+  public int searchToTargets(int[] targets, int[] offsets, int count) {
+    return searchToTargets(targets, offsets, count, TargetMode.FIRST);
+  }
+
+  /**
+   * Runs the search until the closest target is known, or until every target
+   * has been settled. Offsets must not be negative.
+   *
+   * <p>
+   * Once every target is settled, @link{#getDistance} gives the distance to
+   * each of them without their offsets. Targets which were never reached keep
+   * a distance of Integer.MAX_VALUE.
+   * </p>
+   *
+   * @param targets Target station ids. A station may be listed more than once,
+   *                with different offsets.
+   * @param offsets Offset of each target.
+   * @param count Number of targets.
+   * @param mode When to stop.
+   * @return Index of the closest target, or -1 if none can be reached.
+   * @see #searchToTargets(int[], int[], int)
+   */
+  public int searchToTargets(int[] targets, int[] offsets, int count,
+      TargetMode mode) {
+    int best = -1;
+    long bestDistance = Long.MAX_VALUE;
+
+    // Mark each distinct target, so that settling a station is one lookup
+    int remaining = 0;
+    for (int i = 0; i < count; i++) {
+      if (!targetMarks[targets[i]]) {
+        targetMarks[targets[i]] = true;
+        remaining++;
+      }
+    }
+
+    try {
+      while (!heap.isEmpty() && remaining > 0) {
+        // Targets further away than the best so far can no longer win
+        if (mode == TargetMode.FIRST && (heap.peekPriority() >>> 32) > bestDistance) {
+          break;
+        }
+
+        int station = settle();
+        if (targetMarks[station]) {
+          targetMarks[station] = false;
+          remaining--;
+
+          for (int i = 0; i < count; i++) {
+            if (targets[i] == station) {
+              long candidate = (long) distances[station] + offsets[i];
+              if (candidate < bestDistance || (candidate == bestDistance && i < best)) {
+                best = i;
+                bestDistance = candidate;
+              }
+            }
+          }
+        }
+
+        relax(station);
+      }
+    } finally {
+      for (int i = 0; i < count; i++) {
+        targetMarks[targets[i]] = false;
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Runs the search until every reachable station is settled.
+   */
+  public void searchAll() {
+    while (!heap.isEmpty()) {
+      relax(settle());
+    }
+  }
+
+  /**
+   * Runs the search until every station within the given distance is
+   * settled. Stations further away are never settled, so the search stops as
+   * soon as the next closest station is over the limit.
+   * @param limit Largest distance to settle, inclusive.
+   */
+  public void searchWithin(int limit) {
+    while (!heap.isEmpty() && (int) (heap.peekPriority() >>> 32) <= limit) {
+      relax(settle());
+    }
+  }
+
+  /**
+   * Removes the closest station from the heap, and records it as settled.
+   * @return The settled station.
+   */
+  private int settle() {
+    int station = heap.pop();
+    settled[settledCount++] = station;
+    return station;
+  }
+
+  /**
+   * Relaxes every outgoing edge of a settled station.
+   * @param station Station id.
+   */
+  private void relax(int station) {
+    int distance = distances[station];
+    int degree = graph.getEdges(station, edgeTargets, edgeDurations);
+
+    for (int i = 0; i < degree; i++) {
+      int target = edgeTargets[i];
+      int candidate = distance + edgeDurations[i];
+      if (candidate < distances[target]) {
+        update(target, candidate, station);
+      }
+    }
+  }
+
+  /**
+   * Records a shorter distance to a station.
+   * @param station Station id.
+   * @param distance New distance.
+   * @param from Station the distance was reached from, or -1.
+   */
+  private void update(int station, int distance, int from) {
+    if (distances[station] == Integer.MAX_VALUE) {
+      touched[touchedCount++] = station;
+    }
+
+    distances[station] = distance;
+    previous[station] = from;
+    heap.push(station, ((long) distance << 32) | graph.getRank(station));
+  }
+
+  /**
+   * Back tracks from a station to the source it was reached from.
+   * @param station Station id, which must have been reached.
+   * @return Station ids in traversal order.
+   */
+  public int[] getPath(int station) {
+    // Count stations
+    int length = 0;
+    for (int i = station; i >= 0; i = previous[i]) {
+      length++;
+    }
+
+    // Fill from the end, since we start from the destination
+    int[] path = new int[length];
+    for (int i = station; i >= 0; i = previous[i]) {
+      path[--length] = i;
+    }
+
+    return path;
+  }
+
+  /**
+   * @param station Station id.
+   * @return Distance to the station, or Integer.MAX_VALUE if not reached.
+   */
+  public int getDistance(int station) {
+    return distances[station];
+  }
+
+  /**
+   * @param station Station id.
+   * @return The station before this one on its shortest path, or -1.
+   */
+  public int getPrevious(int station) {
+    return previous[station];
+  }
+
+  /**
+   * @return The number of stations settled by this search so far.
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * @param index Index in settlement order.
+   * @return The station settled at that index. Stations are settled in order
+   *         of increasing distance.
+   */
+  public int getSettled(int index) {
+    return settled[index];
+  }
+
+  public StationGraph getGraph() {
+    return graph;
+  }
+}
@@ -0,0 +1,107 @@
+package io.seanbailey.railnetwork.graph;
+
+import io.seanbailey.railnetwork.util.Dictionary;
+
+/**
+ * A read-only, compact representation of a rail network.
+ *
+ * <p>
+ * Stations are identified by an integer in [0, getStationCount()). Each
+ * station knows the dictionary ids of its name and line, and its outgoing
+ * edges. The graph also contains a name index, which lists every station with
+ * a given name (one per line the station is on), in order of rank.
+ * </p>
+ *
+ * <p>
+ * Implementations must be safe to read from multiple threads at once.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public interface StationGraph {
+
+  /**
+   * @return Where the graph's arrays are kept. Indexes built over the graph
+   *         keep their own per-station arrays in the same backend.
+   */
+  GraphStorage getStorage();
+
+  /**
+   * @return The number of stations in the graph.
+   */
+  int getStationCount();
+
+  /**
+   * @return The number of edges in the graph.
+   */
+  int getEdgeCount();
+
+  /**
+   * @param station A station id.
+   * @return Dictionary id of the station's name.
+   */
+  int getNameId(int station);
+
+  /**
+   * @param station A station id.
+   * @return Dictionary id of the station's line.
+   */
+  int getLineId(int station);
+
+  /**
+   * Returns the position of a station when stations are ordered by name and
+   * then line. Searches use this to break ties, so that results do not depend
+   * on how the stations happen to be numbered.
+   * @param station A station id.
+   * @return Rank of the station.
+   */
+  int getRank(int station);
+
+  /**
+   * @param station A station id.
+   * @return The number of outgoing edges from the station.
+   */
+  int getDegree(int station);
+
+  /**
+   * @return The largest number of outgoing edges from any one station.
+   */
+  int getMaxDegree();
+
+  /**
+   * Copies the outgoing edges of a station into the given arrays.
+   * @param station A station id.
+   * @param targets Receives the station at the end of each edge. Must be at
+   *                least @link{#getMaxDegree} long.
+   * @param durations Receives the duration of each edge, in minutes. Must be
+   *                  at least @link{#getMaxDegree} long.
+   * @return The number of edges copied.
+   */
+  int getEdges(int station, int[] targets, int[] durations);
+
+  /**
+   * Returns the start of the run of stations with the given name in the name
+   * index. The run ends at getNameOffset(nameId + 1).
+   * @param nameId Dictionary id of a station name.
+   * @return Offset into the name index.
+   * @see #getNameStation(int)
+   */
+  int getNameOffset(int nameId);
+
+  /**
+   * @param index Offset into the name index.
+   * @return The station id at that offset.
+   * @see #getNameOffset(int)
+   */
+  int getNameStation(int index);
+
+  /**
+   * @return Dictionary of station names.
+   */
+  Dictionary getNames();
+
+  /**
+   * @return Dictionary of line names.
+   */
+  Dictionary getLines();
+}
@@ -0,0 +1,18 @@
+package io.seanbailey.railnetwork.graph;
+
+/**
+ * When a search for several targets may stop.
+ * @author Sean Bailey c3279343
+ */
+public enum TargetMode {
+
+  /**
+   * Once the closest target is known.
+   */
+  FIRST,
+
+  /**
+   * Once every reachable target has been settled.
+   */
+  ALL
+}
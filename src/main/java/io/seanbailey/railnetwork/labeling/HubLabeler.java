@@ -0,0 +1,298 @@
+package io.seanbailey.railnetwork.labeling;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.IntList;
+import io.seanbailey.railnetwork.util.IntMinHeap;
+import java.util.Arrays;
+
+/**
+ * Builds @link{io.seanbailey.railnetwork.labeling.HubLabels} with pruned
+ * landmark labelling.
+ *
+ * <p>
+ * Stations are taken one at a time as hubs, busiest first. Each hub runs a
+ * forward and a backward Dijkstra search, and records itself in the label of
+ * every station it reaches. A search does not continue past a station whose
+ * distance is already answered by the labels of earlier hubs, which keeps
+ * both the searches and the labels small: well connected hubs cover most
+ * routes, and later hubs only label their own neighbourhoods.
+ * </p>
+ *
+ * <p>
+ * Station labels are finally merged into one label per station name, keeping
+ * the shortest distance to each hub, since any line of a name may be used to
+ * start or finish a route.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class HubLabeler {
+
+  private StationGraph graph;
+  private int[] reverseOffsets;   // Start of each station's incoming edges
+  private int[] reverseSources;   // Station at the start of each incoming edge
+  private int[] reverseDurations; // Duration of each incoming edge
+
+  // Labels of each station, by hub order
+  private IntList[] forwardHubs;
+  private IntList[] forwardDistances;
+  private IntList[] backwardHubs;
+  private IntList[] backwardDistances;
+
+  // Scratch space, reused across searches
+  private IntMinHeap heap;
+  private int[] distances;
+  private int[] hubDistances;
+  private final IntList touched = new IntList();
+  private int[] targets;
+  private int[] durations;
+
+  /**
+   * Labels every station of a graph, then merges them by name.
+   * @param graph Graph of stations.
+   * @return The labels of each station name.
+   */
+  public HubLabels build(StationGraph graph) {
+    int size = graph.getStationCount();
+    this.graph = graph;
+    reverse();
+
+    forwardHubs = new IntList[size];
+    forwardDistances = new IntList[size];
+    backwardHubs = new IntList[size];
+    backwardDistances = new IntList[size];
+    for (int i = 0; i < size; i++) {
+      forwardHubs[i] = new IntList(4);
+      forwardDistances[i] = new IntList(4);
+      backwardHubs[i] = new IntList(4);
+      backwardDistances[i] = new IntList(4);
+    }
+
+    heap = new IntMinHeap(size);
+    distances = new int[size];
+    hubDistances = new int[size];
+    Arrays.fill(distances, Integer.MAX_VALUE);
+    Arrays.fill(hubDistances, Integer.MAX_VALUE);
+    targets = new int[graph.getMaxDegree()];
+    durations = new int[graph.getMaxDegree()];
+
+    // Hubs are numbered in the order they are taken, so labels stay sorted
+    int[] order = order();
+    for (int hub = 0; hub < size; hub++) {
+      search(order[hub], hub, true);
+      search(order[hub], hub, false);
+    }
+
+    long fingerprint = HubLabels.fingerprint(graph);
+    int[][] forward = merge(forwardHubs, forwardDistances);
+    int[][] backward = merge(backwardHubs, backwardDistances);
+
+    // Let the station labels go
+    forwardHubs = forwardDistances = backwardHubs = backwardDistances = null;
+    heap = null;
+    distances = hubDistances = null;
+
+    return new HubLabels(fingerprint, forward[0], forward[1], forward[2],
+        backward[0], backward[1], backward[2]);
+  }
+
+  /**
+   * Orders stations by decreasing degree, then by rank, so that interchanges
+   * become hubs first.
+   * @return Station ids, in hub order.
+   */
+  private int[] order() {
+    int size = graph.getStationCount();
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = (long) (Integer.MAX_VALUE - graph.getDegree(i)) << 32
+          | graph.getRank(i);
+    }
+
+    Arrays.sort(keys);
+
+    // Map ranks back to station ids
+    int[] stations = new int[size];
+    for (int i = 0; i < size; i++) {
+      stations[graph.getRank(i)] = i;
+    }
+
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = stations[(int) keys[i]];
+    }
+
+    return order;
+  }
+
+  /**
+   * Builds the incoming edges of every station, for backward searches.
+   */
+  private void reverse() {
+    int size = graph.getStationCount();
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+
+    reverseOffsets = new int[size + 1];
+    for (int station = 0; station < size; station++) {
+      int degree = graph.getEdges(station, targets, durations);
+      for (int i = 0; i < degree; i++) {
+        reverseOffsets[targets[i] + 1]++;
+      }
+    }
+    for (int i = 0; i < size; i++) {
+      reverseOffsets[i + 1] += reverseOffsets[i];
+    }
+
+    int[] next = Arrays.copyOf(reverseOffsets, size);
+    reverseSources = new int[reverseOffsets[size]];
+    reverseDurations = new int[reverseOffsets[size]];
+    for (int station = 0; station < size; station++) {
+      int degree = graph.getEdges(station, targets, durations);
+      for (int i = 0; i < degree; i++) {
+        int edge = next[targets[i]]++;
+        reverseSources[edge] = station;
+        reverseDurations[edge] = durations[i];
+      }
+    }
+  }
+
+  /**
+   * Runs a pruned search from a hub, adding it to the labels of every station
+   * whose distance is not already covered.
+   * @param source Station id of the hub.
+   * @param hub Position of the hub in hub order.
+   * @param forward Whether to follow edges forwards, labelling the backward
+   *                labels of the stations reached, or backwards.
+   */
+  private void search(int source, int hub, boolean forward) {
+    IntList[] ownHubs = forward ? forwardHubs : backwardHubs;
+    IntList[] ownDistances = forward ? forwardDistances : backwardDistances;
+    IntList[] labelHubs = forward ? backwardHubs : forwardHubs;
+    IntList[] labelDistances = forward ? backwardDistances : forwardDistances;
+
+    // Spread the hub's own label out, so each station's label can be checked
+    // against it in one pass
+    IntList sourceHubs = ownHubs[source];
+    for (int i = 0; i < sourceHubs.size(); i++) {
+      hubDistances[sourceHubs.get(i)] = ownDistances[source].get(i);
+    }
+
+    distances[source] = 0;
+    touched.add(source);
+    heap.push(source, 0);
+
+    while (!heap.isEmpty()) {
+      int station = heap.pop();
+      int distance = distances[station];
+
+      // Prune stations already covered by an earlier hub
+      if (isCovered(labelHubs[station], labelDistances[station], distance)) {
+        continue;
+      }
+
+      labelHubs[station].add(hub);
+      labelDistances[station].add(distance);
+
+      if (forward) {
+        int degree = graph.getEdges(station, targets, durations);
+        for (int i = 0; i < degree; i++) {
+          relax(targets[i], distance + durations[i]);
+        }
+      } else {
+        for (int edge = reverseOffsets[station]; edge < reverseOffsets[station + 1]; edge++) {
+          relax(reverseSources[edge], distance + reverseDurations[edge]);
+        }
+      }
+    }
+
+    // Clean up for the next search
+    for (int i = 0; i < sourceHubs.size(); i++) {
+      hubDistances[sourceHubs.get(i)] = Integer.MAX_VALUE;
+    }
+    for (int i = 0; i < touched.size(); i++) {
+      distances[touched.get(i)] = Integer.MAX_VALUE;
+    }
+    touched.clear();
+  }
+
+  /**
+   * @param hubs Hubs of a station's label.
+   * @param labelDistances Distances of a station's label.
+   * @param distance Distance found by the current search.
+   * @return Whether the labels so far already give the distance or better.
+   */
+  private boolean isCovered(IntList hubs, IntList labelDistances, int distance) {
+    for (int i = 0; i < hubs.size(); i++) {
+      int sourceDistance = hubDistances[hubs.get(i)];
+      if (sourceDistance != Integer.MAX_VALUE
+          && (long) sourceDistance + labelDistances.get(i) <= distance) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @param station Station reached by an edge.
+   * @param distance Distance to the station through the edge.
+   */
+  private void relax(int station, int distance) {
+    if (distance < distances[station]) {
+      if (distances[station] == Integer.MAX_VALUE) {
+        touched.add(station);
+      }
+      distances[station] = distance;
+      heap.push(station, (long) distance << 32 | station);
+    }
+  }
+
+  /**
+   * Merges the labels of every station with the same name, keeping the
+   * shortest distance to each hub.
+   * @param hubs Hubs of each station's label.
+   * @param labelDistances Distances of each station's label.
+   * @return The offsets, hubs and distances of each name's label.
+   */
+  private int[][] merge(IntList[] hubs, IntList[] labelDistances) {
+    int nameCount = graph.getNames().size();
+    int[] offsets = new int[nameCount + 1];
+    IntList mergedHubs = new IntList();
+    IntList mergedDistances = new IntList();
+
+    for (int name = 0; name < nameCount; name++) {
+      int start = graph.getNameOffset(name);
+      int end = graph.getNameOffset(name + 1);
+
+      // Sort every entry by hub, then distance
+      int length = 0;
+      for (int i = start; i < end; i++) {
+        length += hubs[graph.getNameStation(i)].size();
+      }
+      long[] entries = new long[length];
+      length = 0;
+      for (int i = start; i < end; i++) {
+        int station = graph.getNameStation(i);
+        for (int j = 0; j < hubs[station].size(); j++) {
+          entries[length++] = (long) hubs[station].get(j) << 32
+              | labelDistances[station].get(j);
+        }
+      }
+      Arrays.sort(entries);
+
+      // Keep the first, shortest entry of each hub
+      for (int i = 0; i < entries.length; i++) {
+        int hub = (int) (entries[i] >>> 32);
+        if (i == 0 || hub != (int) (entries[i - 1] >>> 32)) {
+          mergedHubs.add(hub);
+          mergedDistances.add((int) entries[i]);
+        }
+      }
+
+      offsets[name + 1] = mergedHubs.size();
+    }
+
+    return new int[][] { offsets, mergedHubs.toArray(), mergedDistances.toArray() };
+  }
+}
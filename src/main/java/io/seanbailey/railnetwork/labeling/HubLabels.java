@@ -0,0 +1,341 @@
+package io.seanbailey.railnetwork.labeling;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.table.MinPlus;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.IntList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A two-hop cover of a rail network, which answers travel time queries
+ * between station names without searching.
+ *
+ * <p>
+ * Every station name has a forward label, listing hubs it can reach and how
+ * far away they are, and a backward label, listing hubs which can reach it.
+ * Any shortest route passes through a hub in both the origin's forward label
+ * and the destination's backward label, so the travel time is the smallest
+ * sum over the hubs the two labels share. Labels are sorted by hub, so a
+ * query is a single merge of two short arrays.
+ * </p>
+ *
+ * <p>
+ * Labels are stored as flat int arrays, which are memory mapped when read
+ * from a file. A file is laid out as the magic number <code>RNHL</code>, a
+ * version, the fingerprint of the network it was built from (a long), the
+ * number of names, and the total length of the forward and backward labels,
+ * followed by the offset, hub and distance arrays of the forward labels and
+ * then of the backward labels. Every value is little endian.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ * @see io.seanbailey.railnetwork.labeling.HubLabeler
+ */
+public class HubLabels {
+
+  static final int MAGIC = 0x524e484c; // "RNHL"
+  static final int VERSION = 1;
+  private static final int HEADER_BYTES = 28;
+
+  private final long fingerprint;
+  private final int nameCount;
+  private final IntBuffer forwardOffsets;   // Start of each name's label
+  private final IntBuffer forwardHubs;      // Hubs, ascending within a label
+  private final IntBuffer forwardDistances; // Distance to each hub
+  private final IntBuffer backwardOffsets;
+  private final IntBuffer backwardHubs;
+  private final IntBuffer backwardDistances; // Distance from each hub
+
+  /**
+   * Constructs labels held on the heap.
+   */
+  HubLabels(long fingerprint, int[] forwardOffsets, int[] forwardHubs,
+      int[] forwardDistances, int[] backwardOffsets, int[] backwardHubs,
+      int[] backwardDistances) {
+    this(fingerprint, IntBuffer.wrap(forwardOffsets), IntBuffer.wrap(forwardHubs),
+        IntBuffer.wrap(forwardDistances), IntBuffer.wrap(backwardOffsets),
+        IntBuffer.wrap(backwardHubs), IntBuffer.wrap(backwardDistances));
+  }
+
+  private HubLabels(long fingerprint, IntBuffer forwardOffsets,
+      IntBuffer forwardHubs, IntBuffer forwardDistances,
+      IntBuffer backwardOffsets, IntBuffer backwardHubs,
+      IntBuffer backwardDistances) {
+    this.fingerprint = fingerprint;
+    this.nameCount = forwardOffsets.limit() - 1;
+    this.forwardOffsets = forwardOffsets;
+    this.forwardHubs = forwardHubs;
+    this.forwardDistances = forwardDistances;
+    this.backwardOffsets = backwardOffsets;
+    this.backwardHubs = backwardHubs;
+    this.backwardDistances = backwardDistances;
+  }
+
+  /**
+   * Finds the travel time between two station names.
+   * @param origin Dictionary id of the name to start from.
+   * @param destination Dictionary id of the name to finish at.
+   * @return The shortest travel time in minutes, or -1 if there is no route.
+   */
+  public int getDistance(int origin, int destination) {
+    int i = forwardOffsets.get(origin);
+    int iEnd = forwardOffsets.get(origin + 1);
+    int j = backwardOffsets.get(destination);
+    int jEnd = backwardOffsets.get(destination + 1);
+    long best = Long.MAX_VALUE;
+
+    // Merge the two labels, looking for shared hubs
+    while (i < iEnd && j < jEnd) {
+      int forward = forwardHubs.get(i);
+      int backward = backwardHubs.get(j);
+
+      if (forward == backward) {
+        best = Math.min(best,
+            (long) forwardDistances.get(i) + backwardDistances.get(j));
+        i++;
+        j++;
+      } else if (forward < backward) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+
+    return best == Long.MAX_VALUE ? -1 : (int) best;
+  }
+
+  /**
+   * Finds the travel time between every origin and every destination.
+   *
+   * <p>
+   * The labels are spread into two dense matrices, origins by hubs and hubs by
+   * destinations, which are then combined with a min-plus product. Only hubs
+   * in the label of some destination are kept.
+   * </p>
+   *
+   * @param origins Dictionary ids of the names to start from.
+   * @param destinations Dictionary ids of the names to finish at.
+   * @return Travel times in row-major order, with MinPlus.INFINITY for pairs
+   *         which are not connected.
+   * @see io.seanbailey.railnetwork.table.MinPlus
+   */
+  public int[] getDistanceTable(int[] origins, int[] destinations) {
+    // Collect the hubs which can reach any destination
+    IntList shared = new IntList();
+    for (int destination : destinations) {
+      int end = backwardOffsets.get(destination + 1);
+      for (int i = backwardOffsets.get(destination); i < end; i++) {
+        shared.add(backwardHubs.get(i));
+      }
+    }
+
+    int[] hubs = shared.toArray();
+    Arrays.sort(hubs);
+    int hubCount = 0;
+    for (int i = 0; i < hubs.length; i++) {
+      if (i == 0 || hubs[i] != hubs[i - 1]) {
+        hubs[hubCount++] = hubs[i];
+      }
+    }
+
+    // Spread labels into matrices, with one column or row per hub
+    int[] forward = new int[origins.length * hubCount];
+    Arrays.fill(forward, MinPlus.INFINITY);
+    for (int row = 0; row < origins.length; row++) {
+      int end = forwardOffsets.get(origins[row] + 1);
+      for (int i = forwardOffsets.get(origins[row]); i < end; i++) {
+        int column = Arrays.binarySearch(hubs, 0, hubCount, forwardHubs.get(i));
+        if (column >= 0) {
+          forward[row * hubCount + column] = forwardDistances.get(i);
+        }
+      }
+    }
+
+    int[] backward = new int[hubCount * destinations.length];
+    Arrays.fill(backward, MinPlus.INFINITY);
+    for (int column = 0; column < destinations.length; column++) {
+      int end = backwardOffsets.get(destinations[column] + 1);
+      for (int i = backwardOffsets.get(destinations[column]); i < end; i++) {
+        int row = Arrays.binarySearch(hubs, 0, hubCount, backwardHubs.get(i));
+        backward[row * destinations.length + column] = backwardDistances.get(i);
+      }
+    }
+
+    int[] table = new int[origins.length * destinations.length];
+    MinPlus.multiply(forward, backward, table, origins.length, hubCount,
+        destinations.length);
+    return table;
+  }
+
+  /**
+   * Writes the labels to a file, replacing it.
+   * @param path File path.
+   * @throws IOException if the file could not be written.
+   */
+  public void write(Path path) throws IOException {
+    long bytes = HEADER_BYTES + 4L * (2 * (nameCount + 1)
+        + 2L * forwardHubs.limit() + 2L * backwardHubs.limit());
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IOException("Hub labels are too large to write.");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) bytes)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putLong(fingerprint);
+    buffer.putInt(nameCount);
+    buffer.putInt(forwardHubs.limit());
+    buffer.putInt(backwardHubs.limit());
+
+    IntBuffer ints = buffer.asIntBuffer();
+    for (IntBuffer array : new IntBuffer[] { forwardOffsets, forwardHubs,
+        forwardDistances, backwardOffsets, backwardHubs, backwardDistances }) {
+      for (int i = 0; i < array.limit(); i++) {
+        ints.put(array.get(i));
+      }
+    }
+
+    buffer.rewind();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Maps labels written by @link{#write} into memory. Pages are only read
+   * from disk as queries touch them.
+   * @param path File path.
+   * @return The labels.
+   * @throws IOException if the file could not be read.
+   * @throws ValidationException if the file does not hold hub labels.
+   */
+  public static HubLabels read(Path path) throws IOException, ValidationException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < HEADER_BYTES) {
+        throw new ValidationException("'%s' is not a hub label file.", path);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+          .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    if (buffer.getInt() != MAGIC) {
+      throw new ValidationException("'%s' is not a hub label file.", path);
+    }
+
+    int version = buffer.getInt();
+    if (version != VERSION) {
+      throw new ValidationException("Unsupported hub label version %d.", version);
+    }
+
+    long fingerprint = buffer.getLong();
+    int nameCount = buffer.getInt();
+    int forwardSize = buffer.getInt();
+    int backwardSize = buffer.getInt();
+    long bytes = HEADER_BYTES + 4L * (2L * (nameCount + 1) + 2L * forwardSize
+        + 2L * backwardSize);
+    if (nameCount < 0 || forwardSize < 0 || backwardSize < 0
+        || bytes != buffer.capacity()) {
+      throw new ValidationException("Hub label file '%s' is corrupt.", path);
+    }
+
+    return new HubLabels(
+        fingerprint,
+        slice(buffer, nameCount + 1),
+        slice(buffer, forwardSize),
+        slice(buffer, forwardSize),
+        slice(buffer, nameCount + 1),
+        slice(buffer, backwardSize),
+        slice(buffer, backwardSize)
+    );
+  }
+
+  /**
+   * Takes the next array from a buffer.
+   * @param buffer Buffer positioned at the start of the array.
+   * @param length Number of ints in the array.
+   * @return A view of the array.
+   */
+  private static IntBuffer slice(ByteBuffer buffer, int length) {
+    int start = buffer.position();
+    buffer.limit(start + 4 * length);
+    IntBuffer array = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+    buffer.limit(buffer.capacity());
+    buffer.position(start + 4 * length);
+    return array;
+  }
+
+  /**
+   * Computes a fingerprint of a network's names and connections, so that
+   * labels are not used with a network they were not built from. The
+   * fingerprint does not depend on how stations are numbered.
+   * @param graph Graph of stations.
+   * @return The fingerprint.
+   */
+  public static long fingerprint(StationGraph graph) {
+    Dictionary names = graph.getNames();
+    Dictionary lines = graph.getLines();
+    long hash = mix(graph.getStationCount() ^ (long) graph.getEdgeCount() << 32);
+    for (int i = 0; i < names.size(); i++) {
+      hash = mix(hash + names.get(i).hashCode());
+    }
+
+    // Sum the hash of each edge, so that their order does not matter
+    long edges = 0;
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      long source = mix(graph.getNameId(station)
+          ^ (long) lines.get(graph.getLineId(station)).hashCode() << 32);
+      int degree = graph.getEdges(station, targets, durations);
+
+      for (int i = 0; i < degree; i++) {
+        long target = mix(graph.getNameId(targets[i])
+            ^ (long) lines.get(graph.getLineId(targets[i])).hashCode() << 32);
+        edges += mix(source + 31 * target + durations[i]);
+      }
+    }
+
+    return mix(hash ^ edges);
+  }
+
+  /**
+   * @param value Value to mix.
+   * @return A well distributed hash of the value.
+   */
+  private static long mix(long value) {
+    long z = value + 0x9e3779b97f4a7c15L;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * @return The average number of hubs in a forward and backward label.
+   */
+  public double getAverageLabelSize() {
+    return nameCount == 0 ? 0
+        : (forwardHubs.limit() + backwardHubs.limit()) / (2.0 * nameCount);
+  }
+
+  public long getFingerprint() {
+    return fingerprint;
+  }
+
+  public int getNameCount() {
+    return nameCount;
+  }
+}
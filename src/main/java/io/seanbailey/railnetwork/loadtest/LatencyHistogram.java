@@ -0,0 +1,160 @@
+package io.seanbailey.railnetwork.loadtest;
+
+/**
+ * A histogram of latencies in nanoseconds, with buckets spaced so that every
+ * recorded value is kept to within 1.6% of its true value.
+ *
+ * <p>
+ * Values below 128 have a bucket each. Above that, every power of two range is
+ * split into 64 equal buckets, so bucket widths grow with the values they
+ * hold. Recording is a few shifts and an array increment, and the histogram
+ * never allocates after it has been constructed. Values beyond the largest
+ * bucket (a little over an hour) are clamped into it.
+ * </p>
+ *
+ * <p>
+ * Histograms are not thread safe. Each client should record into its own
+ * histogram, and the results merged with @link{#add} afterwards.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class LatencyHistogram {
+
+  // Values with a bucket each
+  private static final int LINEAR_BUCKETS = 128;
+
+  // Buckets per power of two above the linear range
+  private static final int SUB_BUCKET_BITS = 6;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // Highest power of two range, 2^42 ns is about 73 minutes
+  private static final int MAX_MAGNITUDE = 42;
+  private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+  private final long[] counts = new long[index(MAX_VALUE) + 1];
+  private long count = 0;
+  private long total = 0;
+  private long max = 0;
+
+  /**
+   * Records a single value.
+   * @param value Latency in nanoseconds.
+   */
+  public void record(long value) {
+    long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+    counts[index(clamped)]++;
+    count++;
+    total += clamped;
+    max = Math.max(max, clamped);
+  }
+
+  /**
+   * Records a value, correcting for coordinated omission.
+   *
+   * <p>
+   * A client which waits for each response before sending its next request
+   * stops sending while the system under test is stalled, so the requests
+   * that would have queued up behind the stall are never measured. This
+   * records those missing requests too: one value for each expected interval
+   * the stall covered, each waiting one interval less than the last.
+   * </p>
+   *
+   * @param value Latency in nanoseconds.
+   * @param expectedInterval Expected time between requests, in nanoseconds.
+   */
+  public void record(long value, long expectedInterval) {
+    record(value);
+    if (expectedInterval <= 0) {
+      return;
+    }
+
+    for (long missing = value - expectedInterval; missing >= expectedInterval;
+        missing -= expectedInterval) {
+      record(missing);
+    }
+  }
+
+  /**
+   * Adds every value recorded in another histogram to this one.
+   * @param other Histogram to add.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+
+    count += other.count;
+    total += other.total;
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * Finds the value below which a given percentage of recorded values lie.
+   * @param percentile Percentage, in (0, 100].
+   * @return The highest value equivalent to the percentile's bucket, or 0 if
+   * nothing has been recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+
+    // Rank of the value we are after, counting from 1
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max);
+      }
+    }
+
+    return max;
+  }
+
+  /**
+   * @return The mean of every recorded value.
+   */
+  public double getMean() {
+    return count == 0 ? 0 : (double) total / count;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @param value Value in [0, MAX_VALUE].
+   * @return The bucket holding the value.
+   */
+  private static int index(long value) {
+    if (value < LINEAR_BUCKETS) {
+      return (int) value;
+    }
+
+    // Above the linear range, the top 7 bits of the value pick the bucket
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS
+        + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * @param index Bucket index.
+   * @return The highest value which falls into the bucket.
+   */
+  private static long highestValue(int index) {
+    if (index < LINEAR_BUCKETS) {
+      return index;
+    }
+
+    int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+    long sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((sub + 1) << shift) - 1;
+  }
+}
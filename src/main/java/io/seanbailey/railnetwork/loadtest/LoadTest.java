@@ -0,0 +1,310 @@
+package io.seanbailey.railnetwork.loadtest;
+
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a network with simulated clients, and measures route query latency
+ * from end to end.
+ *
+ * <p>
+ * Each client runs on its own thread, in one of two modes:
+ * <ul>
+ *   <li><strong>Closed loop:</strong> each client sends its next query as soon
+ *   as the last one returns.</li>
+ *   <li><strong>Fixed rate:</strong> clients share a target rate, and each
+ *   query is scheduled at a fixed interval from the start of the run.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Both modes correct for coordinated omission. At a fixed rate, latency is
+ * measured from when a query was scheduled rather than when it was sent, so a
+ * stall counts against every query that should have been sent during it. In a
+ * closed loop, the expected interval is each client's mean latency during the
+ * warm-up, and the histogram fills in the queries a stall held back. The raw
+ * service time is recorded alongside, so the two can be compared.
+ * </p>
+ *
+ * <p>
+ * Origins and destinations are station names, chosen with probability
+ * proportional to the number of connections at that name. Interchanges are
+ * queried far more often than the ends of lines, as they would be by real
+ * passengers.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class LoadTest {
+
+  private String label = "unlabelled";
+  private int clients = Runtime.getRuntime().availableProcessors();
+  private double rate = 0;
+  private long durationMillis = 10000;
+  private long warmUpMillis = 2000;
+  private long seed = 0;
+
+  /**
+   * Sets the label which identifies this build in reports.
+   * @param label Build label.
+   * @return This load test.
+   */
+  public LoadTest setLabel(String label) {
+    this.label = label;
+    return this;
+  }
+
+  /**
+   * Sets the number of concurrent clients.
+   * @param clients Number of clients.
+   * @return This load test.
+   */
+  public LoadTest setClients(int clients) {
+    if (clients < 1) {
+      throw new IllegalArgumentException("Load test needs at least one client.");
+    }
+
+    this.clients = clients;
+    return this;
+  }
+
+  /**
+   * Sets the target rate shared by every client.
+   * @param rate Queries per second, or 0 to run closed loop.
+   * @return This load test.
+   */
+  public LoadTest setRate(double rate) {
+    if (rate < 0) {
+      throw new IllegalArgumentException("Rate cannot be negative.");
+    }
+
+    this.rate = rate;
+    return this;
+  }
+
+  /**
+   * Sets how long latencies are measured for.
+   * @param durationMillis Measured duration, in milliseconds.
+   * @return This load test.
+   */
+  public LoadTest setDuration(long durationMillis) {
+    this.durationMillis = durationMillis;
+    return this;
+  }
+
+  /**
+   * Sets how long clients run before latencies are measured.
+   * @param warmUpMillis Warm-up duration, in milliseconds.
+   * @return This load test.
+   */
+  public LoadTest setWarmUp(long warmUpMillis) {
+    this.warmUpMillis = warmUpMillis;
+    return this;
+  }
+
+  /**
+   * Sets the seed used to pick queries.
+   * @param seed Random seed.
+   * @return This load test.
+   */
+  public LoadTest setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Runs the load test.
+   * @param network Network to query.
+   * @return Throughput and latency of the run.
+   */
+  public LoadTestReport run(RailNetwork network) {
+    String[] names = getNames(network.getGraph());
+    long[] weights = getWeights(network.getGraph());
+
+    long start = System.nanoTime();
+    long measureStart = start + TimeUnit.MILLISECONDS.toNanos(warmUpMillis);
+    long end = measureStart + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+    // Interval between each client's queries at the target rate
+    long interval = rate > 0 ? (long) (clients * 1e9 / rate) : 0;
+
+    List<Client> tasks = new ArrayList<>();
+    for (int i = 0; i < clients; i++) {
+      long offset = interval * i / clients;
+      tasks.add(new Client(network, names, weights, seed + i,
+          start + offset, measureStart, end, interval));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+        clients, new DaemonThreadFactory("load-test-client")
+    );
+
+    LatencyHistogram corrected = new LatencyHistogram();
+    LatencyHistogram uncorrected = new LatencyHistogram();
+    long errors = 0;
+
+    try {
+      for (Future<Client> result : executor.invokeAll(tasks)) {
+        Client client = result.get();
+        corrected.add(client.corrected);
+        uncorrected.add(client.uncorrected);
+        errors += client.errors;
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException exception) {
+      throw new IllegalStateException("Load test client failed.", exception.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return new LoadTestReport(label, clients, rate, durationMillis,
+        uncorrected.getCount(), errors, corrected, uncorrected);
+  }
+
+  /**
+   * @param graph Graph to read names from.
+   * @return Every station name, indexed by name id.
+   */
+  private static String[] getNames(StationGraph graph) {
+    Dictionary dictionary = graph.getNames();
+    String[] names = new String[dictionary.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = dictionary.get(i);
+    }
+
+    return names;
+  }
+
+  /**
+   * Computes the cumulative popularity of each name, which is the number of
+   * connections at every station with that name.
+   * @param graph Graph to weight.
+   * @return Running totals of popularity, indexed by name id.
+   */
+  private static long[] getWeights(StationGraph graph) {
+    long[] weights = new long[graph.getNames().size()];
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      weights[graph.getNameId(station)] += graph.getDegree(station) + 1;
+    }
+
+    for (int i = 1; i < weights.length; i++) {
+      weights[i] += weights[i - 1];
+    }
+
+    return weights;
+  }
+
+  /**
+   * A simulated client, which records into its own histograms.
+   */
+  private static class Client implements Callable<Client> {
+
+    private final RailNetwork network;
+    private final String[] names;
+    private final long[] weights;
+    private final Random random;
+    private final long start;
+    private final long measureStart;
+    private final long end;
+    private final long interval;
+
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram uncorrected = new LatencyHistogram();
+    private long errors = 0;
+
+    Client(RailNetwork network, String[] names, long[] weights, long seed,
+        long start, long measureStart, long end, long interval) {
+      this.network = network;
+      this.names = names;
+      this.weights = weights;
+      this.random = new Random(seed);
+      this.start = start;
+      this.measureStart = measureStart;
+      this.end = end;
+      this.interval = interval;
+    }
+
+    @Override
+    public Client call() {
+      boolean fixedRate = interval > 0;
+      long warmUpTotal = 0;
+      long warmUpCount = 0;
+      long expected = -1;
+      long scheduled = start;
+
+      while (!Thread.currentThread().isInterrupted()) {
+        long now = System.nanoTime();
+
+        if (fixedRate) {
+          // Wait for the next slot, unless we are already behind
+          if (scheduled >= end) {
+            break;
+          }
+          while (now < scheduled) {
+            LockSupport.parkNanos(scheduled - now);
+            now = System.nanoTime();
+          }
+        } else if (now >= end) {
+          break;
+        }
+
+        String origin = pick();
+        String destination = pick();
+        while (names.length > 1 && destination.equals(origin)) {
+          destination = pick();
+        }
+        long sent = System.nanoTime();
+        try {
+          network.findShortestPath(origin, destination);
+        } catch (ValidationException exception) {
+          errors++;
+        }
+        long received = System.nanoTime();
+
+        long intended = fixedRate ? scheduled : sent;
+        if (intended < measureStart) {
+          warmUpTotal += received - sent;
+          warmUpCount++;
+        } else if (fixedRate) {
+          corrected.record(received - intended);
+          uncorrected.record(received - sent);
+        } else {
+          // Closed loop, so correct against the warm-up's mean latency
+          if (expected < 0) {
+            expected = warmUpCount == 0 ? 0 : warmUpTotal / warmUpCount;
+          }
+          corrected.record(received - sent, expected);
+          uncorrected.record(received - sent);
+        }
+
+        scheduled += interval;
+      }
+
+      return this;
+    }
+
+    /**
+     * @return A station name, weighted by popularity.
+     */
+    private String pick() {
+      long target = (long) (random.nextDouble() * weights[weights.length - 1]);
+      int index = Arrays.binarySearch(weights, target + 1);
+      return names[index >= 0 ? index : -index - 1];
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package io.seanbailey.railnetwork.loadtest;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.util.OutputBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The throughput and latency of a single load test run.
+ *
+ * <p>
+ * Reports are written as plain text, with one <code>key=value</code> pair per
+ * line, so that a run can be saved and compared against a later build with
+ * @link{io.seanbailey.railnetwork.loadtest.ReportComparison}. Latencies are
+ * in nanoseconds. Corrected latencies include coordinated omission
+ * correction, and service times do not.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class LoadTestReport {
+
+  // Percentiles included in every report
+  static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+  static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999", "p9999" };
+
+  private static final String NEWLINE = "\n";
+
+  private final String label;
+  private final int clients;
+  private final double rate;
+  private final long durationMillis;
+  private final long queries;
+  private final long errors;
+  private final long[] latencies;
+  private final long[] serviceTimes;
+
+  /**
+   * Constructs a new report from the histograms of a run.
+   * @param label Label of the build under test.
+   * @param clients Number of clients.
+   * @param rate Target rate, or 0 for closed loop.
+   * @param durationMillis Measured duration, in milliseconds.
+   * @param queries Number of measured queries.
+   * @param errors Number of queries which failed.
+   * @param corrected Latencies with coordinated omission correction.
+   * @param uncorrected Service times.
+   */
+  public LoadTestReport(String label, int clients, double rate,
+      long durationMillis, long queries, long errors,
+      LatencyHistogram corrected, LatencyHistogram uncorrected) {
+    this(label, clients, rate, durationMillis, queries, errors,
+        summarise(corrected), summarise(uncorrected));
+  }
+
+  private LoadTestReport(String label, int clients, double rate,
+      long durationMillis, long queries, long errors, long[] latencies,
+      long[] serviceTimes) {
+    this.label = label;
+    this.clients = clients;
+    this.rate = rate;
+    this.durationMillis = durationMillis;
+    this.queries = queries;
+    this.errors = errors;
+    this.latencies = latencies;
+    this.serviceTimes = serviceTimes;
+  }
+
+  /**
+   * Writes this report.
+   * @param buffer Buffer to write to.
+   */
+  public void write(OutputBuffer buffer) {
+    writeValue("label", label, buffer);
+    writeValue("clients", Integer.toString(clients), buffer);
+    writeValue("rate", Double.toString(rate), buffer);
+    writeValue("duration.ms", Long.toString(durationMillis), buffer);
+    writeValue("queries", Long.toString(queries), buffer);
+    writeValue("errors", Long.toString(errors), buffer);
+
+    for (int i = 0; i <= PERCENTILES.length; i++) {
+      writeValue("latency." + getName(i), Long.toString(latencies[i]), buffer);
+    }
+    for (int i = 0; i <= PERCENTILES.length; i++) {
+      writeValue("service." + getName(i), Long.toString(serviceTimes[i]), buffer);
+    }
+  }
+
+  /**
+   * Reads a report that was written by @link{#write}.
+   * @param lines Lines of the report.
+   * @return The report.
+   * @throws ValidationException if the report is incomplete or malformed.
+   */
+  public static LoadTestReport read(List<String> lines)
+      throws ValidationException {
+    Map<String, String> values = new HashMap<>();
+    for (String line : lines) {
+      int split = line.indexOf('=');
+      if (split > 0) {
+        values.put(line.substring(0, split).trim(), line.substring(split + 1).trim());
+      }
+    }
+
+    long[] latencies = new long[PERCENTILES.length + 1];
+    long[] serviceTimes = new long[PERCENTILES.length + 1];
+    try {
+      for (int i = 0; i <= PERCENTILES.length; i++) {
+        latencies[i] = Long.parseLong(getValue(values, "latency." + getName(i)));
+        serviceTimes[i] = Long.parseLong(getValue(values, "service." + getName(i)));
+      }
+
+      return new LoadTestReport(
+          getValue(values, "label"),
+          Integer.parseInt(getValue(values, "clients")),
+          Double.parseDouble(getValue(values, "rate")),
+          Long.parseLong(getValue(values, "duration.ms")),
+          Long.parseLong(getValue(values, "queries")),
+          Long.parseLong(getValue(values, "errors")),
+          latencies,
+          serviceTimes
+      );
+    } catch (NumberFormatException exception) {
+      throw new ValidationException("Malformed load test report. %s",
+          exception.getMessage());
+    }
+  }
+
+  /**
+   * @return a representation of this report as a string.
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(String.format(
+        "%s: %d queries from %d clients in %d ms, %.1f queries/s",
+        label, queries, clients, durationMillis, getThroughput()
+    ));
+
+    for (int i = 0; i <= PERCENTILES.length; i++) {
+      builder.append(String.format(", %s %d us", getName(i), latencies[i] / 1000));
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * @return Measured queries per second.
+   */
+  public double getThroughput() {
+    return durationMillis == 0 ? 0 : queries * 1000.0 / durationMillis;
+  }
+
+  /**
+   * @param index Index into the report's percentiles, or their count for the
+   * maximum.
+   * @return Corrected latency in nanoseconds.
+   */
+  public long getLatency(int index) {
+    return latencies[index];
+  }
+
+  /**
+   * @param index Index into the report's percentiles, or their count for the
+   * maximum.
+   * @return Service time in nanoseconds.
+   */
+  public long getServiceTime(int index) {
+    return serviceTimes[index];
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public int getClients() {
+    return clients;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public long getQueries() {
+    return queries;
+  }
+
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * @param index Index into the report's percentiles, or their count.
+   * @return Name of the percentile, or "max".
+   */
+  static String getName(int index) {
+    return index < PERCENTILES.length ? PERCENTILE_NAMES[index] : "max";
+  }
+
+  /**
+   * @param histogram Histogram to summarise.
+   * @return The value at each percentile, followed by the maximum.
+   */
+  private static long[] summarise(LatencyHistogram histogram) {
+    long[] values = new long[PERCENTILES.length + 1];
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      values[i] = histogram.getValueAtPercentile(PERCENTILES[i]);
+    }
+    values[PERCENTILES.length] = histogram.getMax();
+
+    return values;
+  }
+
+  private static String getValue(Map<String, String> values, String key)
+      throws ValidationException {
+    String value = values.get(key);
+    if (value == null) {
+      throw new ValidationException("Load test report is missing '%s'.", key);
+    }
+
+    return value;
+  }
+
+  private static void writeValue(String key, String value, OutputBuffer buffer) {
+    buffer.append(key).append('=').append(value).append(NEWLINE);
+  }
+}
@@ -0,0 +1,66 @@
+package io.seanbailey.railnetwork.loadtest;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes a side by side comparison of two load test reports, typically from a
+ * baseline build and a candidate build.
+ *
+ * <p>
+ * Each row shows a metric from both reports and the candidate's change as a
+ * percentage. Throughput should go up, and latencies should go down.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class ReportComparison {
+
+  private static final String ROW = "%-22s %14s %14s %9s\n";
+
+  /**
+   * Writes the comparison.
+   * @param base Baseline report.
+   * @param candidate Candidate report.
+   * @param buffer Buffer to write to.
+   */
+  public void write(LoadTestReport base, LoadTestReport candidate,
+      OutputBuffer buffer) {
+    buffer.append(String.format(ROW, "metric", base.getLabel(),
+        candidate.getLabel(), "change"));
+
+    if (base.getClients() != candidate.getClients()
+        || base.getRate() != candidate.getRate()) {
+      buffer.append("Warning: the reports were run with different clients or "
+          + "rates, so they may not be comparable.\n");
+    }
+
+    writeRow("throughput (q/s)", base.getThroughput(), candidate.getThroughput(), buffer);
+    writeRow("errors", base.getErrors(), candidate.getErrors(), buffer);
+
+    for (int i = 0; i <= LoadTestReport.PERCENTILES.length; i++) {
+      writeRow("latency " + LoadTestReport.getName(i) + " (us)",
+          base.getLatency(i) / 1000.0, candidate.getLatency(i) / 1000.0, buffer);
+    }
+    for (int i = 0; i <= LoadTestReport.PERCENTILES.length; i++) {
+      writeRow("service " + LoadTestReport.getName(i) + " (us)",
+          base.getServiceTime(i) / 1000.0, candidate.getServiceTime(i) / 1000.0, buffer);
+    }
+  }
+
+  /**
+   * Writes a single metric.
+   * @param name Metric name.
+   * @param base Baseline value.
+   * @param candidate Candidate value.
+   * @param buffer Buffer to write to.
+   */
+  private static void writeRow(String name, double base, double candidate,
+      OutputBuffer buffer) {
+    String change = base == 0
+        ? "-"
+        : String.format("%+.1f%%", (candidate - base) * 100 / base);
+
+    buffer.append(String.format(ROW, name, String.format("%.1f", base),
+        String.format("%.1f", candidate), change));
+  }
+}
@@ -0,0 +1,111 @@
+package io.seanbailey.railnetwork.parser;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Opens rail network files, decompressing them on the fly if they were
+ * shipped compressed.
+ *
+ * <p>
+ * The format is detected from the first bytes of the file rather than its
+ * extension, so a compressed export can be loaded as is. Gzip and zlib
+ * streams are inflated straight into the parser, without ever being written
+ * back to disk. Files are read in large chunks, so that loading is bound by
+ * parsing rather than by the number of reads.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NetworkInput {
+
+  // Size of each read from disk, and of each chunk fed to the inflater
+  private static final int FILE_BUFFER_SIZE = 1 << 20;
+  private static final int INFLATE_BUFFER_SIZE = 1 << 16;
+
+  private static final int GZIP_MAGIC = 0x1f8b;
+  private static final int ZSTD_MAGIC = 0x28b52ffd;
+
+  /**
+   * Opens a network file for reading.
+   * @param file File to open.
+   * @return A stream of the file's uncompressed contents.
+   * @throws IOException if the file cannot be read.
+   * @throws ValidationException if the file is compressed in a format which
+   *                             is not supported.
+   */
+  public static InputStream open(File file) throws IOException, ValidationException {
+    InputStream stream = new BufferedInputStream(new FileInputStream(file),
+        FILE_BUFFER_SIZE);
+
+    try {
+      return decompress(stream, file.getPath());
+    } catch (IOException | ValidationException exception) {
+      stream.close();
+      throw exception;
+    }
+  }
+
+  /**
+   * Wraps a stream in a decompressor if its contents are compressed.
+   * @param stream Stream positioned at the start of the contents. Must support
+   *               marks.
+   * @param name Name of the stream, for error messages.
+   * @return A stream of the uncompressed contents.
+   * @throws IOException if the stream cannot be read.
+   * @throws ValidationException if the contents are compressed in a format
+   *                             which is not supported.
+   */
+  static InputStream decompress(InputStream stream, String name)
+      throws IOException, ValidationException {
+    // Peek at the magic number
+    byte[] header = new byte[4];
+    stream.mark(header.length);
+    int length = stream.read(header);
+    while (length >= 0 && length < header.length) {
+      int read = stream.read(header, length, header.length - length);
+      if (read < 0) {
+        break;
+      }
+      length += read;
+    }
+    stream.reset();
+
+    int first = length >= 2 ? (header[0] & 0xff) << 8 | (header[1] & 0xff) : -1;
+    int magic = length >= 4 ? first << 16 | (header[2] & 0xff) << 8 | (header[3] & 0xff) : -1;
+
+    if (first == GZIP_MAGIC) {
+      return new GZIPInputStream(stream, INFLATE_BUFFER_SIZE);
+    }
+
+    // A zlib header uses deflate (low nibble 8) and is a multiple of 31
+    if (first >= 0 && (first >>> 8 & 0x0f) == 8 && first % 31 == 0) {
+      Inflater inflater = new Inflater();
+      return new InflaterInputStream(stream, inflater, INFLATE_BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          // Our own inflater is not released by the stream
+          try {
+            super.close();
+          } finally {
+            inflater.end();
+          }
+        }
+      };
+    }
+
+    if (magic == ZSTD_MAGIC) {
+      throw new ValidationException("'%s' is compressed with Zstandard, which is " +
+          "not supported. Use gzip instead.", name);
+    }
+
+    return stream;
+  }
+}
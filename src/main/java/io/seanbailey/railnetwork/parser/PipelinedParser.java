@@ -0,0 +1,594 @@
+package io.seanbailey.railnetwork.parser;
+
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.station.StationTable;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.StageTimings;
+import io.seanbailey.railnetwork.util.StringPool;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Parses the rail network XML file straight into a
+ * @link{io.seanbailey.railnetwork.station.StationTable}, as a pipeline of
+ * stages which run at the same time.
+ *
+ * <p>
+ * The stages are:
+ * <ol>
+ *   <li><strong>tokenize</strong>: stream the XML, collecting the raw fields
+ *   of each station and its edges.</li>
+ *   <li><strong>validate</strong>: check that every field is present, and that
+ *   durations are positive numbers.</li>
+ *   <li><strong>intern</strong>: add names and lines to their dictionaries,
+ *   and keep the station.</li>
+ *   <li><strong>index</strong>: once every station is known, freeze the
+ *   dictionaries and number stations by name and then line.</li>
+ *   <li><strong>adjacency</strong>: resolve the station each edge refers to,
+ *   and flatten the edges.</li>
+ * </ol>
+ * The first three stages each run on their own thread, and pass batches of
+ * stations along bounded queues, so reading the file overlaps with checking
+ * and interning what has been read so far. The last two stages need every
+ * station, and are spread across the common fork/join pool instead.
+ * </p>
+ *
+ * <p>
+ * Unlike @link{io.seanbailey.railnetwork.parser.StationParser}, the file is
+ * never held in memory as a DOM tree, and no station objects are created.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class PipelinedParser {
+
+  private static final ThreadFactory threads = new DaemonThreadFactory("load");
+
+  // Stations are passed between stages in batches, to keep queue traffic low
+  private static final int BATCH_SIZE = 512;
+  private static final int QUEUE_CAPACITY = 16;
+
+  // Marks the end of a queue. Compared by identity.
+  private static final List<RawStation> END = Collections.unmodifiableList(
+      new ArrayList<>());
+
+  private final StringPool strings;
+  private final StageTimings timings;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private Dictionary names;
+  private Dictionary lines;
+  private long[] keys;       // Sort key of each station, in rank order
+  private int[] nameOffsets; // First rank of each name
+
+  /**
+   * Constructs a new parser.
+   * @param strings Pool shared with other parsers, or null.
+   * @param timings Receives the timings of each stage.
+   */
+  public PipelinedParser(StringPool strings, StageTimings timings) {
+    this.strings = strings;
+    this.timings = timings;
+  }
+
+  /**
+   * Parses the given file. Compressed files are decompressed as they are
+   * parsed.
+   * @param file File to parse.
+   * @return The stations parsed from the file.
+   * @throws ParseException if the file cannot be parsed for any reason.
+   * @throws ValidationException if a station or edge is invalid.
+   * @see io.seanbailey.railnetwork.parser.NetworkInput
+   */
+  public StationTable parse(File file) throws ParseException, ValidationException {
+    try (InputStream stream = NetworkInput.open(file)) {
+      return parse(stream, file.getPath());
+    } catch (IOException exception) {
+      throw new ParseException("Could not read '%s'. %s", file.getPath(),
+          exception.getMessage());
+    }
+  }
+
+  /**
+   * Parses XML from the given stream.
+   * @param stream Stream of uncompressed XML, which is not closed.
+   * @param name Name of the stream, for error messages.
+   * @return The stations parsed from the stream.
+   * @throws ParseException if the XML cannot be parsed for any reason.
+   * @throws ValidationException if a station or edge is invalid.
+   */
+  public StationTable parse(InputStream stream, String name)
+      throws ParseException, ValidationException {
+    names = new Dictionary(strings);
+    lines = new Dictionary(strings);
+    BlockingQueue<List<RawStation>> tokens = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    BlockingQueue<List<RawStation>> valid = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    // Steps 1 and 2: Tokenize and validate in the background
+    Thread tokenizer = threads.newThread(() -> tokenize(stream, name, tokens));
+    Thread validator = threads.newThread(() -> validate(tokens, valid));
+    tokenizer.start();
+    validator.start();
+
+    // Step 3: Intern as stations arrive
+    List<RawStation> stations = intern(valid);
+
+    try {
+      tokenizer.join();
+      validator.join();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new ParseException("Interrupted while parsing '%s'.", name);
+    }
+
+    rethrow(failure.get());
+
+    // Step 4: Number stations
+    long start = System.nanoTime();
+    index(stations);
+    start = timings.record("index", start);
+
+    // Step 5: Resolve edges
+    StationTable table = flatten(stations);
+    timings.record("adjacency", start);
+
+    return table;
+  }
+
+  /**
+   * Streams the XML, collecting the raw fields of each station.
+   * @param stream Stream of XML.
+   * @param name Name of the stream, for error messages.
+   * @param out Queue to pass batches of stations to.
+   */
+  private void tokenize(InputStream stream, String name,
+      BlockingQueue<List<RawStation>> out) {
+    long start = System.nanoTime();
+    long waiting = 0;
+
+    try {
+      XMLStreamReader reader = createFactory().createXMLStreamReader(stream);
+      List<RawStation> batch = new ArrayList<>(BATCH_SIZE);
+      RawStation station = null;
+      boolean inEdge = false;
+      String edgeName = null;
+      String edgeLine = null;
+      String edgeDuration = null;
+
+      while (reader.hasNext() && failure.get() == null) {
+        int event = reader.next();
+
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          String element = reader.getLocalName();
+
+          if (station == null) {
+            if (element.equals("Station")) {
+              station = new RawStation();
+            }
+          } else if (element.equals("StationEdge")) {
+            inEdge = true;
+            edgeName = edgeLine = edgeDuration = null;
+          } else if (inEdge) {
+            switch (element) {
+              case "Name":
+                edgeName = reader.getElementText();
+                break;
+              case "Line":
+                edgeLine = reader.getElementText();
+                break;
+              case "Duration":
+                edgeDuration = reader.getElementText();
+            }
+          } else if (element.equals("Name")) {
+            station.name = reader.getElementText();
+          } else if (element.equals("Line")) {
+            station.line = reader.getElementText();
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT && station != null) {
+          String element = reader.getLocalName();
+
+          if (element.equals("StationEdge")) {
+            station.edgeNames.add(edgeName);
+            station.edgeLines.add(edgeLine);
+            station.edgeDurations.add(edgeDuration);
+            inEdge = false;
+          } else if (element.equals("Station")) {
+            batch.add(station);
+            station = null;
+
+            if (batch.size() == BATCH_SIZE) {
+              waiting += put(out, batch);
+              batch = new ArrayList<>(BATCH_SIZE);
+            }
+          }
+        }
+      }
+
+      reader.close();
+      if (!batch.isEmpty()) {
+        waiting += put(out, batch);
+      }
+    } catch (XMLStreamException exception) {
+      fail(new ParseException("Could not parse '%s'. %s", name,
+          exception.getMessage()));
+    } catch (Throwable throwable) {
+      fail(throwable);
+    } finally {
+      waiting += finish(out);
+      long end = System.nanoTime();
+      timings.record("tokenize", start, end, end - start - waiting);
+    }
+  }
+
+  /**
+   * Checks every field of each station and its edges, and parses durations.
+   * @param in Queue to take batches of raw stations from.
+   * @param out Queue to pass batches of valid stations to.
+   */
+  private void validate(BlockingQueue<List<RawStation>> in,
+      BlockingQueue<List<RawStation>> out) {
+    long start = System.nanoTime();
+    long waiting = 0;
+
+    try {
+      while (true) {
+        long wait = System.nanoTime();
+        List<RawStation> batch = in.take();
+        waiting += System.nanoTime() - wait;
+        if (batch == END) {
+          break;
+        }
+
+        // Keep draining after a failure, so that the tokenizer never blocks
+        if (failure.get() != null) {
+          continue;
+        }
+
+        try {
+          for (RawStation station : batch) {
+            validate(station);
+          }
+          waiting += put(out, batch);
+        } catch (ValidationException exception) {
+          fail(exception);
+        }
+      }
+    } catch (Throwable throwable) {
+      fail(throwable);
+    } finally {
+      waiting += finish(out);
+      long end = System.nanoTime();
+      timings.record("validate", start, end, end - start - waiting);
+    }
+  }
+
+  /**
+   * Ensures that a station and its edges have every required field.
+   * @param station Station to check.
+   * @throws ValidationException if a field is missing or invalid.
+   */
+  private static void validate(RawStation station) throws ValidationException {
+    String error = null;
+    if (station.name == null) {
+      error = "No name was defined.";
+    } else if (station.line == null) {
+      error = "No line was defined.";
+    }
+
+    if (error != null) {
+      throw new ValidationException("Invalid station in XML file. %s", error);
+    }
+
+    int count = station.edgeNames.size();
+    station.durations = new int[count];
+    for (int i = 0; i < count; i++) {
+      String duration = station.edgeDurations.get(i);
+
+      if (station.edgeNames.get(i) == null) {
+        error = "No name was defined.";
+      } else if (station.edgeLines.get(i) == null) {
+        error = "No line was defined.";
+      } else if (duration == null) {
+        error = "No duration was defined.";
+      } else {
+        try {
+          station.durations[i] = Integer.parseInt(duration.trim());
+          if (station.durations[i] <= 0) {
+            error = "Duration must be a positive, non-zero value.";
+          }
+        } catch (NumberFormatException exception) {
+          error = String.format("Duration '%s' is not a number.", duration);
+        }
+      }
+
+      if (error != null) {
+        throw new ValidationException("Invalid edge in XML file. %s", error);
+      }
+    }
+
+    // Durations are no longer needed as text
+    station.edgeDurations = null;
+  }
+
+  /**
+   * Adds the name and line of each station to their dictionaries, keeping
+   * their canonical copies.
+   * @param in Queue to take batches of valid stations from.
+   * @return Every station, in the order they were listed.
+   */
+  private List<RawStation> intern(BlockingQueue<List<RawStation>> in) {
+    long start = System.nanoTime();
+    long waiting = 0;
+    List<RawStation> stations = new ArrayList<>();
+
+    try {
+      while (true) {
+        long wait = System.nanoTime();
+        List<RawStation> batch = in.take();
+        waiting += System.nanoTime() - wait;
+        if (batch == END) {
+          break;
+        }
+
+        if (failure.get() == null) {
+          for (RawStation station : batch) {
+            station.name = names.add(station.name);
+            station.line = lines.add(station.line);
+          }
+          stations.addAll(batch);
+        }
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      fail(exception);
+    } finally {
+      long end = System.nanoTime();
+      timings.record("intern", start, end, end - start - waiting);
+    }
+
+    return stations;
+  }
+
+  /**
+   * Freezes the dictionaries, and ranks every station by name and then line.
+   * @param stations Every station.
+   * @throws ValidationException if two stations have the same name and line.
+   */
+  private void index(List<RawStation> stations) throws ValidationException {
+    names.freeze();
+    lines.freeze();
+
+    int size = stations.size();
+    keys = new long[size];
+    IntStream.range(0, size).parallel().forEach(i ->
+        keys[i] = key(names.getId(stations.get(i).name),
+            lines.getId(stations.get(i).line))
+    );
+    Arrays.parallelSort(keys);
+
+    // Edges could not tell two copies of the same station apart
+    for (int i = 1; i < size; i++) {
+      if (keys[i] == keys[i - 1]) {
+        throw new ValidationException("Station '%s' (%s) is defined more than once.",
+            names.get((int) (keys[i] >>> 32)), lines.get((int) keys[i]));
+      }
+    }
+
+    // Group ranks by name, so that finding a station only scans its lines
+    nameOffsets = new int[names.size() + 1];
+    for (int i = 0; i < size; i++) {
+      nameOffsets[(int) (keys[i] >>> 32) + 1]++;
+    }
+    for (int i = 0; i < names.size(); i++) {
+      nameOffsets[i + 1] += nameOffsets[i];
+    }
+  }
+
+  /**
+   * @param name Name of a station.
+   * @param line Line of the station.
+   * @return The rank of the station, or -1 if there is no such station.
+   */
+  private int rank(String name, String line) {
+    int nameId = names.getId(name);
+    int lineId = lines.getId(line);
+    if (nameId < 0 || lineId < 0) {
+      return -1;
+    }
+
+    // A name has one station per line, so there are only ever a few
+    for (int i = nameOffsets[nameId]; i < nameOffsets[nameId + 1]; i++) {
+      if ((int) keys[i] == lineId) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Resolves the target of every edge, and flattens stations and edges into a
+   * table in rank order.
+   * @param stations Every station.
+   * @return The station table.
+   * @throws ValidationException if an edge refers to a station which does
+   *                             not exist.
+   */
+  private StationTable flatten(List<RawStation> stations)
+      throws ValidationException {
+    int size = stations.size();
+    int[] order = new int[size];
+    IntStream.range(0, size).parallel().forEach(i ->
+        order[rank(stations.get(i).name, stations.get(i).line)] = i
+    );
+
+    int[] stationNames = new int[size];
+    int[] stationLines = new int[size];
+    int[] edgeOffsets = new int[size + 1];
+    for (int rank = 0; rank < size; rank++) {
+      stationNames[rank] = (int) (keys[rank] >>> 32);
+      stationLines[rank] = (int) keys[rank];
+      edgeOffsets[rank + 1] = edgeOffsets[rank]
+          + stations.get(order[rank]).durations.length;
+    }
+
+    // Resolve edges in parallel, remembering the first which fails
+    int[] edgeTargets = new int[edgeOffsets[size]];
+    int[] edgeDurations = new int[edgeOffsets[size]];
+    AtomicLong missing = new AtomicLong(Long.MAX_VALUE);
+    IntStream.range(0, size).parallel().forEach(rank -> {
+      RawStation station = stations.get(order[rank]);
+      int edge = edgeOffsets[rank];
+
+      for (int i = 0; i < station.durations.length; i++, edge++) {
+        int target = rank(station.edgeNames.get(i), station.edgeLines.get(i));
+        if (target < 0) {
+          long failed = (long) rank << 32 | i;
+          missing.accumulateAndGet(failed, Math::min);
+        }
+        edgeTargets[edge] = target;
+        edgeDurations[edge] = station.durations[i];
+      }
+    });
+
+    if (missing.get() != Long.MAX_VALUE) {
+      RawStation station = stations.get(order[(int) (missing.get() >>> 32)]);
+      int i = (int) missing.get();
+      throw new ValidationException("An edge in the XML file referenced a " +
+          "non-existent station '%s' (%s).", station.edgeNames.get(i),
+          station.edgeLines.get(i));
+    }
+
+    return new StationTable(stationNames, stationLines, edgeOffsets, edgeTargets,
+        edgeDurations);
+  }
+
+  /**
+   * @param nameId Dictionary id of a station name.
+   * @param lineId Dictionary id of a line name.
+   * @return A key which sorts stations by name and then line.
+   */
+  private static long key(int nameId, int lineId) {
+    return (long) nameId << 32 | lineId;
+  }
+
+  /**
+   * Passes a batch to the next stage.
+   * @param queue Queue to the next stage.
+   * @param batch Batch to pass on.
+   * @return Nanoseconds spent waiting for room in the queue.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  private static long put(BlockingQueue<List<RawStation>> queue,
+      List<RawStation> batch) throws InterruptedException {
+    long start = System.nanoTime();
+    queue.put(batch);
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Tells the next stage that there are no more batches.
+   * @param queue Queue to the next stage.
+   * @return Nanoseconds spent waiting for room in the queue.
+   */
+  private long finish(BlockingQueue<List<RawStation>> queue) {
+    try {
+      return put(queue, END);
+    } catch (InterruptedException exception) {
+      // The next stage will never finish, so there is nothing else to do
+      Thread.currentThread().interrupt();
+      fail(exception);
+      return 0;
+    }
+  }
+
+  /**
+   * Records the first failure of any stage, which stops the pipeline.
+   * @param throwable What went wrong.
+   */
+  private void fail(Throwable throwable) {
+    failure.compareAndSet(null, throwable);
+  }
+
+  /**
+   * Rethrows the failure of a stage on the calling thread.
+   * @param throwable Failure, or null.
+   * @throws ParseException if the XML could not be parsed.
+   * @throws ValidationException if a station or edge was invalid.
+   */
+  private static void rethrow(Throwable throwable)
+      throws ParseException, ValidationException {
+    if (throwable == null) {
+      return;
+    }
+    if (throwable instanceof ParseException) {
+      throw (ParseException) throwable;
+    }
+    if (throwable instanceof ValidationException) {
+      throw (ValidationException) throwable;
+    }
+    if (throwable instanceof RuntimeException) {
+      throw (RuntimeException) throwable;
+    }
+    if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+
+    throw new ParseException("Loading failed. %s", throwable);
+  }
+
+  /**
+   * Factories are not guaranteed to be thread safe, so each parse makes its
+   * own.
+   * @return A StAX factory which does not fetch external entities.
+   */
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+
+  /**
+   * @return Dictionary of station names. Only available after parsing.
+   */
+  public Dictionary getNames() {
+    return names;
+  }
+
+  /**
+   * @return Dictionary of line names. Only available after parsing.
+   */
+  public Dictionary getLines() {
+    return lines;
+  }
+
+  /**
+   * The fields of a station, as they pass through the pipeline.
+   */
+  private static class RawStation {
+
+    private String name;
+    private String line;
+    private final List<String> edgeNames = new ArrayList<>(4);
+    private final List<String> edgeLines = new ArrayList<>(4);
+    private List<String> edgeDurations = new ArrayList<>(4);
+    private int[] durations; // Parsed by the validate stage
+  }
+}
@@ -3,12 +3,15 @@ package io.seanbailey.railnetwork.parser;
 import io.seanbailey.railnetwork.exception.ParseException;
 import io.seanbailey.railnetwork.exception.ValidationException;
 import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.util.Dictionary;
 import io.seanbailey.railnetwork.util.Logger;
 import io.seanbailey.railnetwork.util.MinHeap;
 import io.seanbailey.railnetwork.util.SearchUtil;
 import io.seanbailey.railnetwork.util.SortUtil;
+import io.seanbailey.railnetwork.util.StringPool;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -26,7 +29,25 @@ public class StationParser {
 
   private static final Logger logger = new Logger();
 
+  private final StringPool strings;
   private MinHeap<Station> stations;
+  private Dictionary names;
+  private Dictionary lines;
+
+  /**
+   * Constructs a new parser, which keeps its own copy of every name.
+   */
+  public StationParser() {
+    this(null);
+  }
+
+  /**
+   * Constructs a new parser.
+   * @param strings Pool shared with other parsers, or null.
+   */
+  public StationParser(StringPool strings) {
+    this.strings = strings;
+  }
 
   /**
    * Parses the given file.
@@ -35,49 +56,76 @@ public class StationParser {
    * The parsing process occurs over four main steps.
    * <ol>
    *   <li>Parse the given file into a DOM tree.</li>
-   *   <li>Traverse the DOM finding stations. Create corresponding Java
-   *   objects.</li>
+   *   <li>Traverse the DOM finding stations. Intern their names and lines,
+   *   then create corresponding Java objects.</li>
    *   <li>Sort the list of stations for efficient searching.</li>
    *   <li>Traverse the DOM again to find station edges.</li>
    * </ol>
    * </p>
    *
+   * <p>
+   * Compressed files are decompressed as they are parsed.
+   * </p>
+   *
    * @param file File to parse.
    * @return An array of stations parsed from the XML file.
    * @throws ParseException if the file cannot be parsed for any reason.
    * @throws ValidationException if a node is invalid.
+   * @see io.seanbailey.railnetwork.parser.NetworkInput
    */
   public MinHeap<Station> parse(File file) throws ParseException, 
          ValidationException {
-    // Step 1: Parse XML file to DOM
-    Document document = getDocument(file);
+    try (InputStream stream = NetworkInput.open(file)) {
+      return parse(stream, file.getPath());
+    } catch (IOException exception) {
+      throw new ParseException("Could not read '%s'. %s", file.getPath(),
+          exception.getMessage());
+    }
+  }
+
+  /**
+   * Parses XML from the given stream.
+   * @param stream Stream of uncompressed XML, which is not closed.
+   * @param name Name of the stream, for error messages.
+   * @return An array of stations parsed from the XML.
+   * @throws ParseException if the XML cannot be parsed for any reason.
+   * @throws ValidationException if a node is invalid.
+   * @see #parse(File)
+   */
+  public MinHeap<Station> parse(InputStream stream, String name)
+      throws ParseException, ValidationException {
+    // Step 1: Parse XML to DOM
+    Document document = getDocument(stream, name);
 
     // Step 2: Create stations
     createStations(document);
 
     // Step 3: Sort station array
-    SortUtil.quickSort(stations);
+    SortUtil.parallelSort(stations, Station::getSortKey);
+    rejectDuplicates();
 
     // Step 4: Find station edges
     addStationEdges(document);
 
     // Print stations for debugging purposes
-    //if (Logger.ENABLE_DEBUG) {
-    //  for (Station station : stations.getNodes()) { 
-    //    logger.debug(station.toString());
-    //  }
-    //}
+    if (logger.isDebugEnabled()) {
+      for (Station station : stations.getNodes()) {
+        logger.debug(station.toString());
+      }
+    }
 
     return stations;
   }
 
   /**
-   * Returns an XML document (DOM) from a given file.
-   * @param file File to retrieve DOM from.
+   * Returns an XML document (DOM) from a given stream.
+   * @param stream Stream to retrieve DOM from.
+   * @param name Name of the stream, for error messages.
    * @return Document object.
-   * @throws ParseException if the file cannot be parsed.
+   * @throws ParseException if the stream cannot be parsed.
    */
-  private static Document getDocument(File file) throws ParseException {
+  private static Document getDocument(InputStream stream, String name)
+      throws ParseException {
     // Init
     DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
     DocumentBuilder builder;
@@ -86,8 +134,11 @@ public class StationParser {
     // Attempt to create builder
     try {
       builder = factory.newDocumentBuilder();
-      document = builder.parse(file);
-    } catch (ParserConfigurationException | IOException | SAXException e) {
+      document = builder.parse(stream);
+    } catch (IOException e) {
+      // For example, a compressed file which was cut short
+      throw new ParseException("Could not read '%s'. %s", name, e.getMessage());
+    } catch (ParserConfigurationException | SAXException e) {
       e.printStackTrace();
       throw new ParseException("[Bug] An unforeseen exception has occurred. " +
           "Please review the above stack trace.");
@@ -98,34 +149,71 @@ public class StationParser {
 
   /**
    * Creates an array of stations from the DOM.
+   *
+   * <p>
+   * Names and lines are added to their dictionaries first, so that every
+   * station can be constructed with its final ids.
+   * </p>
+   *
    * @param document DOM tree.
-   * @return An array of stations.
    * @throws Validation exception if a station is invalid.
    */
   private void createStations(Document document) throws ValidationException {
     // Init
     NodeList nodes = document.getElementsByTagName("Station");
-    stations = new MinHeap<>(new Station[nodes.getLength()]);
+    String[] stationNames = new String[nodes.getLength()];
+    String[] stationLines = new String[nodes.getLength()];
+    names = new Dictionary(strings);
+    lines = new Dictionary(strings);
+
+    // Intern names and lines
+    for (int i = 0; i < nodes.getLength(); i++) {
+      String[] values = readStationNode(nodes.item(i));
+      stationNames[i] = names.add(values[0]);
+      stationLines[i] = lines.add(values[1]);
+    }
+
+    names.freeze();
+    lines.freeze();
 
-    // Create stations from nodes
+    // Create stations from interned values
+    stations = new MinHeap<>(new Station[nodes.getLength()]);
     for (int i = 0; i < nodes.getLength(); i++) {
-      stations.insert(createStationFromNode(nodes.item(i)));
+      stations.insert(new Station(
+          stationNames[i], names.getId(stationNames[i]),
+          stationLines[i], lines.getId(stationLines[i])
+      ));
+    }
+  }
+
+  /**
+   * Ensures no two stations share a name and line. Edges could not tell two
+   * copies of the same station apart.
+   * @throws ValidationException if a station is defined more than once.
+   */
+  private void rejectDuplicates() throws ValidationException {
+    Station[] nodes = stations.getNodes();
+    for (int i = 1; i < nodes.length; i++) {
+      if (nodes[i].getSortKey() == nodes[i - 1].getSortKey()) {
+        throw new ValidationException("Station '%s' (%s) is defined more than once.",
+            nodes[i].getName(), nodes[i].getLine());
+      }
     }
   }
 
   /**
-   * Attempts to create a station object from a node.
+   * Reads the name and line of a station node.
    *
    * <p>
    * Note that this process does not account for adjacent stations in any way. 
    * These should be added on a second run through the DOM.
    * </p>
    *
-   * @param node Node to construct station from.
-   * @return A station object.
+   * @param node Node to read.
+   * @return A two element array, containing the name and then the line.
    * @throws ValidationException if a node is invalid.
    */
-  private static Station createStationFromNode(Node node) 
+  private static String[] readStationNode(Node node) 
       throws ValidationException {
     // Init
     NodeList children = node.getChildNodes();
@@ -156,7 +244,7 @@ public class StationParser {
       throw new ValidationException("Invalid station in XML file. %s", error);
     }
 
-    return new Station(name, line);
+    return new String[] { name, line };
   }
 
   /**
@@ -206,6 +294,11 @@ public class StationParser {
 
     // Find adjacent station and add
     Station adjacent = findStation(name, line);
+    if (adjacent == null) {
+      throw new ValidationException("An edge in the XML file referenced a " +
+          "non-existent station '%s' (%s).", name, line);
+    }
+
     station.addAdjacentStation(adjacent, duration);
   }
 
@@ -240,23 +333,37 @@ public class StationParser {
 
   /**
    * Searches for the corresponding station.
-   * @see #findStation(Station)
+   *
+   * <p>
+   * This function should only be called once the station array is sorted, as it
+   * makes use of a binary search for efficiency.
+   * </p>
+   *
    * @param name Name of station.
    * @param line Station line.
    * @return Located station or null.
    */
   private Station findStation(String name, String line) {
-    return findStation(new Station(name, line));
+    int nameId = names.getId(name);
+    int lineId = lines.getId(line);
+
+    // Unknown names and lines cannot match any station
+    if (nameId < 0 || lineId < 0) {
+      return null;
+    }
+
+    return SearchUtil.find(stations.getNodes(), nameId, lineId);
   }
 
   /**
    * Searches for the corresponding station.
-   * @see #findStation(Station)
+   * @see #findStation(String, String)
    * @param node Station node, which corresponds to an existing station.
    * @throws ValidationException If the node is invalid.
    */
   private Station findStation(Node node) throws ValidationException {
-    Station station = findStation(createStationFromNode(node));
+    String[] values = readStationNode(node);
+    Station station = findStation(values[0], values[1]);
 
     // Ensure station was found
     if (station == null) {
@@ -267,17 +374,16 @@ public class StationParser {
   }
 
   /**
-   * Searches for the correspond station.
-   *
-   * <p>
-   * This function should only be called once the station array is sorted, as it
-   * makes use of a binary search for efficiency.
-   * </p>
-   *
-   * @param station Station to search for
-   * @return Located station or null if not found.
+   * @return Dictionary of station names. Only available after parsing.
+   */
+  public Dictionary getNames() {
+    return names;
+  }
+
+  /**
+   * @return Dictionary of line names. Only available after parsing.
    */
-  private Station findStation(Station station) {
-    return SearchUtil.find(stations.getNodes(), station);
+  public Dictionary getLines() {
+    return lines;
   }
 }
@@ -0,0 +1,279 @@
+package io.seanbailey.railnetwork.partition;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import java.util.Arrays;
+
+/**
+ * Cuts a @link{io.seanbailey.railnetwork.graph.StationGraph} into a number of
+ * roughly equal cells, trying to keep the number of boundary stations low.
+ *
+ * <p>
+ * Cells are grown together by breadth first search from seeds spread across
+ * the graph, so each cell is a connected region. A few passes of local
+ * refinement then move stations to whichever neighbouring cell holds most of
+ * their neighbours, as long as cells stay balanced. The result depends only on
+ * the graph, so separate processes partitioning the same network agree on the
+ * cells.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class GraphPartitioner {
+
+  // Number of refinement passes
+  private static final int REFINEMENT_PASSES = 4;
+
+  // How far over an even share a cell may grow during refinement
+  private static final double IMBALANCE = 1.1;
+
+  /**
+   * Partitions a graph.
+   * @param graph Graph to partition.
+   * @param cellCount Number of cells to create.
+   * @return A partition.
+   */
+  public Partition partition(StationGraph graph, int cellCount) {
+    int size = graph.getStationCount();
+    if (cellCount < 1 || cellCount > size) {
+      throw new IllegalArgumentException("Cell count must be between 1 and " + size + ".");
+    }
+
+    int[] cells = new int[size];
+    Arrays.fill(cells, -1);
+
+    int[] seeds = chooseSeeds(graph, cellCount);
+    int[] sizes = grow(graph, seeds, cells);
+    refine(graph, cells, sizes);
+
+    return createPartition(graph, cells, cellCount);
+  }
+
+  /**
+   * Picks seeds which are far apart from each other. Each new seed is the
+   * station with the most hops to any existing seed, preferring stations that
+   * cannot be reached from any seed at all.
+   * @param graph Graph to pick from.
+   * @param count Number of seeds.
+   * @return Seed station ids.
+   */
+  private static int[] chooseSeeds(StationGraph graph, int count) {
+    int size = graph.getStationCount();
+    int[] seeds = new int[count];
+    int[] hops = new int[size];
+    int[] queue = new int[size];
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    Arrays.fill(hops, Integer.MAX_VALUE);
+
+    for (int i = 0; i < count; i++) {
+      // Pick the station furthest from all existing seeds
+      int seed = 0;
+      for (int station = 1; station < size; station++) {
+        if (hops[station] > hops[seed]) {
+          seed = station;
+        }
+      }
+
+      seeds[i] = seed;
+
+      // Breadth first search from the new seed, keeping the minimum hops
+      int head = 0;
+      int tail = 0;
+      hops[seed] = 0;
+      queue[tail++] = seed;
+      while (head < tail) {
+        int station = queue[head++];
+        int degree = graph.getEdges(station, targets, durations);
+        for (int j = 0; j < degree; j++) {
+          if (hops[station] + 1 < hops[targets[j]]) {
+            hops[targets[j]] = hops[station] + 1;
+            queue[tail++] = targets[j];
+          }
+        }
+      }
+    }
+
+    return seeds;
+  }
+
+  /**
+   * Grows cells from their seeds in round robin order, one station at a time,
+   * so that cells stay close in size.
+   * @param graph Graph to partition.
+   * @param seeds Seed of each cell.
+   * @param cells Cell of each station, filled in by this method.
+   * @return The size of each cell.
+   */
+  private static int[] grow(StationGraph graph, int[] seeds, int[] cells) {
+    // Init
+    int size = graph.getStationCount();
+    int cellCount = seeds.length;
+    int capacity = (size + cellCount - 1) / cellCount;
+    int[] sizes = new int[cellCount];
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+
+    // Each station is queued at most once, so the cells' queues are linked
+    // lists threaded through a single array
+    int[] next = new int[size];
+    int[] heads = new int[cellCount];
+    int[] tails = new int[cellCount];
+
+    for (int cell = 0; cell < cellCount; cell++) {
+      cells[seeds[cell]] = cell;
+      sizes[cell] = 1;
+      next[seeds[cell]] = -1;
+      heads[cell] = seeds[cell];
+      tails[cell] = seeds[cell];
+    }
+
+    // Expand each cell by one station per round
+    boolean growing = true;
+    while (growing) {
+      growing = false;
+      for (int cell = 0; cell < cellCount; cell++) {
+        if (heads[cell] < 0 || sizes[cell] >= capacity) {
+          continue;
+        }
+
+        growing = true;
+        int station = heads[cell];
+        heads[cell] = next[station];
+
+        int degree = graph.getEdges(station, targets, durations);
+        for (int j = 0; j < degree && sizes[cell] < capacity; j++) {
+          int target = targets[j];
+          if (cells[target] >= 0) {
+            continue;
+          }
+
+          // Assign and queue the neighbour
+          cells[target] = cell;
+          sizes[cell]++;
+          next[target] = -1;
+          if (heads[cell] < 0) {
+            heads[cell] = target;
+          } else {
+            next[tails[cell]] = target;
+          }
+          tails[cell] = target;
+        }
+      }
+    }
+
+    // Hand any stations left over to the smallest cell
+    for (int station = 0; station < size; station++) {
+      if (cells[station] < 0) {
+        int smallest = 0;
+        for (int cell = 1; cell < cellCount; cell++) {
+          if (sizes[cell] < sizes[smallest]) {
+            smallest = cell;
+          }
+        }
+
+        cells[station] = smallest;
+        sizes[smallest]++;
+      }
+    }
+
+    return sizes;
+  }
+
+  /**
+   * Moves stations into the neighbouring cell which holds most of their
+   * neighbours, reducing the number of edges between cells.
+   * @param graph Graph being partitioned.
+   * @param cells Cell of each station.
+   * @param sizes Size of each cell.
+   */
+  private static void refine(StationGraph graph, int[] cells, int[] sizes) {
+    // Init
+    int size = graph.getStationCount();
+    int limit = (int) Math.ceil(IMBALANCE * size / sizes.length);
+    int[] counts = new int[sizes.length];
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+
+    for (int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+      boolean moved = false;
+
+      for (int station = 0; station < size; station++) {
+        int own = cells[station];
+        int degree = graph.getEdges(station, targets, durations);
+
+        // Count neighbours per cell
+        for (int j = 0; j < degree; j++) {
+          counts[cells[targets[j]]]++;
+        }
+
+        // Find the best cell with room to spare
+        int best = own;
+        for (int j = 0; j < degree; j++) {
+          int cell = cells[targets[j]];
+          if (counts[cell] > counts[best] && sizes[cell] < limit) {
+            best = cell;
+          }
+        }
+
+        for (int j = 0; j < degree; j++) {
+          counts[cells[targets[j]]] = 0;
+        }
+
+        if (best != own && sizes[own] > 1) {
+          cells[station] = best;
+          sizes[own]--;
+          sizes[best]++;
+          moved = true;
+        }
+      }
+
+      if (!moved) {
+        break;
+      }
+    }
+  }
+
+  /**
+   * Groups stations by cell, and finds boundary stations.
+   * @param graph Partitioned graph.
+   * @param cells Cell of each station.
+   * @param cellCount Number of cells.
+   * @return A partition.
+   */
+  private static Partition createPartition(StationGraph graph, int[] cells,
+      int cellCount) {
+    // Init
+    int size = graph.getStationCount();
+    int[] sizes = new int[cellCount];
+    boolean[] boundary = new boolean[size];
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+
+    // Mark both ends of every edge between cells
+    for (int station = 0; station < size; station++) {
+      sizes[cells[station]]++;
+
+      int degree = graph.getEdges(station, targets, durations);
+      for (int j = 0; j < degree; j++) {
+        if (cells[targets[j]] != cells[station]) {
+          boundary[station] = true;
+          boundary[targets[j]] = true;
+        }
+      }
+    }
+
+    // Group stations by cell, in ascending order
+    int[][] cellStations = new int[cellCount][];
+    for (int cell = 0; cell < cellCount; cell++) {
+      cellStations[cell] = new int[sizes[cell]];
+      sizes[cell] = 0;
+    }
+
+    for (int station = 0; station < size; station++) {
+      int cell = cells[station];
+      cellStations[cell][sizes[cell]++] = station;
+    }
+
+    return new Partition(cells, cellStations, boundary);
+  }
+}
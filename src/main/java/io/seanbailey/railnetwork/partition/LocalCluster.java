@@ -0,0 +1,66 @@
+package io.seanbailey.railnetwork.partition;
+
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+
+/**
+ * Runs a coordinator and one worker per cell inside a single process, with
+ * the workers listening on loopback sockets.
+ *
+ * <p>
+ * This exercises exactly the same protocol as separate worker processes (see
+ * @link{io.seanbailey.railnetwork.partition.PartitionWorker#main}), which makes
+ * it convenient for testing on a single machine.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class LocalCluster implements Closeable {
+
+  private final PartitionWorker[] workers;
+  private final PartitionCoordinator coordinator;
+
+  /**
+   * Partitions a graph, and starts a worker for each cell.
+   * @param graph Graph to partition.
+   * @param cellCount Number of cells.
+   * @throws IOException if a worker socket cannot be opened.
+   */
+  public LocalCluster(StationGraph graph, int cellCount) throws IOException {
+    Partition partition = new GraphPartitioner().partition(graph, cellCount);
+    Overlay overlay = new Overlay(graph, partition);
+    DaemonThreadFactory threads = new DaemonThreadFactory("partition-worker");
+
+    workers = new PartitionWorker[cellCount];
+    InetSocketAddress[] addresses = new InetSocketAddress[cellCount];
+    for (int cell = 0; cell < cellCount; cell++) {
+      ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      addresses[cell] = new InetSocketAddress(server.getInetAddress(), server.getLocalPort());
+      workers[cell] = new PartitionWorker(graph, partition, cell, server);
+      threads.newThread(workers[cell]).start();
+    }
+
+    coordinator = new PartitionCoordinator(graph, partition, overlay, addresses);
+  }
+
+  /**
+   * Stops the coordinator and every worker.
+   * @throws IOException if a socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    coordinator.close();
+    for (PartitionWorker worker : workers) {
+      worker.close();
+    }
+  }
+
+  public PartitionCoordinator getCoordinator() {
+    return coordinator;
+  }
+}
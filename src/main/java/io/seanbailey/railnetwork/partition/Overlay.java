@@ -0,0 +1,219 @@
+package io.seanbailey.railnetwork.partition;
+
+import io.seanbailey.railnetwork.graph.GraphBuilder;
+import io.seanbailey.railnetwork.graph.ShortestPathSearch;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * A CRP style overlay graph, which summarises a partitioned graph using only
+ * its boundary stations.
+ *
+ * <p>
+ * Each cell contributes a clique: the shortest distance between every pair of
+ * its boundary stations, travelling only inside the cell. Cliques are stored
+ * as dense row-major matrices. The overlay also keeps every edge between two
+ * cells. Together these preserve shortest distances between boundary
+ * stations, so a query only has to search inside the origin and destination
+ * cells and then across the overlay.
+ * </p>
+ *
+ * <p>
+ * Overlay ids are grouped by cell: the boundary stations of cell c have
+ * overlay ids [getCellOffset(c), getCellOffset(c + 1)), in ascending station
+ * order.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class Overlay {
+
+  private final int[] overlayIds;     // Overlay id of each station, or -1
+  private final int[] stations;       // Station of each overlay id
+  private final int[] cells;          // Cell of each overlay id
+  private final int[] cellOffsets;    // First overlay id of each cell
+  private final int[][] cliques;      // Boundary distance matrix of each cell
+  private final int[] cutOffsets;     // Start of each overlay id's cut edges
+  private final int[] cutTargets;     // Overlay id at the end of each cut edge
+  private final int[] cutDurations;   // Duration of each cut edge
+
+  /**
+   * Precomputes the overlay of a partitioned graph. Cliques are computed for
+   * several cells in parallel.
+   * @param graph Graph which was partitioned.
+   * @param partition Partition of the graph.
+   */
+  public Overlay(StationGraph graph, Partition partition) {
+    int size = graph.getStationCount();
+    int cellCount = partition.getCellCount();
+    overlayIds = new int[size];
+    Arrays.fill(overlayIds, -1);
+
+    // Number boundary stations, cell by cell
+    cellOffsets = new int[cellCount + 1];
+    for (int cell = 0; cell < cellCount; cell++) {
+      cellOffsets[cell + 1] = cellOffsets[cell];
+      for (int station : partition.getCellStations(cell)) {
+        if (partition.isBoundary(station)) {
+          overlayIds[station] = cellOffsets[cell + 1]++;
+        }
+      }
+    }
+
+    stations = new int[cellOffsets[cellCount]];
+    cells = new int[cellOffsets[cellCount]];
+    for (int station = 0; station < size; station++) {
+      if (overlayIds[station] >= 0) {
+        stations[overlayIds[station]] = station;
+        cells[overlayIds[station]] = partition.getCell(station);
+      }
+    }
+
+    // Compute cliques
+    cliques = new int[cellCount][];
+    IntStream.range(0, cellCount).parallel().forEach(cell ->
+        cliques[cell] = computeClique(graph, partition, cell)
+    );
+
+    // Collect edges between cells
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    cutOffsets = new int[stations.length + 1];
+    for (int id = 0; id < stations.length; id++) {
+      int degree = graph.getEdges(stations[id], targets, durations);
+      int count = 0;
+      for (int j = 0; j < degree; j++) {
+        if (partition.getCell(targets[j]) != cells[id]) {
+          count++;
+        }
+      }
+
+      cutOffsets[id + 1] = cutOffsets[id] + count;
+    }
+
+    cutTargets = new int[cutOffsets[stations.length]];
+    cutDurations = new int[cutOffsets[stations.length]];
+    for (int id = 0; id < stations.length; id++) {
+      int edge = cutOffsets[id];
+      int degree = graph.getEdges(stations[id], targets, durations);
+      for (int j = 0; j < degree; j++) {
+        if (partition.getCell(targets[j]) != cells[id]) {
+          cutTargets[edge] = overlayIds[targets[j]];
+          cutDurations[edge] = durations[j];
+          edge++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the distances between every pair of boundary stations in a cell,
+   * travelling only inside that cell.
+   * @param graph Graph which was partitioned.
+   * @param partition Partition of the graph.
+   * @param cell Cell id.
+   * @return A row-major distance matrix, with Integer.MAX_VALUE for pairs
+   *         which cannot reach each other.
+   */
+  private int[] computeClique(StationGraph graph, Partition partition,
+      int cell) {
+    // Init
+    int[] cellStations = partition.getCellStations(cell);
+    int first = cellOffsets[cell];
+    int count = cellOffsets[cell + 1] - first;
+    int[] clique = new int[count * count];
+    if (count == 0) {
+      return clique;
+    }
+
+    StationGraph subgraph = new GraphBuilder().subgraph(graph, cellStations);
+    ShortestPathSearch search = new ShortestPathSearch(subgraph);
+
+    // Search from each boundary station in turn
+    for (int i = 0; i < count; i++) {
+      search.reset();
+      search.addSource(Arrays.binarySearch(cellStations, stations[first + i]), 0);
+      search.searchAll();
+
+      for (int j = 0; j < count; j++) {
+        int local = Arrays.binarySearch(cellStations, stations[first + j]);
+        clique[i * count + j] = search.getDistance(local);
+      }
+    }
+
+    return clique;
+  }
+
+  /**
+   * @param station Station id.
+   * @return The station's overlay id, or -1 if it is not a boundary station.
+   */
+  public int getOverlayId(int station) {
+    return overlayIds[station];
+  }
+
+  /**
+   * @param id Overlay id.
+   * @return The station with that overlay id.
+   */
+  public int getStation(int id) {
+    return stations[id];
+  }
+
+  /**
+   * @param id Overlay id.
+   * @return The cell of the boundary station.
+   */
+  public int getCell(int id) {
+    return cells[id];
+  }
+
+  /**
+   * @param cell Cell id.
+   * @return The first overlay id of the cell's boundary stations.
+   */
+  public int getCellOffset(int cell) {
+    return cellOffsets[cell];
+  }
+
+  /**
+   * @param cell Cell id.
+   * @return The cell's boundary distance matrix.
+   */
+  public int[] getClique(int cell) {
+    return cliques[cell];
+  }
+
+  /**
+   * @param id Overlay id.
+   * @return The start of the station's edges to other cells. They end at
+   *         getCutOffset(id + 1).
+   */
+  public int getCutOffset(int id) {
+    return cutOffsets[id];
+  }
+
+  /**
+   * @param edge Cut edge index.
+   * @return The overlay id at the end of the edge.
+   */
+  public int getCutTarget(int edge) {
+    return cutTargets[edge];
+  }
+
+  /**
+   * @param edge Cut edge index.
+   * @return The duration of the edge.
+   */
+  public int getCutDuration(int edge) {
+    return cutDurations[edge];
+  }
+
+  /**
+   * @return The number of boundary stations in the overlay.
+   */
+  public int size() {
+    return stations.length;
+  }
+}
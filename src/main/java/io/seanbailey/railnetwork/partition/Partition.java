@@ -0,0 +1,76 @@
+package io.seanbailey.railnetwork.partition;
+
+/**
+ * An assignment of every station in a graph to one of several cells.
+ *
+ * <p>
+ * A boundary station is one with an edge to or from a station in another
+ * cell.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ * @see io.seanbailey.railnetwork.partition.GraphPartitioner
+ */
+public class Partition {
+
+  private final int[] cells;
+  private final int[][] cellStations;
+  private final boolean[] boundary;
+
+  /**
+   * Constructs a new partition.
+   * @param cells Cell of each station.
+   * @param cellStations Stations of each cell, in ascending order.
+   * @param boundary Whether each station is a boundary station.
+   */
+  Partition(int[] cells, int[][] cellStations, boolean[] boundary) {
+    this.cells = cells;
+    this.cellStations = cellStations;
+    this.boundary = boundary;
+  }
+
+  /**
+   * @param station Station id.
+   * @return The cell the station belongs to.
+   */
+  public int getCell(int station) {
+    return cells[station];
+  }
+
+  /**
+   * @param cell Cell id.
+   * @return Stations in the cell, in ascending order.
+   */
+  public int[] getCellStations(int cell) {
+    return cellStations[cell];
+  }
+
+  /**
+   * @param station Station id.
+   * @return Whether the station has an edge to or from another cell.
+   */
+  public boolean isBoundary(int station) {
+    return boundary[station];
+  }
+
+  /**
+   * @return The number of cells.
+   */
+  public int getCellCount() {
+    return cellStations.length;
+  }
+
+  /**
+   * @return The number of boundary stations across all cells.
+   */
+  public int getBoundaryCount() {
+    int count = 0;
+    for (boolean value : boundary) {
+      if (value) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+}
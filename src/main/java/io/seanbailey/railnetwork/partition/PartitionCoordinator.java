@@ -0,0 +1,355 @@
+package io.seanbailey.railnetwork.partition;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.IntMinHeap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Answers shortest distance queries on a partitioned graph, using one
+ * @link{io.seanbailey.railnetwork.partition.PartitionWorker} per cell.
+ *
+ * <p>
+ * A query runs in three steps:
+ * <ol>
+ *   <li>The workers of the origin's cells search forwards from the origin to
+ *   their boundary stations (and to the destination, if it shares a
+ *   cell).</li>
+ *   <li>The workers of the destination's cells search backwards from the
+ *   destination to their boundary stations.</li>
+ *   <li>The coordinator joins these with Dijkstra's algorithm over the
+ *   @link{io.seanbailey.railnetwork.partition.Overlay}.</li>
+ * </ol>
+ * All worker requests are sent before any reply is read, so the workers
+ * search in parallel. Only distances are returned; expanding the full
+ * station sequence would need a further request per cell on the path.
+ * </p>
+ *
+ * <p>
+ * The coordinator only reads the name index of the graph it is given. It
+ * never searches the graph itself.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class PartitionCoordinator implements Closeable {
+
+  private final StationGraph graph;
+  private final Partition partition;
+  private final Overlay overlay;
+  private final InetSocketAddress[] workers;
+  private final List<Queue<WorkerConnection>> connections = new ArrayList<>();
+
+  /**
+   * Constructs a new coordinator. Connections to workers are opened as they
+   * are needed, and reused afterwards.
+   * @param graph Graph which was partitioned.
+   * @param partition Partition of the graph.
+   * @param overlay Overlay of the partition.
+   * @param workers Address of the worker for each cell.
+   */
+  public PartitionCoordinator(StationGraph graph, Partition partition,
+      Overlay overlay, InetSocketAddress[] workers) {
+    this.graph = graph;
+    this.partition = partition;
+    this.overlay = overlay;
+    this.workers = workers;
+
+    for (int cell = 0; cell < workers.length; cell++) {
+      connections.add(new ConcurrentLinkedQueue<>());
+    }
+  }
+
+  /**
+   * Finds the length of the shortest path between two stations.
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return Travel time in minutes, or -1 if there is no route.
+   * @throws ValidationException if the origin or destination are invalid.
+   * @throws IOException if a worker cannot be reached.
+   */
+  public int findDistance(String origin, String destination)
+      throws ValidationException, IOException {
+    // Step 0: Validate
+    if (origin.equals(destination))
+      throw new ValidationException("Origin and destination cannot be the same.");
+
+    int[] origins = findStations("Origin", origin);
+    int[] destinations = findStations("Destination", destination);
+
+    // Step 1 and 2: Ask the origin and destination cells to search
+    List<Request> forward = new ArrayList<>();
+    List<Request> backward = new ArrayList<>();
+    int best = Integer.MAX_VALUE;
+    int[] distances = new int[overlay.size()];
+    int[] remaining = new int[overlay.size()];
+    Arrays.fill(distances, Integer.MAX_VALUE);
+    Arrays.fill(remaining, Integer.MAX_VALUE);
+
+    try {
+      for (int cell : cellsOf(origins)) {
+        int[] sources = inCell(origins, cell);
+        int[] targets = concat(boundariesOf(cell), inCell(destinations, cell));
+        forward.add(send(cell, PartitionWorker.FORWARD, sources, targets));
+      }
+
+      for (int cell : cellsOf(destinations)) {
+        backward.add(send(cell, PartitionWorker.BACKWARD, inCell(destinations, cell), boundariesOf(cell)));
+      }
+
+      // Collect replies
+      for (Request request : forward) {
+        int[] reply = request.receive();
+        for (int i = 0; i < reply.length; i++) {
+          int id = overlay.getOverlayId(request.targets[i]);
+          if (i < request.boundaryCount) {
+            distances[id] = Math.min(distances[id], reply[i]);
+          } else {
+            best = Math.min(best, reply[i]);
+          }
+        }
+      }
+
+      for (Request request : backward) {
+        int[] reply = request.receive();
+        for (int i = 0; i < reply.length; i++) {
+          int id = overlay.getOverlayId(request.targets[i]);
+          remaining[id] = Math.min(remaining[id], reply[i]);
+        }
+      }
+    } finally {
+      // Unread replies would be read by the next query, so drop their connections
+      abandon(forward);
+      abandon(backward);
+    }
+
+    // Step 3: Search the overlay
+    best = searchOverlay(distances, remaining, best);
+    return best < Integer.MAX_VALUE ? best : -1;
+  }
+
+  /**
+   * Closes the connection of every request which has not been answered.
+   * @param requests Requests to check.
+   */
+  private static void abandon(List<Request> requests) {
+    for (Request request : requests) {
+      if (!request.received) {
+        try {
+          request.connection.close();
+        } catch (IOException exception) {
+          // Connection is discarded either way
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs Dijkstra's algorithm over the overlay.
+   * @param distances Initial distance to each boundary station.
+   * @param remaining Distance from each boundary station to the destination.
+   * @param best Best distance found so far.
+   * @return The shortest distance to the destination.
+   */
+  private int searchOverlay(int[] distances, int[] remaining, int best) {
+    IntMinHeap heap = new IntMinHeap(overlay.size());
+    for (int id = 0; id < distances.length; id++) {
+      if (distances[id] < Integer.MAX_VALUE) {
+        heap.push(id, distances[id]);
+      }
+    }
+
+    while (!heap.isEmpty()) {
+      int id = heap.pop();
+      int distance = distances[id];
+
+      // Nothing left can improve on the best route
+      if (distance >= best) {
+        break;
+      }
+
+      if (remaining[id] < Integer.MAX_VALUE) {
+        best = Math.min(best, distance + remaining[id]);
+      }
+
+      // Relax the cell's clique
+      int cell = overlay.getCell(id);
+      int first = overlay.getCellOffset(cell);
+      int count = overlay.getCellOffset(cell + 1) - first;
+      int[] clique = overlay.getClique(cell);
+      int row = (id - first) * count;
+      for (int j = 0; j < count; j++) {
+        int weight = clique[row + j];
+        if (weight < Integer.MAX_VALUE && distance + weight < distances[first + j]) {
+          distances[first + j] = distance + weight;
+          heap.push(first + j, distances[first + j]);
+        }
+      }
+
+      // Relax edges to other cells
+      for (int edge = overlay.getCutOffset(id); edge < overlay.getCutOffset(id + 1); edge++) {
+        int target = overlay.getCutTarget(edge);
+        int candidate = distance + overlay.getCutDuration(edge);
+        if (candidate < distances[target]) {
+          distances[target] = candidate;
+          heap.push(target, candidate);
+        }
+      }
+    }
+
+    return best;
+  }
+
+  /**
+   * Finds every station with the given name.
+   * @param name Human friendly name for the value.
+   * @param value Actual entered value.
+   * @return Station ids.
+   * @throws ValidationException if no station has that name.
+   */
+  private int[] findStations(String name, String value)
+      throws ValidationException {
+    int id = graph.getNames().getId(value);
+    if (id < 0) {
+      throw new ValidationException("%s '%s' not found.", name, value);
+    }
+
+    int start = graph.getNameOffset(id);
+    int[] stations = new int[graph.getNameOffset(id + 1) - start];
+    for (int i = 0; i < stations.length; i++) {
+      stations[i] = graph.getNameStation(start + i);
+    }
+
+    return stations;
+  }
+
+  /**
+   * @param stations Station ids.
+   * @return The distinct cells of the given stations.
+   */
+  private int[] cellsOf(int[] stations) {
+    return Arrays.stream(stations).map(partition::getCell).distinct().toArray();
+  }
+
+  /**
+   * @param stations Station ids.
+   * @param cell Cell id.
+   * @return The given stations which lie in the cell.
+   */
+  private int[] inCell(int[] stations, int cell) {
+    return Arrays.stream(stations).filter(station -> partition.getCell(station) == cell).toArray();
+  }
+
+  /**
+   * @param cell Cell id.
+   * @return The boundary stations of the cell.
+   */
+  private int[] boundariesOf(int cell) {
+    int first = overlay.getCellOffset(cell);
+    int[] stations = new int[overlay.getCellOffset(cell + 1) - first];
+    for (int i = 0; i < stations.length; i++) {
+      stations[i] = overlay.getStation(first + i);
+    }
+
+    return stations;
+  }
+
+  /**
+   * @param first First array.
+   * @param second Second array.
+   * @return The first array followed by the second.
+   */
+  private static int[] concat(int[] first, int[] second) {
+    int[] result = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  /**
+   * Sends a request to the worker of a cell.
+   * @param cell Cell id.
+   * @param direction Search direction.
+   * @param sources Source stations.
+   * @param targets Target stations. Boundary stations must come first.
+   * @return The outstanding request.
+   * @throws IOException if the worker cannot be reached.
+   */
+  private Request send(int cell, int direction, int[] sources, int[] targets)
+      throws IOException {
+    WorkerConnection connection = connections.get(cell).poll();
+    if (connection == null) {
+      connection = new WorkerConnection(workers[cell]);
+    }
+
+    try {
+      connection.send(direction, sources, sources.length, targets, targets.length);
+    } catch (IOException exception) {
+      connection.close();
+      throw exception;
+    }
+    return new Request(cell, connection, targets);
+  }
+
+  /**
+   * Closes every idle connection.
+   * @throws IOException if a connection cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    for (Queue<WorkerConnection> queue : connections) {
+      WorkerConnection connection;
+      while ((connection = queue.poll()) != null) {
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * A request which has been sent to a worker, but not yet answered.
+   */
+  private class Request {
+
+    private final int cell;
+    private final WorkerConnection connection;
+    private final int[] targets;
+    private final int boundaryCount;
+    private boolean received = false;
+
+    /**
+     * Constructs a new request.
+     * @param cell Cell the request was sent to.
+     * @param connection Connection the request was sent on.
+     * @param targets Target stations.
+     */
+    Request(int cell, WorkerConnection connection, int[] targets) {
+      this.cell = cell;
+      this.connection = connection;
+      this.targets = targets;
+      this.boundaryCount = overlay.getCellOffset(cell + 1) - overlay.getCellOffset(cell);
+    }
+
+    /**
+     * Reads the reply, and returns the connection for reuse.
+     * @return The distance to each target.
+     * @throws IOException if the reply cannot be read.
+     */
+    int[] receive() throws IOException {
+      try {
+        int[] reply = connection.receive();
+        received = true;
+        connections.get(cell).offer(connection);
+        return reply;
+      } catch (IOException exception) {
+        connection.close();
+        throw exception;
+      }
+    }
+  }
+}
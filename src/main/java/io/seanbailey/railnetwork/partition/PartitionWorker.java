@@ -0,0 +1,209 @@
+package io.seanbailey.railnetwork.partition;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.GraphBuilder;
+import io.seanbailey.railnetwork.graph.ShortestPathSearch;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Serves searches inside a single cell of a partitioned graph over a local
+ * socket.
+ *
+ * <p>
+ * A worker only keeps the subgraph of its own cell, plus its reverse. Each
+ * request names a direction, a set of source stations with initial offsets
+ * and a set of target stations, all as global station ids. The worker
+ * searches inside its cell and replies with the distance to each target.
+ * </p>
+ *
+ * <p>
+ * Requests are a sequence of big endian ints:
+ * <code>direction, sourceCount, (station, offset)*, targetCount, station*</code>.
+ * Replies are <code>targetCount, distance*</code>, where unreachable targets
+ * (including any outside the cell) have a distance of Integer.MAX_VALUE.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class PartitionWorker implements Runnable, Closeable {
+
+  private static final Logger logger = new Logger();
+
+  // Search directions
+  static final int FORWARD = 0;
+  static final int BACKWARD = 1;
+
+  private final int[] stations;
+  private final StationGraph forward;
+  private final StationGraph backward;
+  private final ServerSocket server;
+
+  /**
+   * Constructs a new worker. Call @link{#run} (typically on its own thread)
+   * to start accepting connections.
+   * @param graph Graph which was partitioned.
+   * @param partition Partition of the graph.
+   * @param cell Cell this worker serves.
+   * @param server Socket to accept connections on.
+   */
+  public PartitionWorker(StationGraph graph, Partition partition, int cell,
+      ServerSocket server) {
+    GraphBuilder builder = new GraphBuilder();
+    this.stations = partition.getCellStations(cell);
+    this.forward = builder.subgraph(graph, stations);
+    this.backward = builder.reverse(forward);
+    this.server = server;
+  }
+
+  /**
+   * Accepts connections until the worker is closed. Each connection is served
+   * on its own thread.
+   */
+  @Override
+  public void run() {
+    DaemonThreadFactory threads = new DaemonThreadFactory("partition-connection");
+
+    try {
+      while (true) {
+        Socket socket = server.accept();
+        threads.newThread(() -> serve(socket)).start();
+      }
+    } catch (IOException exception) {
+      // Server socket was closed
+    }
+  }
+
+  /**
+   * Answers requests on a connection until it is closed.
+   * @param socket Connected socket.
+   */
+  private void serve(Socket socket) {
+    ShortestPathSearch forwardSearch = new ShortestPathSearch(forward);
+    ShortestPathSearch backwardSearch = new ShortestPathSearch(backward);
+
+    try (Socket connection = socket) {
+      connection.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(connection.getInputStream())
+      );
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(connection.getOutputStream())
+      );
+
+      while (true) {
+        int direction;
+        try {
+          direction = in.readInt();
+        } catch (EOFException exception) {
+          return;
+        }
+
+        ShortestPathSearch search = direction == BACKWARD ? backwardSearch : forwardSearch;
+        answer(search, in, out);
+        out.flush();
+      }
+    } catch (IOException exception) {
+      logger.error("Partition connection failed. %s", exception.getMessage());
+    }
+  }
+
+  /**
+   * Reads the rest of a request, runs the search and writes the reply.
+   * @param search Search to run.
+   * @param in Request stream.
+   * @param out Reply stream.
+   * @throws IOException if either stream fails.
+   */
+  private void answer(ShortestPathSearch search, DataInputStream in,
+      DataOutputStream out) throws IOException {
+    search.reset();
+
+    // Read sources
+    int sourceCount = in.readInt();
+    for (int i = 0; i < sourceCount; i++) {
+      int local = toLocal(in.readInt());
+      int offset = in.readInt();
+      if (local >= 0) {
+        search.addSource(local, offset);
+      }
+    }
+
+    search.searchAll();
+
+    // Write the distance to each target
+    int targetCount = in.readInt();
+    out.writeInt(targetCount);
+    for (int i = 0; i < targetCount; i++) {
+      int local = toLocal(in.readInt());
+      out.writeInt(local < 0 ? Integer.MAX_VALUE : search.getDistance(local));
+    }
+  }
+
+  /**
+   * @param station Global station id.
+   * @return The station's id within this cell, or -1 if it is elsewhere.
+   */
+  private int toLocal(int station) {
+    int local = Arrays.binarySearch(stations, station);
+    return local < 0 ? -1 : local;
+  }
+
+  /**
+   * Stops accepting connections.
+   * @throws IOException if the socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    server.close();
+  }
+
+  /**
+   * Runs a worker as its own process.
+   *
+   * <p>
+   * Usage: <code>PartitionWorker &lt;dataFile&gt; &lt;cells&gt; &lt;cell&gt;
+   * &lt;port&gt;</code>. Every worker and the coordinator must use the same
+   * data file and number of cells, since they each partition the network
+   * themselves.
+   * </p>
+   *
+   * @param args An array of command line args from STDIN.
+   */
+  public static void main(String[] args) {
+    if (args.length < 4) {
+      logger.error("Usage: PartitionWorker <dataFile> <cells> <cell> <port>");
+      return;
+    }
+
+    try {
+      StationGraph graph = new NetworkLoader().load(args[0]).getGraph();
+      Partition partition = new GraphPartitioner()
+          .partition(graph, Integer.parseInt(args[1]));
+      ServerSocket server = new ServerSocket(
+          Integer.parseInt(args[3]), 50, InetAddress.getLoopbackAddress()
+      );
+
+      logger.info("Serving cell %s on port %d.", args[2], server.getLocalPort());
+      new PartitionWorker(graph, partition, Integer.parseInt(args[2]), server).run();
+    } catch (ValidationException | ParseException exception) {
+      logger.error(exception.getMessage());
+    } catch (IOException | NumberFormatException exception) {
+      logger.error("Could not start worker. %s", exception.getMessage());
+    }
+  }
+}
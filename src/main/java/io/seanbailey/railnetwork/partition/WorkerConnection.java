@@ -0,0 +1,86 @@
+package io.seanbailey.railnetwork.partition;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * A client connection to a @link{io.seanbailey.railnetwork.partition.PartitionWorker}.
+ *
+ * <p>
+ * Requests can be sent before earlier replies have been read, so one
+ * connection can have a request in flight while the caller talks to other
+ * workers.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+class WorkerConnection implements Closeable {
+
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  /**
+   * Connects to a worker.
+   * @param address Address of the worker.
+   * @throws IOException if the worker cannot be reached.
+   */
+  WorkerConnection(InetSocketAddress address) throws IOException {
+    socket = new Socket();
+    socket.connect(address);
+    socket.setTcpNoDelay(true);
+    in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+  }
+
+  /**
+   * Sends a search request.
+   * @param direction Search direction.
+   * @param sources Source stations.
+   * @param sourceCount Number of sources.
+   * @param targets Target stations.
+   * @param targetCount Number of targets.
+   * @throws IOException if the request cannot be sent.
+   */
+  void send(int direction, int[] sources, int sourceCount, int[] targets,
+      int targetCount) throws IOException {
+    out.writeInt(direction);
+    out.writeInt(sourceCount);
+    for (int i = 0; i < sourceCount; i++) {
+      out.writeInt(sources[i]);
+      out.writeInt(0);
+    }
+
+    out.writeInt(targetCount);
+    for (int i = 0; i < targetCount; i++) {
+      out.writeInt(targets[i]);
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Reads the reply to the oldest outstanding request.
+   * @return The distance to each target.
+   * @throws IOException if the reply cannot be read.
+   */
+  int[] receive() throws IOException {
+    int[] distances = new int[in.readInt()];
+    for (int i = 0; i < distances.length; i++) {
+      distances[i] = in.readInt();
+    }
+
+    return distances;
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+}
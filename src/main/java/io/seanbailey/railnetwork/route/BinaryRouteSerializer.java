@@ -0,0 +1,35 @@
+package io.seanbailey.railnetwork.route;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes routes in a compact binary format.
+ *
+ * <p>
+ * All integers are big endian. A route is written as:
+ * <ul>
+ *   <li>Total minutes (int), or -1 if there is no route.</li>
+ *   <li>Number of legs (int).</li>
+ *   <li>For each leg: origin, destination and line as length prefixed UTF-8
+ *   strings (an int length followed by the bytes), then minutes (int).</li>
+ * </ul>
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class BinaryRouteSerializer implements RouteSerializer {
+
+  @Override
+  public void write(Route route, OutputBuffer buffer) {
+    Leg[] legs = route.getLegs();
+    buffer.writeInt(route.getTotalMinutes());
+    buffer.writeInt(legs.length);
+
+    for (Leg leg : legs) {
+      buffer.writeString(leg.getOrigin());
+      buffer.writeString(leg.getDestination());
+      buffer.writeString(leg.getLine());
+      buffer.writeInt(leg.getMinutes());
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package io.seanbailey.railnetwork.route;
+
+import io.seanbailey.railnetwork.util.Dictionary;
+
+/**
+ * The result of a reachability query: every station that can be reached from
+ * an origin within a travel time budget.
+ *
+ * <p>
+ * Stations are identified by the dictionary ids of their names, and appear in
+ * order of increasing travel time. A station on several lines appears once,
+ * with its shortest travel time.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class Isochrone {
+
+  private final Dictionary names;
+  private final int[] nameIds;
+  private final int[] minutes;
+
+  /**
+   * Constructs a new isochrone.
+   * @param names Dictionary of station names.
+   * @param nameIds Name id of each reachable station.
+   * @param minutes Travel time to each reachable station.
+   */
+  public Isochrone(Dictionary names, int[] nameIds, int[] minutes) {
+    this.names = names;
+    this.nameIds = nameIds;
+    this.minutes = minutes;
+  }
+
+  /**
+   * @param index Index of a reachable station.
+   * @return The name of the station.
+   */
+  public String getName(int index) {
+    return names.get(nameIds[index]);
+  }
+
+  /**
+   * @return The number of reachable stations, including the origin.
+   */
+  public int size() {
+    return nameIds.length;
+  }
+
+  public int[] getNameIds() {
+    return nameIds;
+  }
+
+  public int[] getMinutes() {
+    return minutes;
+  }
+}
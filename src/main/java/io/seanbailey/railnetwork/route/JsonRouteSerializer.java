@@ -0,0 +1,82 @@
+package io.seanbailey.railnetwork.route;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes routes as a single JSON object.
+ * @author Sean Bailey c3279343
+ */
+public class JsonRouteSerializer implements RouteSerializer {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  @Override
+  public void write(Route route, OutputBuffer buffer) {
+    if (!route.isReachable()) {
+      buffer.append("{\"legs\":[],\"reachable\":false}");
+      return;
+    }
+
+    Leg[] legs = route.getLegs();
+    buffer.append("{\"legs\":[");
+
+    for (int i = 0; i < legs.length; i++) {
+      Leg leg = legs[i];
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      buffer.append("{\"origin\":");
+      writeString(leg.getOrigin(), buffer);
+      buffer.append(",\"destination\":");
+      writeString(leg.getDestination(), buffer);
+      buffer.append(",\"line\":");
+      writeString(leg.getLine(), buffer);
+      buffer.append(",\"minutes\":").append(leg.getMinutes()).append('}');
+    }
+
+    buffer.append("],\"totalMinutes\":").append(route.getTotalMinutes())
+        .append(",\"transfers\":").append(route.getTransfers())
+        .append('}');
+  }
+
+  /**
+   * Writes a quoted and escaped JSON string.
+   * @param value String to write.
+   * @param buffer Buffer to write to.
+   */
+  private static void writeString(String value, OutputBuffer buffer) {
+    buffer.append('"');
+
+    // Step by code point, so that surrogate pairs stay together
+    for (int i = 0; i < value.length(); ) {
+      int c = value.codePointAt(i);
+      i += Character.charCount(c);
+      switch (c) {
+        case '"':
+          buffer.append("\\\"");
+          break;
+        case '\\':
+          buffer.append("\\\\");
+          break;
+        case '\n':
+          buffer.append("\\n");
+          break;
+        case '\r':
+          buffer.append("\\r");
+          break;
+        case '\t':
+          buffer.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            buffer.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+          } else {
+            buffer.appendCodePoint(c);
+          }
+      }
+    }
+
+    buffer.append('"');
+  }
+}
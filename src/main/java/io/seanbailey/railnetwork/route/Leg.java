@@ -0,0 +1,58 @@
+package io.seanbailey.railnetwork.route;
+
+/**
+ * A single leg of a @link{io.seanbailey.railnetwork.route.Route}, travelled
+ * without changing lines.
+ * @author Sean Bailey c3279343
+ */
+public class Leg {
+
+  private final String origin;
+  private final String destination;
+  private final String line;
+  private final int minutes;
+
+  /**
+   * Constructs a new leg.
+   * @param origin Name of the station this leg starts at.
+   * @param destination Name of the station this leg ends at.
+   * @param line Line travelled on.
+   * @param minutes Minutes taken since the end of the previous leg, including
+   *                any time spent changing lines.
+   */
+  public Leg(String origin, String destination, String line, int minutes) {
+    this.origin = origin;
+    this.destination = destination;
+    this.line = line;
+    this.minutes = minutes;
+  }
+
+  /**
+   * @return a representation of this leg as a string.
+   */
+  @Override
+  public String toString() {
+    return "Leg{" +
+      "origin: " + origin +
+      ", destination: " + destination +
+      ", line: " + line +
+      ", minutes: " + minutes +
+      "}";
+  }
+
+  public String getOrigin() {
+    return origin;
+  }
+
+  public String getDestination() {
+    return destination;
+  }
+
+  public String getLine() {
+    return line;
+  }
+
+  public int getMinutes() {
+    return minutes;
+  }
+}
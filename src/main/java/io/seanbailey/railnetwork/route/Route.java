@@ -0,0 +1,62 @@
+package io.seanbailey.railnetwork.route;
+
+import java.util.Arrays;
+
+/**
+ * The result of a shortest path query. A route is made up of one
+ * @link{io.seanbailey.railnetwork.route.Leg} per line travelled on.
+ * @author Sean Bailey c3279343
+ */
+public class Route {
+
+  /**
+   * The result of a query between two stations which are not connected.
+   */
+  public static final Route UNREACHABLE = new Route(new Leg[0], -1);
+
+  private final Leg[] legs;
+  private final int totalMinutes;
+
+  /**
+   * Constructs a new route.
+   * @param legs Legs in the order they are travelled.
+   * @param totalMinutes Total travel time, in minutes.
+   */
+  public Route(Leg[] legs, int totalMinutes) {
+    this.legs = legs;
+    this.totalMinutes = totalMinutes;
+  }
+
+  /**
+   * @return a representation of this route as a string.
+   */
+  @Override
+  public String toString() {
+    return "Route{" +
+      "legs: " + Arrays.toString(legs) +
+      ", totalMinutes: " + totalMinutes +
+      "}";
+  }
+
+  /**
+   * @return Whether the destination can be reached at all.
+   */
+  public boolean isReachable() {
+    return totalMinutes >= 0;
+  }
+
+  /**
+   * @return The number of times the passenger has to change lines.
+   */
+  public int getTransfers() {
+    return Math.max(legs.length - 1, 0);
+  }
+
+  public Leg[] getLegs() {
+    return legs;
+  }
+
+  public int getTotalMinutes() {
+    return totalMinutes;
+  }
+}
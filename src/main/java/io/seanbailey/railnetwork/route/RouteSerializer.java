@@ -0,0 +1,24 @@
+package io.seanbailey.railnetwork.route;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes a @link{io.seanbailey.railnetwork.route.Route} into an output buffer
+ * in some format.
+ *
+ * <p>
+ * Implementations should write directly into the buffer, so that the same
+ * buffer can be reused across queries.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public interface RouteSerializer {
+
+  /**
+   * Appends the given route to a buffer.
+   * @param route Route to write.
+   * @param buffer Buffer to write to.
+   */
+  void write(Route route, OutputBuffer buffer);
+}
@@ -0,0 +1,44 @@
+package io.seanbailey.railnetwork.route;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+
+/**
+ * Writes routes as human readable instructions.
+ * @author Sean Bailey c3279343
+ */
+public class TextRouteSerializer implements RouteSerializer {
+
+  private static final String NEWLINE = System.lineSeparator();
+
+  @Override
+  public void write(Route route, OutputBuffer buffer) {
+    if (!route.isReachable()) {
+      buffer.append("There is no route between these stations.").append(NEWLINE);
+      return;
+    }
+
+    Leg[] legs = route.getLegs();
+
+    for (int i = 0; i < legs.length; i++) {
+      Leg leg = legs[i];
+
+      // First leg starts from the origin
+      if (i == 0) {
+        buffer.append("From ").append(leg.getOrigin())
+            .append(", take line ").append(leg.getLine())
+            .append(" to station ").append(leg.getDestination())
+            .append(NEWLINE);
+        continue;
+      }
+
+      buffer.append("then change line to ").append(leg.getLine())
+          .append(", and continue to ").append(leg.getDestination())
+          .append(NEWLINE);
+    }
+
+    buffer.append("The total trip will take approximately ")
+        .append(route.getTotalMinutes())
+        .append(" minutes.")
+        .append(NEWLINE);
+  }
+}
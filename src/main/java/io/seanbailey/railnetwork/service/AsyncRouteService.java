@@ -0,0 +1,228 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * An asynchronous front end to a
+ * @link{io.seanbailey.railnetwork.service.RouteService}.
+ *
+ * <p>
+ * Queries run on a bounded pool. Identical queries which arrive while one is
+ * already queued or running share its result rather than searching again.
+ * When the pool's queue is full, new queries fail straight away with a
+ * RejectedExecutionException, so that callers can back off instead of piling
+ * up work that would only finish late.
+ * </p>
+ *
+ * <p>
+ * A query is forgotten as soon as it completes, so later queries always run
+ * against the service's current snapshot.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class AsyncRouteService implements Closeable {
+
+  private final RouteService service;
+  private final ExecutorService executor;
+  private final ConcurrentMap<RouteQuery, CompletableFuture<Route>> inFlight =
+      new ConcurrentHashMap<>();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Constructs a new asynchronous service with its own pool.
+   * @param service Service to run queries on.
+   * @param threads Number of query threads.
+   * @param queueCapacity Number of queries which may wait for a thread.
+   */
+  public AsyncRouteService(RouteService service, int threads, int queueCapacity) {
+    this(service, new ThreadPoolExecutor(
+        threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        new DaemonThreadFactory("route-query")
+    ));
+  }
+
+  /**
+   * Constructs a new asynchronous service on an existing pool. The pool should
+   * have a bounded queue, and is shut down when this service is closed.
+   * @param service Service to run queries on.
+   * @param executor Pool to run queries on.
+   */
+  public AsyncRouteService(RouteService service, ExecutorService executor) {
+    this.service = service;
+    this.executor = executor;
+  }
+
+  /**
+   * Finds the shortest path between two stations in the background.
+   *
+   * <p>
+   * The future fails with a ValidationException if the origin or destination
+   * are invalid, or with a RejectedExecutionException if the service is too
+   * busy. Cancelling the returned future does not affect other callers which
+   * are waiting on the same query.
+   * </p>
+   *
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return A future which completes with the shortest route.
+   */
+  public CompletableFuture<Route> findShortestPath(String origin, String destination) {
+    RouteQuery query = new RouteQuery(origin, destination);
+    CompletableFuture<Route> future = new CompletableFuture<>();
+
+    // Join an identical query if one is already in flight
+    CompletableFuture<Route> existing = inFlight.putIfAbsent(query, future);
+    if (existing != null) {
+      coalesced.incrementAndGet();
+      return existing.thenApply(Function.identity());
+    }
+
+    try {
+      executor.execute(new QueryTask(query, future));
+    } catch (RejectedExecutionException exception) {
+      inFlight.remove(query, future);
+      future.completeExceptionally(exception);
+    }
+
+    return future.thenApply(Function.identity());
+  }
+
+  /**
+   * Finds the shortest path between two stations, waiting for the result.
+   * This shares the pool and in-flight queries of the asynchronous API.
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return The shortest route.
+   * @throws ValidationException if the origin or destination are invalid.
+   * @throws RejectedExecutionException if the service is too busy.
+   */
+  public Route awaitShortestPath(String origin, String destination)
+      throws ValidationException {
+    try {
+      return findShortestPath(origin, destination).join();
+    } catch (CompletionException exception) {
+      Throwable cause = exception.getCause();
+      if (cause instanceof ValidationException) {
+        throw (ValidationException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw exception;
+    }
+  }
+
+  /**
+   * Stops the pool. Queued queries are abandoned, and their futures fail with
+   * a CancellationException so that nobody waits on them forever.
+   */
+  @Override
+  public void close() {
+    for (Runnable task : executor.shutdownNow()) {
+      if (task instanceof QueryTask) {
+        ((QueryTask) task).future.completeExceptionally(
+            new CancellationException("Route service was closed.")
+        );
+      }
+    }
+
+    inFlight.clear();
+  }
+
+  /**
+   * @return The number of queries which are queued or running.
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * @return The number of queries which shared another query's result.
+   */
+  public long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  /**
+   * A queued query, which keeps its future so that it can be failed if the
+   * pool abandons it.
+   */
+  private class QueryTask implements Runnable {
+
+    private final RouteQuery query;
+    private final CompletableFuture<Route> future;
+
+    QueryTask(RouteQuery query, CompletableFuture<Route> future) {
+      this.query = query;
+      this.future = future;
+    }
+
+    /**
+     * Runs the query and publishes its result.
+     */
+    @Override
+    public void run() {
+      Route route = null;
+      Throwable failure = null;
+
+      try {
+        route = service.findShortestPath(query.origin, query.destination);
+      } catch (ValidationException | RuntimeException exception) {
+        failure = exception;
+      }
+
+      // Stop sharing before completing, so that nobody joins a finished query
+      inFlight.remove(query, future);
+      if (failure == null) {
+        future.complete(route);
+      } else {
+        future.completeExceptionally(failure);
+      }
+    }
+  }
+
+  /**
+   * An origin and destination pair, used to find identical queries.
+   */
+  private static class RouteQuery {
+
+    private final String origin;
+    private final String destination;
+
+    RouteQuery(String origin, String destination) {
+      this.origin = origin;
+      this.destination = destination;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (!(object instanceof RouteQuery)) {
+        return false;
+      }
+
+      RouteQuery query = (RouteQuery) object;
+      return origin.equals(query.origin) && destination.equals(query.destination);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * origin.hashCode() + destination.hashCode();
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.capture.QueryRecorder;
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.route.Isochrone;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Logger;
+import io.seanbailey.railnetwork.util.StringPool;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hosts several named networks in one process, and routes each query to its
+ * network by name.
+ *
+ * <p>
+ * Every network is served by its own
+ * @link{io.seanbailey.railnetwork.service.RouteService}, but they share:
+ * <ul>
+ *   <li>a string pool, so names which appear in several networks are only
+ *   kept once;</li>
+ *   <li>a single reloader thread, so reloads run one at a time across every
+ *   network;</li>
+ *   <li>a single watcher thread, for every network file;</li>
+ *   <li>a single query log, if queries are captured.</li>
+ * </ul>
+ * Searches run on the calling thread, and parallel searches on the common
+ * fork/join pool, so they are shared already.
+ * </p>
+ *
+ * <p>
+ * The first network added is the default network.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NetworkHost implements Closeable {
+
+  private static final Logger logger = new Logger();
+
+  private final StringPool strings = new StringPool();
+  private final NetworkLoader loader;
+  private final Map<String, RouteService> services = new ConcurrentHashMap<>();
+  private final List<String> order = new ArrayList<>();
+  private final ExecutorService reloader = Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory("network-reloader")
+  );
+  private NetworkWatcher watcher;
+  private QueryRecorder recorder;
+
+  /**
+   * Constructs a new host.
+   * @param loader Loader used for every network. It is set to use the host's
+   * string pool.
+   */
+  public NetworkHost(NetworkLoader loader) {
+    this.loader = loader.setStringPool(strings);
+  }
+
+  /**
+   * Loads a network, and starts serving it under the given name.
+   * @param name Name queries will use to select the network.
+   * @param path Path to the network file.
+   * @return The service for the network.
+   * @throws ValidationException if the name is taken, or the file or its
+   * contents are invalid.
+   * @throws ParseException if the file cannot be parsed.
+   */
+  public synchronized RouteService add(String name, String path)
+      throws ValidationException, ParseException {
+    if (services.containsKey(name)) {
+      throw new ValidationException("Network '%s' is already hosted.", name);
+    }
+
+    RouteService service = new RouteService(path, loader, reloader);
+    services.put(name, service);
+    order.add(name);
+    if (recorder != null) {
+      service.capture(recorder, name);
+    }
+    logger.info("Hosting network '%s' from '%s'.", name, path);
+
+    if (watcher != null) {
+      try {
+        service.watch(watcher);
+      } catch (IOException exception) {
+        logger.error("Could not watch '%s'. %s", path, exception.getMessage());
+      }
+    }
+
+    return service;
+  }
+
+  /**
+   * @param name Name of a network.
+   * @return The service for the network.
+   * @throws ValidationException if no network has that name.
+   */
+  public RouteService get(String name) throws ValidationException {
+    RouteService service = services.get(name);
+    if (service == null) {
+      throw new ValidationException("Network '%s' not found.", name);
+    }
+
+    return service;
+  }
+
+  /**
+   * @return The service for the first network added.
+   * @throws ValidationException if no networks are hosted.
+   */
+  public synchronized RouteService getDefault() throws ValidationException {
+    if (order.isEmpty()) {
+      throw new ValidationException("No networks are hosted.");
+    }
+
+    return services.get(order.get(0));
+  }
+
+  /**
+   * @param name Name of a network.
+   * @return Whether a network with that name is hosted.
+   */
+  public boolean contains(String name) {
+    return services.containsKey(name);
+  }
+
+  /**
+   * Finds the shortest path between two stations of a network.
+   * @param network Name of the network.
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return The shortest route.
+   * @throws ValidationException if the network, origin or destination are
+   * invalid.
+   */
+  public Route findShortestPath(String network, String origin,
+      String destination) throws ValidationException {
+    return get(network).findShortestPath(origin, destination);
+  }
+
+  /**
+   * Finds every station of a network reachable within a travel time budget.
+   * @param network Name of the network.
+   * @param origin Station name to start from.
+   * @param minutes Travel time budget, inclusive.
+   * @return Reachable stations and their travel times.
+   * @throws ValidationException if the network, origin or budget are invalid.
+   */
+  public Isochrone findReachable(String network, String origin, int minutes)
+      throws ValidationException {
+    return get(network).findReachable(origin, minutes);
+  }
+
+  /**
+   * Warms up every network in turn.
+   * @param warmUp Warm-up to run on each network.
+   */
+  public void warmUp(WarmUp warmUp) {
+    for (String name : getNetworkNames()) {
+      logger.info("Warming up network '%s'.", name);
+      services.get(name).warmUp(warmUp);
+    }
+  }
+
+  /**
+   * @return Whether every network has been warmed up.
+   */
+  public boolean isReady() {
+    for (RouteService service : services.values()) {
+      if (!service.isReady()) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Starts watching every network file, including those added later, on a
+   * single thread.
+   * @throws IOException if a file cannot be watched.
+   */
+  public synchronized void watch() throws IOException {
+    if (watcher != null) {
+      return;
+    }
+
+    watcher = new NetworkWatcher();
+    for (RouteService service : services.values()) {
+      service.watch(watcher);
+    }
+    new DaemonThreadFactory("network-watcher").newThread(watcher).start();
+  }
+
+  /**
+   * Captures the queries of every network, including those added later, to a
+   * single log.
+   * @param path Path to the query log, which is appended to.
+   * @throws IOException if the log cannot be opened.
+   */
+  public synchronized void capture(Path path) throws IOException {
+    if (recorder != null) {
+      return;
+    }
+
+    recorder = new QueryRecorder(path);
+    for (String name : order) {
+      services.get(name).capture(recorder, name);
+    }
+    logger.info("Capturing queries to '%s'.", path);
+  }
+
+  /**
+   * Stops every network, and the shared threads.
+   * @throws IOException if the watcher cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (RouteService service : services.values()) {
+      service.close();
+    }
+
+    reloader.shutdownNow();
+    if (watcher != null) {
+      watcher.close();
+    }
+    if (recorder != null) {
+      recorder.close();
+    }
+  }
+
+  /**
+   * @return Names of every hosted network, in the order they were added.
+   */
+  public synchronized List<String> getNetworkNames() {
+    return Collections.unmodifiableList(new ArrayList<>(order));
+  }
+
+  /**
+   * @return The string pool shared by every network.
+   */
+  public StringPool getStringPool() {
+    return strings;
+  }
+}
@@ -0,0 +1,141 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.util.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches network files, and runs a callback whenever one of them changes.
+ *
+ * <p>
+ * Files are often published in several writes, so callbacks only run once
+ * the files have been quiet for a short while. A single watcher, on a single
+ * thread, can watch any number of files.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class NetworkWatcher implements Runnable, Closeable {
+
+  private static final Logger logger = new Logger();
+
+  // How long a file must go unchanged before it is considered published
+  private static final long QUIET_MILLIS = 500;
+
+  private final Map<Path, Runnable> callbacks = new ConcurrentHashMap<>();
+  private final WatchService watchService;
+
+  /**
+   * Constructs a new watcher, without any files. Call @link{#run} (typically
+   * on its own thread) to start watching.
+   * @throws IOException if a watch service cannot be created.
+   */
+  public NetworkWatcher() throws IOException {
+    this.watchService = FileSystems.getDefault().newWatchService();
+  }
+
+  /**
+   * Constructs a new watcher for a single file.
+   * @param file File to watch.
+   * @param callback Callback to run when the file changes.
+   * @throws IOException if the file's directory cannot be watched.
+   */
+  public NetworkWatcher(Path file, Runnable callback) throws IOException {
+    this();
+    add(file, callback);
+  }
+
+  /**
+   * Starts watching another file.
+   * @param file File to watch.
+   * @param callback Callback to run when the file changes.
+   * @throws IOException if the file's directory cannot be watched.
+   */
+  public void add(Path file, Runnable callback) throws IOException {
+    Path absolute = file.toAbsolutePath();
+
+    // Watch the directory, since files are often replaced rather than edited.
+    // Registering a directory twice returns the same key.
+    absolute.getParent().register(
+        watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY
+    );
+    callbacks.put(absolute, callback);
+  }
+
+  /**
+   * Watches for changes until the watcher is closed.
+   */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        // Wait for a file to change, then for every file to settle
+        Set<Path> changed = new LinkedHashSet<>();
+        WatchKey key = watchService.take();
+        addChangedFiles(key, changed);
+
+        while (!changed.isEmpty()
+            && (key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+          addChangedFiles(key, changed);
+        }
+
+        for (Path file : changed) {
+          logger.debug("Network file %s changed.", file);
+
+          // One failing callback must not stop the others, or the watcher
+          try {
+            callbacks.get(file).run();
+          } catch (RuntimeException exception) {
+            logger.error("Could not handle change to %s. %s", file, exception);
+          }
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException exception) {
+      // Watcher was closed
+    }
+  }
+
+  /**
+   * Consumes the events of a key, and resets it.
+   * @param key Signalled watch key.
+   * @param changed Set to add every changed, watched file to.
+   */
+  private void addChangedFiles(WatchKey key, Set<Path> changed) {
+    Path directory = (Path) key.watchable();
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+      Object context = event.context();
+      if (context instanceof Path) {
+        Path file = directory.resolve((Path) context);
+        if (callbacks.containsKey(file)) {
+          changed.add(file);
+        }
+      }
+    }
+
+    key.reset();
+  }
+
+  /**
+   * Stops watching.
+   * @throws IOException if the watch service cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+}
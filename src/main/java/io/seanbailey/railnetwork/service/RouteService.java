@@ -0,0 +1,266 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.capture.QueryRecorder;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.route.Isochrone;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Logger;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A long running route service, which answers queries against the current
+ * snapshot of a network file and can reload that file without restarting.
+ *
+ * <p>
+ * Each @link{io.seanbailey.railnetwork.RailNetwork} is an immutable snapshot.
+ * Reloading builds a complete new snapshot in the background, then swaps it in
+ * with a single atomic write. Queries read the current snapshot once, without
+ * locking, so in-flight queries finish on the snapshot they started with while
+ * new queries see the new one. A replaced snapshot is only referenced by the
+ * queries still running on it, so it is reclaimed by the garbage collector
+ * (along with any off-heap memory) as soon as they drain.
+ * </p>
+ *
+ * <p>
+ * A new service answers queries straight away, but only reports itself ready
+ * once it has been warmed up. Callers which care about tail latency should
+ * wait for @link{#isReady} before sending it traffic.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class RouteService implements Closeable {
+
+  private static final Logger logger = new Logger();
+
+  private final String path;
+  private final NetworkLoader loader;
+  private final AtomicReference<RailNetwork> network = new AtomicReference<>();
+  private final ExecutorService reloader;
+  private final boolean sharedReloader;
+  private NetworkWatcher watcher;
+  private volatile boolean ready = false;
+  private volatile QueryRecorder recorder;
+  private volatile String name;
+
+  /**
+   * Constructs a new route service, loading the initial snapshot.
+   * @param path Path to the network file.
+   * @param loader Loader used for the initial snapshot and every reload.
+   * @throws ValidationException if the file or its contents are invalid.
+   * @throws ParseException if the file cannot be parsed.
+   */
+  public RouteService(String path, NetworkLoader loader)
+      throws ValidationException, ParseException {
+    this(path, loader, Executors.newSingleThreadExecutor(
+        new DaemonThreadFactory("network-reloader")
+    ), false);
+  }
+
+  /**
+   * Constructs a new route service, which reloads on a shared executor.
+   * @param path Path to the network file.
+   * @param loader Loader used for the initial snapshot and every reload.
+   * @param reloader Single threaded executor to reload on, which is not shut
+   * down when this service is closed.
+   * @throws ValidationException if the file or its contents are invalid.
+   * @throws ParseException if the file cannot be parsed.
+   */
+  public RouteService(String path, NetworkLoader loader,
+      ExecutorService reloader) throws ValidationException, ParseException {
+    this(path, loader, reloader, true);
+  }
+
+  private RouteService(String path, NetworkLoader loader,
+      ExecutorService reloader, boolean sharedReloader)
+      throws ValidationException, ParseException {
+    this.path = path;
+    this.loader = loader;
+    this.network.set(loader.load(path));
+    this.reloader = reloader;
+    this.sharedReloader = sharedReloader;
+  }
+
+  /**
+   * Warms up the service on the current snapshot, then marks it ready.
+   * @param warmUp Warm-up to run.
+   * @return A summary of the warm-up.
+   */
+  public WarmUpReport warmUp(WarmUp warmUp) {
+    WarmUpReport report = warmUp.run(network.get());
+    ready = true;
+    logger.info("Service ready after warm-up: %s.", report);
+    return report;
+  }
+
+  /**
+   * Finds the shortest path between two stations on the current snapshot.
+   * @param origin Station name to start from.
+   * @param destination Station name to finish at.
+   * @return The shortest route.
+   * @throws ValidationException if the origin or destination are invalid.
+   */
+  public Route findShortestPath(String origin, String destination)
+      throws ValidationException {
+    QueryRecorder recorder = this.recorder;
+    if (recorder == null) {
+      return network.get().findShortestPath(origin, destination);
+    }
+
+    long start = System.nanoTime();
+    try {
+      return network.get().findShortestPath(origin, destination);
+    } finally {
+      recorder.recordRoute(name, origin, destination, start, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Finds every station reachable within a travel time budget on the current
+   * snapshot.
+   * @param origin Station name to start from.
+   * @param minutes Travel time budget, inclusive.
+   * @return Reachable stations and their travel times.
+   * @throws ValidationException if the origin or budget are invalid.
+   */
+  public Isochrone findReachable(String origin, int minutes)
+      throws ValidationException {
+    QueryRecorder recorder = this.recorder;
+    if (recorder == null) {
+      return network.get().findReachable(origin, minutes);
+    }
+
+    long start = System.nanoTime();
+    try {
+      return network.get().findReachable(origin, minutes);
+    } finally {
+      recorder.recordReachable(name, origin, minutes, start, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Captures every query from now on.
+   * @param recorder Recorder to capture queries with, or null to stop.
+   * @param name Name of this service's network in the log.
+   */
+  public void capture(QueryRecorder recorder, String name) {
+    this.name = name;
+    this.recorder = recorder;
+  }
+
+  /**
+   * Suggests station names for a partially typed query on the current
+   * snapshot.
+   * @param query Partial station name.
+   * @param limit Largest number of names to suggest.
+   * @return Suggested names, best first.
+   */
+  public List<String> suggestNames(String query, int limit) {
+    return network.get().suggestNames(query, limit);
+  }
+
+  /**
+   * Reloads the network file in the background, and swaps it in once it has
+   * been loaded and indexed. If loading fails, the current snapshot is kept
+   * and the future fails with the cause.
+   *
+   * <p>
+   * Reloads run one at a time, in the order they were requested.
+   * </p>
+   *
+   * @return A future which completes with the new snapshot.
+   */
+  public CompletableFuture<RailNetwork> reload() {
+    CompletableFuture<RailNetwork> future = new CompletableFuture<>();
+
+    try {
+      reloader.execute(() -> {
+        try {
+          RailNetwork loaded = loader.load(path);
+          network.set(loaded);
+          logger.info("Reloaded network from '%s'.", path);
+          future.complete(loaded);
+        } catch (ValidationException | ParseException | RuntimeException exception) {
+          logger.error("Could not reload network. %s", exception.getMessage());
+          future.completeExceptionally(exception);
+        }
+      });
+    } catch (RejectedExecutionException exception) {
+      // Service was closed
+      future.completeExceptionally(exception);
+    }
+
+    return future;
+  }
+
+  /**
+   * Starts watching the network file, reloading it whenever it changes.
+   * @throws IOException if the file cannot be watched.
+   */
+  public synchronized void watch() throws IOException {
+    if (watcher != null) {
+      return;
+    }
+
+    watcher = new NetworkWatcher(Paths.get(path), this::reload);
+    new DaemonThreadFactory("network-watcher").newThread(watcher).start();
+  }
+
+  /**
+   * Reloads the network file whenever it changes, using a shared watcher.
+   * @param watcher Watcher to add the network file to. It is not closed when
+   * this service is closed.
+   * @throws IOException if the file cannot be watched.
+   */
+  public void watch(NetworkWatcher watcher) throws IOException {
+    watcher.add(Paths.get(path), this::reload);
+  }
+
+  /**
+   * Stops watching the network file, and any pending reloads unless the
+   * reloader is shared.
+   * @throws IOException if the watcher cannot be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (!sharedReloader) {
+      reloader.shutdownNow();
+    }
+    if (watcher != null) {
+      watcher.close();
+    }
+  }
+
+  /**
+   * @return Whether the service has been warmed up.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * @return Path to the network file.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * @return The current snapshot.
+   */
+  public RailNetwork getNetwork() {
+    return network.get();
+  }
+}
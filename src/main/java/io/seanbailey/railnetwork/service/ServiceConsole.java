@@ -0,0 +1,271 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.route.Isochrone;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.route.RouteSerializer;
+import io.seanbailey.railnetwork.util.Logger;
+import io.seanbailey.railnetwork.util.OutputBuffer;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A line based command interface to the networks of a
+ * @link{io.seanbailey.railnetwork.service.NetworkHost}.
+ *
+ * <p>
+ * Commands:
+ * <ul>
+ *   <li><strong>route &lt;origin&gt;|&lt;destination&gt;:</strong> Prints the
+ *   shortest route between two stations.</li>
+ *   <li><strong>reachable &lt;origin&gt;|&lt;minutes&gt;:</strong> Prints every
+ *   station reachable from the origin within the given time.</li>
+ *   <li><strong>suggest &lt;query&gt;:</strong> Prints up to ten station
+ *   names which match a partial or misspelt name.</li>
+ *   <li><strong>reload [network]:</strong> Reloads a network file, or every
+ *   network file, in the background.</li>
+ *   <li><strong>networks:</strong> Prints the name of every hosted
+ *   network.</li>
+ *   <li><strong>quit:</strong> Stops reading commands.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Queries run on the default network, unless their arguments start with the
+ * name of a hosted network and a colon. For example,
+ * <code>route sydney:Central|Hornsby</code>.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class ServiceConsole {
+
+  private static final Logger logger = new Logger();
+  private static final String NEWLINE = System.lineSeparator();
+
+  // Number of names printed by the suggest command
+  private static final int SUGGESTIONS = 10;
+
+  private final NetworkHost host;
+  private final RouteSerializer serializer;
+  private final OutputBuffer buffer = new OutputBuffer();
+
+  /**
+   * Constructs a new console.
+   * @param host Networks to send commands to.
+   * @param serializer Serializer used to print routes.
+   */
+  public ServiceConsole(NetworkHost host, RouteSerializer serializer) {
+    this.host = host;
+    this.serializer = serializer;
+  }
+
+  /**
+   * Reads and runs commands until the input ends or quit is entered.
+   * @param in Stream to read commands from.
+   * @param out Stream to print results to.
+   * @throws IOException if either stream fails.
+   */
+  public void run(InputStream in, OutputStream out) throws IOException {
+    BufferedReader reader = new BufferedReader(
+        new InputStreamReader(in, StandardCharsets.UTF_8)
+    );
+
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty()) {
+        continue;
+      }
+
+      // Split command from its arguments
+      int space = line.indexOf(' ');
+      String command = space < 0 ? line : line.substring(0, space);
+      String arguments = space < 0 ? "" : line.substring(space + 1).trim();
+
+      switch (command) {
+        case "route":
+          route(arguments, out);
+          break;
+        case "reachable":
+          reachable(arguments, out);
+          break;
+        case "suggest":
+          suggest(arguments, out);
+          break;
+        case "reload":
+          reload(arguments);
+          break;
+        case "networks":
+          networks(out);
+          break;
+        case "quit":
+          return;
+        default:
+          logger.error("Unknown command '%s'.", command);
+      }
+    }
+  }
+
+  /**
+   * Runs a route command.
+   * @param arguments Origin and destination, separated by a pipe.
+   * @param out Stream to print the route to.
+   * @throws IOException if the route cannot be printed.
+   */
+  private void route(String arguments, OutputStream out) throws IOException {
+    int separator = arguments.indexOf('|');
+    if (separator < 0) {
+      logger.error("Usage: route [network:]<origin>|<destination>");
+      return;
+    }
+
+    try {
+      RouteService service = selectNetwork(arguments);
+      String origin = stripNetwork(arguments.substring(0, separator)).trim();
+      String destination = arguments.substring(separator + 1).trim();
+
+      Route route = service.findShortestPath(origin, destination);
+      buffer.clear();
+      serializer.write(route, buffer);
+      buffer.writeTo(out);
+      out.flush();
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+    }
+  }
+
+  /**
+   * Runs a reachable command, printing one station per line followed by its
+   * travel time.
+   * @param arguments Origin and budget in minutes, separated by a pipe.
+   * @param out Stream to print stations to.
+   * @throws IOException if the stations cannot be printed.
+   */
+  private void reachable(String arguments, OutputStream out) throws IOException {
+    int separator = arguments.indexOf('|');
+    if (separator < 0) {
+      logger.error("Usage: reachable [network:]<origin>|<minutes>");
+      return;
+    }
+
+    try {
+      RouteService service = selectNetwork(arguments);
+      String origin = stripNetwork(arguments.substring(0, separator)).trim();
+      int minutes = Integer.parseInt(arguments.substring(separator + 1).trim());
+      Isochrone isochrone = service.findReachable(origin, minutes);
+
+      buffer.clear();
+      for (int i = 0; i < isochrone.size(); i++) {
+        buffer.append(isochrone.getName(i)).append(' ')
+            .append(isochrone.getMinutes()[i]).append(NEWLINE);
+      }
+
+      buffer.writeTo(out);
+      out.flush();
+    } catch (NumberFormatException exception) {
+      logger.error("Minutes must be a whole number.");
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+    }
+  }
+
+  /**
+   * Runs a suggest command, printing one name per line.
+   * @param arguments Partial station name.
+   * @param out Stream to print names to.
+   * @throws IOException if the names cannot be printed.
+   */
+  private void suggest(String arguments, OutputStream out) throws IOException {
+    try {
+      RouteService service = selectNetwork(arguments);
+      String query = stripNetwork(arguments).trim();
+
+      buffer.clear();
+      for (String name : service.suggestNames(query, SUGGESTIONS)) {
+        buffer.append(name).append(NEWLINE);
+      }
+
+      buffer.writeTo(out);
+      out.flush();
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+    }
+  }
+
+  /**
+   * Runs a reload command.
+   * @param arguments Name of the network to reload, or nothing for every
+   * network.
+   */
+  private void reload(String arguments) {
+    if (arguments.isEmpty()) {
+      for (String name : host.getNetworkNames()) {
+        reload(name);
+      }
+      return;
+    }
+
+    try {
+      host.get(arguments).reload();
+    } catch (ValidationException exception) {
+      logger.error(exception.getMessage());
+    }
+  }
+
+  /**
+   * Prints the name of every hosted network, one per line.
+   * @param out Stream to print names to.
+   * @throws IOException if the names cannot be printed.
+   */
+  private void networks(OutputStream out) throws IOException {
+    buffer.clear();
+    for (String name : host.getNetworkNames()) {
+      buffer.append(name).append(NEWLINE);
+    }
+
+    buffer.writeTo(out);
+    out.flush();
+  }
+
+  /**
+   * @param arguments Arguments of a query command.
+   * @return The network named by the arguments' prefix, or the default
+   * network.
+   * @throws ValidationException if no networks are hosted.
+   */
+  private RouteService selectNetwork(String arguments)
+      throws ValidationException {
+    String name = getNetworkPrefix(arguments);
+    return name == null ? host.getDefault() : host.get(name);
+  }
+
+  /**
+   * @param arguments Arguments of a query command.
+   * @return The arguments without their network prefix.
+   */
+  private String stripNetwork(String arguments) {
+    String name = getNetworkPrefix(arguments);
+    return name == null ? arguments : arguments.substring(arguments.indexOf(':') + 1);
+  }
+
+  /**
+   * Station names may contain colons too, so a prefix only counts if it names
+   * a hosted network.
+   * @param arguments Arguments of a query command.
+   * @return The network prefix, or null if there isn't one.
+   */
+  private String getNetworkPrefix(String arguments) {
+    int colon = arguments.indexOf(':');
+    if (colon <= 0) {
+      return null;
+    }
+
+    String name = arguments.substring(0, colon).trim();
+    return host.contains(name) ? name : null;
+  }
+}
@@ -0,0 +1,237 @@
+package io.seanbailey.railnetwork.service;
+
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.util.DaemonThreadFactory;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a mix of route queries against a freshly loaded network, so that
+ * the JIT compiler has optimised the search loops before real queries arrive.
+ *
+ * <p>
+ * Queries are run in windows, spread across a configurable number of threads.
+ * After each window, its 99th percentile latency is compared with the
+ * previous window's. The warm-up ends once several windows in a row are within
+ * a tolerance of each other, or once its time budget runs out.
+ * </p>
+ *
+ * <p>
+ * Queries are either recorded origin and destination pairs, or random pairs
+ * of station names drawn from the network.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class WarmUp {
+
+  // Queries run by each thread per window
+  private static final int WINDOW_SIZE = 256;
+
+  // Relative change in p99 latency between windows which counts as stable
+  private static final double TOLERANCE = 0.15;
+
+  // Number of stable windows in a row needed to finish
+  private static final int STABLE_WINDOWS = 3;
+
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private long budgetMillis = 10000;
+  private List<String[]> queries;
+  private long seed = 0;
+
+  /**
+   * Sets how many threads run queries at once.
+   * @param threads Number of threads.
+   * @return This warm-up.
+   */
+  public WarmUp setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Warm-up needs at least one thread.");
+    }
+
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * Sets the longest the warm-up may run for.
+   * @param budgetMillis Time budget, in milliseconds.
+   * @return This warm-up.
+   */
+  public WarmUp setBudget(long budgetMillis) {
+    this.budgetMillis = budgetMillis;
+    return this;
+  }
+
+  /**
+   * Replays recorded queries instead of random ones.
+   * @param queries Origin and destination pairs.
+   * @return This warm-up.
+   */
+  public WarmUp setQueries(List<String[]> queries) {
+    this.queries = queries.isEmpty() ? null : queries;
+    return this;
+  }
+
+  /**
+   * Sets the seed used to pick random queries.
+   * @param seed Random seed.
+   * @return This warm-up.
+   */
+  public WarmUp setSeed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /**
+   * Runs the warm-up against a network.
+   * @param network Network to query.
+   * @return A summary of the warm-up.
+   */
+  public WarmUpReport run(RailNetwork network) {
+    ExecutorService executor = Executors.newFixedThreadPool(
+        threads, new DaemonThreadFactory("warm-up")
+    );
+
+    try {
+      return run(network, executor);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs windows of queries until latency is stable or time runs out.
+   * @param network Network to query.
+   * @param executor Pool to run queries on.
+   * @return A summary of the warm-up.
+   */
+  private WarmUpReport run(RailNetwork network, ExecutorService executor) {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    String[][] mix = createMix(network);
+    if (mix.length == 0) {
+      return new WarmUpReport(0, 0, 0, true);
+    }
+
+    List<Callable<long[]>> tasks = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      tasks.add(new Window(network, mix, i * mix.length / threads));
+    }
+
+    int windows = 0;
+    int stable = 0;
+    long previous = -1;
+    long p99 = -1;
+    long[] latencies = new long[threads * WINDOW_SIZE];
+
+    while (stable < STABLE_WINDOWS && System.nanoTime() < deadline) {
+      try {
+        // Run one window and merge every thread's latencies
+        List<Future<long[]>> results = executor.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+          System.arraycopy(results.get(i).get(), 0, latencies, i * WINDOW_SIZE, WINDOW_SIZE);
+        }
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+        break;
+      } catch (ExecutionException exception) {
+        throw new IllegalStateException("Warm-up query failed.", exception.getCause());
+      }
+
+      Arrays.sort(latencies);
+      p99 = latencies[(int) (latencies.length * 0.99)];
+      windows++;
+
+      if (previous > 0 && Math.abs(p99 - previous) <= previous * TOLERANCE) {
+        stable++;
+      } else {
+        stable = 0;
+      }
+      previous = p99;
+    }
+
+    return new WarmUpReport(
+        (long) windows * threads * WINDOW_SIZE,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+        p99,
+        stable >= STABLE_WINDOWS
+    );
+  }
+
+  /**
+   * @param network Network to query.
+   * @return The queries to cycle through.
+   */
+  private String[][] createMix(RailNetwork network) {
+    if (queries != null) {
+      return queries.toArray(new String[queries.size()][]);
+    }
+
+    // Random pairs of distinct names
+    Dictionary names = network.getGraph().getNames();
+    if (names.size() < 2) {
+      return new String[0][];
+    }
+
+    Random random = new Random(seed);
+    String[][] mix = new String[WINDOW_SIZE * 4][];
+    for (int i = 0; i < mix.length; i++) {
+      int origin = random.nextInt(names.size());
+      int destination = random.nextInt(names.size() - 1);
+      if (destination >= origin) {
+        destination++;
+      }
+
+      mix[i] = new String[] { names.get(origin), names.get(destination) };
+    }
+
+    return mix;
+  }
+
+  /**
+   * One thread's share of a window.
+   */
+  private static class Window implements Callable<long[]> {
+
+    private final RailNetwork network;
+    private final String[][] mix;
+    private int next;
+
+    Window(RailNetwork network, String[][] mix, int start) {
+      this.network = network;
+      this.mix = mix;
+      this.next = start;
+    }
+
+    @Override
+    public long[] call() {
+      long[] latencies = new long[WINDOW_SIZE];
+
+      for (int i = 0; i < WINDOW_SIZE; i++) {
+        String[] query = mix[next];
+        next = (next + 1) % mix.length;
+
+        long start = System.nanoTime();
+        try {
+          network.findShortestPath(query[0], query[1]);
+        } catch (ValidationException exception) {
+          // Recorded queries may name stations which no longer exist
+        }
+        latencies[i] = System.nanoTime() - start;
+      }
+
+      return latencies;
+    }
+  }
+}
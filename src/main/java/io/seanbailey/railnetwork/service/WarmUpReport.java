@@ -0,0 +1,56 @@
+package io.seanbailey.railnetwork.service;
+
+/**
+ * A summary of a @link{io.seanbailey.railnetwork.service.WarmUp}.
+ * @author Sean Bailey c3279343
+ */
+public class WarmUpReport {
+
+  private final long queries;
+  private final long elapsedMillis;
+  private final long p99Nanos;
+  private final boolean stable;
+
+  /**
+   * Constructs a new report.
+   * @param queries Number of queries run.
+   * @param elapsedMillis Time taken, in milliseconds.
+   * @param p99Nanos 99th percentile latency of the last window.
+   * @param stable Whether latency stabilised within the time budget.
+   */
+  public WarmUpReport(long queries, long elapsedMillis, long p99Nanos,
+      boolean stable) {
+    this.queries = queries;
+    this.elapsedMillis = elapsedMillis;
+    this.p99Nanos = p99Nanos;
+    this.stable = stable;
+  }
+
+  /**
+   * @return a representation of this report as a string.
+   */
+  @Override
+  public String toString() {
+    return String.format(
+        "%d queries in %d ms, p99 %d us%s",
+        queries, elapsedMillis, p99Nanos / 1000,
+        stable ? "" : " (budget ran out before latency stabilised)"
+    );
+  }
+
+  public long getQueries() {
+    return queries;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public long getP99Nanos() {
+    return p99Nanos;
+  }
+
+  public boolean isStable() {
+    return stable;
+  }
+}
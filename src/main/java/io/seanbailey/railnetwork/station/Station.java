@@ -14,18 +14,31 @@ public class Station implements Comparable<Station> {
 
   private final String name;
   private final String line;
+  private final int nameId;
+  private final int lineId;
   private LinkedList<StationEdge> adjacentStations;
   private int distance; // Distance from origin
   private Station previous = null;
 
   /**
    * Constructs a new station.
+   *
+   * <p>
+   * Names and lines are expected to be the canonical copies held by a
+   * @link{io.seanbailey.railnetwork.util.Dictionary}, and ids to be the ones
+   * assigned by that dictionary.
+   * </p>
+   *
    * @param name Station name.
+   * @param nameId Dictionary id of the station name.
    * @param line The line this station is attached to.
+   * @param lineId Dictionary id of the line.
    */
-  public Station(String name, String line) {
+  public Station(String name, int nameId, String line, int lineId) {
     this.name = name;
     this.line = line;
+    this.nameId = nameId;
+    this.lineId = lineId;
     adjacentStations = new LinkedList<>();
     distance = Integer.MAX_VALUE;
   }
@@ -43,14 +56,28 @@ public class Station implements Comparable<Station> {
       return distanceDelta;
     }
 
-    // Then compare names
-    int nameDelta = name.compareTo(station.getName());
+    // Then compare names. Dictionary ids preserve alphabetical order.
+    int nameDelta = nameId - station.getNameId();
     if (nameDelta != 0) {
       return nameDelta;
     }
 
     // Finally, compare line
-    return line.compareTo(station.getLine());
+    return lineId - station.getLineId();
+  }
+
+  /**
+   * Returns a key which orders stations by name and then line.
+   *
+   * <p>
+   * This matches the ordering of compareTo for stations with equal distances,
+   * such as freshly parsed ones.
+   * </p>
+   *
+   * @return A sort key for this station.
+   */
+  public long getSortKey() {
+    return ((long) nameId << 32) | lineId;
   }
 
   /**
@@ -82,6 +109,14 @@ public class Station implements Comparable<Station> {
     return line;
   }
 
+  public int getNameId() {
+    return nameId;
+  }
+
+  public int getLineId() {
+    return lineId;
+  }
+
   public LinkedList<StationEdge> getAdjacentStations() {
     return adjacentStations;
   }
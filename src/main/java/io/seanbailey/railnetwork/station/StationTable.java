@@ -0,0 +1,61 @@
+package io.seanbailey.railnetwork.station;
+
+/**
+ * Parsed stations and their edges, flattened into arrays.
+ *
+ * <p>
+ * Stations are numbered in order of name and then line, the same order that
+ * @link{io.seanbailey.railnetwork.station.Station#getSortKey} gives. The
+ * edges of station i are [getEdgeOffsets()[i], getEdgeOffsets()[i + 1]), in
+ * the order they were listed.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class StationTable {
+
+  private final int[] stationNames;  // Name id of each station
+  private final int[] stationLines;  // Line id of each station
+  private final int[] edgeOffsets;   // Start of each station's edges
+  private final int[] edgeTargets;   // Station at the end of each edge
+  private final int[] edgeDurations; // Duration of each edge
+
+  /**
+   * Constructs a new station table.
+   */
+  public StationTable(int[] stationNames, int[] stationLines, int[] edgeOffsets,
+      int[] edgeTargets, int[] edgeDurations) {
+    this.stationNames = stationNames;
+    this.stationLines = stationLines;
+    this.edgeOffsets = edgeOffsets;
+    this.edgeTargets = edgeTargets;
+    this.edgeDurations = edgeDurations;
+  }
+
+  /**
+   * @return The number of stations.
+   */
+  public int getStationCount() {
+    return stationNames.length;
+  }
+
+  public int[] getStationNames() {
+    return stationNames;
+  }
+
+  public int[] getStationLines() {
+    return stationLines;
+  }
+
+  public int[] getEdgeOffsets() {
+    return edgeOffsets;
+  }
+
+  public int[] getEdgeTargets() {
+    return edgeTargets;
+  }
+
+  public int[] getEdgeDurations() {
+    return edgeDurations;
+  }
+}
@@ -0,0 +1,43 @@
+package io.seanbailey.railnetwork.table;
+
+/**
+ * The result of a many-to-many travel time query: the shortest travel time
+ * from each of several origins to each of several destinations.
+ * @author Sean Bailey c3279343
+ */
+public class DistanceTable {
+
+  private final String[] origins;
+  private final String[] destinations;
+  private final int[] minutes;
+
+  /**
+   * Constructs a new distance table.
+   * @param origins Names of the origins, one per row.
+   * @param destinations Names of the destinations, one per column.
+   * @param minutes Travel times in row-major order, with -1 for pairs which
+   *                are not connected.
+   */
+  public DistanceTable(String[] origins, String[] destinations, int[] minutes) {
+    this.origins = origins;
+    this.destinations = destinations;
+    this.minutes = minutes;
+  }
+
+  /**
+   * @param origin Row of the origin.
+   * @param destination Column of the destination.
+   * @return The travel time in minutes, or -1 if there is no route.
+   */
+  public int getMinutes(int origin, int destination) {
+    return minutes[origin * destinations.length + destination];
+  }
+
+  public String[] getOrigins() {
+    return origins;
+  }
+
+  public String[] getDestinations() {
+    return destinations;
+  }
+}
@@ -0,0 +1,124 @@
+package io.seanbailey.railnetwork.table;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Min-plus matrix products over travel times, which combine legs of a
+ * journey through a set of intermediate stations: the travel time from an
+ * origin to a destination is the smallest sum of origin to intermediate and
+ * intermediate to destination.
+ *
+ * <p>
+ * Matrices are dense, row-major int arrays. Unreachable pairs hold
+ * @link{#INFINITY}, which is small enough that two of them can be added
+ * without overflowing.
+ * </p>
+ *
+ * <p>
+ * The kernel walks rows of the right hand matrix in unit stride, updating a
+ * whole row of the result from one value of the left hand matrix. The inner
+ * loop is a plain add and min over contiguous arrays, which the JIT compiles
+ * to SIMD instructions. Work is blocked so that the rows being combined stay
+ * in cache, and blocks of rows are spread across the common fork/join pool.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class MinPlus {
+
+  /**
+   * Travel time of an unreachable pair.
+   */
+  public static final int INFINITY = Integer.MAX_VALUE / 2;
+
+  // Block sizes, chosen so that a block of the right hand matrix (128 rows of
+  // 1024 ints) fits in a typical L2 cache
+  private static final int INNER_BLOCK = 128;
+  private static final int COLUMN_BLOCK = 1024;
+  private static final int ROW_BLOCK = 16;
+
+  // Products smaller than this many additions are not worth parallelising
+  private static final long PARALLEL_THRESHOLD = 1 << 20;
+
+  /**
+   * Computes c = a ⊗ b, where c[i][j] is the minimum over k of
+   * a[i][k] + b[k][j]. Entries of the product are never above INFINITY, so it
+   * can be fed into another product.
+   * @param a Left hand matrix, rows by inner.
+   * @param b Right hand matrix, inner by columns.
+   * @param c Receives the product, rows by columns.
+   * @param rows Number of rows of a and c.
+   * @param inner Number of columns of a, and rows of b.
+   * @param columns Number of columns of b and c.
+   */
+  public static void multiply(int[] a, int[] b, int[] c, int rows, int inner,
+      int columns) {
+    Arrays.fill(c, 0, rows * columns, INFINITY);
+
+    int blocks = (rows + ROW_BLOCK - 1) / ROW_BLOCK;
+    IntStream range = IntStream.range(0, blocks);
+    if ((long) rows * inner * columns >= PARALLEL_THRESHOLD) {
+      range = range.parallel();
+    }
+
+    range.forEach(block -> multiplyRows(a, b, c, block * ROW_BLOCK,
+        Math.min(rows, (block + 1) * ROW_BLOCK), inner, columns));
+  }
+
+  /**
+   * Computes a block of rows of a product.
+   * @param a Left hand matrix.
+   * @param b Right hand matrix.
+   * @param c Product, already filled with INFINITY.
+   * @param from First row, inclusive.
+   * @param to Last row, exclusive.
+   * @param inner Number of columns of a, and rows of b.
+   * @param columns Number of columns of b and c.
+   */
+  private static void multiplyRows(int[] a, int[] b, int[] c, int from, int to,
+      int inner, int columns) {
+    for (int j0 = 0; j0 < columns; j0 += COLUMN_BLOCK) {
+      int j1 = Math.min(columns, j0 + COLUMN_BLOCK);
+
+      for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+        int k1 = Math.min(inner, k0 + INNER_BLOCK);
+
+        for (int i = from; i < to; i++) {
+          int row = i * columns;
+          for (int k = k0; k < k1; k++) {
+            int value = a[i * inner + k];
+
+            // Most pairs do not pass through most intermediates
+            if (value < INFINITY) {
+              combine(c, row, b, k * columns, value, j0, j1);
+            }
+          }
+        }
+      }
+    }
+
+    // Sums of a finite and an infinite entry overshoot INFINITY
+    for (int i = from * columns; i < to * columns; i++) {
+      c[i] = Math.min(c[i], INFINITY);
+    }
+  }
+
+  /**
+   * Updates part of a row of the product with one row of the right hand
+   * matrix. Kept separate and branch free so that it is vectorised.
+   * @param c Product.
+   * @param row Start of the product row.
+   * @param b Right hand matrix.
+   * @param offset Start of the right hand row.
+   * @param value Entry of the left hand matrix.
+   * @param from First column, inclusive.
+   * @param to Last column, exclusive.
+   */
+  private static void combine(int[] c, int row, int[] b, int offset, int value,
+      int from, int to) {
+    for (int j = from; j < to; j++) {
+      c[row + j] = Math.min(c[row + j], value + b[offset + j]);
+    }
+  }
+}
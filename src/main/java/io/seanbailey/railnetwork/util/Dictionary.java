@@ -0,0 +1,122 @@
+package io.seanbailey.railnetwork.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A load-time string dictionary, which maps each distinct string to a dense
+ * integer id.
+ *
+ * <p>
+ * Strings are first added to the dictionary, which interns them so that only
+ * one copy of each distinct value is kept. Once every string has been added,
+ * the dictionary is frozen. Freezing assigns ids in lexicographic order, which
+ * means that comparing two ids gives the same result as comparing the strings
+ * they represent.
+ * </p>
+ *
+ * <p>
+ * A dictionary may share its canonical strings with others through a
+ * @link{io.seanbailey.railnetwork.util.StringPool}.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class Dictionary {
+
+  private final StringPool shared;
+  private Map<String, String> pool = new HashMap<>();
+  private Map<String, Integer> ids;
+  private String[] values;
+
+  /**
+   * Constructs a new dictionary, which keeps its own canonical strings.
+   */
+  public Dictionary() {
+    this(null);
+  }
+
+  /**
+   * Constructs a new dictionary.
+   * @param shared Pool to take canonical strings from, or null.
+   */
+  public Dictionary(StringPool shared) {
+    this.shared = shared;
+  }
+
+  /**
+   * Adds a string to the dictionary.
+   * @param value String to add.
+   * @return The canonical copy of the given string.
+   * @throws IllegalStateException if the dictionary has already been frozen.
+   */
+  public String add(String value) {
+    if (isFrozen()) {
+      throw new IllegalStateException("Cannot add to a frozen dictionary.");
+    }
+
+    String canonical = shared == null ? value : shared.intern(value);
+
+    // Keep the first copy of each string we come across
+    String existing = pool.putIfAbsent(canonical, canonical);
+    return existing == null ? canonical : existing;
+  }
+
+  /**
+   * Freezes the dictionary, assigning an id to every string in lexicographic
+   * order.
+   */
+  public void freeze() {
+    if (isFrozen()) {
+      return;
+    }
+
+    // Sort values, so that ids preserve ordering
+    values = pool.keySet().toArray(new String[pool.size()]);
+    Arrays.sort(values);
+
+    ids = new HashMap<>(values.length * 2);
+    for (int i = 0; i < values.length; i++) {
+      ids.put(values[i], i);
+    }
+    pool = null;
+  }
+
+  /**
+   * Retrieves the id of a string.
+   * @param value String to look up.
+   * @return The id of the string, or -1 if it is not in the dictionary.
+   */
+  public int getId(String value) {
+    if (!isFrozen()) {
+      throw new IllegalStateException("Dictionary has not been frozen.");
+    }
+
+    Integer id = ids.get(value);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Retrieves the string with the given id.
+   * @param id Id of string.
+   * @return The canonical string.
+   */
+  public String get(int id) {
+    return values[id];
+  }
+
+  /**
+   * @return Whether ids have been assigned.
+   */
+  public boolean isFrozen() {
+    return values != null;
+  }
+
+  /**
+   * @return The number of distinct strings in the dictionary.
+   */
+  public int size() {
+    return isFrozen() ? values.length : pool.size();
+  }
+}
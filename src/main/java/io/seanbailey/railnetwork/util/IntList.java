@@ -0,0 +1,73 @@
+package io.seanbailey.railnetwork.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, which avoids boxing.
+ * @author Sean Bailey c3279343
+ */
+public class IntList {
+
+  private int[] values;
+  private int size = 0;
+
+  /**
+   * Constructs a new, empty list.
+   */
+  public IntList() {
+    this(8);
+  }
+
+  /**
+   * Constructs a new, empty list.
+   * @param capacity Initial capacity.
+   */
+  public IntList(int capacity) {
+    values = new int[Math.max(capacity, 1)];
+  }
+
+  /**
+   * Appends a value to the end of the list.
+   * @param value Value to append.
+   */
+  public void add(int value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size * 2);
+    }
+
+    values[size++] = value;
+  }
+
+  /**
+   * @param index Index of value to retrieve.
+   * @return The value at the given index.
+   */
+  public int get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Removes every value, keeping the capacity for reuse.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return Whether the list is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return A copy of the values in the list.
+   */
+  public int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+
+  public int size() {
+    return size;
+  }
+}
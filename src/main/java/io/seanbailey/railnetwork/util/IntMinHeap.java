@@ -0,0 +1,164 @@
+package io.seanbailey.railnetwork.util;
+
+import java.util.Arrays;
+
+/**
+ * An indexed min heap of integer ids, each with a long priority.
+ *
+ * <p>
+ * Unlike @link{io.seanbailey.railnetwork.util.MinHeap}, this heap stores
+ * primitives only and supports lowering the priority of an id that is already
+ * in the heap. It is intended to be reused across searches, so clearing it
+ * only touches the ids that were actually inserted.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class IntMinHeap {
+
+  private final int[] heap;
+  private final long[] priorities;
+  private final int[] positions; // Position of each id in the heap, or -1
+  private int size = 0;
+
+  /**
+   * Constructs a new heap.
+   * @param capacity Number of distinct ids, which must lie in [0, capacity).
+   */
+  public IntMinHeap(int capacity) {
+    heap = new int[capacity];
+    priorities = new long[capacity];
+    positions = new int[capacity];
+    Arrays.fill(positions, -1);
+  }
+
+  /**
+   * Inserts an id, or lowers its priority if it is already in the heap.
+   *
+   * <p>
+   * Nothing happens if the id is already in the heap with a lower or equal
+   * priority.
+   * </p>
+   *
+   * @param id Id to insert.
+   * @param priority Priority of the id.
+   */
+  public void push(int id, long priority) {
+    int i = positions[id];
+
+    if (i < 0) {
+      i = size++;
+    } else if (priorities[id] <= priority) {
+      return;
+    }
+
+    priorities[id] = priority;
+    siftup(id, i);
+  }
+
+  /**
+   * Removes the id with the lowest priority from the heap, and returns it.
+   * @return The first id.
+   */
+  public int pop() {
+    int id = heap[0];
+    positions[id] = -1;
+
+    // Move last element to the top
+    size--;
+    if (size > 0) {
+      siftdown(heap[size], 0);
+    }
+
+    return id;
+  }
+
+  /**
+   * @return The lowest priority in the heap.
+   */
+  public long peekPriority() {
+    return priorities[heap[0]];
+  }
+
+  /**
+   * Removes every id from the heap.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      positions[heap[i]] = -1;
+    }
+
+    size = 0;
+  }
+
+  /**
+   * @return Whether the heap is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Moves an id up towards the root until its parent has a lower priority.
+   * @param id Id to move.
+   * @param index Heap position to start from.
+   */
+  private void siftup(int id, int index) {
+    long priority = priorities[id];
+    int i = index;
+
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      int parentId = heap[parent];
+      if (priorities[parentId] <= priority) {
+        break;
+      }
+
+      // Move parent down
+      heap[i] = parentId;
+      positions[parentId] = i;
+      i = parent;
+    }
+
+    heap[i] = id;
+    positions[id] = i;
+  }
+
+  /**
+   * Moves an id down towards the leaves until its children have higher
+   * priorities.
+   * @param id Id to move.
+   * @param index Heap position to start from.
+   */
+  private void siftdown(int id, int index) {
+    long priority = priorities[id];
+    int i = index;
+
+    // Climb down the heap until we run out of nodes
+    while (2 * i + 1 < size) {
+      int child = 2 * i + 1;
+
+      // Use right child if it's smaller
+      if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+        child++;
+      }
+
+      int childId = heap[child];
+      if (priorities[childId] >= priority) {
+        break;
+      }
+
+      // Move child up
+      heap[i] = childId;
+      positions[childId] = i;
+      i = child;
+    }
+
+    heap[i] = id;
+    positions[id] = i;
+  }
+}
@@ -1,12 +1,54 @@
 package io.seanbailey.railnetwork.util;
 
 import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * An asynchronous logger.
+ *
+ * <p>
+ * Logging a message only checks the level and adds a record to a lock-free
+ * @link{io.seanbailey.railnetwork.util.RingBuffer}. Format strings are applied
+ * later, by a single background writer thread, so arguments must not be
+ * changed after they are logged. The writer drains records in batches and
+ * flushes each stream once per batch, so threads never wait on a console lock.
+ * </p>
+ *
+ * <p>
+ * If the buffer is full, new records are dropped and counted, and the writer
+ * reports how many were lost. Every record still in the buffer is written when
+ * the JVM exits.
+ * </p>
+ *
+ * <p>
+ * The level can be set with <code>-Drailnetwork.log.level=debug</code>, or
+ * changed at runtime with @link{#setLevel}.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
 public class Logger {
 
-  // TODO disable this perform submission
-  // Whether debug messages should be printed.
-  public static final boolean ENABLE_DEBUG = false;
+  /**
+   * Severity of a message. A logger prints messages at or above its level.
+   */
+  public enum Level {
+    DEBUG, INFO, ERROR, OFF
+  }
+
+  // System property which sets the initial level
+  public static final String LEVEL_PROPERTY = "railnetwork.log.level";
+
+  private static final int BUFFER_CAPACITY = 8192;
+  private static final int BATCH_SIZE = 256;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private static volatile Level level = readLevel();
+  private static final RingBuffer<Record> records = new RingBuffer<>(BUFFER_CAPACITY);
+  private static final AtomicLong dropped = new AtomicLong();
+  private static final Writer writer = new Writer(System.err);
 
   private PrintStream out;
   private PrintStream err;
@@ -33,7 +75,9 @@ public class Logger {
    * @param message Message to print.
    */
   public void info(String message) {
-    print(out, message);
+    if (isEnabled(Level.INFO)) {
+      log(out, "", message, null);
+    }
   }
 
   /**
@@ -42,7 +86,9 @@ public class Logger {
    * @param values Values to use in format string.
    */
   public void info(String format, Object... values) {
-    print(out, String.format(format, values));
+    if (isEnabled(Level.INFO)) {
+      log(out, "", format, values);
+    }
   }
 
   /**
@@ -50,12 +96,9 @@ public class Logger {
    * @param message Message to print.
    */
   public void debug(String message) {
-    // Ensure that debug messages are enabled in this build
-    if (!ENABLE_DEBUG) {
-      return;
+    if (isEnabled(Level.DEBUG)) {
+      log(out, "Debug: ", message, null);
     }
-
-    print(out, "Debug: " + message);
   }
 
   /**
@@ -64,7 +107,9 @@ public class Logger {
    * @param values Values to use in format string.
    */
   public void debug(String format, Object... values) {
-    debug(String.format(format, values));
+    if (isEnabled(Level.DEBUG)) {
+      log(out, "Debug: ", format, values);
+    }
   }
 
   /**
@@ -72,7 +117,9 @@ public class Logger {
    * @param message Message to print.
    */
   public void error(String message) {
-    print(err, "Error: " + message);
+    if (isEnabled(Level.ERROR)) {
+      log(err, "Error: ", message, null);
+    }
   }
 
   /**
@@ -81,15 +128,214 @@ public class Logger {
    * @param values Values to use in format string.
    */
   public void error(String format, Object... values) {
-    error(String.format(format, values));
+    if (isEnabled(Level.ERROR)) {
+      log(err, "Error: ", format, values);
+    }
+  }
+
+  /**
+   * Checks whether debug messages are printed. Useful to skip building
+   * expensive arguments.
+   * @return Whether debug messages are enabled.
+   */
+  public boolean isDebugEnabled() {
+    return isEnabled(Level.DEBUG);
   }
 
   /**
-   * Prints to a target stream.
+   * Queues a record for the writer thread.
    * @param stream Stream to print to.
-   * @param message Message to print.
+   * @param prefix Text to print before the message.
+   * @param format Message, or format string if values are given.
+   * @param values Values to use in format string, or null.
    */
-  private void print(PrintStream stream, String message) {
-    stream.println(message);
+  private static void log(PrintStream stream, String prefix, String format,
+      Object[] values) {
+    Record record = new Record(stream, prefix, format, values);
+
+    // Print directly once the writer has stopped, for example during shutdown
+    if (!writer.isRunning()) {
+      stream.println(record.format());
+      return;
+    }
+
+    if (!records.offer(record)) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * Waits until every record logged so far has been written.
+   */
+  public static void flush() {
+    long target = records.getProduced();
+    while (records.getConsumed() < target && writer.isRunning()) {
+      writer.wake();
+      LockSupport.parkNanos(IDLE_NANOS / 10);
+    }
+  }
+
+  /**
+   * @param candidate Level of a message.
+   * @return Whether messages at the given level are printed.
+   */
+  private static boolean isEnabled(Level candidate) {
+    return candidate.compareTo(level) >= 0 && level != Level.OFF;
+  }
+
+  /**
+   * Sets the level of every logger.
+   * @param level Lowest level to print.
+   */
+  public static void setLevel(Level level) {
+    Logger.level = level;
+  }
+
+  public static Level getLevel() {
+    return level;
+  }
+
+  /**
+   * Reads the initial level from the system properties.
+   * @return Initial level, or INFO if the property is missing or invalid.
+   */
+  private static Level readLevel() {
+    String value = System.getProperty(LEVEL_PROPERTY, Level.INFO.name());
+
+    try {
+      return Level.valueOf(value.toUpperCase());
+    } catch (IllegalArgumentException exception) {
+      return Level.INFO;
+    }
+  }
+
+  /**
+   * A message waiting to be formatted and printed.
+   */
+  private static class Record {
+
+    private final PrintStream stream;
+    private final String prefix;
+    private final String format;
+    private final Object[] values;
+
+    Record(PrintStream stream, String prefix, String format, Object[] values) {
+      this.stream = stream;
+      this.prefix = prefix;
+      this.format = format;
+      this.values = values;
+    }
+
+    /**
+     * @return The formatted message.
+     */
+    String format() {
+      return prefix + (values == null ? format : String.format(format, values));
+    }
+  }
+
+  /**
+   * Background thread which drains the ring buffer.
+   */
+  private static class Writer implements Runnable {
+
+    private final PrintStream warnings;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final StringBuilder batch = new StringBuilder();
+
+    Writer(PrintStream warnings) {
+      this.warnings = warnings;
+      thread = new DaemonThreadFactory("log-writer").newThread(this);
+      thread.start();
+
+      // Drain whatever is left before the JVM exits
+      Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "log-shutdown"));
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        if (drain() == 0) {
+          LockSupport.parkNanos(this, IDLE_NANOS);
+        }
+      }
+
+      // Write anything logged before we stopped
+      while (drain() > 0) {
+        // Keep draining
+      }
+    }
+
+    /**
+     * Writes up to one batch of records, grouping consecutive records for the
+     * same stream into a single write.
+     * @return The number of records written.
+     */
+    private int drain() {
+      int count = 0;
+      PrintStream current = null;
+      Record record;
+
+      while (count < BATCH_SIZE && (record = records.poll()) != null) {
+        if (record.stream != current) {
+          write(current);
+          current = record.stream;
+        }
+
+        try {
+          batch.append(record.format());
+        } catch (RuntimeException exception) {
+          // A bad format string should not stop the writer
+          batch.append(record.prefix).append(record.format);
+        }
+        batch.append(System.lineSeparator());
+        count++;
+      }
+
+      write(current);
+
+      long lost = dropped.getAndSet(0);
+      if (lost > 0) {
+        warnings.println("Warning: " + lost + " log messages were dropped.");
+      }
+
+      return count;
+    }
+
+    /**
+     * Writes and flushes the current batch.
+     * @param stream Stream to write to, or null if there is no batch.
+     */
+    private void write(PrintStream stream) {
+      if (stream != null && batch.length() > 0) {
+        stream.print(batch);
+        stream.flush();
+      }
+
+      batch.setLength(0);
+    }
+
+    /**
+     * Stops the writer once it has written every queued record.
+     */
+    void stop() {
+      running = false;
+      wake();
+
+      try {
+        thread.join(TimeUnit.SECONDS.toMillis(1));
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    void wake() {
+      LockSupport.unpark(thread);
+    }
+
+    boolean isRunning() {
+      return running;
+    }
   }
 }
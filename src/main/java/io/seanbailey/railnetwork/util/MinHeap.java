@@ -68,6 +68,21 @@ public class MinHeap<T extends Comparable<T>> {
     }
   }
 
+  /**
+   * Resets the index, so that heap order matches array order.
+   *
+   * <p>
+   * This is only valid if the nodes are sorted in ascending order, since a
+   * sorted array is already a valid heap.
+   * </p>
+   */
+  void resetIndex() {
+    for (int i = 0; i < size; i++) {
+      into[i] = i;
+      outof[i] = i;
+    }
+  }
+
   /**
    * Sifts an element down to its correct position in the heap.
    * @param index Heap index of element to siftdown. 1 indexed.
@@ -0,0 +1,220 @@
+package io.seanbailey.railnetwork.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A reusable, growable byte buffer for writing output.
+ *
+ * <p>
+ * Text is appended as UTF-8 and numbers are written digit by digit, so
+ * appending does not allocate once the buffer has grown to its working size.
+ * Call @link{#clear} to reuse the buffer for the next message.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class OutputBuffer {
+
+  private static final int DEFAULT_CAPACITY = 256;
+  private static final int REPLACEMENT = 0xFFFD;
+
+  private byte[] bytes;
+  private int size = 0;
+
+  /**
+   * Constructs a new output buffer.
+   */
+  public OutputBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a new output buffer.
+   * @param capacity Initial capacity, in bytes.
+   */
+  public OutputBuffer(int capacity) {
+    bytes = new byte[Math.max(capacity, 16)];
+  }
+
+  /**
+   * Appends a string as UTF-8.
+   * @param value String to append.
+   * @return This buffer.
+   */
+  public OutputBuffer append(CharSequence value) {
+    ensureCapacity(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        appendCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+      } else {
+        appendCodePoint(c);
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Appends a single character as UTF-8.
+   *
+   * <p>
+   * A lone char cannot hold a whole surrogate pair, so surrogates are written
+   * as U+FFFD. Use @link{#appendCodePoint} for characters outside the Basic
+   * Multilingual Plane.
+   * </p>
+   *
+   * @param c Character to append.
+   * @return This buffer.
+   */
+  public OutputBuffer append(char c) {
+    return appendCodePoint(c);
+  }
+
+  /**
+   * Appends a single Unicode code point as UTF-8. Unpaired surrogates are
+   * written as U+FFFD, since they cannot be encoded.
+   * @param codePoint Code point to append.
+   * @return This buffer.
+   */
+  public OutputBuffer appendCodePoint(int codePoint) {
+    if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+      codePoint = REPLACEMENT;
+    }
+
+    if (codePoint < 0x80) {
+      ensureCapacity(1);
+      bytes[size++] = (byte) codePoint;
+    } else if (codePoint < 0x800) {
+      ensureCapacity(2);
+      bytes[size++] = (byte) (0xC0 | (codePoint >> 6));
+      bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else if (codePoint < 0x10000) {
+      ensureCapacity(3);
+      bytes[size++] = (byte) (0xE0 | (codePoint >> 12));
+      bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else {
+      ensureCapacity(4);
+      bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+      bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+
+    return this;
+  }
+
+  /**
+   * Appends the decimal representation of an integer.
+   * @param value Integer to append.
+   * @return This buffer.
+   */
+  public OutputBuffer append(int value) {
+    // Integer.MIN_VALUE cannot be negated
+    if (value == Integer.MIN_VALUE) {
+      return append("-2147483648");
+    }
+
+    ensureCapacity(11);
+    if (value < 0) {
+      bytes[size++] = '-';
+      value = -value;
+    }
+
+    // Count digits
+    int digits = 1;
+    for (int n = value; n >= 10; n /= 10) {
+      digits++;
+    }
+
+    // Write digits from right to left
+    for (int i = size + digits - 1; i >= size; i--) {
+      bytes[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+
+    size += digits;
+    return this;
+  }
+
+  /**
+   * Writes a big endian integer.
+   * @param value Integer to write.
+   * @return This buffer.
+   */
+  public OutputBuffer writeInt(int value) {
+    ensureCapacity(4);
+    bytes[size++] = (byte) (value >>> 24);
+    bytes[size++] = (byte) (value >>> 16);
+    bytes[size++] = (byte) (value >>> 8);
+    bytes[size++] = (byte) value;
+    return this;
+  }
+
+  /**
+   * Writes a string as its UTF-8 length (int) followed by its bytes.
+   * @param value String to write.
+   * @return This buffer.
+   */
+  public OutputBuffer writeString(String value) {
+    // Reserve space for the length, then fill it in afterwards
+    writeInt(0);
+    int start = size;
+    append(value);
+
+    int length = size - start;
+    bytes[start - 4] = (byte) (length >>> 24);
+    bytes[start - 3] = (byte) (length >>> 16);
+    bytes[start - 2] = (byte) (length >>> 8);
+    bytes[start - 1] = (byte) length;
+    return this;
+  }
+
+  /**
+   * Writes the contents of this buffer to a stream.
+   * @param stream Stream to write to.
+   * @throws IOException if the stream cannot be written to.
+   */
+  public void writeTo(OutputStream stream) throws IOException {
+    stream.write(bytes, 0, size);
+  }
+
+  /**
+   * Empties the buffer, keeping its capacity for reuse.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * @return A copy of the contents of this buffer.
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  /**
+   * Grows the buffer if it cannot fit the given number of extra bytes.
+   * @param extra Number of bytes about to be written.
+   */
+  private void ensureCapacity(int extra) {
+    if (size + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+    }
+  }
+
+  /**
+   * @return The backing array. Only the first @link{#size} bytes are valid.
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,110 @@
+package io.seanbailey.railnetwork.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue for many producer threads and a single consumer
+ * thread.
+ *
+ * <p>
+ * Each slot carries a sequence number which says whose turn it is to use the
+ * slot. Producers claim a position with a single compare-and-set, write their
+ * element, then publish it by advancing the slot's sequence. The consumer
+ * reads published slots in order and hands them back the same way. Offering to
+ * a full buffer fails immediately rather than waiting.
+ * </p>
+ *
+ * @param <T> Type of element.
+ * @author Sean Bailey c3279343
+ */
+public class RingBuffer<T> {
+
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head = 0; // Only written by the consumer
+
+  /**
+   * Constructs a new ring buffer.
+   * @param capacity Maximum number of elements, rounded up to a power of two.
+   */
+  public RingBuffer(int capacity) {
+    int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    elements = new Object[size];
+    sequences = new AtomicLongArray(size);
+    mask = size - 1;
+
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Adds an element, if there is room. Safe to call from any thread.
+   * @param element Element to add.
+   * @return Whether the element was added.
+   */
+  public boolean offer(T element) {
+    long position = tail.get();
+
+    while (true) {
+      int slot = (int) position & mask;
+      long difference = sequences.get(slot) - position;
+
+      if (difference == 0) {
+        // Slot is free, so try to claim it
+        if (tail.compareAndSet(position, position + 1)) {
+          elements[slot] = element;
+          sequences.lazySet(slot, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        // Slot still holds an element from the previous lap
+        return false;
+      } else {
+        // Another producer claimed this position first
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Removes the oldest element. Must only be called from the consumer thread.
+   * @return The oldest element, or null if the buffer is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    long position = head;
+    int slot = (int) position & mask;
+    if (sequences.get(slot) != position + 1) {
+      return null;
+    }
+
+    T element = (T) elements[slot];
+    elements[slot] = null;
+    sequences.lazySet(slot, position + elements.length);
+    head = position + 1;
+    return element;
+  }
+
+  /**
+   * @return The number of elements which have been removed.
+   */
+  public long getConsumed() {
+    return head;
+  }
+
+  /**
+   * @return The number of positions which have been claimed by producers.
+   */
+  public long getProduced() {
+    return tail.get();
+  }
+
+  public int getCapacity() {
+    return elements.length;
+  }
+}
@@ -66,4 +66,37 @@ public class SearchUtil {
 
     return null;
   }
+
+  /**
+   * Finds the station with the given name and line ids in a sorted array of
+   * stations.
+   * @param stations An array of stations, sorted by name and then line.
+   * @param nameId Dictionary id of the station name.
+   * @param lineId Dictionary id of the station line.
+   * @return The located station or null.
+   */
+  public static Station find(Station[] stations, int nameId, int lineId) {
+    // Keep track of our search range
+    int i = 0;
+    int j = stations.length - 1;
+
+    // Continue until search range is zero or negative
+    while (i <= j) {
+      int k = (i + j) / 2; // Midway between i and j
+      int delta = nameId - stations[k].getNameId();
+      if (delta == 0) {
+        delta = lineId - stations[k].getLineId();
+      }
+
+      if (delta == 0) {
+        return stations[k];
+      } else if (delta < 0) {
+        j = k - 1;
+      } else {
+        i = k + 1;
+      }
+    }
+
+    return null;
+  }
 }
@@ -2,6 +2,10 @@ package io.seanbailey.railnetwork.util;
 
 import io.seanbailey.railnetwork.util.Logger;
 import io.seanbailey.railnetwork.util.MinHeap;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToLongFunction;
 
 /**
  * A utility class for performing sort operations on a
@@ -12,56 +16,171 @@ public class SortUtil {
 
   private static final Logger logger = new Logger();
 
-  /**
-   * Performs quick sort on the given heap.
-   * @param heap A min heap of stations
-   */
-  public static <T extends Comparable<T>> void quickSort(MinHeap<T> heap) {
-    quickSort(heap, 0, heap.getSize() - 1);
-  }
+  // Ranges smaller than this are sorted with an insertion sort
+  private static final int INSERTION_THRESHOLD = 32;
+
+  // Ranges smaller than this are not split across threads
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
 
   /**
-   * Performs a quick sort on the given partition.
-   * @param heap A min heap.
-   * @param i Start of partition.
-   * @param j End of partition.
+   * Sorts the nodes of the given heap by a primitive key.
+   *
+   * <p>
+   * This is a parallel merge sort, so it is O(n log n) in the worst case
+   * regardless of the input order, and it is stable. Nodes are moved around
+   * in the node array only once, after their final order is known, and the
+   * heap index is rebuilt at the very end. The key must order nodes the same
+   * way as their compareTo method does, so that the sorted array is also a
+   * valid heap.
+   * </p>
+   *
+   * @param heap A min heap to sort.
+   * @param key Function which maps a node to its sort key.
    */
-  private static <T extends Comparable<T>> void quickSort(MinHeap<T> heap, 
-      int i, int j) {
-    if (i < j) {
-      int partition = partition(heap, i, j);
-      quickSort(heap, i, partition - 1);
-      quickSort(heap, partition + 1, j);
+  public static <T extends Comparable<T>> void parallelSort(MinHeap<T> heap,
+      ToLongFunction<? super T> key) {
+    // Init
+    int size = heap.getSize();
+    T[] nodes = heap.getNodes();
+    long[] keys = new long[size];
+    int[] order = new int[size];
+
+    // Extract keys
+    for (int i = 0; i < size; i++) {
+      keys[i] = key.applyAsLong(nodes[i]);
+      order[i] = i;
+    }
+
+    // Sort keys, along with the original position of each node
+    ForkJoinPool.commonPool().invoke(new MergeSortTask(
+        keys, order, new long[size], new int[size], 0, size
+    ));
+
+    // Move nodes into place and rebuild the index
+    T[] unsorted = Arrays.copyOf(nodes, size);
+    for (int i = 0; i < size; i++) {
+      nodes[i] = unsorted[order[i]];
     }
+
+    heap.resetIndex();
   }
 
   /**
-   * Moves a random element into place, then returns the index of this
-   * partition/pivot point.
-   * @param heap A min heap to partition.
-   * @param i Current start of partition.
-   * @param j Current end of partition.
-   * @return Partition/pivot point.
+   * Sorts a range of keys, carrying an array of indices along with them.
    */
-  private static <T extends Comparable<T>> int partition(MinHeap<T> heap, int i,
-      int j) {
-    // Init
-    int partition = i;
-    T[] nodes = heap.getNodes();
-    T node = nodes[i];
+  private static class MergeSortTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
 
-    // Iterate to J, swapping as needed
-    for (int k = i + 1; k <= j; k++) {
-      if (nodes[k].compareTo(node) < 0) {
-        partition++;
-        heap.swap(partition, k);
+    private final long[] keys;
+    private final int[] order;
+    private final long[] keyBuffer;
+    private final int[] orderBuffer;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a new merge sort task.
+     * @param keys Keys to sort.
+     * @param order Indices to move along with the keys.
+     * @param keyBuffer Scratch space for keys.
+     * @param orderBuffer Scratch space for indices.
+     * @param from Start of range (inclusive).
+     * @param to End of range (exclusive).
+     */
+    MergeSortTask(long[] keys, int[] order, long[] keyBuffer,
+        int[] orderBuffer, int from, int to) {
+      this.keys = keys;
+      this.order = order;
+      this.keyBuffer = keyBuffer;
+      this.orderBuffer = orderBuffer;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      sort(from, to, to - from >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Sorts the given range.
+     * @param i Start of range (inclusive).
+     * @param j End of range (exclusive).
+     * @param parallel Whether the halves may be sorted in parallel.
+     */
+    private void sort(int i, int j, boolean parallel) {
+      if (j - i <= INSERTION_THRESHOLD) {
+        insertionSort(i, j);
+        return;
+      }
+
+      // Sort both halves
+      int k = (i + j) >>> 1; // Midway between i and j
+      if (parallel) {
+        invokeAll(
+            new MergeSortTask(keys, order, keyBuffer, orderBuffer, i, k),
+            new MergeSortTask(keys, order, keyBuffer, orderBuffer, k, j)
+        );
+      } else {
+        sort(i, k, false);
+        sort(k, j, false);
+      }
+
+      // Already in order, nothing to merge
+      if (keys[k - 1] <= keys[k]) {
+        return;
       }
+
+      merge(i, k, j);
     }
 
-    // Move partition/pivot point into place
-    heap.swap(partition, i);
+    /**
+     * Merges two adjacent sorted ranges.
+     * @param i Start of the first range.
+     * @param k Start of the second range.
+     * @param j End of the second range.
+     */
+    private void merge(int i, int k, int j) {
+      System.arraycopy(keys, i, keyBuffer, i, j - i);
+      System.arraycopy(order, i, orderBuffer, i, j - i);
 
-    return partition;
+      int left = i;
+      int right = k;
+      for (int n = i; n < j; n++) {
+        // Take from the left on ties, which keeps the sort stable
+        if (right >= j || (left < k && keyBuffer[left] <= keyBuffer[right])) {
+          keys[n] = keyBuffer[left];
+          order[n] = orderBuffer[left++];
+        } else {
+          keys[n] = keyBuffer[right];
+          order[n] = orderBuffer[right++];
+        }
+      }
+    }
+
+    /**
+     * Performs an insertion sort on a small range.
+     * @param i Start of range (inclusive).
+     * @param j End of range (exclusive).
+     */
+    private void insertionSort(int i, int j) {
+      for (int n = i + 1; n < j; n++) {
+        long key = keys[n];
+        int index = order[n];
+        int m = n - 1;
+
+        // Shift larger keys up
+        while (m >= i && keys[m] > key) {
+          keys[m + 1] = keys[m];
+          order[m + 1] = order[m];
+          m--;
+        }
+
+        keys[m + 1] = key;
+        order[m + 1] = index;
+      }
+    }
   }
 
   /**
@@ -0,0 +1,90 @@
+package io.seanbailey.railnetwork.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each stage of a pipeline took. Stages may run on
+ * different threads, and overlap.
+ *
+ * <p>
+ * Each stage has a span, from when it started to when it finished relative to
+ * the start of the pipeline, and a busy time, which leaves out time spent
+ * waiting on other stages. A stage whose busy time is close to its span was
+ * the bottleneck while it ran.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class StageTimings {
+
+  private final long origin = System.nanoTime();
+  private final List<Stage> stages = new ArrayList<>();
+
+  /**
+   * Records a stage.
+   * @param name Name of the stage.
+   * @param start System.nanoTime() when the stage started.
+   * @param end System.nanoTime() when the stage finished.
+   * @param busy Nanoseconds the stage spent working.
+   */
+  public synchronized void record(String name, long start, long end, long busy) {
+    stages.add(new Stage(name, start - origin, end - origin, busy));
+  }
+
+  /**
+   * Records a stage which never waited.
+   * @param name Name of the stage.
+   * @param start System.nanoTime() when the stage started.
+   * @return System.nanoTime() when the stage finished, which is now.
+   */
+  public long record(String name, long start) {
+    long end = System.nanoTime();
+    record(name, start, end, end - start);
+    return end;
+  }
+
+  /**
+   * @return Nanoseconds from the start of the pipeline to the end of its last
+   *         stage.
+   */
+  public synchronized long getElapsedNanos() {
+    long end = 0;
+    for (Stage stage : stages) {
+      end = Math.max(end, stage.end);
+    }
+
+    return end;
+  }
+
+  /**
+   * @return One line per stage, in the order they were recorded.
+   */
+  public synchronized List<String> format() {
+    List<String> lines = new ArrayList<>(stages.size());
+    for (Stage stage : stages) {
+      lines.add(String.format("%-10s %7.1f - %7.1f ms, busy %7.1f ms",
+          stage.name, stage.start / 1e6, stage.end / 1e6, stage.busy / 1e6));
+    }
+
+    return lines;
+  }
+
+  /**
+   * The timings of a single stage.
+   */
+  private static class Stage {
+
+    private final String name;
+    private final long start;
+    private final long end;
+    private final long busy;
+
+    Stage(String name, long start, long end, long busy) {
+      this.name = name;
+      this.start = start;
+      this.end = end;
+      this.busy = busy;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package io.seanbailey.railnetwork.util;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A thread safe pool of canonical strings, shared between dictionaries.
+ *
+ * <p>
+ * Networks which are loaded separately often repeat the same station and line
+ * names, especially where regions meet. Dictionaries which share a pool keep
+ * a single copy of each of those strings, however many networks use them.
+ * Ids are still assigned by each dictionary, so sharing a pool does not change
+ * any network's ids.
+ * </p>
+ *
+ * <p>
+ * The pool only holds its strings weakly. Once no network uses a string, for
+ * example after the network is reloaded or removed, it can be reclaimed.
+ * </p>
+ *
+ * @author Sean Bailey c3279343
+ */
+public class StringPool {
+
+  private final Interner<String> strings = Interners.newWeakInterner();
+
+  /**
+   * @param value String to intern.
+   * @return The canonical copy of the given string.
+   */
+  public String intern(String value) {
+    return strings.intern(value);
+  }
+}
@@ -0,0 +1,217 @@
+package io.seanbailey.railnetwork.analytics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.graph.GraphBuilder;
+import io.seanbailey.railnetwork.graph.GraphOrdering;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.MinHeap;
+import io.seanbailey.railnetwork.util.SortUtil;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class CentralityTest {
+
+  // Scores of A to E in the graph built by small(), worked out by hand
+  private static final double[] SCORES = { 5, 4, 2, 1, 0 };
+
+  // Contribution of each single source to the scores, worked out by hand
+  private static final double[][] SOURCE_SCORES = {
+    { 0, 0.5, 0, 0.5, 0 },
+    { 1, 0, 0, 0, 0 },
+    { 1, 2, 0, 0, 0 },
+    { 0, 1, 2, 0, 0 },
+    { 3, 0.5, 0, 0.5, 0 }
+  };
+
+  @Test
+  public void matchingHandComputedScores() {
+    StationGraph graph = small();
+    Centrality centrality = new BetweennessCentrality().compute(graph);
+
+    assertFalse(centrality.isApproximate());
+    for (int station = 0; station < SCORES.length; station++) {
+      assertEquals(SCORES[station], centrality.getStationScore(station), 1e-9);
+    }
+
+    // A = 0, B = 1, C = 2, D = 3, E = 4
+    assertEquals(3, getLoad(centrality, 0, 1), 1e-9);
+    assertEquals(5, getLoad(centrality, 1, 0), 1e-9);
+    assertEquals(2, getLoad(centrality, 1, 2), 1e-9);
+    assertEquals(5, getLoad(centrality, 2, 1), 1e-9);
+    assertEquals(5, getLoad(centrality, 0, 3), 1e-9);
+    assertEquals(4, getLoad(centrality, 3, 2), 1e-9);
+    assertEquals(4, getLoad(centrality, 4, 0), 1e-9);
+  }
+
+  @Test
+  public void samplingEveryStationIsExact() {
+    StationGraph graph = small();
+
+    for (int sampleSize : new int[] { 5, 6, 100 }) {
+      Centrality centrality = new BetweennessCentrality()
+          .setSampleSize(sampleSize)
+          .setSeed(3)
+          .compute(graph);
+
+      assertFalse(centrality.isApproximate());
+      assertEquals(5, centrality.getSourceCount());
+      for (int station = 0; station < SCORES.length; station++) {
+        assertEquals(SCORES[station], centrality.getStationScore(station), 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void scalingUpSampledSources() {
+    StationGraph graph = small();
+
+    for (long seed = 0; seed < 10; seed++) {
+      Centrality centrality = new BetweennessCentrality()
+          .setSampleSize(1)
+          .setSeed(seed)
+          .compute(graph);
+      assertTrue(centrality.isApproximate());
+      assertEquals(1, centrality.getSourceCount());
+
+      // Whichever source was picked, its scores are scaled up by 5
+      boolean matched = false;
+      for (double[] source : SOURCE_SCORES) {
+        boolean matches = true;
+        for (int station = 0; station < source.length; station++) {
+          matches &= Math.abs(5 * source[station] - centrality.getStationScore(station)) < 1e-9;
+        }
+        matched |= matches;
+      }
+      assertTrue("Sampled scores were not scaled up.", matched);
+    }
+  }
+
+  @Test
+  public void repeatingSampleForSeed() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    Centrality first = new BetweennessCentrality()
+        .setSampleSize(20)
+        .setSeed(42)
+        .compute(graph);
+    Centrality second = new BetweennessCentrality()
+        .setPool(new ForkJoinPool(1))
+        .setSampleSize(20)
+        .setSeed(42)
+        .compute(graph);
+
+    assertTrue(first.isApproximate());
+    assertEquals(20, first.getSourceCount());
+    for (int i = 0; i < graph.getStationCount(); i++) {
+      assertEquals(first.getStationScore(i), second.getStationScore(i), 1e-6);
+    }
+  }
+
+  @Test
+  public void parallelMatchesSequential() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    Centrality sequential = new BetweennessCentrality()
+        .setPool(new ForkJoinPool(1))
+        .compute(graph);
+    Centrality parallel = new BetweennessCentrality()
+        .setPool(new ForkJoinPool(4))
+        .compute(graph);
+
+    assertFalse(parallel.isApproximate());
+    for (int i = 0; i < graph.getStationCount(); i++) {
+      assertEquals(sequential.getStationScore(i), parallel.getStationScore(i), 1e-6);
+    }
+
+    for (int i = 0; i < graph.getEdgeCount(); i++) {
+      assertEquals(sequential.getEdgeLoad(i), parallel.getEdgeLoad(i), 1e-6);
+    }
+  }
+
+  @Test
+  public void edgeLoadsBalanceStationScores() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    Centrality centrality = new BetweennessCentrality().compute(graph);
+
+    // Every path leaving a station either starts there or passes through it
+    double[] outgoing = new double[graph.getStationCount()];
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      int degree = graph.getEdges(station, targets, durations);
+      for (int i = 0; i < degree; i++) {
+        double load = centrality.getEdgeLoad(centrality.getEdgeOffset(station) + i);
+        outgoing[station] += load;
+      }
+    }
+
+    // The sample network is strongly connected, so every path starting at a
+    // station reaches each of the others
+    int others = graph.getStationCount() - 1;
+    for (int station = 0; station < graph.getStationCount(); station++) {
+      assertEquals(outgoing[station] - others, centrality.getStationScore(station), 1e-6);
+    }
+  }
+
+  /**
+   * Builds a small network on one line, numbered A = 0 to E = 4:
+   * A <-> B <-> C, A -> D -> C, and E -> A. Nothing can reach E, and A has
+   * two shortest paths to C.
+   * @return The graph.
+   */
+  private static StationGraph small() {
+    Dictionary names = new Dictionary();
+    Dictionary lines = new Dictionary();
+    for (String name : new String[] { "A", "B", "C", "D", "E" }) {
+      names.add(name);
+    }
+    lines.add("L");
+    names.freeze();
+    lines.freeze();
+
+    Station[] stations = new Station[5];
+    MinHeap<Station> heap = new MinHeap<>(new Station[stations.length]);
+    for (int i = 0; i < stations.length; i++) {
+      stations[i] = new Station(names.get(i), i, "L", 0);
+      heap.insert(stations[i]);
+    }
+
+    stations[0].addAdjacentStation(stations[1], 1);
+    stations[1].addAdjacentStation(stations[0], 1);
+    stations[1].addAdjacentStation(stations[2], 1);
+    stations[2].addAdjacentStation(stations[1], 1);
+    stations[0].addAdjacentStation(stations[3], 1);
+    stations[3].addAdjacentStation(stations[2], 1);
+    stations[4].addAdjacentStation(stations[0], 5);
+
+    // Sorting numbers the stations in name order
+    SortUtil.parallelSort(heap, Station::getSortKey);
+    return new GraphBuilder()
+        .setOrdering(GraphOrdering.NAME)
+        .build(heap, names, lines);
+  }
+
+  /**
+   * @param centrality Centrality results.
+   * @param from Station at the start of the edge.
+   * @param to Station at the end of the edge.
+   * @return The load on the edge.
+   */
+  private static double getLoad(Centrality centrality, int from, int to) {
+    StationGraph graph = centrality.getGraph();
+    int[] targets = new int[graph.getMaxDegree()];
+    int[] durations = new int[graph.getMaxDegree()];
+    int degree = graph.getEdges(from, targets, durations);
+    for (int i = 0; i < degree; i++) {
+      if (targets[i] == to) {
+        return centrality.getEdgeLoad(centrality.getEdgeOffset(from) + i);
+      }
+    }
+
+    throw new AssertionError("No edge from " + from + " to " + to + ".");
+  }
+}
@@ -0,0 +1,61 @@
+package io.seanbailey.railnetwork.autocomplete;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.Dictionary;
+import org.junit.Test;
+
+public class NameMatcherTest {
+
+  @Test
+  public void suggestingPrefixesByPopularity() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    NameIndex index = new NameIndex(graph);
+    NameMatcher matcher = new NameMatcher(index);
+    Dictionary names = graph.getNames();
+
+    int[] results = new int[5];
+    int count = matcher.suggest("TOWN", 0, results);
+    assertEquals(1, count);
+    assertEquals("Town Hall", names.get(results[0]));
+
+    // Every prefix match, most popular first
+    count = matcher.suggest("c", 0, results);
+    assertEquals(5, count);
+    for (int i = 0; i < count; i++) {
+      assertTrue(names.get(results[i]).startsWith("C"));
+      if (i > 0) {
+        assertTrue(index.getScore(results[i - 1]) >= index.getScore(results[i]));
+      }
+    }
+
+    assertEquals(0, matcher.suggest("Nowhere", 0, results));
+  }
+
+  @Test
+  public void suggestingMisspeltNames() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    NameMatcher matcher = new NameMatcher(new NameIndex(graph));
+    Dictionary names = graph.getNames();
+    int[] results = new int[3];
+
+    // Swapped characters
+    assertTrue(matcher.suggest("centarl", 1, results) > 0);
+    assertEquals("Central", names.get(results[0]));
+    assertEquals(1, matcher.getDistance(0));
+
+    // Substitution and deletion
+    assertTrue(matcher.suggest("Hornzby", 1, results) > 0);
+    assertEquals("Hornsby", names.get(results[0]));
+    assertTrue(matcher.suggest("Strathfeld", 1, results) > 0);
+    assertEquals("Strathfield", names.get(results[0]));
+
+    // Exact prefixes rank above fuzzy ones
+    assertTrue(matcher.suggest("Central", 2, results) > 0);
+    assertEquals("Central", names.get(results[0]));
+    assertEquals(0, matcher.getDistance(0));
+  }
+}
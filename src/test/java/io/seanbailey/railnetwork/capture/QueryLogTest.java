@@ -0,0 +1,139 @@
+package io.seanbailey.railnetwork.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class QueryLogTest {
+
+  @Test
+  public void readingCapturedQueries() throws Throwable {
+    Path path = createLog();
+
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      long now = System.nanoTime();
+      recorder.recordRoute("sydney", "Central", "Hornsby", now, 2000);
+      recorder.recordReachable("sydney", "Central", 15, now + 5000, 3000);
+      recorder.recordRoute("sydney", "Central", "Redfern", now + 9000, 1000);
+    }
+
+    // A second session appends to the same log
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      recorder.recordRoute("sydney", "Hornsby", "Central", System.nanoTime(), 4000);
+    }
+
+    List<QueryRecord> records = QueryLog.read(path);
+    assertEquals(4, records.size());
+
+    QueryRecord route = records.get(0);
+    assertEquals("sydney", route.getNetwork());
+    assertEquals(QueryKind.ROUTE, route.getKind());
+    assertEquals("Central", route.getOrigin());
+    assertEquals("Hornsby", route.getDestination());
+    assertEquals(2, route.getLatencyMicros());
+
+    QueryRecord reachable = records.get(1);
+    assertEquals(QueryKind.REACHABLE, reachable.getKind());
+    assertNull(reachable.getDestination());
+    assertEquals(15, reachable.getMinutes());
+    assertEquals(5, reachable.getArrivalMicros() - route.getArrivalMicros());
+
+    assertEquals("Redfern", records.get(2).getDestination());
+    assertEquals("Hornsby", records.get(3).getOrigin());
+    assertTrue(records.get(3).getArrivalMicros() >= records.get(2).getArrivalMicros());
+  }
+
+  @Test
+  public void readingRepeatedStringsWithinRecord() throws Throwable {
+    Path path = createLog();
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      long now = System.nanoTime();
+      recorder.recordRoute("net", "A", "A", now, 0);
+      recorder.recordRoute("net", "B", "C", now, 0);
+      recorder.recordRoute("net", "C", "B", now, 0);
+      recorder.recordReachable("Central", "Central", 5, now, 0);
+      recorder.recordRoute("Central", "B", "Central", now, 0);
+    }
+
+    List<QueryRecord> records = QueryLog.read(path);
+    assertEquals(5, records.size());
+    assertEquals("A", records.get(0).getOrigin());
+    assertEquals("A", records.get(0).getDestination());
+    assertEquals("C", records.get(2).getOrigin());
+    assertEquals("B", records.get(2).getDestination());
+    assertEquals("Central", records.get(3).getNetwork());
+    assertEquals("Central", records.get(3).getOrigin());
+    assertEquals("B", records.get(4).getOrigin());
+    assertEquals("Central", records.get(4).getDestination());
+  }
+
+  @Test
+  public void rejectingMissingNames() throws Throwable {
+    Path path = createLog();
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      try {
+        recorder.recordRoute("net", null, "A", System.nanoTime(), 0);
+        fail("A null origin was accepted.");
+      } catch (NullPointerException exception) {
+        // Expected
+      }
+
+      // The recorder keeps working
+      recorder.recordRoute("net", "A", "B", System.nanoTime(), 0);
+    }
+
+    assertEquals(1, QueryLog.read(path).size());
+  }
+
+  @Test
+  public void readingTruncatedLog() throws Throwable {
+    Path path = createLog();
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      recorder.recordRoute("sydney", "Central", "Hornsby", System.nanoTime(), 0);
+      recorder.recordRoute("sydney", "Central", "Redfern", System.nanoTime(), 0);
+    }
+
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+    assertEquals(1, QueryLog.read(path).size());
+  }
+
+  @Test
+  public void replayingCapturedQueries() throws Throwable {
+    Path path = createLog();
+    try (QueryRecorder recorder = new QueryRecorder(path)) {
+      for (int i = 0; i < 10; i++) {
+        recorder.recordRoute("sydney", "Central", "Hornsby", System.nanoTime(), 1000);
+        recorder.recordRoute("other", "Central", "Redfern", System.nanoTime(), 1000);
+      }
+      recorder.recordRoute("sydney", "Central", "Nowhere", System.nanoTime(), 1000);
+    }
+
+    ReplayReport report = new QueryReplayer(new NetworkLoader().load("RailNetwork.xml"))
+        .setSpeed(0)
+        .setNetworkName("sydney")
+        .replay(QueryLog.read(path));
+
+    assertEquals(11, report.getQueries());
+    assertEquals(1, report.getErrors());
+    assertEquals(11, report.getCaptured().getCount());
+  }
+
+  private static Path createLog() throws Exception {
+    File file = File.createTempFile("queries", ".log");
+    file.deleteOnExit();
+    Files.write(file.toPath(), new byte[0]);
+
+    return file.toPath();
+  }
+}
@@ -0,0 +1,128 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.route.Leg;
+import io.seanbailey.railnetwork.route.Route;
+import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.MinHeap;
+import io.seanbailey.railnetwork.util.SortUtil;
+import org.junit.Test;
+
+public class CompactGraphTest {
+
+  @Test
+  public void collapsingThroughStations() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    CompactGraph compact = network.getCompactGraph();
+
+    assertTrue(compact.getInteriorCount() > 0);
+    assertEquals(network.getGraph().getStationCount(),
+        compact.getCore().getStationCount() + compact.getInteriorCount());
+  }
+
+  @Test
+  public void routesMatchFullGraph() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    StationGraph graph = network.getGraph();
+    Dictionary names = graph.getNames();
+    ShortestPathSearch search = new ShortestPathSearch(graph);
+
+    for (int i = 0; i < names.size(); i += 3) {
+      for (int j = 0; j < names.size(); j++) {
+        if (i == j) {
+          continue;
+        }
+
+        search.reset();
+        for (int k = graph.getNameOffset(i); k < graph.getNameOffset(i + 1); k++) {
+          search.addSource(graph.getNameStation(k), 0);
+        }
+        int expected = search.getDistance(search.searchToName(j));
+
+        Route route = network.findShortestPath(names.get(i), names.get(j));
+        assertEquals(names.get(i) + " to " + names.get(j), expected, route.getTotalMinutes());
+        assertEquals(names.get(i), route.getLegs()[0].getOrigin());
+        assertEquals(names.get(j), route.getLegs()[route.getLegs().length - 1].getDestination());
+
+        int minutes = 0;
+        for (Leg leg : route.getLegs()) {
+          minutes += leg.getMinutes();
+        }
+        assertEquals(expected, minutes);
+      }
+    }
+  }
+
+  @Test
+  public void keepingOffHeapNetworkOffHeap() throws Throwable {
+    CompactGraph expected = new NetworkLoader().load("RailNetwork.xml").getCompactGraph();
+    RailNetwork network = new NetworkLoader()
+        .setStorage(GraphStorage.OFF_HEAP)
+        .load("RailNetwork.xml");
+    CompactGraph actual = network.getCompactGraph();
+
+    assertEquals(GraphStorage.OFF_HEAP, actual.getCore().getStorage());
+    assertEquals(expected.getInteriorCount(), actual.getInteriorCount());
+    for (int station = 0; station < network.getGraph().getStationCount(); station++) {
+      assertEquals(expected.getCoreId(station), actual.getCoreId(station));
+      if (actual.getCoreId(station) < 0) {
+        for (int direction = 0; direction < 2; direction++) {
+          assertEquals(expected.getMemberEdge(station, direction),
+              actual.getMemberEdge(station, direction));
+          assertEquals(expected.getMemberIndex(station, direction),
+              actual.getMemberIndex(station, direction));
+        }
+      }
+    }
+
+    for (int edge = 0; edge < actual.getCore().getEdgeCount(); edge++) {
+      assertEquals(expected.getEdgeSource(edge), actual.getEdgeSource(edge));
+      for (int i = actual.getChainOffset(edge); i < actual.getChainOffset(edge + 1); i++) {
+        assertEquals(expected.getChainStation(i), actual.getChainStation(i));
+        assertEquals(expected.getChainDistance(i), actual.getChainDistance(i));
+      }
+    }
+  }
+
+  @Test
+  public void routingAroundRing() throws Throwable {
+    // A ring line with no interchanges, so every station is a through-station
+    String[] stops = { "A", "B", "C", "D", "E" };
+    Dictionary names = new Dictionary();
+    Dictionary lines = new Dictionary();
+    for (String stop : stops) {
+      names.add(stop);
+    }
+    lines.add("Ring");
+    names.freeze();
+    lines.freeze();
+
+    Station[] stations = new Station[stops.length];
+    MinHeap<Station> heap = new MinHeap<>(new Station[stops.length]);
+    for (int i = 0; i < stops.length; i++) {
+      stations[i] = new Station(stops[i], i, "Ring", 0);
+      heap.insert(stations[i]);
+    }
+    for (int i = 0; i < stops.length; i++) {
+      Station next = stations[(i + 1) % stops.length];
+      stations[i].addAdjacentStation(next, i + 1);
+      next.addAdjacentStation(stations[i], i + 1);
+    }
+    SortUtil.parallelSort(heap, Station::getSortKey);
+
+    StationGraph graph = new GraphBuilder().build(heap, names, lines);
+    RailNetwork network = new RailNetwork(graph);
+
+    assertEquals(1, network.getCompactGraph().getCore().getStationCount());
+    assertEquals(5, network.findShortestPath("B", "D").getTotalMinutes());
+    assertEquals(5, network.findShortestPath("D", "B").getTotalMinutes());
+    assertEquals(6, network.findShortestPath("E", "B").getTotalMinutes());
+    assertEquals(3, network.findShortestPath("C", "A").getTotalMinutes());
+    assertEquals(1, network.findShortestPath("B", "D").getLegs().length);
+  }
+}
@@ -0,0 +1,74 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.station.Station;
+import io.seanbailey.railnetwork.util.Dictionary;
+import io.seanbailey.railnetwork.util.MinHeap;
+import io.seanbailey.railnetwork.util.SortUtil;
+import org.junit.Test;
+
+public class ComponentIndexTest {
+
+  @Test
+  public void rejectsUnreachableStations() {
+    Dictionary names = new Dictionary();
+    Dictionary lines = new Dictionary();
+    for (String name : new String[] { "A", "B", "C", "D", "E" }) {
+      names.add(name);
+    }
+    lines.add("L");
+    names.freeze();
+    lines.freeze();
+
+    Station[] stations = new Station[5];
+    MinHeap<Station> heap = new MinHeap<>(new Station[stations.length]);
+    for (int i = 0; i < stations.length; i++) {
+      stations[i] = new Station(names.get(i), i, "L", 0);
+      heap.insert(stations[i]);
+    }
+
+    // A <-> B -> C, and separately D <-> E
+    stations[0].addAdjacentStation(stations[1], 2);
+    stations[1].addAdjacentStation(stations[0], 2);
+    stations[1].addAdjacentStation(stations[2], 2);
+    stations[3].addAdjacentStation(stations[4], 2);
+    stations[4].addAdjacentStation(stations[3], 2);
+
+    // Sorting numbers the stations in name order
+    SortUtil.parallelSort(heap, Station::getSortKey);
+    StationGraph graph = new GraphBuilder()
+        .setOrdering(GraphOrdering.NAME)
+        .build(heap, names, lines);
+    ComponentIndex index = new ComponentIndex(graph);
+
+    assertEquals(3, index.getStrongComponentCount());
+    assertTrue(index.canReach(0, 1));
+    assertTrue(index.mayReach(0, 2));
+    assertFalse("One way edge was followed backwards.", index.mayReach(2, 0));
+    assertFalse("Separate networks were connected.", index.mayReach(0, 3));
+    assertTrue(index.canReach(4, 3));
+  }
+
+  @Test
+  public void matchingAcrossStorage() throws Throwable {
+    StationGraph heap = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    StationGraph offHeap = new NetworkLoader()
+        .setStorage(GraphStorage.OFF_HEAP)
+        .load("RailNetwork.xml")
+        .getGraph();
+    ComponentIndex expected = new ComponentIndex(heap);
+    ComponentIndex actual = new ComponentIndex(offHeap);
+
+    assertEquals(expected.getStrongComponentCount(), actual.getStrongComponentCount());
+    for (int from = 0; from < heap.getStationCount(); from++) {
+      assertEquals(expected.getStrongComponent(from), actual.getStrongComponent(from));
+      for (int to = 0; to < heap.getStationCount(); to += 17) {
+        assertEquals(expected.mayReach(from, to), actual.mayReach(from, to));
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class CompressedStationGraphTest {
+
+  @Test
+  public void edgesMatchHeapStorage() throws Throwable {
+    StationGraph heap = new NetworkLoader()
+        .setStorage(GraphStorage.HEAP)
+        .load("RailNetwork.xml")
+        .getGraph();
+    StationGraph compressed = new NetworkLoader()
+        .setStorage(GraphStorage.COMPRESSED)
+        .load("RailNetwork.xml")
+        .getGraph();
+
+    assertEquals(heap.getEdgeCount(), compressed.getEdgeCount());
+    assertEdgesEqual(heap, compressed);
+  }
+
+  @Test
+  public void encodingLargeDeltasAndDurations() {
+    // Targets far apart in both directions, and durations which straddle words
+    int stations = 3000000;
+    GraphLayout layout = new GraphLayout();
+    layout.stationNames = new int[stations];
+    layout.stationLines = new int[stations];
+    layout.stationRanks = new int[stations];
+    layout.edgeOffsets = new int[stations + 1];
+    layout.edgeOffsets[1] = 3;
+    layout.edgeOffsets[2] = 5;
+    Arrays.fill(layout.edgeOffsets, 3, stations + 1, 6);
+    layout.edgeTargets = new int[] { stations - 1, 1, 200, 0, stations - 2, 1 };
+    layout.edgeDurations = new int[] { 1, 100000, 7, 65535, 3, 99999 };
+    layout.nameOffsets = new int[] { 0, stations };
+    layout.nameStations = new int[stations];
+
+    Dictionary names = new Dictionary();
+    names.freeze();
+    StationGraph graph = new CompressedStationGraph(layout, names, names);
+
+    int[] targets = new int[3];
+    int[] durations = new int[3];
+    assertEquals(3, graph.getEdges(0, targets, durations));
+    assertArrayEquals(new int[] { stations - 1, 1, 200 }, targets);
+    assertArrayEquals(new int[] { 1, 100000, 7 }, durations);
+
+    assertEquals(2, graph.getEdges(1, targets, durations));
+    assertEquals(0, targets[0]);
+    assertEquals(stations - 2, targets[1]);
+    assertEquals(65535, durations[0]);
+    assertEquals(3, durations[1]);
+
+    assertEquals(1, graph.getEdges(2, targets, durations));
+    assertEquals(1, targets[0]);
+    assertEquals(99999, durations[0]);
+  }
+
+  private static void assertEdgesEqual(StationGraph expected, StationGraph actual) {
+    int degree = expected.getMaxDegree();
+    int[] expectedTargets = new int[degree];
+    int[] expectedDurations = new int[degree];
+    int[] actualTargets = new int[degree];
+    int[] actualDurations = new int[degree];
+
+    for (int station = 0; station < expected.getStationCount(); station++) {
+      int count = expected.getEdges(station, expectedTargets, expectedDurations);
+      assertEquals(count, actual.getEdges(station, actualTargets, actualDurations));
+      for (int i = 0; i < count; i++) {
+        assertEquals(expectedTargets[i], actualTargets[i]);
+        assertEquals(expectedDurations[i], actualDurations[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class DeltaSteppingTest {
+
+  @Test
+  public void matchesDijkstra() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    ShortestPathSearch search = new ShortestPathSearch(graph);
+
+    // Try both a narrow and a wide bucket width
+    for (int delta : new int[] { 1, 3, 20 }) {
+      DeltaStepping deltaStepping = new DeltaStepping(graph, delta, ForkJoinPool.commonPool());
+
+      for (int source = 0; source < graph.getStationCount(); source += 17) {
+        search.reset();
+        search.addSource(source, 0);
+        search.searchAll();
+
+        int[] expected = new int[graph.getStationCount()];
+        for (int i = 0; i < expected.length; i++) {
+          expected[i] = search.getDistance(i);
+        }
+
+        int[] actual = deltaStepping.search(new int[] { source }, new int[] { 0 });
+        assertArrayEquals("Delta " + delta + ", source " + source, expected, actual);
+      }
+    }
+  }
+}
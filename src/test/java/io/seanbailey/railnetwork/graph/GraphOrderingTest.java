@@ -0,0 +1,53 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import org.junit.Test;
+
+public class GraphOrderingTest {
+
+  @Test
+  public void renumberingKeepsDistances() throws Throwable {
+    StationGraph byName = new NetworkLoader()
+        .setOrdering(GraphOrdering.NAME)
+        .load("RailNetwork.xml")
+        .getGraph();
+    StationGraph byLocality = new NetworkLoader()
+        .setOrdering(GraphOrdering.LOCALITY)
+        .load("RailNetwork.xml")
+        .getGraph();
+
+    // Ranks give the old id of every renumbered station
+    int size = byName.getStationCount();
+    int[] ids = new int[size];
+    for (int i = 0; i < size; i++) {
+      ids[byLocality.getRank(i)] = i;
+      assertEquals(byName.getNameId(byLocality.getRank(i)), byLocality.getNameId(i));
+      assertEquals(byName.getLineId(byLocality.getRank(i)), byLocality.getLineId(i));
+    }
+
+    // Name index lists the same stations in the same order
+    for (int name = 0; name < byName.getNames().size(); name++) {
+      for (int i = byName.getNameOffset(name); i < byName.getNameOffset(name + 1); i++) {
+        assertEquals(ids[byName.getNameStation(i)], byLocality.getNameStation(i));
+      }
+    }
+
+    ShortestPathSearch first = new ShortestPathSearch(byName);
+    ShortestPathSearch second = new ShortestPathSearch(byLocality);
+    for (int source = 0; source < size; source += 11) {
+      first.reset();
+      first.addSource(source, 0);
+      first.searchAll();
+      second.reset();
+      second.addSource(ids[source], 0);
+      second.searchAll();
+
+      for (int i = 0; i < size; i++) {
+        assertEquals(first.getDistance(i), second.getDistance(ids[i]));
+        assertEquals(ids[first.getSettled(i)], second.getSettled(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package io.seanbailey.railnetwork.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.route.Route;
+import java.util.Random;
+import org.junit.Test;
+
+public class ShortestPathSearchTest {
+
+  @Test
+  public void targetModesMatchFullSearch() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    ShortestPathSearch full = new ShortestPathSearch(graph);
+    ShortestPathSearch search = new ShortestPathSearch(graph);
+    Random random = new Random(42);
+
+    for (int trial = 0; trial < 50; trial++) {
+      int[] targets = new int[1 + random.nextInt(5)];
+      int[] offsets = new int[targets.length];
+      for (int i = 0; i < targets.length; i++) {
+        targets[i] = random.nextInt(graph.getStationCount());
+        offsets[i] = random.nextInt(10);
+      }
+
+      int source = random.nextInt(graph.getStationCount());
+      full.reset();
+      full.addSource(source, 0);
+      full.searchAll();
+
+      // Closest target, ties going to the first listed
+      int expected = -1;
+      long expectedDistance = Long.MAX_VALUE;
+      for (int i = 0; i < targets.length; i++) {
+        if (full.getDistance(targets[i]) != Integer.MAX_VALUE
+            && (long) full.getDistance(targets[i]) + offsets[i] < expectedDistance) {
+          expected = i;
+          expectedDistance = (long) full.getDistance(targets[i]) + offsets[i];
+        }
+      }
+
+      search.reset();
+      search.addSource(source, 0);
+      assertEquals("Trial " + trial, expected, search.searchToTargets(targets, offsets,
+          targets.length, TargetMode.FIRST));
+
+      search.reset();
+      search.addSource(source, 0);
+      assertEquals("Trial " + trial, expected, search.searchToTargets(targets, offsets,
+          targets.length, TargetMode.ALL));
+      for (int target : targets) {
+        assertEquals("Trial " + trial, full.getDistance(target), search.getDistance(target));
+      }
+    }
+  }
+
+  @Test
+  public void multipleEndpointsMatchPairwiseRoutes() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    StationGraph graph = network.getGraph();
+    Random random = new Random(7);
+
+    for (int trial = 0; trial < 20; trial++) {
+      String[] origins = new String[1 + random.nextInt(3)];
+      int[] offsets = new int[origins.length];
+      String[] destinations = new String[1 + random.nextInt(4)];
+      for (int i = 0; i < origins.length; i++) {
+        origins[i] = graph.getNames().get(random.nextInt(graph.getNames().size()));
+        offsets[i] = random.nextInt(15);
+      }
+      for (int i = 0; i < destinations.length; i++) {
+        destinations[i] = graph.getNames().get(random.nextInt(graph.getNames().size()));
+      }
+
+      // Compare against one query per pair
+      int nearest = Integer.MAX_VALUE;
+      int[] distances = network.findDistances(origins, offsets, destinations);
+      for (int j = 0; j < destinations.length; j++) {
+        int expected = Integer.MAX_VALUE;
+        for (int i = 0; i < origins.length; i++) {
+          int minutes = origins[i].equals(destinations[j]) ? 0
+              : network.findShortestPath(origins[i], destinations[j]).getTotalMinutes();
+          if (minutes >= 0) {
+            expected = Math.min(expected, offsets[i] + minutes);
+          }
+        }
+
+        assertEquals("Trial " + trial, expected == Integer.MAX_VALUE ? -1 : expected,
+            distances[j]);
+        nearest = Math.min(nearest, expected);
+      }
+
+      Route route = network.findNearest(origins, offsets, destinations);
+      if (nearest == Integer.MAX_VALUE) {
+        assertEquals(Route.UNREACHABLE, route);
+        continue;
+      }
+
+      String origin = route.getLegs()[0].getOrigin();
+      int offset = -1;
+      for (int i = 0; i < origins.length; i++) {
+        if (origins[i].equals(origin)) {
+          offset = offset < 0 ? offsets[i] : Math.min(offset, offsets[i]);
+        }
+      }
+      assertEquals("Trial " + trial, nearest, offset + route.getTotalMinutes());
+    }
+  }
+}
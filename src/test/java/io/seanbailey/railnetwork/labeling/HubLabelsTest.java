@@ -0,0 +1,77 @@
+package io.seanbailey.railnetwork.labeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.GraphStorage;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+public class HubLabelsTest {
+
+  @Test
+  public void labelsMatchSearch() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    Dictionary names = network.getGraph().getNames();
+    HubLabels labels = new HubLabeler().build(network.getGraph());
+
+    // Read the labels back from a file, as a service would
+    Path file = Files.createTempFile("labels", ".hl");
+    try {
+      labels.write(file);
+      HubLabels mapped = HubLabels.read(file);
+
+      String[] all = new String[names.size()];
+      for (int i = 0; i < all.length; i++) {
+        all[i] = names.get(i);
+      }
+
+      for (int origin = 0; origin < all.length; origin++) {
+        int[] expected = network.findDistances(new String[] { all[origin] },
+            new int[1], all);
+        for (int destination = 0; destination < all.length; destination++) {
+          String message = all[origin] + " to " + all[destination];
+          assertEquals(message, expected[destination],
+              labels.getDistance(origin, destination));
+          assertEquals(message, expected[destination],
+              mapped.getDistance(origin, destination));
+        }
+      }
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void fingerprintIgnoresStorage() throws Throwable {
+    StationGraph heap = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    RailNetwork compressed = new NetworkLoader()
+        .setStorage(GraphStorage.COMPRESSED)
+        .load("RailNetwork.xml");
+
+    // Labels built from one copy of the network can serve another
+    compressed.setHubLabels(new HubLabeler().build(heap));
+    assertEquals(HubLabels.fingerprint(heap),
+        HubLabels.fingerprint(compressed.getGraph()));
+  }
+
+  @Test
+  public void rejectingLabelsOfAnotherNetwork() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    HubLabels labels = new HubLabels(1, new int[1], new int[0], new int[0],
+        new int[1], new int[0], new int[0]);
+
+    try {
+      network.setHubLabels(labels);
+      fail("Labels of another network were accepted.");
+    } catch (ValidationException exception) {
+      // Expected
+    }
+  }
+}
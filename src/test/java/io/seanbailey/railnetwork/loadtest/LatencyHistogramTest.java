@@ -0,0 +1,94 @@
+package io.seanbailey.railnetwork.loadtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void percentilesAreWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100000; value++) {
+      histogram.record(value * 1000);
+    }
+
+    assertEquals(100000, histogram.getCount());
+    assertEquals(100000000, histogram.getMax());
+    assertClose(50000000, histogram.getValueAtPercentile(50));
+    assertClose(99000000, histogram.getValueAtPercentile(99));
+    assertClose(99900000, histogram.getValueAtPercentile(99.9));
+    assertEquals(100000000, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(3);
+    histogram.record(5);
+    histogram.record(127);
+
+    assertEquals(3, histogram.getValueAtPercentile(10));
+    assertEquals(5, histogram.getValueAtPercentile(50));
+    assertEquals(127, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void correctingCoordinatedOmission() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1000, 1000);
+    }
+
+    // One stall which held back 99 more queries
+    histogram.record(100000, 1000);
+
+    assertEquals(199, histogram.getCount());
+    assertTrue(histogram.getValueAtPercentile(75) > 40000);
+  }
+
+  @Test
+  public void addingHistograms() {
+    LatencyHistogram first = new LatencyHistogram();
+    LatencyHistogram second = new LatencyHistogram();
+    first.record(10);
+    second.record(20);
+    second.record(30);
+    first.add(second);
+
+    assertEquals(3, first.getCount());
+    assertEquals(30, first.getMax());
+    assertEquals(20, first.getMean(), 0.001);
+  }
+
+  @Test
+  public void readingWrittenReport() throws Throwable {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 1000; value++) {
+      histogram.record(value * 1000);
+    }
+    LoadTestReport report = new LoadTestReport(
+        "base", 4, 0, 2000, 1000, 1, histogram, histogram
+    );
+
+    OutputBuffer buffer = new OutputBuffer();
+    report.write(buffer);
+    String text = new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    LoadTestReport read = LoadTestReport.read(Arrays.asList(text.split("\n")));
+
+    assertEquals("base", read.getLabel());
+    assertEquals(500, read.getThroughput(), 0.001);
+    for (int i = 0; i <= LoadTestReport.PERCENTILES.length; i++) {
+      assertEquals(report.getLatency(i), read.getLatency(i));
+    }
+  }
+
+  private static void assertClose(long expected, long actual) {
+    assertTrue(actual + " is not within 2% of " + expected,
+        Math.abs(actual - expected) <= expected * 0.02);
+  }
+}
@@ -0,0 +1,57 @@
+package io.seanbailey.railnetwork.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+public class NetworkInputTest {
+
+  @Test
+  public void loadingCompressedNetworks() throws Throwable {
+    byte[] xml = Files.readAllBytes(Paths.get("RailNetwork.xml"));
+    RailNetwork plain = new NetworkLoader().load("RailNetwork.xml");
+
+    for (boolean gzip : new boolean[] { true, false }) {
+      File file = File.createTempFile("network", gzip ? ".xml.gz" : ".xml.z");
+      try {
+        try (OutputStream stream = gzip
+            ? new GZIPOutputStream(Files.newOutputStream(file.toPath()))
+            : new DeflaterOutputStream(Files.newOutputStream(file.toPath()))) {
+          stream.write(xml);
+        }
+
+        RailNetwork network = new NetworkLoader().load(file.getPath());
+        assertEquals(plain.getGraph().getStationCount(),
+            network.getGraph().getStationCount());
+        assertEquals(plain.findShortestPath("Central", "East Hills").toString(),
+            network.findShortestPath("Central", "East Hills").toString());
+      } finally {
+        file.delete();
+      }
+    }
+  }
+
+  @Test
+  public void rejectingZstandard() throws Throwable {
+    File file = File.createTempFile("network", ".xml.zst");
+    try {
+      Files.write(file.toPath(), new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0 });
+      new NetworkLoader().load(file.getPath());
+      fail("Zstandard input was accepted.");
+    } catch (ValidationException exception) {
+      // Expected
+    } finally {
+      file.delete();
+    }
+  }
+}
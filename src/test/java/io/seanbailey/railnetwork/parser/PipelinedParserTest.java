@@ -0,0 +1,136 @@
+package io.seanbailey.railnetwork.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.station.StationTable;
+import io.seanbailey.railnetwork.util.StageTimings;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class PipelinedParserTest {
+
+  @Test
+  public void matchingDomParser() throws Throwable {
+    StationGraph expected = new NetworkLoader()
+        .setPipelined(false)
+        .load("RailNetwork.xml")
+        .getGraph();
+    StationGraph actual = new NetworkLoader().load("RailNetwork.xml").getGraph();
+
+    assertEquals(expected.getStationCount(), actual.getStationCount());
+    assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+
+    int[] expectedTargets = new int[expected.getMaxDegree()];
+    int[] expectedDurations = new int[expected.getMaxDegree()];
+    int[] actualTargets = new int[actual.getMaxDegree()];
+    int[] actualDurations = new int[actual.getMaxDegree()];
+    for (int i = 0; i < expected.getStationCount(); i++) {
+      assertEquals(expected.getNames().get(expected.getNameId(i)),
+          actual.getNames().get(actual.getNameId(i)));
+      assertEquals(expected.getLines().get(expected.getLineId(i)),
+          actual.getLines().get(actual.getLineId(i)));
+      assertEquals(expected.getRank(i), actual.getRank(i));
+
+      int degree = expected.getEdges(i, expectedTargets, expectedDurations);
+      assertEquals(degree, actual.getEdges(i, actualTargets, actualDurations));
+      for (int j = 0; j < degree; j++) {
+        assertEquals(expectedTargets[j], actualTargets[j]);
+        assertEquals(expectedDurations[j], actualDurations[j]);
+      }
+    }
+  }
+
+  @Test
+  public void rejectingInvalidStations() throws Throwable {
+    String[] invalid = {
+      // Reference to a station which does not exist
+      station("A", "L", edge("B", "L", "2")),
+      // Same station twice
+      station("A", "L", "") + station("A", "L", ""),
+      // Duration which is not a positive number
+      station("A", "L", edge("A", "L", "0")),
+      station("A", "L", edge("A", "L", "soon")),
+      // Station without a line
+      "<Station><Name>A</Name></Station>"
+    };
+
+    for (String stations : invalid) {
+      try {
+        parse("<Stations>" + stations + "</Stations>");
+        fail("Invalid stations were accepted: " + stations);
+      } catch (ValidationException exception) {
+        // Expected
+      }
+    }
+  }
+
+  @Test
+  public void rejectingDuplicateStationsLikeDomParser() throws Throwable {
+    String xml = "<Stations>" + station("A", "L", edge("B", "L", "2"))
+        + station("B", "L", "") + station("A", "L", "") + "</Stations>";
+
+    try {
+      new StationParser().parse(
+          new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "test");
+      fail("DOM parser accepted a duplicate station.");
+    } catch (ValidationException exception) {
+      assertEquals("Station 'A' (L) is defined more than once.", exception.getMessage());
+    }
+
+    try {
+      parse(xml);
+      fail("Pipelined parser accepted a duplicate station.");
+    } catch (ValidationException exception) {
+      assertEquals("Station 'A' (L) is defined more than once.", exception.getMessage());
+    }
+  }
+
+  @Test
+  public void rejectingMalformedXml() throws Throwable {
+    try {
+      parse("<Stations>" + station("A", "L", "") + "<Station>");
+      fail("Malformed XML was accepted.");
+    } catch (ParseException exception) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void flatteningInRankOrder() throws Throwable {
+    int[] ids = parse("<Stations>"
+        + station("B", "L", edge("A", "L", "3"))
+        + station("A", "L", edge("B", "L", "3") + edge("A", "M", "1"))
+        + station("A", "M", edge("A", "L", "1"))
+        + "</Stations>").getEdgeTargets();
+
+    // A (L), A (M), then B (L)
+    assertArrayEquals(new int[] { 2, 1, 0, 0 }, ids);
+  }
+
+  /**
+   * @param xml Stations XML.
+   * @return The parsed station table.
+   */
+  private static StationTable parse(String xml)
+      throws Throwable {
+    return new PipelinedParser(null, new StageTimings()).parse(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "test");
+  }
+
+  private static String station(String name, String line, String edges) {
+    return "<Station><Name>" + name + "</Name><Line>" + line + "</Line>"
+        + "<StationEdges>" + edges + "</StationEdges></Station>";
+  }
+
+  private static String edge(String name, String line, String duration) {
+    return "<StationEdge><Name>" + name + "</Name><Line>" + line + "</Line>"
+        + "<Duration>" + duration + "</Duration></StationEdge>";
+  }
+}
@@ -0,0 +1,49 @@
+package io.seanbailey.railnetwork.partition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.graph.StationGraph;
+import io.seanbailey.railnetwork.util.Dictionary;
+import org.junit.Test;
+
+public class PartitionTest {
+
+  @Test
+  public void partitioningCoversEveryStation() throws Throwable {
+    StationGraph graph = new NetworkLoader().load("RailNetwork.xml").getGraph();
+    Partition partition = new GraphPartitioner().partition(graph, 4);
+
+    int total = 0;
+    for (int cell = 0; cell < partition.getCellCount(); cell++) {
+      assertTrue("Cell is empty.", partition.getCellStations(cell).length > 0);
+      total += partition.getCellStations(cell).length;
+    }
+
+    assertEquals(graph.getStationCount(), total);
+  }
+
+  @Test
+  public void coordinatorMatchesSingleGraph() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    Dictionary names = network.getGraph().getNames();
+
+    try (LocalCluster cluster = new LocalCluster(network.getGraph(), 4)) {
+      for (int i = 0; i < names.size(); i += 7) {
+        for (int j = 0; j < names.size(); j += 5) {
+          if (i == j) {
+            continue;
+          }
+
+          assertEquals(
+              names.get(i) + " to " + names.get(j),
+              network.findShortestPath(names.get(i), names.get(j)).getTotalMinutes(),
+              cluster.getCoordinator().findDistance(names.get(i), names.get(j))
+          );
+        }
+      }
+    }
+  }
+}
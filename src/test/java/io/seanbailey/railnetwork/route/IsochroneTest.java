@@ -0,0 +1,86 @@
+package io.seanbailey.railnetwork.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class IsochroneTest {
+
+  @Test
+  public void includingStationsAtTheBudget() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    Map<String, Integer> all = toMap(network.findReachable("Central", Integer.MAX_VALUE));
+
+    for (Map.Entry<String, Integer> entry : all.entrySet()) {
+      if (!entry.getKey().equals("Central")) {
+        assertEquals(entry.getKey(),
+            network.findShortestPath("Central", entry.getKey()).getTotalMinutes(),
+            (int) entry.getValue());
+      }
+    }
+
+    for (int budget : new int[] { 1, 5, 12, 30 }) {
+      Map<String, Integer> reachable = toMap(network.findReachable("Central", budget));
+
+      // Exactly the stations at most the budget away
+      for (Map.Entry<String, Integer> entry : all.entrySet()) {
+        assertEquals(entry.getKey() + " within " + budget,
+            entry.getValue() <= budget, reachable.containsKey(entry.getKey()));
+      }
+    }
+
+    // A station exactly at the budget is included, and excluded one minute less
+    String station = null;
+    for (Map.Entry<String, Integer> entry : all.entrySet()) {
+      if (entry.getValue() > 0) {
+        station = entry.getKey();
+        break;
+      }
+    }
+    int minutes = all.get(station);
+    assertEquals(minutes, (int) toMap(network.findReachable("Central", minutes)).get(station));
+    assertTrue(!toMap(network.findReachable("Central", minutes - 1)).containsKey(station));
+  }
+
+  @Test
+  public void reachingOnlyOriginWithZeroBudget() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    Isochrone isochrone = network.findReachable("Central", 0);
+
+    assertEquals(1, isochrone.size());
+    assertEquals("Central", isochrone.getName(0));
+    assertEquals(0, isochrone.getMinutes()[0]);
+  }
+
+  @Test
+  public void rejectingNegativeBudget() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+
+    try {
+      network.findReachable("Central", -1);
+      fail("Negative budget was accepted.");
+    } catch (ValidationException exception) {
+      assertEquals("Travel time budget cannot be negative.", exception.getMessage());
+    }
+  }
+
+  /**
+   * @param isochrone Isochrone to convert.
+   * @return The travel time to each reachable station, by name.
+   */
+  private static Map<String, Integer> toMap(Isochrone isochrone) {
+    Map<String, Integer> minutes = new HashMap<>();
+    for (int i = 0; i < isochrone.size(); i++) {
+      minutes.put(isochrone.getName(i), isochrone.getMinutes()[i]);
+    }
+
+    return minutes;
+  }
+}
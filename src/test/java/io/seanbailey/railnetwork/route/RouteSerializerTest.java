@@ -0,0 +1,97 @@
+package io.seanbailey.railnetwork.route;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.seanbailey.railnetwork.util.OutputBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class RouteSerializerTest {
+
+  private static final Route route = new Route(new Leg[] {
+      new Leg("Bondi Junction", "Redfern", "EasternSuburbsIllawarraLine", 13),
+      new Leg("Redfern", "Strathfield", "NorthernLine", 30)
+  }, 43);
+
+  // A name outside the Basic Multilingual Plane, which needs a surrogate pair
+  private static final String TRAIN = "Central \uD83D\uDE86";
+
+  private static final Route unicodeRoute = new Route(new Leg[] {
+      new Leg(TRAIN, "Redfern", "NorthernLine", 3)
+  }, 3);
+
+  @Test
+  public void writingJson() {
+    OutputBuffer buffer = new OutputBuffer();
+    new JsonRouteSerializer().write(route, buffer);
+
+    assertEquals(
+        "{\"legs\":[" +
+        "{\"origin\":\"Bondi Junction\",\"destination\":\"Redfern\"," +
+        "\"line\":\"EasternSuburbsIllawarraLine\",\"minutes\":13}," +
+        "{\"origin\":\"Redfern\",\"destination\":\"Strathfield\"," +
+        "\"line\":\"NorthernLine\",\"minutes\":30}" +
+        "],\"totalMinutes\":43,\"transfers\":1}",
+        new String(buffer.toByteArray(), StandardCharsets.UTF_8)
+    );
+  }
+
+  @Test
+  public void writingNonBmpNamesAsUtf8() {
+    OutputBuffer buffer = new OutputBuffer();
+    new JsonRouteSerializer().write(unicodeRoute, buffer);
+
+    String expected = "{\"legs\":[" +
+        "{\"origin\":\"" + TRAIN + "\",\"destination\":\"Redfern\"," +
+        "\"line\":\"NorthernLine\",\"minutes\":3}" +
+        "],\"totalMinutes\":3,\"transfers\":0}";
+    assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    assertEquals(expected, new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void replacingLoneSurrogates() {
+    OutputBuffer buffer = new OutputBuffer();
+    buffer.append("A\uD83D").append('\uDE86').append("B\uDE86\uD83D");
+
+    assertEquals("A\uFFFD\uFFFDB\uFFFD\uFFFD",
+        new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void writingBinary() throws Throwable {
+    OutputBuffer buffer = new OutputBuffer();
+    new BinaryRouteSerializer().write(unicodeRoute, buffer);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+
+    assertEquals(3, in.readInt());
+    assertEquals(1, in.readInt());
+    assertEquals(TRAIN, readString(in));
+    assertEquals("Redfern", readString(in));
+    assertEquals("NorthernLine", readString(in));
+    assertEquals(3, in.readInt());
+    assertEquals(-1, in.read());
+  }
+
+  @Test
+  public void reusingBuffer() {
+    OutputBuffer buffer = new OutputBuffer();
+    RouteSerializer serializer = new TextRouteSerializer();
+    serializer.write(route, buffer);
+    int size = buffer.size();
+
+    // Writing the same route again should give identical output
+    buffer.clear();
+    serializer.write(route, buffer);
+    assertEquals(size, buffer.size());
+  }
+
+  private static String readString(DataInputStream in) throws Throwable {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,126 @@
+package io.seanbailey.railnetwork.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.route.Route;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+public class AsyncRouteServiceTest {
+
+  @Test
+  public void coalescingIdenticalQueries() throws Throwable {
+    RouteService service = new RouteService("RailNetwork.xml", new NetworkLoader());
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(2)
+    );
+
+    try (AsyncRouteService async = new AsyncRouteService(service, executor)) {
+      // Hold the only thread, so that queries wait in the queue
+      CountDownLatch latch = new CountDownLatch(1);
+      executor.execute(() -> {
+        try {
+          latch.await();
+        } catch (InterruptedException exception) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      CompletableFuture<Route> first = async.findShortestPath("Central", "Hornsby");
+      CompletableFuture<Route> second = async.findShortestPath("Central", "Hornsby");
+      CompletableFuture<Route> other = async.findShortestPath("Central", "Redfern");
+      CompletableFuture<Route> rejected = async.findShortestPath("Central", "Strathfield");
+
+      assertEquals(1, async.getCoalescedCount());
+      assertEquals(2, async.getInFlightCount());
+      assertRejected(rejected);
+
+      latch.countDown();
+      int expected = service.findShortestPath("Central", "Hornsby").getTotalMinutes();
+      assertEquals(expected, first.join().getTotalMinutes());
+      assertEquals(expected, second.join().getTotalMinutes());
+      assertEquals(
+          service.findShortestPath("Central", "Redfern").getTotalMinutes(),
+          async.awaitShortestPath("Central", "Redfern").getTotalMinutes()
+      );
+      other.join();
+      assertEquals(0, async.getInFlightCount());
+    }
+  }
+
+  @Test
+  public void cancellingQueuedQueriesOnClose() throws Throwable {
+    RouteService service = new RouteService("RailNetwork.xml", new NetworkLoader());
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(2)
+    );
+    AsyncRouteService async = new AsyncRouteService(service, executor);
+
+    // Hold the only thread until it is interrupted by close
+    CountDownLatch latch = new CountDownLatch(1);
+    executor.execute(() -> {
+      try {
+        latch.await();
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    });
+
+    CompletableFuture<Route> first = async.findShortestPath("Central", "Hornsby");
+    CompletableFuture<Route> second = async.findShortestPath("Central", "Hornsby");
+    CompletableFuture<Route> other = async.findShortestPath("Central", "Redfern");
+    async.close();
+
+    assertEquals(0, async.getInFlightCount());
+    assertCancelled(first);
+    assertCancelled(second);
+    assertCancelled(other);
+  }
+
+  @Test(expected = ValidationException.class)
+  public void blockingCallersSeeValidationErrors() throws Throwable {
+    RouteService service = new RouteService("RailNetwork.xml", new NetworkLoader());
+
+    try (AsyncRouteService async = new AsyncRouteService(service, 2, 8)) {
+      async.awaitShortestPath("Central", "Atlantis");
+    }
+  }
+
+  private static void assertCancelled(CompletableFuture<Route> future) {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+    } catch (ExecutionException exception) {
+      assertTrue(exception.getCause() instanceof CancellationException);
+      return;
+    } catch (CancellationException exception) {
+      return;
+    } catch (InterruptedException | TimeoutException exception) {
+      throw new AssertionError("Query was left waiting.", exception);
+    }
+
+    throw new AssertionError("Query was not cancelled.");
+  }
+
+  private static void assertRejected(CompletableFuture<Route> future) {
+    try {
+      future.join();
+    } catch (CompletionException exception) {
+      assertTrue(exception.getCause() instanceof RejectedExecutionException);
+      return;
+    }
+
+    throw new AssertionError("Query was not rejected.");
+  }
+}
@@ -0,0 +1,51 @@
+package io.seanbailey.railnetwork.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class NetworkHostTest {
+
+  @Test
+  public void networksShareNames() throws Throwable {
+    try (NetworkHost host = new NetworkHost(new NetworkLoader())) {
+      host.add("first", "RailNetwork.xml");
+      host.add("second", "RailNetwork.xml");
+
+      Dictionary first = host.get("first").getNetwork().getGraph().getNames();
+      Dictionary second = host.get("second").getNetwork().getGraph().getNames();
+      assertSame(
+          first.get(first.getId("Central")),
+          second.get(second.getId("Central"))
+      );
+      assertEquals(Arrays.asList("first", "second"), host.getNetworkNames());
+    }
+  }
+
+  @Test
+  public void routingByNetworkName() throws Throwable {
+    try (NetworkHost host = new NetworkHost(new NetworkLoader())) {
+      RouteService first = host.add("first", "RailNetwork.xml");
+
+      assertSame(first, host.getDefault());
+      assertEquals(
+          first.findShortestPath("Central", "Hornsby").getTotalMinutes(),
+          host.findShortestPath("first", "Central", "Hornsby").getTotalMinutes()
+      );
+      assertTrue(host.contains("first"));
+    }
+  }
+
+  @Test(expected = ValidationException.class)
+  public void rejectingUnknownNetwork() throws Throwable {
+    try (NetworkHost host = new NetworkHost(new NetworkLoader())) {
+      host.findShortestPath("missing", "Central", "Hornsby");
+    }
+  }
+}
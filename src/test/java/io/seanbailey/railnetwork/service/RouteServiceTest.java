@@ -0,0 +1,109 @@
+package io.seanbailey.railnetwork.service;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.exception.ParseException;
+import io.seanbailey.railnetwork.exception.ValidationException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class RouteServiceTest {
+
+  @Test
+  public void reloadingRewrittenFile() throws Throwable {
+    Path file = copyNetwork();
+
+    try (RouteService service = new RouteService(file.toString(), new NetworkLoader())) {
+      RailNetwork initial = service.getNetwork();
+
+      // A broken file fails the reload and keeps the current snapshot
+      Files.write(file, "<network>".getBytes(StandardCharsets.UTF_8));
+      assertFailed(service.reload(), ParseException.class);
+      assertSame(initial, service.getNetwork());
+
+      Files.copy(Paths.get("RailNetwork.xml"), file, StandardCopyOption.REPLACE_EXISTING);
+      RailNetwork reloaded = service.reload().get(10, TimeUnit.SECONDS);
+      assertNotSame(initial, reloaded);
+      assertSame(reloaded, service.getNetwork());
+    }
+  }
+
+  @Test
+  public void failingReloadOnUnexpectedError() throws Throwable {
+    AtomicInteger loads = new AtomicInteger();
+    NetworkLoader loader = new NetworkLoader() {
+      @Override
+      public RailNetwork load(String path) throws ValidationException, ParseException {
+        if (loads.incrementAndGet() > 1) {
+          throw new IllegalStateException("Loader failed.");
+        }
+        return super.load(path);
+      }
+    };
+
+    try (RouteService service = new RouteService("RailNetwork.xml", loader)) {
+      RailNetwork initial = service.getNetwork();
+      assertFailed(service.reload(), IllegalStateException.class);
+      assertSame(initial, service.getNetwork());
+    }
+  }
+
+  @Test
+  public void failingReloadAfterClose() throws Throwable {
+    RouteService service = new RouteService("RailNetwork.xml", new NetworkLoader());
+    service.close();
+    assertFailed(service.reload(), RejectedExecutionException.class);
+  }
+
+  @Test
+  public void reloadingWatchedFile() throws Throwable {
+    Path file = copyNetwork();
+
+    try (RouteService service = new RouteService(file.toString(), new NetworkLoader())) {
+      RailNetwork initial = service.getNetwork();
+      service.watch();
+
+      Files.write(file, Files.readAllBytes(Paths.get("RailNetwork.xml")));
+
+      long deadline = System.currentTimeMillis() + 10000;
+      while (service.getNetwork() == initial && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      assertNotSame(initial, service.getNetwork());
+    }
+  }
+
+  private static Path copyNetwork() throws Throwable {
+    Path directory = Files.createTempDirectory("network");
+    Path file = directory.resolve("RailNetwork.xml");
+    Files.copy(Paths.get("RailNetwork.xml"), file);
+    file.toFile().deleteOnExit();
+    directory.toFile().deleteOnExit();
+    return file;
+  }
+
+  private static void assertFailed(CompletableFuture<RailNetwork> future,
+      Class<? extends Throwable> cause) throws Throwable {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException exception) {
+      assertTrue(cause.isInstance(exception.getCause()));
+      return;
+    }
+
+    throw new AssertionError("Reload did not fail.");
+  }
+}
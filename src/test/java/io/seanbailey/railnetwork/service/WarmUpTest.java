@@ -0,0 +1,39 @@
+package io.seanbailey.railnetwork.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class WarmUpTest {
+
+  @Test
+  public void warmingUpMarksServiceReady() throws Throwable {
+    try (RouteService service = new RouteService("RailNetwork.xml", new NetworkLoader())) {
+      assertFalse(service.isReady());
+
+      WarmUpReport report = service.warmUp(
+          new WarmUp().setThreads(2).setBudget(2000).setSeed(1)
+      );
+
+      assertTrue(service.isReady());
+      assertTrue(report.getQueries() > 0);
+      assertEquals(0, report.getQueries() % 2);
+      assertTrue(report.getElapsedMillis() < 10000);
+    }
+  }
+
+  @Test
+  public void replayingRecordedQueries() throws Throwable {
+    WarmUp warmUp = new WarmUp().setThreads(1).setBudget(500).setQueries(Arrays.asList(
+        new String[] { "Central", "Hornsby" },
+        new String[] { "Central", "Nowhere" }
+    ));
+
+    WarmUpReport report = warmUp.run(new NetworkLoader().load("RailNetwork.xml"));
+    assertTrue(report.getQueries() > 0);
+  }
+}
@@ -0,0 +1,84 @@
+package io.seanbailey.railnetwork.table;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.seanbailey.railnetwork.NetworkLoader;
+import io.seanbailey.railnetwork.RailNetwork;
+import io.seanbailey.railnetwork.labeling.HubLabeler;
+import io.seanbailey.railnetwork.util.Dictionary;
+import java.util.Random;
+import org.junit.Test;
+
+public class MinPlusTest {
+
+  @Test
+  public void multiplyingMatchesNaiveProduct() {
+    Random random = new Random(3);
+
+    // Sizes either side of the block sizes
+    int[][] shapes = { { 1, 1, 1 }, { 5, 7, 3 }, { 17, 130, 40 }, { 40, 300, 1100 } };
+    for (int[] shape : shapes) {
+      int rows = shape[0];
+      int inner = shape[1];
+      int columns = shape[2];
+      int[] a = randomMatrix(random, rows * inner);
+      int[] b = randomMatrix(random, inner * columns);
+
+      int[] expected = new int[rows * columns];
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < columns; j++) {
+          long best = MinPlus.INFINITY;
+          for (int k = 0; k < inner; k++) {
+            best = Math.min(best, (long) a[i * inner + k] + b[k * columns + j]);
+          }
+          expected[i * columns + j] = (int) best;
+        }
+      }
+
+      int[] actual = new int[rows * columns];
+      MinPlus.multiply(a, b, actual, rows, inner, columns);
+      assertArrayEquals(rows + "x" + inner + "x" + columns, expected, actual);
+    }
+  }
+
+  @Test
+  public void labelledTableMatchesSearch() throws Throwable {
+    RailNetwork network = new NetworkLoader().load("RailNetwork.xml");
+    Dictionary names = network.getGraph().getNames();
+    String[] origins = new String[names.size() / 2];
+    String[] destinations = new String[names.size() - origins.length];
+    for (int i = 0; i < names.size(); i++) {
+      if (i < origins.length) {
+        origins[i] = names.get(i);
+      } else {
+        destinations[i - origins.length] = names.get(i);
+      }
+    }
+
+    DistanceTable searched = network.findDistanceTable(origins, destinations);
+    network.setHubLabels(new HubLabeler().build(network.getGraph()));
+    DistanceTable labelled = network.findDistanceTable(origins, destinations);
+
+    for (int i = 0; i < origins.length; i++) {
+      for (int j = 0; j < destinations.length; j++) {
+        assertEquals(origins[i] + " to " + destinations[j],
+            searched.getMinutes(i, j), labelled.getMinutes(i, j));
+      }
+    }
+  }
+
+  /**
+   * @param random Random number generator.
+   * @param length Number of entries.
+   * @return A matrix with about a third of its entries unreachable.
+   */
+  private static int[] randomMatrix(Random random, int length) {
+    int[] matrix = new int[length];
+    for (int i = 0; i < length; i++) {
+      matrix[i] = random.nextInt(3) == 0 ? MinPlus.INFINITY : random.nextInt(1000);
+    }
+
+    return matrix;
+  }
+}
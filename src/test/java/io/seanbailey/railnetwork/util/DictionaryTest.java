@@ -0,0 +1,44 @@
+package io.seanbailey.railnetwork.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DictionaryTest {
+
+  @Test
+  public void addingReturnsCanonicalCopy() {
+    Dictionary dictionary = new Dictionary();
+    String first = dictionary.add(new String("Central"));
+    String second = dictionary.add(new String("Central"));
+
+    assertSame("Duplicate strings were not interned.", first, second);
+    assertEquals(1, dictionary.size());
+  }
+
+  @Test
+  public void idsPreserveOrdering() {
+    Dictionary dictionary = new Dictionary();
+    dictionary.add("Redfern");
+    dictionary.add("Central");
+    dictionary.add("Town Hall");
+    dictionary.freeze();
+
+    assertTrue(dictionary.getId("Central") < dictionary.getId("Redfern"));
+    assertTrue(dictionary.getId("Redfern") < dictionary.getId("Town Hall"));
+    assertEquals("Central", dictionary.get(dictionary.getId("Central")));
+    assertEquals(-1, dictionary.getId("Wynyard"));
+  }
+
+  @Test
+  public void sharingPoolAcrossDictionaries() {
+    StringPool pool = new StringPool();
+    String first = new Dictionary(pool).add(new String("Central"));
+    String second = new Dictionary(pool).add(new String("Central"));
+
+    assertSame("Shared strings were not interned.", first, second);
+    assertSame(first, pool.intern(new String("Central")));
+  }
+}
@@ -0,0 +1,55 @@
+package io.seanbailey.railnetwork.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IntHeapTest {
+
+  @Test
+  public void poppingInPriorityOrder() {
+    IntMinHeap heap = new IntMinHeap(5);
+    heap.push(0, 40);
+    heap.push(1, 10);
+    heap.push(2, 30);
+    heap.push(3, 20);
+    heap.push(4, 50);
+
+    assertEquals(1, heap.pop());
+    assertEquals(3, heap.pop());
+    assertEquals(2, heap.pop());
+    assertEquals(0, heap.pop());
+    assertEquals(4, heap.pop());
+    assertTrue(heap.isEmpty());
+  }
+
+  @Test
+  public void loweringPriority() {
+    IntMinHeap heap = new IntMinHeap(3);
+    heap.push(0, 10);
+    heap.push(1, 20);
+    heap.push(2, 30);
+
+    // Lowering should move the id up, raising should be ignored
+    heap.push(2, 5);
+    heap.push(0, 50);
+
+    assertEquals(3, heap.getSize());
+    assertEquals(2, heap.pop());
+    assertEquals(0, heap.pop());
+    assertEquals(1, heap.pop());
+  }
+
+  @Test
+  public void clearingForReuse() {
+    IntMinHeap heap = new IntMinHeap(3);
+    heap.push(0, 10);
+    heap.push(1, 20);
+    heap.clear();
+
+    heap.push(1, 30);
+    assertEquals(1, heap.getSize());
+    assertEquals(1, heap.pop());
+  }
+}
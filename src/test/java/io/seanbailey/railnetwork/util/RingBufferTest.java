@@ -0,0 +1,62 @@
+package io.seanbailey.railnetwork.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class RingBufferTest {
+
+  @Test
+  public void rejectingWhenFull() {
+    RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    for (int i = 0; i < 4; i++) {
+      assertTrue(buffer.offer(i));
+    }
+
+    assertFalse("Full buffer accepted an element.", buffer.offer(4));
+    assertEquals(Integer.valueOf(0), buffer.poll());
+    assertTrue(buffer.offer(4));
+  }
+
+  @Test
+  public void keepingEachProducersOrder() throws Throwable {
+    int producers = 4;
+    int perProducer = 20000;
+    RingBuffer<long[]> buffer = new RingBuffer<>(64);
+
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      int producer = p;
+      threads[p] = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          while (!buffer.offer(new long[] { producer, i })) {
+            Thread.yield();
+          }
+        }
+      });
+      threads[p].start();
+    }
+
+    // Consume on this thread, checking that no element is lost or reordered
+    int[] next = new int[producers];
+    int received = 0;
+    while (received < producers * perProducer) {
+      long[] element = buffer.poll();
+      if (element == null) {
+        Thread.yield();
+        continue;
+      }
+
+      assertEquals(next[(int) element[0]]++, element[1]);
+      received++;
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(buffer.poll());
+  }
+}
@@ -0,0 +1,50 @@
+package io.seanbailey.railnetwork.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SortTest {
+
+  @Test
+  public void sortingAlreadySortedInput() {
+    // init
+    int size = 100000;
+    MinHeap<Integer> heap = new MinHeap<>(new Integer[size]);
+    for (int i = 0; i < size; i++) {
+      heap.insert(i);
+    }
+
+    SortUtil.parallelSort(heap, Integer::longValue);
+
+    Integer[] nodes = heap.getNodes();
+    for (int i = 1; i < size; i++) {
+      assertTrue("Nodes are out of order.", nodes[i - 1] <= nodes[i]);
+    }
+  }
+
+  @Test
+  public void sortingMaintainsHeap() {
+    // init
+    MinHeap<String> heap = new MinHeap<>(new String[5]);
+    heap.insert("d");
+    heap.insert("b");
+    heap.insert("e");
+    heap.insert("a");
+    heap.insert("c");
+
+    SortUtil.parallelSort(heap, value -> value.charAt(0));
+
+    assertEquals("a", heap.getNodes()[0]);
+    assertEquals("e", heap.getNodes()[4]);
+
+    // Heap should still pop in order
+    String previous = "";
+    while (!heap.isEmpty()) {
+      String node = heap.pop();
+      assertTrue("Heap was not maintained.", previous.compareTo(node) <= 0);
+      previous = node;
+    }
+  }
+}